@@ -30,6 +30,13 @@ public @interface RedisCacheable {
      */
     int expire() default 3600;
     
+    /**
+     * 过期后仍可返回旧值的时间，单位同timeUnit，大于0时开启软过期模式：
+     * 过期后的调用直接返回旧值并由后台刷新缓存
+     * @return
+     */
+    int staleExpire() default 0;
+    
     /**
      * 失效时间单位
      * @return
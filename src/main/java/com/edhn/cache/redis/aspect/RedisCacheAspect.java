@@ -59,6 +59,18 @@ public class RedisCacheAspect {
         String cacheKey = anno.name() + new SpelEvaluator(anno.key(), methodContext.getMethod()).apply(methodContext);
         int expreSeconds = (int) anno.timeUnit().toSeconds(anno.expire());
         cacheExpreMap.put(cacheKey, expreSeconds);
+        if (anno.staleExpire() > 0) {
+            int staleSeconds = (int) anno.timeUnit().toSeconds(anno.staleExpire());
+            @SuppressWarnings("unchecked")
+            Class<Object> returnType = (Class<Object>) methodContext.getMethod().getReturnType();
+            try {
+                // 软过期后的刷新在后台线程中调用被切方法
+                return redisApi.computeIfAbsent(cacheKey, returnType, expreSeconds, staleSeconds, 
+                    k -> proceed(joinPoint));
+            } catch (ProceedException e) {
+                throw e.getCause();
+            }
+        }
         result = redisApi.get(cacheKey, methodContext.getMethod().getReturnType());
         if (result == null) {
             ReentrantLock lock = loaderLock.computeIfAbsent(cacheKey, k->new ReentrantLock());
@@ -167,5 +179,26 @@ public class RedisCacheAspect {
     private boolean isCurrentThreadCacheEnabeld() {
         return AbstractRedisSimpleApi.isCurrentThreadCacheEnabeld();
     }
+    
+    private Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            throw new ProceedException(e);
+        }
+    }
+    
+    /**
+     * 在加载回调中传递被切方法的异常
+     */
+    private static class ProceedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ProceedException(Throwable cause) {
+            super(cause);
+        }
+
+    }
 
 }
@@ -27,7 +27,6 @@ import com.edhn.cache.redis.async.IAsyncPersistenceHandler;
 import com.edhn.cache.redis.async.IAsyncPersistenceService;
 import com.edhn.cache.redis.client.RedisClient;
 import com.edhn.cache.redis.client.RedisClientPool;
-import com.edhn.cache.redis.client.impl.JedisClusterClientPool;
 import com.edhn.cache.redis.configuration.modal.AsyncPersistConfig;
 import com.edhn.cache.redis.exception.AsyncPersistenceException;
 import com.edhn.cache.redis.serializer.FastjsonValueDecoder;
@@ -148,7 +147,7 @@ public class AsyncPersistenceRedisImpl implements IAsyncPersistenceService {
     
     protected boolean isRedisCluster() {
         RedisClientPool pool = redisApi.unwrap().getPool();
-        return JedisClusterClientPool.class.isInstance(pool);
+        return pool.isCluster();
     }
     
     /**
@@ -0,0 +1,133 @@
+package com.edhn.cache.redis.client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * LuaScript
+ * 已注册的lua脚本，sha1在本地计算，执行时先用EVALSHA，节点上没有脚本（首次执行、故障切换到新主节点、重启）时
+ * 返回NOSCRIPT，此时改用EVAL执行一次，redis执行EVAL后缓存脚本，之后在该节点上EVALSHA即可命中
+ * 集群模式按KEYS[1]路由，脚本中的key需在同一slot
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Getter
+public class LuaScript {
+
+    private static final Map<String, LuaScript> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final String source;
+
+    private final String sha1;
+
+    /**
+     * 返回值类型，Long/String/Boolean/List，RedisTemplate执行时据此确定返回类型
+     */
+    private final Class<?> resultType;
+
+    private LuaScript(String name, String source, Class<?> resultType) {
+        this.name = name;
+        this.source = source;
+        this.sha1 = sha1Hex(source);
+        this.resultType = resultType;
+    }
+
+    /**
+     * 注册脚本，同名脚本只注册一次
+     * @param name
+     * @param source
+     * @param resultType
+     * @return
+     */
+    public static LuaScript register(String name, String source, Class<?> resultType) {
+        LuaScript script = REGISTRY.computeIfAbsent(name, n -> new LuaScript(n, source, resultType));
+        if (!script.source.equals(source)) {
+            throw new IllegalArgumentException("lua script " + name + " already registered with different source");
+        }
+        return script;
+    }
+
+    /**
+     * @param name
+     * @return 已注册的脚本，未注册返回null
+     */
+    public static LuaScript get(String name) {
+        return REGISTRY.get(name);
+    }
+
+    /**
+     * @param sha1
+     * @return 已注册的脚本，未注册返回null
+     */
+    public static LuaScript getBySha1(String sha1) {
+        return REGISTRY.values().stream().filter(s -> s.sha1.equalsIgnoreCase(sha1)).findFirst().orElse(null);
+    }
+
+    /**
+     * @param source
+     * @return 已注册的脚本，未注册返回null
+     */
+    public static LuaScript getBySource(String source) {
+        return REGISTRY.values().stream().filter(s -> s.source.equals(source)).findFirst().orElse(null);
+    }
+
+    /**
+     * 用EVALSHA执行，NOSCRIPT时改用EVAL
+     * @param client
+     * @param keys
+     * @param args
+     * @return
+     */
+    public Object execute(RedisClient client, List<String> keys, List<String> args) {
+        try {
+            return client.evalsha(sha1, keys, args);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            return client.eval(source, keys, args);
+        }
+    }
+
+    /**
+     * @param e
+     * @return 异常链中有NOSCRIPT错误（spring转换后的异常）
+     */
+    public static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof JedisNoScriptException || (t.getMessage() != null && t.getMessage().contains("NOSCRIPT"))) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static String sha1Hex(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -6,8 +6,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
 
 /**
  * RedisClient
@@ -27,6 +29,8 @@ public interface RedisClient extends Closeable {
 
     Boolean exists(String key);
 
+    Long exists(String... keys);
+
     Long expire(String key, int seconds);
 
     Long ttl(String key);
@@ -35,6 +39,8 @@ public interface RedisClient extends Closeable {
 
     Long del(String... keys);
 
+    Long unlink(String... keys);
+
     String set(String key, String value);
 
     String set(String key, int seconds, String value, boolean nx, boolean xx);
@@ -47,10 +53,14 @@ public interface RedisClient extends Closeable {
 
     List<String> mget(String... keys);
 
+    String mset(String... keysvalues);
+
     Long incr(String key);
 
     Long decr(String key);
 
+    Boolean setbit(String key, long offset, boolean value);
+
     byte[] get(byte[] key);
 
     String set(byte[] key, byte[] value);
@@ -112,6 +122,10 @@ public interface RedisClient extends Closeable {
     Long hlen(String key);
 
     Map<String, String> hgetAll(String key);
+    
+    List<String> hmget(String key, String... fields);
+    
+    Long hset(String key, Map<String, String> hash);
 
     Long hset(byte[] key, byte[] field, byte[] value);
 
@@ -186,8 +200,28 @@ public interface RedisClient extends Closeable {
     Long zcount(String key, double min, double max);
     
     ScanResult<String> scan(final String cursor, final ScanParams params);
+    
+    ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params);
+    
+    ScanResult<String> sscan(String key, String cursor, ScanParams params);
+    
+    ScanResult<Tuple> zscan(String key, String cursor, ScanParams params);
+    
+    Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count);
+
+    //// pubsub
+    Long publish(String channel, String message);
+
+    /**
+     * 订阅通道，阻塞直到jedisPubSub取消订阅或连接断开
+     * @param jedisPubSub
+     * @param channels
+     */
+    void subscribe(JedisPubSub jedisPubSub, String... channels);
 
     //// script
     Object eval(String script, List<String> keys, List<String> args);
+    
+    Object evalsha(String sha1, List<String> keys, List<String> args);
 
 }
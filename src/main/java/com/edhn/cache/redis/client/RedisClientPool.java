@@ -1,5 +1,8 @@
 package com.edhn.cache.redis.client;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * RedisClientPool
  * 
@@ -12,5 +15,26 @@ public interface RedisClientPool {
     
     
     RedisClient getResource();
+    
+    /**
+     * @return 只执行读命令的连接，开启从节点读时可能连到从节点，未开启时同getResource
+     */
+    default RedisClient getReadResource() {
+        return getResource();
+    }
+    
+    /**
+     * @return 各主节点的连接池，scan等需在每个节点分别执行的操作使用，非集群只有自身
+     */
+    default List<RedisClientPool> getMasterPools() {
+        return Collections.singletonList(this);
+    }
+    
+    /**
+     * @return 是否集群，集群时跨slot的多key命令（如rpoplpush）不可用
+     */
+    default boolean isCluster() {
+        return false;
+    }
 
 }
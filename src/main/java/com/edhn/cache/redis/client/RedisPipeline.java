@@ -1,6 +1,7 @@
 package com.edhn.cache.redis.client;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,6 +48,10 @@ public interface RedisPipeline extends Closeable {
     Response<Long> incr(String key);
 
     Response<Long> decr(String key);
+
+    Response<Boolean> setbit(String key, long offset, boolean value);
+
+    Response<Boolean> getbit(String key, long offset);
     
     Response<byte[]> get(byte[] key);
 
@@ -98,6 +103,10 @@ public interface RedisPipeline extends Closeable {
 
     Response<Map<String, String>> hgetAll(String key);
 
+    Response<List<String>> hmget(String key, String... fields);
+
+    Response<Long> hset(String key, Map<String, String> hash);
+
     Response<Long> hset(byte[] key, byte[] field, byte[] value);
 
     Response<byte[]> hget(byte[] key, byte[] field);
@@ -155,6 +164,14 @@ public interface RedisPipeline extends Closeable {
     Response<Set<byte[]>> zrangeByScore(byte[] key, double min, double max);
 
     //// script
-//    Response<Object> eval(String script, List<String> keys, List<String> args);
+
+    /**
+     * 以EVAL排入pipeline，不做EVALSHA的NOSCRIPT重试；结果类型与RedisClient.eval一致
+     * @param script
+     * @param keys
+     * @param args
+     * @return
+     */
+    Response<Object> eval(String script, List<String> keys, List<String> args);
 
 }
@@ -1,20 +1,34 @@
 package com.edhn.cache.redis.client.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import com.edhn.cache.redis.client.RedisClient;
 import com.edhn.cache.redis.client.RedisPipeline;
 
 import lombok.Getter;
 import lombok.Setter;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.util.JedisClusterCRC16;
 
 /**
  * JedisClusterClient
@@ -30,13 +44,29 @@ public class JedisClusterClient implements RedisClient {
     @Setter
     private JedisCluster jedis;
 
+    private volatile JedisClusterInfoCache clusterInfoCache;
+
+    /**
+     * 只读client按slot选择读的从节点，返回null时读主节点；普通client为null
+     */
+    private final IntFunction<ReplicaRouter.Node> readRouter;
+
     public JedisClusterClient(JedisCluster jedis) {
+        this(jedis, null);
+    }
+
+    /**
+     * @param jedis
+     * @param readRouter 不为null时为只读client，get/mget/hget/hgetAll/smembers/zrange/exists和pipeline按其选择的节点读
+     */
+    public JedisClusterClient(JedisCluster jedis, IntFunction<ReplicaRouter.Node> readRouter) {
         this.jedis = jedis;
+        this.readRouter = readRouter;
     }
 
     @Override
     public RedisPipeline pipelined() {
-        JedisClusterPipeline pipeline = new JedisClusterPipeline(jedis);
+        JedisClusterPipeline pipeline = new JedisClusterPipeline(jedis, readRouter);
         return pipeline;
     }
 
@@ -53,7 +83,13 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public Boolean exists(String key) {
-        return jedis.exists(key);
+        return read(key, j -> j.exists(key), () -> jedis.exists(key));
+    }
+
+    @Override
+    public Long exists(String... keys) {
+        List<Boolean> results = executeByNode(keys, (p, i) -> p.exists(keys[i]), readRouter);
+        return results.stream().filter(Boolean.TRUE::equals).count();
     }
 
 
@@ -73,9 +109,18 @@ public class JedisClusterClient implements RedisClient {
         return jedis.del(key);
     }
 
+    /**
+     * 集群模式按节点分组用unlink删除，不阻塞redis
+     */
     @Override
     public Long del(String... keys) {
-        return jedis.del(keys);
+        return unlink(keys);
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        List<Long> results = executeByNode(keys, (p, i) -> p.unlink(keys[i]));
+        return results.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sum();
     }
 
 
@@ -101,7 +146,7 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public String get(String key) {
-        return jedis.get(key);
+        return read(key, j -> j.get(key), () -> jedis.get(key));
     }
 
 
@@ -124,9 +169,25 @@ public class JedisClusterClient implements RedisClient {
     }
 
 
+    /**
+     * 按节点分组并行读取，key可以跨slot，结果与keys顺序一致
+     */
     @Override
     public List<String> mget(String... keys) {
-        return jedis.mget(keys);
+        return executeByNode(keys, (p, i) -> p.get(keys[i]), readRouter);
+    }
+
+    /**
+     * 按节点分组并行写入，key可以跨slot，各节点分别生效不保证原子性
+     */
+    @Override
+    public String mset(String... keysvalues) {
+        String[] keys = new String[keysvalues.length / 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keysvalues[i * 2];
+        }
+        executeByNode(keys, (p, i) -> p.set(keys[i], keysvalues[i * 2 + 1]));
+        return "OK";
     }
 
 
@@ -141,6 +202,11 @@ public class JedisClusterClient implements RedisClient {
         return jedis.decr(key);
     }
 
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        return jedis.setbit(key, offset, value);
+    }
+
     @Override
     public Long rpush(String key, String... args) {
         return jedis.rpush(key, args);
@@ -257,7 +323,7 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public String hget(String key, String field) {
-        return jedis.hget(key, field);
+        return read(key, j -> j.hget(key, field), () -> jedis.hget(key, field));
     }
 
     @Override
@@ -274,7 +340,17 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public Map<String, String> hgetAll(String key) {
-        return jedis.hgetAll(key);
+        return read(key, j -> j.hgetAll(key), () -> jedis.hgetAll(key));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return jedis.hmget(key, fields);
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        return jedis.hset(key, hash);
     }
 
     @Override
@@ -311,7 +387,7 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public Set<String> smembers(String key) {
-        return jedis.smembers(key);
+        return read(key, j -> j.smembers(key), () -> jedis.smembers(key));
     }
 
 
@@ -399,7 +475,7 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public Collection<String> zrange(String key, long start, long stop) {
-        return jedis.zrange(key, start, stop);
+        return read(key, j -> j.zrange(key, start, stop), () -> jedis.zrange(key, start, stop));
     }
 
 
@@ -478,11 +554,52 @@ public class JedisClusterClient implements RedisClient {
         return jedis.scan(cursor, params);
     }
 
+    @Override
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        try (Jedis node = getNodeResource(key)) {
+            return node.hscan(key, cursor, params);
+        }
+    }
+
+    @Override
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        try (Jedis node = getNodeResource(key)) {
+            return node.sscan(key, cursor, params);
+        }
+    }
+
+    @Override
+    public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+        try (Jedis node = getNodeResource(key)) {
+            return node.zscan(key, cursor, params);
+        }
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Long publish(String channel, String message) {
+        return jedis.publish(channel, message);
+    }
+
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        jedis.subscribe(jedisPubSub, channels);
+    }
+
     @Override
     public Object eval(String script, List<String> keys, List<String> args) {
         return jedis.eval(script, keys, args);
     }
 
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        return jedis.evalsha(sha1, keys, args);
+    }
+
     @Override
     public String setex(String key, int seconds, String value) {
         return jedis.setex(key, seconds, value);
@@ -490,7 +607,7 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public byte[] get(byte[] key) {
-        return jedis.get(key);
+        return read(key, j -> j.get(key), () -> jedis.get(key));
     }
 
     @Override
@@ -510,7 +627,91 @@ public class JedisClusterClient implements RedisClient {
 
     @Override
     public byte[] hget(byte[] key, byte[] field) {
-        return jedis.hget(key, field);
+        return read(key, j -> j.hget(key, field), () -> jedis.hget(key, field));
+    }
+
+    /**
+     * 多key命令在一个集群pipeline中执行，pipeline按节点分组并行同步，结果按keys顺序返回
+     * @param <R>
+     * @param keys
+     * @param command 参数为pipeline和key在keys中的下标
+     * @return
+     */
+    protected <R> List<R> executeByNode(String[] keys, BiFunction<JedisClusterPipeline, Integer, Response<R>> command) {
+        return executeByNode(keys, command, null);
+    }
+
+    /**
+     * @param <R>
+     * @param keys
+     * @param command
+     * @param router 读命令的节点选择，null时在主节点执行
+     * @return
+     */
+    private <R> List<R> executeByNode(String[] keys, BiFunction<JedisClusterPipeline, Integer, Response<R>> command,
+            IntFunction<ReplicaRouter.Node> router) {
+        List<R> results = new ArrayList<>(keys.length);
+        if (keys.length == 0) {
+            return results;
+        }
+        try (JedisClusterPipeline pipeline = new JedisClusterPipeline(jedis, router)) {
+            List<Response<R>> responses = new ArrayList<>(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                responses.add(command.apply(pipeline, i));
+            }
+            pipeline.sync();
+            for (Response<R> response : responses) {
+                results.add(response.get());
+            }
+        }
+        return results;
+    }
+
+    private <R> R read(String key, Function<Jedis, R> replicaCommand, Supplier<R> masterCommand) {
+        return read(JedisClusterCRC16.getSlot(key), replicaCommand, masterCommand);
+    }
+
+    private <R> R read(byte[] key, Function<Jedis, R> replicaCommand, Supplier<R> masterCommand) {
+        return read(JedisClusterCRC16.getSlot(key), replicaCommand, masterCommand);
+    }
+
+    /**
+     * 只读client在选中的从节点执行，从节点不可用或slot已迁走（MOVED）时回到主节点执行
+     * @param <R>
+     * @param slot
+     * @param replicaCommand
+     * @param masterCommand
+     * @return
+     */
+    private <R> R read(int slot, Function<Jedis, R> replicaCommand, Supplier<R> masterCommand) {
+        ReplicaRouter.Node node = readRouter != null ? readRouter.apply(slot) : null;
+        if (node == null) {
+            return masterCommand.get();
+        }
+        try (Jedis replica = node.getResource()) {
+            return replicaCommand.apply(replica);
+        } catch (JedisConnectionException e) {
+            node.markDown();
+            return masterCommand.get();
+        } catch (JedisRedirectionException e) {
+            return masterCommand.get();
+        }
+    }
+
+    /**
+     * JedisCluster的hscan/sscan/zscan不支持ScanParams，直接取key所在节点的连接执行
+     * @param key
+     * @return
+     */
+    private Jedis getNodeResource(String key) {
+        return getClusterInfoCache().getSlotPool(JedisClusterCRC16.getSlot(key)).getResource();
+    }
+
+    private JedisClusterInfoCache getClusterInfoCache() {
+        if (clusterInfoCache == null) {
+            clusterInfoCache = JedisClusterPipeline.getClusterInfoCache(jedis);
+        }
+        return clusterInfoCache;
     }
 
 }
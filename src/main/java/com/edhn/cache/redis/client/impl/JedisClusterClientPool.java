@@ -1,17 +1,28 @@
 package com.edhn.cache.redis.client.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 import com.edhn.cache.redis.client.RedisClient;
 import com.edhn.cache.redis.client.RedisClientPool;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
 
 import lombok.Getter;
 import lombok.Setter;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.util.SafeEncoder;
 
 /**
  * JedisClusterClientPool
@@ -26,6 +37,23 @@ public class JedisClusterClientPool implements RedisClientPool {
     @Getter
     @Setter
     private JedisClusterClient jedisClusterClient;
+
+    /**
+     * 从节点读的client，未开启时为null
+     */
+    private JedisClusterClient readClient;
+
+    private ReplicaRouter replicaRouter;
+
+    /**
+     * 各slot的主节点和从节点，第一个为主节点
+     */
+    private volatile List<ReplicaRouter.Node>[] slotNodes;
+
+    /**
+     * 按host:port复用节点，保留检测到的可用性和延迟
+     */
+    private final Map<String, ReplicaRouter.Node> nodes = new ConcurrentHashMap<>();
     
     public JedisClusterClientPool(JedisCluster jedisCluster) {
         this.jedisClusterClient = new JedisClusterClient(jedisCluster);
@@ -48,4 +76,87 @@ public class JedisClusterClientPool implements RedisClientPool {
         return jedisClusterClient;
     }
 
+    @Override
+    public RedisClient getReadResource() {
+        return readClient != null ? readClient : jedisClusterClient;
+    }
+
+    /**
+     * 开启从节点读，定时用CLUSTER SLOTS刷新各slot的从节点并检测节点可用性和延迟
+     * @param readFrom
+     * @param checkIntervalSeconds
+     */
+    public synchronized void enableReplicaRead(ReadFromMode readFrom, int checkIntervalSeconds) {
+        if (readFrom == null || readFrom == ReadFromMode.master || replicaRouter != null) {
+            return;
+        }
+        replicaRouter = new ReplicaRouter(readFrom);
+        refreshSlotNodes();
+        replicaRouter.schedule(() -> {
+            refreshSlotNodes();
+            nodes.values().forEach(ReplicaRouter.Node::check);
+        }, checkIntervalSeconds);
+        readClient = new JedisClusterClient(jedisClusterClient.getJedis(), this::selectReadNode);
+    }
+
+    /**
+     * @param slot
+     * @return 读slot选中的从节点，null表示读主节点
+     */
+    private ReplicaRouter.Node selectReadNode(int slot) {
+        List<ReplicaRouter.Node>[] current = slotNodes;
+        List<ReplicaRouter.Node> candidates = current != null ? current[slot] : null;
+        return candidates == null ? null : replicaRouter.select(candidates);
+    }
+
+    /**
+     * 用CLUSTER SLOTS的结果重建slot与节点的映射，节点连接池与JedisCluster共用
+     */
+    @SuppressWarnings("unchecked")
+    private void refreshSlotNodes() {
+        JedisClusterInfoCache cache = JedisClusterPipeline.getClusterInfoCache(jedisClusterClient.getJedis());
+        List<Object> slots;
+        try (Jedis jedis = cache.getShuffledNodesPool().get(0).getResource()) {
+            slots = jedis.clusterSlots();
+        }
+        List<ReplicaRouter.Node>[] result = new List[JedisCluster.HASHSLOTS];
+        Set<String> current = new LinkedHashSet<>();
+        for (Object slotInfo : slots) {
+            List<Object> info = (List<Object>) slotInfo;
+            List<ReplicaRouter.Node> candidates = new ArrayList<>(info.size() - 2);
+            for (int i = 2; i < info.size(); i++) {
+                List<Object> hostInfo = (List<Object>) info.get(i);
+                HostAndPort hostAndPort = new HostAndPort(SafeEncoder.encode((byte[]) hostInfo.get(0)),
+                    ((Long) hostInfo.get(1)).intValue());
+                current.add(hostAndPort.toString());
+                candidates.add(nodes.computeIfAbsent(hostAndPort.toString(),
+                    name -> new ReplicaRouter.Node(name, cache.setupNodeIfNotExist(hostAndPort), true)));
+            }
+            Arrays.fill(result, ((Long) info.get(0)).intValue(), ((Long) info.get(1)).intValue() + 1, candidates);
+        }
+        slotNodes = result;
+        nodes.keySet().retainAll(current);
+    }
+
+    @Override
+    public boolean isCluster() {
+        return true;
+    }
+
+    /**
+     * 按slot归属取主节点，不含从节点
+     */
+    @Override
+    public List<RedisClientPool> getMasterPools() {
+        JedisClusterInfoCache cache = JedisClusterPipeline.getClusterInfoCache(jedisClusterClient.getJedis());
+        Set<JedisPool> masters = new LinkedHashSet<>();
+        for (int slot = 0; slot < JedisCluster.HASHSLOTS; slot++) {
+            JedisPool pool = cache.getSlotPool(slot);
+            if (pool != null) {
+                masters.add(pool);
+            }
+        }
+        return masters.stream().map(JedisSingleClientPool::new).collect(Collectors.toList());
+    }
+
 }
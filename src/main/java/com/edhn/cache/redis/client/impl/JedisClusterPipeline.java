@@ -3,18 +3,22 @@ package com.edhn.cache.redis.client.impl;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
 
 import com.edhn.cache.redis.client.RedisPipeline;
 
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.BinaryJedisCluster;
+import redis.clients.jedis.BuilderFactory;
 import redis.clients.jedis.Client;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisClusterConnectionHandler;
@@ -22,12 +26,18 @@ import redis.clients.jedis.JedisClusterInfoCache;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisSlotBasedConnectionHandler;
 import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Protocol;
 import redis.clients.jedis.Response;
-import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisRedirectionException;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
 import redis.clients.jedis.util.SafeEncoder;
 
 /**
@@ -48,20 +58,41 @@ public class JedisClusterPipeline extends PipelineBase implements RedisPipeline
         FIELD_CACHE = getField(JedisClusterConnectionHandler.class, "cache");
     }
 
+    /**
+     * 同一次sync中因MOVED/ASK重新路由的最大轮数，与JedisCluster默认maxAttempts一致
+     */
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final ExecutorService NODE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "RedisClusterPipeline");
+        t.setDaemon(true);
+        return t;
+    });
+
     private JedisSlotBasedConnectionHandler connectionHandler;
     private JedisClusterInfoCache clusterInfoCache;
-    private Queue<Client> clients = new LinkedList<Client>();   // 根据顺序存储每个命令对应的Client
-    private Map<JedisPool, Jedis> jedisMap = new HashMap<JedisPool, Jedis>();   // 用于缓存连接
-    private volatile boolean hasDataInBuf = false;   // 是否有数据在缓存区
+    private final List<Command> commands = new ArrayList<>();   // 按顺序记录的命令，sync时按节点发送
+    private final CommandRecorder recorder = new CommandRecorder();
+    private int currentSlot;
+
+    /**
+     * 只读pipeline按slot选择读的从节点，null时全部在主节点执行
+     */
+    private final IntFunction<ReplicaRouter.Node> readRouter;
 
     JedisClusterPipeline(JedisCluster jedis) {
+        this(jedis, null);
+    }
+
+    JedisClusterPipeline(JedisCluster jedis, IntFunction<ReplicaRouter.Node> readRouter) {
         connectionHandler = getValue(jedis, FIELD_CONNECTION_HANDLER);
         clusterInfoCache = getValue(connectionHandler, FIELD_CACHE);
+        this.readRouter = readRouter;
     }
 
     @Override
     public Object unwrap() {
-        return jedisMap;
+        return clusterInfoCache;
     }
 
     /**
@@ -96,72 +127,156 @@ public class JedisClusterPipeline extends PipelineBase implements RedisPipeline
     }
 
 
+    /**
+     * 各节点的命令在不同连接上并行发送和读取，耗时取决于最慢的节点而不是各节点之和；
+     * 返回MOVED的命令刷新slot缓存后重新路由，返回ASK的命令先发ASKING再发到目标节点，在本次sync中重试；
+     * 只读pipeline首轮发到选中的从节点，重试的命令发到主节点
+     * @param responseList
+     */
     private void innerSync(List<Object> responseList) {
-        Set<Client> clientSet = new HashSet<>();
-
         try {
-            for (Client client : clients) {
-                // 在sync()调用时其实是不需要解析结果数据的，但是如果不调用get方法，发生了JedisMovedDataException这样的错误应用是不知道的，此时通过get()来触发错误。
-                Object data = generateResponse(client.getOne()).get();
-                if (responseList != null) {
-                    responseList.add(data);
+            Object[] replies = new Object[commands.size()];
+            Map<Integer, HostAndPort> asking = new HashMap<>();
+            List<Integer> pending = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                pending.add(i);
+            }
+            for (int round = 0; !pending.isEmpty(); round++) {
+                execute(pending, asking, replies, round == 0 ? readRouter : null);
+                List<Integer> redirected = new ArrayList<>();
+                boolean moved = false;
+                for (int index : pending) {
+                    if (!(replies[index] instanceof JedisRedirectionException) || round >= MAX_REDIRECTS) {
+                        asking.remove(index);
+                        continue;
+                    }
+                    redirected.add(index);
+                    if (replies[index] instanceof JedisAskDataException) {
+                        asking.put(index, ((JedisAskDataException) replies[index]).getTargetNode());
+                    } else {
+                        asking.remove(index);
+                        moved = true;
+                    }
                 }
-
-                // size相同说明所有的client都已经添加，就不用再调用add方法了
-                if (clientSet.size() != jedisMap.size()) {
-                    clientSet.add(client);
+                if (moved) {
+                    // if MOVED redirection occurred, rebuilds cluster's slot cache,
+                    // recommended by Redis cluster specification
+                    refreshCluster();
                 }
+                pending = redirected;
             }
-        } catch (JedisRedirectionException e) {
-            if (e instanceof JedisMovedDataException) {
-                // if MOVED redirection occurred, rebuilds cluster's slot cache,
-                // recommended by Redis cluster specification
-                refreshCluster();
-            }
-            throw e;
-        } finally {
-            if (clientSet.size() != jedisMap.size()) {
-                // 所有还没有执行过的client要保证执行(flush)，防止放回连接池后后面的命令被污染
-                for (Jedis jedis : jedisMap.values()) {
-                    if (clientSet.contains(jedis.getClient())) {
-                        continue;
+            for (Object reply : replies) {
+                Response<?> response = generateResponse(reply);
+                if (responseList != null) {
+                    try {
+                        responseList.add(response.get());
+                    } catch (JedisDataException e) {
+                        responseList.add(e);
                     }
-                    flushCachedData(jedis);
                 }
             }
-            hasDataInBuf = false;
+        } finally {
             close();
         }
     }
 
-    @Override
-    public void close() {
-        clean();
-
-        clients.clear();
-
-        for (Jedis jedis : jedisMap.values()) {
-            if (hasDataInBuf) {
-                flushCachedData(jedis);
+    /**
+     * 按节点分组执行命令，多个节点时并行
+     * @param indexes 待执行的命令
+     * @param asking 需要先发ASKING的命令和目标节点
+     * @param replies 按命令位置写入回复，出错的回复为异常对象
+     * @param router 读命令的节点选择，null时在主节点执行
+     */
+    private void execute(List<Integer> indexes, Map<Integer, HostAndPort> asking, Object[] replies,
+            IntFunction<ReplicaRouter.Node> router) {
+        Map<Pool<Jedis>, List<Integer>> groups = new LinkedHashMap<>();
+        Map<Pool<Jedis>, ReplicaRouter.Node> replicas = new HashMap<>();
+        for (int index : indexes) {
+            HostAndPort node = asking.get(index);
+            ReplicaRouter.Node replica = router != null && node == null ? router.apply(commands.get(index).slot) : null;
+            if (replica != null) {
+                replicas.put(replica.getPool(), replica);
+                groups.computeIfAbsent(replica.getPool(), k -> new ArrayList<>()).add(index);
+                continue;
             }
-            try {
-                jedis.close();
-            } catch (Exception e) {
+            JedisPool pool = node != null ? clusterInfoCache.setupNodeIfNotExist(node)
+                    : clusterInfoCache.getSlotPool(commands.get(index).slot);
+            if (pool == null) {
+                refreshCluster();
+                pool = clusterInfoCache.getSlotPool(commands.get(index).slot);
             }
+            if (pool == null) {
+                throw new JedisClusterOperationException("no reachable node in cluster for slot " + commands.get(index).slot);
+            }
+            groups.computeIfAbsent(pool, k -> new ArrayList<>()).add(index);
         }
+        if (groups.size() == 1) {
+            Map.Entry<Pool<Jedis>, List<Integer>> group = groups.entrySet().iterator().next();
+            executeOnNode(group.getKey(), replicas.get(group.getKey()), group.getValue(), asking, replies);
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        groups.forEach((pool, nodeIndexes) -> futures.add(CompletableFuture.runAsync(
+            () -> executeOnNode(pool, replicas.get(pool), nodeIndexes, asking, replies), NODE_EXECUTOR)));
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
 
-        jedisMap.clear();
-
-        hasDataInBuf = false;
+    /**
+     * @param pool
+     * @param replica 在从节点执行时为选中的从节点，从节点不可用时这些命令改在主节点执行
+     * @param indexes
+     * @param asking
+     * @param replies
+     */
+    private void executeOnNode(Pool<Jedis> pool, ReplicaRouter.Node replica, List<Integer> indexes,
+            Map<Integer, HostAndPort> asking, Object[] replies) {
+        if (replica != null) {
+            try (Jedis jedis = replica.getResource()) {
+                sendAndRead(jedis, indexes, asking, replies);
+            } catch (JedisConnectionException e) {
+                replica.markDown();
+                execute(indexes, asking, replies, null);
+            }
+            return;
+        }
+        try (Jedis jedis = pool.getResource()) {
+            sendAndRead(jedis, indexes, asking, replies);
+        }
     }
 
-    private void flushCachedData(Jedis jedis) {
-        try {
-            jedis.getClient().getOne();
-        } catch (RuntimeException ex) {
+    private void sendAndRead(Jedis jedis, List<Integer> indexes, Map<Integer, HostAndPort> asking, Object[] replies) {
+        Client client = jedis.getClient();
+        int replyCount = 0;
+        for (int index : indexes) {
+            Command command = commands.get(index);
+            if (asking.containsKey(index)) {
+                client.sendCommand(Protocol.Command.ASKING);
+                replyCount++;
+            }
+            client.sendCommand(command.cmd, command.args);
+            replyCount++;
+        }
+        List<Object> nodeReplies = client.getMany(replyCount);
+        int pos = 0;
+        for (int index : indexes) {
+            if (asking.containsKey(index)) {
+                pos++;
+            }
+            replies[index] = nodeReplies.get(pos++);
         }
     }
 
+    @Override
+    public void close() {
+        clean();
+
+        commands.clear();
+    }
+
     @Override
     protected Client getClient(String key) {
         byte[] bKey = SafeEncoder.encode(key);
@@ -171,26 +286,48 @@ public class JedisClusterPipeline extends PipelineBase implements RedisPipeline
 
     @Override
     protected Client getClient(byte[] key) {
-        Jedis jedis = getJedis(JedisClusterCRC16.getSlot(key));
+        // 命令先记录下来，sync时再按slot所在节点发送
+        currentSlot = JedisClusterCRC16.getSlot(key);
+        return recorder;
+    }
 
-        Client client = jedis.getClient();
-        clients.add(client);
+    /**
+     * 记录的命令
+     */
+    private static class Command {
+
+        private final int slot;
+
+        private final ProtocolCommand cmd;
 
-        return client;
+        private final byte[][] args;
+
+        Command(int slot, ProtocolCommand cmd, byte[][] args) {
+            this.slot = slot;
+            this.cmd = cmd;
+            this.args = args;
+        }
     }
 
-    private Jedis getJedis(int slot) {
-        JedisPool pool = clusterInfoCache.getSlotPool(slot);
+    /**
+     * 只记录命令不发送的Client，PipelineBase的各命令最终都调用sendCommand(cmd, args)
+     */
+    private class CommandRecorder extends Client {
 
-        // 根据pool从缓存中获取Jedis
-        Jedis jedis = jedisMap.get(pool);
-        if (null == jedis) {
-            jedis = pool.getResource();
-            jedisMap.put(pool, jedis);
+        @Override
+        public void sendCommand(ProtocolCommand cmd, byte[]... args) {
+            commands.add(new Command(currentSlot, cmd, args));
         }
 
-        hasDataInBuf = true;
-        return jedis;
+    }
+
+    /**
+     * @param jedis
+     * @return 集群slot与节点连接池的映射
+     */
+    static JedisClusterInfoCache getClusterInfoCache(JedisCluster jedis) {
+        JedisClusterConnectionHandler handler = getValue(jedis, FIELD_CONNECTION_HANDLER);
+        return getValue(handler, FIELD_CACHE);
     }
 
     private static Field getField(Class<?> cls, String fieldName) {
@@ -314,4 +451,21 @@ public class JedisClusterPipeline extends PipelineBase implements RedisPipeline
     public Response<String> restoreReplace(String key, int ttl, byte[] serializedValue) {
         return super.restoreReplace(key, ttl, serializedValue);
     }
+
+    /**
+     * 按第一个key所在节点执行
+     */
+    @Override
+    public Response<Object> eval(String script, List<String> keys, List<String> args) {
+        String[] params = new String[keys.size() + args.size()];
+        int i = 0;
+        for (String key : keys) {
+            params[i++] = key;
+        }
+        for (String arg : args) {
+            params[i++] = arg;
+        }
+        getClient(keys.get(0)).eval(script, keys.size(), params);
+        return getResponse(BuilderFactory.EVAL_RESULT);
+    }
 }
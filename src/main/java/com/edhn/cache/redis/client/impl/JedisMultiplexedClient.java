@@ -0,0 +1,730 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisPipeline;
+
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * JedisMultiplexedClient
+ * 基于共享连接的RedisClient，不持有独占连接，每个命令作为只有一条命令的jedis Pipeline提交到共享连接，
+ * 复用jedis的命令编码和回复解析；pipelined()返回的pipeline同样提交到共享连接，sync时等待各命令回复
+ * 依赖连接状态的命令（事务、select）不支持
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class JedisMultiplexedClient implements RedisClient {
+
+    /**
+     * 会改变连接状态或阻塞连接的命令，共享连接上不能执行
+     */
+    private static final Set<Protocol.Command> UNSUPPORTED = EnumSet.of(Protocol.Command.MULTI, Protocol.Command.EXEC,
+        Protocol.Command.DISCARD, Protocol.Command.WATCH, Protocol.Command.UNWATCH, Protocol.Command.SELECT,
+        Protocol.Command.SUBSCRIBE, Protocol.Command.PSUBSCRIBE, Protocol.Command.BLPOP, Protocol.Command.BRPOP,
+        Protocol.Command.BRPOPLPUSH, Protocol.Command.CLIENT);
+
+    private final MultiplexedConnection connection;
+
+    private final JedisMultiplexedClientPool pool;
+
+    JedisMultiplexedClient(MultiplexedConnection connection, JedisMultiplexedClientPool pool) {
+        this.connection = connection;
+        this.pool = pool;
+    }
+
+    @Override
+    public RedisPipeline pipelined() {
+        return new JedisSinglePipeline(newPipeline());
+    }
+
+    @Override
+    public Object unwrap() {
+        return connection;
+    }
+
+    /**
+     * 不持有连接，无需释放
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return connection.toString();
+    }
+
+    private Pipeline newPipeline() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setClient(new SharedClient(connection));
+        return pipeline;
+    }
+
+    private <T> T call(Function<Pipeline, Response<T>> command) {
+        Pipeline pipeline = newPipeline();
+        Response<T> response = command.apply(pipeline);
+        pipeline.sync();
+        return response.get();
+    }
+
+    /**
+     * jedis的Pipeline没有scan系列命令，直接发送并解析原始回复
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> scanCall(ProtocolCommand command, String key, String cursor, ScanParams params) {
+        List<byte[]> args = new ArrayList<>();
+        if (key != null) {
+            args.add(SafeEncoder.encode(key));
+        }
+        args.add(SafeEncoder.encode(cursor));
+        args.addAll(params.getParams());
+        return (List<Object>) call(p -> p.sendCommand(command, args.toArray(new byte[args.size()][])));
+    }
+
+    private <T> T dedicated(Function<Jedis, T> command) {
+        try (Jedis jedis = pool.createDedicated()) {
+            return command.apply(jedis);
+        }
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return call(p -> p.exists(key));
+    }
+
+    @Override
+    public Long exists(String... keys) {
+        return call(p -> p.exists(keys));
+    }
+
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return call(p -> p.expire(key, seconds));
+    }
+
+
+    @Override
+    public Long ttl(String key) {
+        return call(p -> p.ttl(key));
+    }
+
+    @Override
+    public Long del(String key) {
+        return call(p -> p.del(key));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return call(p -> p.del(keys));
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        return call(p -> p.unlink(keys));
+    }
+
+
+    @Override
+    public String set(String key, String value) {
+        return call(p -> p.set(key, value));
+    }
+
+
+    @Override
+    public String set(String key, int seconds, String value, boolean nx, boolean xx) {
+        SetParams params = SetParams.setParams();
+        params.ex(seconds);
+        if (nx) {
+            params.nx();
+        }
+        if (xx) {
+            params.xx();
+        }
+        return call(p -> p.set(key, value, params));
+    }
+
+
+    @Override
+    public String get(String key) {
+        return call(p -> p.get(key));
+    }
+
+
+    @Override
+    public String getSet(String key, String value) {
+        return call(p -> p.getSet(key, value));
+    }
+
+    @Override
+    public String set(byte[] key, int seconds, byte[] value, boolean nx, boolean xx) {
+        SetParams params = SetParams.setParams();
+        params.ex(seconds);
+        if (nx) {
+            params.nx();
+        }
+        if (xx) {
+            params.xx();
+        }
+        return call(p -> p.set(key, value, params));
+    }
+
+
+    @Override
+    public List<String> mget(String... keys) {
+        return call(p -> p.mget(keys));
+    }
+
+    @Override
+    public String mset(String... keysvalues) {
+        return call(p -> p.mset(keysvalues));
+    }
+
+
+    @Override
+    public Long incr(String key) {
+        return call(p -> p.incr(key));
+    }
+
+
+    @Override
+    public Long decr(String key) {
+        return call(p -> p.decr(key));
+    }
+
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        return call(p -> p.setbit(key, offset, value));
+    }
+
+    @Override
+    public Long rpush(String key, String... args) {
+        return call(p -> p.rpush(key, args));
+    }
+
+
+    @Override
+    public Long lpush(String key, String... args) {
+        return call(p -> p.lpush(key, args));
+    }
+
+
+    @Override
+    public Long llen(String key) {
+        return call(p -> p.llen(key));
+    }
+
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        return call(p -> p.lrem(key, count, value));
+    }
+
+
+    @Override
+    public String lpop(String key) {
+        return call(p -> p.lpop(key));
+    }
+
+
+    @Override
+    public String rpop(String key) {
+        return call(p -> p.rpop(key));
+    }
+
+
+    @Override
+    public List<String> blpop(int timeout, String... keys) {
+        return dedicated(jedis -> jedis.blpop(timeout, keys));
+    }
+
+
+    @Override
+    public List<String> brpop(int timeout, String... keys) {
+        return dedicated(jedis -> jedis.brpop(timeout, keys));
+    }
+
+
+    @Override
+    public String rpoplpush(String srckey, String dstkey) {
+        return call(p -> p.rpoplpush(srckey, dstkey));
+    }
+
+
+    @Override
+    public String brpoplpush(String source, String destination, int timeout) {
+        return dedicated(jedis -> jedis.brpoplpush(source, destination, timeout));
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... args) {
+        return call(p -> p.rpush(key, args));
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... args) {
+        return call(p -> p.lpush(key, args));
+    }
+
+    @Override
+    public Long llen(byte[] key) {
+        return call(p -> p.llen(key));
+    }
+
+    @Override
+    public byte[] lpop(byte[] key) {
+        return call(p -> p.lpop(key));
+    }
+
+    @Override
+    public byte[] rpop(byte[] key) {
+        return call(p -> p.rpop(key));
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long stop) {
+        return call(p -> p.lrange(key, start, stop));
+    }
+
+    @Override
+    public String ltrim(String key, long start, long stop) {
+        return call(p -> p.ltrim(key, start, stop));
+    }
+
+    @Override
+    public String lindex(String key, long index) {
+        return call(p -> p.lindex(key, index));
+    }
+
+    @Override
+    public String lset(String key, long index, String value) {
+        return call(p -> p.lset(key, index, value));
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return call(p -> p.hset(key, field, value));
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return call(p -> p.hsetnx(key, field, value));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return call(p -> p.hget(key, field));
+    }
+
+    @Override
+    public Long hdel(String key, String... field) {
+        return call(p -> p.hdel(key, field));
+    }
+
+
+    @Override
+    public Long hlen(String key) {
+        return call(p -> p.hlen(key));
+    }
+
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return call(p -> p.hgetAll(key));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return call(p -> p.hmget(key, fields));
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        return call(p -> p.hset(key, hash));
+    }
+
+    @Override
+    public Long hdel(byte[] key, byte[]... field) {
+        return call(p -> p.hdel(key, field));
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return call(p -> p.hexists(key, field));
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return call(p -> p.hincrBy(key, field, value));
+    }
+
+    @Override
+    public Long hlen(byte[] key) {
+        return call(p -> p.hlen(key));
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        return call(p -> p.hgetAll(key));
+    }
+
+
+    @Override
+    public Long sadd(String key, String... members) {
+        return call(p -> p.sadd(key, members));
+    }
+
+
+    @Override
+    public Set<String> smembers(String key) {
+        return call(p -> p.smembers(key));
+    }
+
+
+    @Override
+    public Long srem(String key, String... members) {
+        return call(p -> p.srem(key, members));
+    }
+
+
+    @Override
+    public Set<String> spop(String key, long count) {
+        return call(p -> p.spop(key, count));
+    }
+
+
+    @Override
+    public Long scard(String key) {
+        return call(p -> p.scard(key));
+    }
+
+
+    @Override
+    public Boolean sismember(String key, String member) {
+        return call(p -> p.sismember(key, member));
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... member) {
+        return call(p -> p.sadd(key, member));
+    }
+
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        return call(p -> p.smembers(key));
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... member) {
+        return call(p -> p.srem(key, member));
+    }
+
+    @Override
+    public byte[] spop(byte[] key) {
+        return call(p -> p.spop(key));
+    }
+
+    @Override
+    public Long scard(byte[] key) {
+        return call(p -> p.scard(key));
+    }
+
+    @Override
+    public Boolean sismember(byte[] key, byte[] member) {
+        return call(p -> p.sismember(key, member));
+    }
+
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        return call(p -> p.zadd(key, score, member));
+    }
+
+
+    @Override
+    public Long zadd(String key, double score, String member, boolean nx, boolean xx, boolean ch) {
+        ZAddParams params = ZAddParams.zAddParams();
+        if (nx) {
+            params.nx();
+        }
+        if (xx) {
+            params.xx();
+        }
+        if (ch) {
+            params.ch();
+        }
+        return call(p -> p.zadd(key, score, member, params));
+    }
+
+
+    @Override
+    public Long zrem(String key, String... members) {
+        return call(p -> p.zrem(key, members));
+    }
+
+
+    @Override
+    public Collection<String> zrange(String key, long start, long stop) {
+        return call(p -> p.zrange(key, start, stop));
+    }
+
+
+    @Override
+    public Collection<String> zrangeByScore(String key, double min, double max) {
+        return call(p -> p.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double min, double max) {
+        return call(p -> p.zremrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Long zadd(byte[] key, double score, byte[] member) {
+        return call(p -> p.zadd(key, score, member));
+    }
+
+    @Override
+    public Long zadd(byte[] key, double score, byte[] member, boolean nx, boolean xx, boolean ch) {
+        ZAddParams params = ZAddParams.zAddParams();
+        if (nx) {
+            params.nx();
+        }
+        if (xx) {
+            params.xx();
+        }
+        if (ch) {
+            params.ch();
+        }
+        return call(p -> p.zadd(key, score, member, params));
+    }
+
+    @Override
+    public Set<byte[]> zrange(byte[] key, long start, long stop) {
+        return call(p -> p.zrange(key, start, stop));
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(byte[] key, double min, double max) {
+        return call(p -> p.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<String> zrangeByLex(String key, String min, String max) {
+        return call(p -> p.zrangeByLex(key, min, max));
+    }
+
+    @Override
+    public Double zincrby(String key, double increment, String member) {
+        return call(p -> p.zincrby(key, increment, member));
+    }
+
+    @Override
+    public Long zcard(String key) {
+        return call(p -> p.zcard(key));
+    }
+
+    @Override
+    public Long zrank(String key, String member) {
+        return call(p -> p.zrank(key, member));
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return call(p -> p.zscore(key, member));
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return call(p -> p.zcount(key, min, max));
+    }
+
+    @Override
+    public ScanResult<String> scan(String cursor, ScanParams params) {
+        List<Object> reply = scanCall(Protocol.Command.SCAN, null, cursor, params);
+        return new ScanResult<>((byte[]) reply.get(0), BuilderFactory.STRING_LIST.build(reply.get(1)));
+    }
+
+    @Override
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        List<Object> reply = scanCall(Protocol.Command.HSCAN, key, cursor, params);
+        List<String> raw = BuilderFactory.STRING_LIST.build(reply.get(1));
+        List<Map.Entry<String, String>> entries = new ArrayList<>(raw.size() / 2);
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+            entries.add(new AbstractMap.SimpleEntry<>(raw.get(i), raw.get(i + 1)));
+        }
+        return new ScanResult<>((byte[]) reply.get(0), entries);
+    }
+
+    @Override
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        List<Object> reply = scanCall(Protocol.Command.SSCAN, key, cursor, params);
+        return new ScanResult<>((byte[]) reply.get(0), BuilderFactory.STRING_LIST.build(reply.get(1)));
+    }
+
+    @Override
+    public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+        List<Object> reply = scanCall(Protocol.Command.ZSCAN, key, cursor, params);
+        List<byte[]> raw = BuilderFactory.BYTE_ARRAY_LIST.build(reply.get(1));
+        List<Tuple> tuples = new ArrayList<>(raw.size() / 2);
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+            tuples.add(new Tuple(raw.get(i), BuilderFactory.DOUBLE.build(raw.get(i + 1))));
+        }
+        return new ScanResult<>((byte[]) reply.get(0), tuples);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return call(p -> p.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Long publish(String channel, String message) {
+        return call(p -> p.publish(channel, message));
+    }
+
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        dedicated(jedis -> {
+            jedis.subscribe(jedisPubSub, channels);
+            return null;
+        });
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) {
+        return call(p -> p.eval(script, keys, args));
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        return call(p -> p.evalsha(sha1, keys, args));
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        return call(p -> p.setex(key, seconds, value));
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return call(p -> p.get(key));
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        return call(p -> p.set(key, value));
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        return call(p -> p.setex(key, seconds, value));
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        return call(p -> p.hset(key, field, value));
+    }
+
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        return call(p -> p.hget(key, field));
+    }
+
+    /**
+     * 把jedis Client的发送和读取转到共享连接，发送即入队，读取时按发送顺序等待对应回复
+     */
+    private static class SharedClient extends Client {
+
+        private final MultiplexedConnection connection;
+
+        private final Deque<CompletableFuture<Object>> replies = new ArrayDeque<>();
+
+        SharedClient(MultiplexedConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void sendCommand(ProtocolCommand cmd, byte[]... args) {
+            if (cmd instanceof Protocol.Command && UNSUPPORTED.contains(cmd)) {
+                throw new UnsupportedOperationException(cmd + " unsupported on multiplexed connection");
+            }
+            replies.add(connection.submit(cmd, args));
+        }
+
+        @Override
+        protected Object readProtocolWithCheckingBroken() {
+            CompletableFuture<Object> reply = replies.poll();
+            if (reply == null) {
+                throw new IllegalStateException("no pending reply on multiplexed connection");
+            }
+            return connection.await(reply);
+        }
+
+        @Override
+        public List<Object> getMany(int count) {
+            List<Object> responses = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                try {
+                    responses.add(readProtocolWithCheckingBroken());
+                } catch (JedisDataException e) {
+                    responses.add(e);
+                }
+            }
+            return responses;
+        }
+
+        @Override
+        protected void flush() {
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnect() {
+            replies.clear();
+        }
+
+        @Override
+        public void close() {
+            replies.clear();
+        }
+    }
+
+}
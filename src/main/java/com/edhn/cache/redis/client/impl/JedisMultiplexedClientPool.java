@@ -0,0 +1,88 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisClientPool;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * JedisMultiplexedClientPool
+ * 单机模式下所有调用方共享少量连接，getResource不占用独占连接，按轮询绑定到其中一条连接，
+ * 同一个RedisClient的命令都在同一条连接上，保持命令顺序
+ * 阻塞命令（blpop等）和订阅会独占连接，这类命令临时建立独立连接执行
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class JedisMultiplexedClientPool implements RedisClientPool, Closeable {
+
+    private final String host;
+
+    private final int port;
+
+    private final int timeout;
+
+    private final String password;
+
+    private final boolean ssl;
+
+    private final MultiplexedConnection[] connections;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param host
+     * @param port
+     * @param timeout
+     * @param password
+     * @param ssl
+     * @param connections 共享连接数
+     */
+    public JedisMultiplexedClientPool(final String host, int port, int timeout, final String password, boolean ssl,
+            int connections) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.password = password;
+        this.ssl = ssl;
+        this.connections = new MultiplexedConnection[Math.max(1, connections)];
+        for (int i = 0; i < this.connections.length; i++) {
+            this.connections[i] = new MultiplexedConnection(host, port, timeout, password, ssl);
+        }
+    }
+
+    @Override
+    public RedisClient getResource() {
+        int index = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+        return new JedisMultiplexedClient(connections[index], this);
+    }
+
+    /**
+     * @return 独立连接，用完需关闭
+     */
+    Jedis createDedicated() {
+        Jedis jedis = new Jedis(host, port, timeout, timeout, ssl);
+        if (password != null && !password.isEmpty()) {
+            try {
+                jedis.auth(password);
+            } catch (RuntimeException e) {
+                jedis.close();
+                throw e;
+            }
+        }
+        return jedis;
+    }
+
+    @Override
+    public void close() {
+        for (MultiplexedConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+}
@@ -12,8 +12,10 @@ import lombok.Getter;
 import lombok.Setter;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.params.ZAddParams;
 
@@ -57,6 +59,11 @@ public class JedisSingleClient implements RedisClient {
         return jedis.exists(key);
     }
 
+    @Override
+    public Long exists(String... keys) {
+        return jedis.exists(keys);
+    }
+
 
     @Override
     public Long expire(String key, int seconds) {
@@ -79,6 +86,11 @@ public class JedisSingleClient implements RedisClient {
         return jedis.del(keys);
     }
 
+    @Override
+    public Long unlink(String... keys) {
+        return jedis.unlink(keys);
+    }
+
 
     @Override
     public String set(String key, String value) {
@@ -130,6 +142,11 @@ public class JedisSingleClient implements RedisClient {
         return jedis.mget(keys);
     }
 
+    @Override
+    public String mset(String... keysvalues) {
+        return jedis.mset(keysvalues);
+    }
+
 
     @Override
     public Long incr(String key) {
@@ -142,6 +159,11 @@ public class JedisSingleClient implements RedisClient {
         return jedis.decr(key);
     }
 
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        return jedis.setbit(key, offset, value);
+    }
+
     @Override
     public Long rpush(String key, String... args) {
         return jedis.rpush(key, args);
@@ -278,6 +300,16 @@ public class JedisSingleClient implements RedisClient {
         return jedis.hgetAll(key);
     }
 
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return jedis.hmget(key, fields);
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        return jedis.hset(key, hash);
+    }
+
     @Override
     public Long hdel(byte[] key, byte[]... field) {
         return jedis.hdel(key, field);
@@ -479,11 +511,46 @@ public class JedisSingleClient implements RedisClient {
         return jedis.scan(cursor, params);
     }
 
+    @Override
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        return jedis.hscan(key, cursor, params);
+    }
+
+    @Override
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        return jedis.sscan(key, cursor, params);
+    }
+
+    @Override
+    public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+        return jedis.zscan(key, cursor, params);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Long publish(String channel, String message) {
+        return jedis.publish(channel, message);
+    }
+
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        jedis.subscribe(jedisPubSub, channels);
+    }
+
     @Override
     public Object eval(String script, List<String> keys, List<String> args) {
         return jedis.eval(script, keys, args);
     }
 
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        return jedis.evalsha(sha1, keys, args);
+    }
+
     @Override
     public String setex(String key, int seconds, String value) {
         return jedis.setex(key, seconds, value);
@@ -113,6 +113,16 @@ public class JedisSinglePipeline implements RedisPipeline {
         return pipelined.decr(key);
     }
 
+    @Override
+    public Response<Boolean> setbit(String key, long offset, boolean value) {
+        return pipelined.setbit(key, offset, value);
+    }
+
+    @Override
+    public Response<Boolean> getbit(String key, long offset) {
+        return pipelined.getbit(key, offset);
+    }
+
     @Override
     public Response<byte[]> get(byte[] key) {
         return pipelined.get(key);
@@ -221,6 +231,16 @@ public class JedisSinglePipeline implements RedisPipeline {
         return pipelined.hgetAll(key);
     }
 
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return pipelined.hmget(key, fields);
+    }
+
+    @Override
+    public Response<Long> hset(String key, Map<String, String> hash) {
+        return pipelined.hset(key, hash);
+    }
+
     @Override
     public Response<Long> hset(byte[] key, byte[] field, byte[] value) {
         return pipelined.hset(key, field, value);
@@ -376,4 +396,9 @@ public class JedisSinglePipeline implements RedisPipeline {
         return pipelined.zrangeByScore(key, min, max);
     }
 
+    @Override
+    public Response<Object> eval(String script, List<String> keys, List<String> args) {
+        return pipelined.eval(script, keys, args);
+    }
+
 }
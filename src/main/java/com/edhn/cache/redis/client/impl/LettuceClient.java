@@ -0,0 +1,731 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisPipeline;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Limit;
+import io.lettuce.core.MapScanCursor;
+import io.lettuce.core.Range;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScoredValueScanCursor;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.ValueScanCursor;
+import io.lettuce.core.ZAddArgs;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+
+/**
+ * LettuceClient
+ * 基于lettuce异步api的RedisClient，不持有独占连接，close无需释放
+ * 字符串按UTF-8编码，返回值转换为与jedis一致的类型
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class LettuceClient implements RedisClient {
+
+    private final LettuceClientPool pool;
+
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    LettuceClient(LettuceClientPool pool, RedisClusterAsyncCommands<byte[], byte[]> commands) {
+        this.pool = pool;
+        this.commands = commands;
+    }
+
+    @Override
+    public Object unwrap() {
+        return commands;
+    }
+
+    @Override
+    public RedisPipeline pipelined() {
+        return new LettucePipeline(pool, commands);
+    }
+
+    /**
+     * 共享连接，无需释放
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return pool.toString();
+    }
+
+    //// 编解码，pipeline共用
+
+    static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[][] bytes(String... values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = bytes(values[i]);
+        }
+        return result;
+    }
+
+    static byte[][] bytes(List<String> values) {
+        return bytes(values.toArray(new String[values.size()]));
+    }
+
+    static String str(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    static List<String> strList(List<byte[]> values) {
+        return values == null ? null : values.stream().map(LettuceClient::str).collect(Collectors.toList());
+    }
+
+    static Set<String> strSet(Collection<byte[]> values) {
+        return values == null ? null : values.stream().map(LettuceClient::str).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    static Map<String, String> strMap(Map<byte[], byte[]> values) {
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+        values.forEach((k, v) -> result.put(str(k), str(v)));
+        return result;
+    }
+
+    static List<String> values(List<KeyValue<byte[], byte[]>> values) {
+        return values == null ? null : values.stream().map(kv -> kv.hasValue() ? str(kv.getValue()) : null)
+                .collect(Collectors.toList());
+    }
+
+    static Long toLong(Boolean value) {
+        return value == null ? null : (value ? 1L : 0L);
+    }
+
+    static SetArgs setArgs(int seconds, boolean nx, boolean xx) {
+        SetArgs args = SetArgs.Builder.ex(seconds);
+        if (nx) {
+            args.nx();
+        }
+        if (xx) {
+            args.xx();
+        }
+        return args;
+    }
+
+    static ZAddArgs zaddArgs(boolean nx, boolean xx, boolean ch) {
+        ZAddArgs args = new ZAddArgs();
+        if (nx) {
+            args.nx();
+        }
+        if (xx) {
+            args.xx();
+        }
+        if (ch) {
+            args.ch();
+        }
+        return args;
+    }
+
+    /**
+     * jedis的ScanParams只能取出原始参数，按MATCH/COUNT解析
+     */
+    static ScanArgs scanArgs(ScanParams params) {
+        ScanArgs args = new ScanArgs();
+        if (params == null) {
+            return args;
+        }
+        Iterator<byte[]> it = params.getParams().iterator();
+        while (it.hasNext()) {
+            String name = str(it.next());
+            if (!it.hasNext()) {
+                break;
+            }
+            byte[] value = it.next();
+            if ("MATCH".equalsIgnoreCase(name)) {
+                args.match(value);
+            } else if ("COUNT".equalsIgnoreCase(name)) {
+                args.limit(Long.parseLong(str(value)));
+            }
+        }
+        return args;
+    }
+
+    /**
+     * jedis格式的lex区间：-、+、[值、(值
+     */
+    static Range.Boundary<byte[]> lexBoundary(String value) {
+        if ("-".equals(value) || "+".equals(value)) {
+            return Range.Boundary.unbounded();
+        } else if (value.startsWith("(")) {
+            return Range.Boundary.excluding(bytes(value.substring(1)));
+        } else if (value.startsWith("[")) {
+            return Range.Boundary.including(bytes(value.substring(1)));
+        }
+        return Range.Boundary.including(bytes(value));
+    }
+
+    static Set<Tuple> tuples(List<ScoredValue<byte[]>> values) {
+        return values == null ? null : values.stream().map(v -> new Tuple(v.getValue(), v.getScore()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    static CommandArgs<byte[], byte[]> evalArgs(String scriptOrSha, List<String> keys, List<String> args) {
+        return new CommandArgs<>(ByteArrayCodec.INSTANCE).add(scriptOrSha).add(keys.size())
+                .addKeys(bytes(keys)).addValues(bytes(args));
+    }
+
+    //// key
+
+    @Override
+    public Boolean exists(String key) {
+        Long count = pool.await(commands.exists(bytes(key)));
+        return count != null && count > 0;
+    }
+
+    @Override
+    public Long exists(String... keys) {
+        return pool.await(commands.exists(bytes(keys)));
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return toLong(pool.await(commands.expire(bytes(key), seconds)));
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return pool.await(commands.ttl(bytes(key)));
+    }
+
+    @Override
+    public Long del(String key) {
+        return pool.await(commands.del(bytes(key)));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return pool.await(commands.del(bytes(keys)));
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        return pool.await(commands.unlink(bytes(keys)));
+    }
+
+    //// string
+
+    @Override
+    public String set(String key, String value) {
+        return pool.await(commands.set(bytes(key), bytes(value)));
+    }
+
+    @Override
+    public String set(String key, int seconds, String value, boolean nx, boolean xx) {
+        return pool.await(commands.set(bytes(key), bytes(value), setArgs(seconds, nx, xx)));
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        return pool.await(commands.setex(bytes(key), seconds, bytes(value)));
+    }
+
+    @Override
+    public String get(String key) {
+        return str(pool.await(commands.get(bytes(key))));
+    }
+
+    @Override
+    public String getSet(String key, String value) {
+        return str(pool.await(commands.getset(bytes(key), bytes(value))));
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        return values(pool.await(commands.mget(bytes(keys))));
+    }
+
+    @Override
+    public String mset(String... keysvalues) {
+        Map<byte[], byte[]> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysvalues.length; i += 2) {
+            map.put(bytes(keysvalues[i]), bytes(keysvalues[i + 1]));
+        }
+        return pool.await(commands.mset(map));
+    }
+
+    @Override
+    public Long incr(String key) {
+        return pool.await(commands.incr(bytes(key)));
+    }
+
+    @Override
+    public Long decr(String key) {
+        return pool.await(commands.decr(bytes(key)));
+    }
+
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        Long old = pool.await(commands.setbit(bytes(key), offset, value ? 1 : 0));
+        return old != null && old == 1;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return pool.await(commands.get(key));
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        return pool.await(commands.set(key, value));
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        return pool.await(commands.setex(key, seconds, value));
+    }
+
+    @Override
+    public String set(byte[] key, int seconds, byte[] value, boolean nx, boolean xx) {
+        return pool.await(commands.set(key, value, setArgs(seconds, nx, xx)));
+    }
+
+    //// list
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        return pool.await(commands.rpush(bytes(key), bytes(strings)));
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        return pool.await(commands.lpush(bytes(key), bytes(strings)));
+    }
+
+    @Override
+    public Long llen(String key) {
+        return pool.await(commands.llen(bytes(key)));
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        return pool.await(commands.lrem(bytes(key), count, bytes(value)));
+    }
+
+    @Override
+    public String lpop(String key) {
+        return str(pool.await(commands.lpop(bytes(key))));
+    }
+
+    @Override
+    public String rpop(String key) {
+        return str(pool.await(commands.rpop(bytes(key))));
+    }
+
+    @Override
+    public List<String> blpop(int timeout, String... keys) {
+        KeyValue<byte[], byte[]> kv = pool.dedicated(c -> c.blpop(timeout, bytes(keys)), blockingWait(timeout));
+        return kv == null || !kv.hasValue() ? null : Arrays.asList(str(kv.getKey()), str(kv.getValue()));
+    }
+
+    @Override
+    public List<String> brpop(int timeout, String... keys) {
+        KeyValue<byte[], byte[]> kv = pool.dedicated(c -> c.brpop(timeout, bytes(keys)), blockingWait(timeout));
+        return kv == null || !kv.hasValue() ? null : Arrays.asList(str(kv.getKey()), str(kv.getValue()));
+    }
+
+    @Override
+    public String rpoplpush(String srckey, String dstkey) {
+        return str(pool.await(commands.rpoplpush(bytes(srckey), bytes(dstkey))));
+    }
+
+    @Override
+    public String brpoplpush(String source, String destination, int timeout) {
+        return str(pool.dedicated(c -> c.brpoplpush(timeout, bytes(source), bytes(destination)), blockingWait(timeout)));
+    }
+
+    /**
+     * @param timeout 阻塞命令的超时，单位s，0为一直阻塞
+     * @return 等待结果的时间
+     */
+    private long blockingWait(int timeout) {
+        return timeout <= 0 ? Long.MAX_VALUE : timeout * 1000L + pool.getTimeout();
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... args) {
+        return pool.await(commands.rpush(key, args));
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... args) {
+        return pool.await(commands.lpush(key, args));
+    }
+
+    @Override
+    public Long llen(byte[] key) {
+        return pool.await(commands.llen(key));
+    }
+
+    @Override
+    public byte[] lpop(byte[] key) {
+        return pool.await(commands.lpop(key));
+    }
+
+    @Override
+    public byte[] rpop(byte[] key) {
+        return pool.await(commands.rpop(key));
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long stop) {
+        return strList(pool.await(commands.lrange(bytes(key), start, stop)));
+    }
+
+    @Override
+    public String ltrim(String key, long start, long stop) {
+        return pool.await(commands.ltrim(bytes(key), start, stop));
+    }
+
+    @Override
+    public String lindex(String key, long index) {
+        return str(pool.await(commands.lindex(bytes(key), index)));
+    }
+
+    @Override
+    public String lset(String key, long index, String value) {
+        return pool.await(commands.lset(bytes(key), index, bytes(value)));
+    }
+
+    //// hash
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return toLong(pool.await(commands.hset(bytes(key), bytes(field), bytes(value))));
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return toLong(pool.await(commands.hsetnx(bytes(key), bytes(field), bytes(value))));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return str(pool.await(commands.hget(bytes(key), bytes(field))));
+    }
+
+    @Override
+    public Long hdel(String key, String... field) {
+        return pool.await(commands.hdel(bytes(key), bytes(field)));
+    }
+
+    @Override
+    public Long hlen(String key) {
+        return pool.await(commands.hlen(bytes(key)));
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return strMap(pool.await(commands.hgetall(bytes(key))));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return values(pool.await(commands.hmget(bytes(key), bytes(fields))));
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        Map<byte[], byte[]> map = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        hash.forEach((k, v) -> map.put(bytes(k), bytes(v)));
+        return pool.await(commands.hset(bytes(key), map));
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        return toLong(pool.await(commands.hset(key, field, value)));
+    }
+
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        return pool.await(commands.hget(key, field));
+    }
+
+    @Override
+    public Long hdel(byte[] key, byte[]... field) {
+        return pool.await(commands.hdel(key, field));
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return pool.await(commands.hexists(bytes(key), bytes(field)));
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return pool.await(commands.hincrby(bytes(key), bytes(field), value));
+    }
+
+    @Override
+    public Long hlen(byte[] key) {
+        return pool.await(commands.hlen(key));
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        return pool.await(commands.hgetall(key));
+    }
+
+    //// set
+
+    @Override
+    public Long sadd(String key, String... members) {
+        return pool.await(commands.sadd(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        return strSet(pool.await(commands.smembers(bytes(key))));
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        return pool.await(commands.srem(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Set<String> spop(String key, long count) {
+        return strSet(pool.await(commands.spop(bytes(key), count)));
+    }
+
+    @Override
+    public Long scard(String key) {
+        return pool.await(commands.scard(bytes(key)));
+    }
+
+    @Override
+    public Boolean sismember(String key, String member) {
+        return pool.await(commands.sismember(bytes(key), bytes(member)));
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... member) {
+        return pool.await(commands.sadd(key, member));
+    }
+
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        return pool.await(commands.smembers(key));
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... member) {
+        return pool.await(commands.srem(key, member));
+    }
+
+    @Override
+    public byte[] spop(byte[] key) {
+        return pool.await(commands.spop(key));
+    }
+
+    @Override
+    public Long scard(byte[] key) {
+        return pool.await(commands.scard(key));
+    }
+
+    @Override
+    public Boolean sismember(byte[] key, byte[] member) {
+        return pool.await(commands.sismember(key, member));
+    }
+
+    //// zset
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        return pool.await(commands.zadd(bytes(key), score, bytes(member)));
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member, boolean nx, boolean xx, boolean ch) {
+        return pool.await(commands.zadd(bytes(key), zaddArgs(nx, xx, ch), score, bytes(member)));
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        return pool.await(commands.zrem(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Collection<String> zrange(String key, long start, long stop) {
+        return strSet(pool.await(commands.zrange(bytes(key), start, stop)));
+    }
+
+    @Override
+    public Collection<String> zrangeByScore(String key, double min, double max) {
+        return strSet(pool.await(commands.zrangebyscore(bytes(key), Range.create(min, max))));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double min, double max) {
+        return pool.await(commands.zremrangebyscore(bytes(key), Range.create(min, max)));
+    }
+
+    @Override
+    public Long zadd(byte[] key, double score, byte[] member) {
+        return pool.await(commands.zadd(key, score, member));
+    }
+
+    @Override
+    public Long zadd(byte[] key, double score, byte[] member, boolean nx, boolean xx, boolean ch) {
+        return pool.await(commands.zadd(key, zaddArgs(nx, xx, ch), score, member));
+    }
+
+    @Override
+    public Set<byte[]> zrange(byte[] key, long start, long stop) {
+        return new LinkedHashSet<>(pool.await(commands.zrange(key, start, stop)));
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(byte[] key, double min, double max) {
+        return new LinkedHashSet<>(pool.await(commands.zrangebyscore(key, Range.create(min, max))));
+    }
+
+    @Override
+    public Set<String> zrangeByLex(String key, String min, String max) {
+        Range<byte[]> range = Range.from(lexBoundary(min), lexBoundary(max));
+        return strSet(pool.await(commands.zrangebylex(bytes(key), range)));
+    }
+
+    @Override
+    public Double zincrby(String key, double increment, String member) {
+        return pool.await(commands.zincrby(bytes(key), increment, bytes(member)));
+    }
+
+    @Override
+    public Long zcard(String key) {
+        return pool.await(commands.zcard(bytes(key)));
+    }
+
+    @Override
+    public Long zrank(String key, String member) {
+        return pool.await(commands.zrank(bytes(key), bytes(member)));
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return pool.await(commands.zscore(bytes(key), bytes(member)));
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return pool.await(commands.zcount(bytes(key), Range.create(min, max)));
+    }
+
+    //// scan，cursor为0时结束，与jedis一致
+
+    @Override
+    public ScanResult<String> scan(String cursor, ScanParams params) {
+        KeyScanCursor<byte[]> result = pool.await(commands.scan(ScanCursor.of(cursor), scanArgs(params)));
+        return new ScanResult<>(result.getCursor(), strList(result.getKeys()));
+    }
+
+    @Override
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        MapScanCursor<byte[], byte[]> result = pool.await(
+            commands.hscan(bytes(key), ScanCursor.of(cursor), scanArgs(params)));
+        List<Map.Entry<String, String>> entries = new ArrayList<>(result.getMap().size());
+        result.getMap().forEach((k, v) -> entries.add(new AbstractMap.SimpleEntry<>(str(k), str(v))));
+        return new ScanResult<>(result.getCursor(), entries);
+    }
+
+    @Override
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        ValueScanCursor<byte[]> result = pool.await(
+            commands.sscan(bytes(key), ScanCursor.of(cursor), scanArgs(params)));
+        return new ScanResult<>(result.getCursor(), strList(result.getValues()));
+    }
+
+    @Override
+    public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+        ScoredValueScanCursor<byte[]> result = pool.await(
+            commands.zscan(bytes(key), ScanCursor.of(cursor), scanArgs(params)));
+        return new ScanResult<>(result.getCursor(), new ArrayList<>(tuples(result.getValues())));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return tuples(pool.await(commands.zrangebyscoreWithScores(bytes(key), Range.create(min, max),
+            Limit.create(offset, count))));
+    }
+
+    //// pubsub
+
+    @Override
+    public Long publish(String channel, String message) {
+        return pool.await(commands.publish(bytes(channel), bytes(message)));
+    }
+
+    /**
+     * 与jedis一致阻塞当前线程，线程中断时结束订阅；断线后lettuce自动重连并重新订阅
+     */
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        StatefulRedisPubSubConnection<byte[], byte[]> conn = pool.connectPubSub();
+        try {
+            conn.addListener(new RedisPubSubAdapter<byte[], byte[]>() {
+                @Override
+                public void message(byte[] channel, byte[] message) {
+                    jedisPubSub.onMessage(str(channel), str(message));
+                }
+            });
+            pool.await(conn.async().subscribe(bytes(channels)));
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            conn.close();
+        }
+    }
+
+    //// script
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) {
+        return pool.await(commands.dispatch(CommandType.EVAL, new LettuceEvalOutput(), evalArgs(script, keys, args)));
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        return pool.await(commands.dispatch(CommandType.EVALSHA, new LettuceEvalOutput(), evalArgs(sha1, keys, args)));
+    }
+
+}
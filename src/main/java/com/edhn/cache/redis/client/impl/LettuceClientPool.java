@@ -0,0 +1,290 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisClientPool;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisBusyException;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.masterreplica.MasterReplica;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import redis.clients.jedis.exceptions.JedisBusyException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * LettuceClientPool
+ * 基于lettuce的连接池，所有调用共享一个线程安全的连接，getResource不占用独占连接，
+ * 命令经异步api发出后等待结果，不同线程的命令在同一连接上自然形成pipeline
+ * 集群模式的slot路由、跨slot多key命令拆分和拓扑刷新由lettuce完成，拓扑刷新选项在创建RedisClusterClient时配置
+ * 异常转换为jedis的异常类型，与其他RedisClient实现保持一致
+ * 开启从节点读时读命令使用单独的连接，节点选择由lettuce的ReadFrom完成
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class LettuceClientPool implements RedisClientPool, Closeable {
+
+    private final AbstractRedisClient client;
+
+    private final StatefulConnection<byte[], byte[]> connection;
+
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    /**
+     * 从节点读的连接，未开启时为null
+     */
+    private StatefulConnection<byte[], byte[]> readConnection;
+
+    private RedisClusterAsyncCommands<byte[], byte[]> readCommands;
+
+    /**
+     * 等待命令结果的超时时间，单位ms
+     */
+    private final long timeout;
+
+    /**
+     * 集群单个节点的池所属的集群池，否则为null
+     */
+    private final LettuceClientPool parent;
+
+    /**
+     * @param client 单机redis客户端
+     * @param timeout 命令超时时间，单位ms
+     */
+    public LettuceClientPool(io.lettuce.core.RedisClient client, long timeout) {
+        StatefulRedisConnection<byte[], byte[]> conn = client.connect(ByteArrayCodec.INSTANCE);
+        this.client = client;
+        this.connection = conn;
+        this.commands = conn.async();
+        this.timeout = timeout;
+        this.parent = null;
+    }
+
+    /**
+     * @param client 集群redis客户端
+     * @param timeout 命令超时时间，单位ms
+     */
+    public LettuceClientPool(RedisClusterClient client, long timeout) {
+        StatefulRedisClusterConnection<byte[], byte[]> conn = client.connect(ByteArrayCodec.INSTANCE);
+        this.client = client;
+        this.connection = conn;
+        this.commands = conn.async();
+        this.timeout = timeout;
+        this.parent = null;
+    }
+
+    private LettuceClientPool(LettuceClientPool parent, StatefulRedisConnection<byte[], byte[]> nodeConnection) {
+        this.client = parent.client;
+        this.connection = nodeConnection;
+        this.commands = nodeConnection.async();
+        this.timeout = parent.timeout;
+        this.parent = parent;
+    }
+
+    @Override
+    public RedisClient getResource() {
+        return new LettuceClient(this, commands);
+    }
+
+    @Override
+    public RedisClient getReadResource() {
+        return readCommands != null ? new LettuceClient(this, readCommands) : getResource();
+    }
+
+    /**
+     * 开启从节点读，读命令使用单独的连接，由lettuce按ReadFrom选择节点：
+     * 集群连接从拓扑中获取各slot的从节点，单机时以主节点和replicas建立主从连接
+     * @param readFrom
+     * @param nodes 单机时为主节点和从节点地址，集群时不需要
+     */
+    public synchronized void enableReplicaRead(ReadFromMode readFrom, List<RedisURI> nodes) {
+        if (readFrom == null || readFrom == ReadFromMode.master || readConnection != null || parent != null) {
+            return;
+        }
+        if (client instanceof RedisClusterClient) {
+            StatefulRedisClusterConnection<byte[], byte[]> conn = ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE);
+            conn.setReadFrom(toLettuce(readFrom));
+            readConnection = conn;
+            readCommands = conn.async();
+        } else if (nodes != null && nodes.size() > 1) {
+            StatefulRedisMasterReplicaConnection<byte[], byte[]> conn = MasterReplica.connect(
+                (io.lettuce.core.RedisClient) client, ByteArrayCodec.INSTANCE, nodes);
+            conn.setReadFrom(toLettuce(readFrom));
+            readConnection = conn;
+            readCommands = conn.async();
+        }
+    }
+
+    /**
+     * roundRobin对应lettuce的ANY，lettuce在候选节点中随机选择
+     * @param readFrom
+     * @return
+     */
+    private static ReadFrom toLettuce(ReadFromMode readFrom) {
+        switch (readFrom) {
+            case replicaPreferred:
+                return ReadFrom.REPLICA_PREFERRED;
+            case nearest:
+                return ReadFrom.LOWEST_LATENCY;
+            case roundRobin:
+                return ReadFrom.ANY;
+            default:
+                return ReadFrom.UPSTREAM;
+        }
+    }
+
+    @Override
+    public boolean isCluster() {
+        return connection instanceof StatefulRedisClusterConnection || (parent != null && parent.isCluster());
+    }
+
+    /**
+     * 集群时为各主节点的连接，连接由集群连接管理
+     */
+    @Override
+    public List<RedisClientPool> getMasterPools() {
+        if (!(connection instanceof StatefulRedisClusterConnection)) {
+            return Collections.singletonList(this);
+        }
+        StatefulRedisClusterConnection<byte[], byte[]> clusterConnection = (StatefulRedisClusterConnection<byte[], byte[]>) connection;
+        List<RedisClientPool> pools = new ArrayList<>();
+        for (RedisClusterNode node : clusterConnection.getPartitions()) {
+            if (node.is(RedisClusterNode.NodeFlag.UPSTREAM) && !node.getSlots().isEmpty()) {
+                pools.add(new LettuceClientPool(this, clusterConnection.getConnection(node.getNodeId())));
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * @param <T>
+     * @param future
+     * @return 命令结果
+     */
+    <T> T await(Future<T> future) {
+        return await(future, timeout);
+    }
+
+    /**
+     * @param <T>
+     * @param future
+     * @param waitMillis
+     * @return 命令结果
+     */
+    <T> T await(Future<T> future, long waitMillis) {
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw translate(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new JedisConnectionException("lettuce command timeout after " + waitMillis + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException(e);
+        }
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param e lettuce异常
+     * @return 对应的jedis异常，调用方按jedis异常类型处理（如NOSCRIPT时改用EVAL）
+     */
+    static JedisException translate(Throwable e) {
+        if (e instanceof JedisException) {
+            return (JedisException) e;
+        } else if (e instanceof RedisNoScriptException) {
+            return new JedisNoScriptException(e.getMessage(), e);
+        } else if (e instanceof RedisBusyException) {
+            return new JedisBusyException(e.getMessage());
+        } else if (e instanceof RedisCommandExecutionException) {
+            return new JedisDataException(e.getMessage(), e);
+        } else if (e instanceof RedisCommandTimeoutException || e instanceof RedisConnectionException) {
+            return new JedisConnectionException(e.getMessage(), e);
+        }
+        return new JedisException(e.getMessage(), e);
+    }
+
+    /**
+     * 阻塞命令在独立连接上执行，避免阻塞共享连接上的其他命令
+     * @param <T>
+     * @param command
+     * @param waitMillis
+     * @return
+     */
+    <T> T dedicated(Function<RedisClusterAsyncCommands<byte[], byte[]>, RedisFuture<T>> command, long waitMillis) {
+        StatefulConnection<byte[], byte[]> conn = client instanceof RedisClusterClient
+                ? ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE)
+                : ((io.lettuce.core.RedisClient) client).connect(ByteArrayCodec.INSTANCE);
+        try {
+            RedisClusterAsyncCommands<byte[], byte[]> async = conn instanceof StatefulRedisClusterConnection
+                    ? ((StatefulRedisClusterConnection<byte[], byte[]>) conn).async()
+                    : ((StatefulRedisConnection<byte[], byte[]>) conn).async();
+            return await(command.apply(async), waitMillis);
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * @return 新的订阅连接，用完需关闭
+     */
+    StatefulRedisPubSubConnection<byte[], byte[]> connectPubSub() {
+        return client instanceof RedisClusterClient
+                ? ((RedisClusterClient) client).connectPubSub(ByteArrayCodec.INSTANCE)
+                : ((io.lettuce.core.RedisClient) client).connectPubSub(ByteArrayCodec.INSTANCE);
+    }
+
+    /**
+     * 关闭连接和客户端，节点的连接随集群连接关闭
+     */
+    @Override
+    public void close() {
+        if (parent == null) {
+            if (readConnection != null) {
+                readConnection.close();
+            }
+            connection.close();
+            client.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LettuceClientPool[" + connection + "]";
+    }
+
+}
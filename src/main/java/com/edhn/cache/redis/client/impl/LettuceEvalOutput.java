@@ -0,0 +1,91 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+
+/**
+ * LettuceEvalOutput
+ * lua脚本的返回值，转换规则与jedis的eval一致：字符串为String，整数为Long，数组为List（可嵌套）
+ * lettuce的ScriptOutputType需预先指定类型，RedisClient.eval不知道脚本的返回类型，因此按回复内容解析
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+class LettuceEvalOutput extends CommandOutput<byte[], byte[], Object> {
+
+    /**
+     * 未读满的数组
+     */
+    private final Deque<Frame> stack = new ArrayDeque<>();
+
+    LettuceEvalOutput() {
+        super(ByteArrayCodec.INSTANCE, null);
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        append(bytes == null ? null : StandardCharsets.UTF_8.decode(bytes).toString());
+    }
+
+    @Override
+    public void set(long integer) {
+        append(integer);
+    }
+
+    @Override
+    public void set(double number) {
+        append(number);
+    }
+
+    @Override
+    public void set(boolean value) {
+        append(value ? 1L : 0L);
+    }
+
+    @Override
+    public void multi(int count) {
+        List<Object> list = new ArrayList<>(Math.max(count, 0));
+        append(list);
+        stack.push(new Frame(list, count));
+        closeFilled();
+    }
+
+    private void append(Object value) {
+        if (stack.isEmpty()) {
+            output = value;
+        } else {
+            stack.peek().list.add(value);
+        }
+        if (!(value instanceof List)) {
+            closeFilled();
+        }
+    }
+
+    private void closeFilled() {
+        while (!stack.isEmpty() && stack.peek().list.size() >= stack.peek().count) {
+            stack.pop();
+        }
+    }
+
+    private static class Frame {
+
+        private final List<Object> list;
+
+        private final int count;
+
+        Frame(List<Object> list, int count) {
+            this.list = list;
+            this.count = count;
+        }
+    }
+
+}
@@ -0,0 +1,436 @@
+package com.edhn.cache.redis.client.impl;
+
+import static com.edhn.cache.redis.client.impl.LettuceClient.bytes;
+import static com.edhn.cache.redis.client.impl.LettuceClient.evalArgs;
+import static com.edhn.cache.redis.client.impl.LettuceClient.setArgs;
+import static com.edhn.cache.redis.client.impl.LettuceClient.zaddArgs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.edhn.cache.redis.client.RedisPipeline;
+
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.protocol.CommandType;
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * LettucePipeline
+ * 命令调用时即经共享连接异步发出，不等待回复，sync/close时等待本批future并按顺序填充Response，
+ * 执行出错的命令在Response.get时抛出JedisDataException
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class LettucePipeline implements RedisPipeline {
+
+    private final LettuceClientPool pool;
+
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private final List<Pending<?, ?>> pending = new ArrayList<>();
+
+    LettucePipeline(LettuceClientPool pool, RedisClusterAsyncCommands<byte[], byte[]> commands) {
+        this.pool = pool;
+        this.commands = commands;
+    }
+
+    @Override
+    public Object unwrap() {
+        return commands;
+    }
+
+    /**
+     * 所有命令共用一个超时期限
+     */
+    @Override
+    public void sync() {
+        long deadline = System.currentTimeMillis() + pool.getTimeout();
+        try {
+            for (Pending<?, ?> p : pending) {
+                p.fill(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    private <R, T> Response<T> enqueue(RedisFuture<R> future, Function<R, T> converter) {
+        Pending<R, T> p = new Pending<>(future, converter);
+        pending.add(p);
+        return p.response;
+    }
+
+    private <T> Response<T> enqueue(RedisFuture<T> future) {
+        return enqueue(future, Function.identity());
+    }
+
+    private class Pending<R, T> {
+
+        private final RedisFuture<R> future;
+
+        private final Function<R, T> converter;
+
+        private final Response<T> response = new Response<>(new Builder<T>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public T build(Object data) {
+                return (T) data;
+            }
+        });
+
+        Pending(RedisFuture<R> future, Function<R, T> converter) {
+            this.future = future;
+            this.converter = converter;
+        }
+
+        void fill(long waitMillis) {
+            try {
+                R result = pool.await(future, waitMillis);
+                response.set(result == null ? null : converter.apply(result));
+            } catch (JedisDataException e) {
+                response.set(e);
+            } catch (JedisConnectionException e) {
+                throw e;
+            } catch (JedisException e) {
+                response.set(new JedisDataException(e.getMessage(), e));
+            }
+        }
+    }
+
+    @Override
+    public Response<Boolean> exists(String key) {
+        return enqueue(commands.exists(bytes(key)), count -> count > 0);
+    }
+
+    @Override
+    public Response<Long> expire(String key, int seconds) {
+        return enqueue(commands.expire(bytes(key), seconds), LettuceClient::toLong);
+    }
+
+    @Override
+    public Response<Long> ttl(String key) {
+        return enqueue(commands.ttl(bytes(key)));
+    }
+
+    @Override
+    public Response<Long> del(String key) {
+        return enqueue(commands.del(bytes(key)));
+    }
+
+    @Override
+    public Response<String> set(String key, String value) {
+        return set(bytes(key), bytes(value));
+    }
+
+    @Override
+    public Response<String> set(String key, int seconds, String value, boolean nx, boolean xx) {
+        return set(bytes(key), seconds, bytes(value), nx, xx);
+    }
+
+    @Override
+    public Response<String> setex(String key, int seconds, String value) {
+        return setex(bytes(key), seconds, bytes(value));
+    }
+
+    @Override
+    public Response<String> get(String key) {
+        return enqueue(commands.get(bytes(key)), LettuceClient::str);
+    }
+
+    @Override
+    public Response<String> getSet(String key, String value) {
+        return enqueue(commands.getset(bytes(key), bytes(value)), LettuceClient::str);
+    }
+
+    @Override
+    public Response<Long> incr(String key) {
+        return enqueue(commands.incr(bytes(key)));
+    }
+
+    @Override
+    public Response<Long> decr(String key) {
+        return enqueue(commands.decr(bytes(key)));
+    }
+
+    @Override
+    public Response<Boolean> setbit(String key, long offset, boolean value) {
+        return enqueue(commands.setbit(bytes(key), offset, value ? 1 : 0), old -> old == 1);
+    }
+
+    @Override
+    public Response<Boolean> getbit(String key, long offset) {
+        return enqueue(commands.getbit(bytes(key), offset), bit -> bit == 1);
+    }
+
+    @Override
+    public Response<byte[]> get(byte[] key) {
+        return enqueue(commands.get(key));
+    }
+
+    @Override
+    public Response<String> set(byte[] key, byte[] value) {
+        return enqueue(commands.set(key, value));
+    }
+
+    @Override
+    public Response<String> setex(byte[] key, int seconds, byte[] value) {
+        return enqueue(commands.setex(key, seconds, value));
+    }
+
+    @Override
+    public Response<String> set(byte[] key, int seconds, byte[] value, boolean nx, boolean xx) {
+        return enqueue(commands.set(key, value, setArgs(seconds, nx, xx)));
+    }
+
+    @Override
+    public Response<Long> rpush(String key, String... strings) {
+        return enqueue(commands.rpush(bytes(key), bytes(strings)));
+    }
+
+    @Override
+    public Response<Long> lpush(String key, String... strings) {
+        return enqueue(commands.lpush(bytes(key), bytes(strings)));
+    }
+
+    @Override
+    public Response<Long> llen(String key) {
+        return enqueue(commands.llen(bytes(key)));
+    }
+
+    @Override
+    public Response<Long> lrem(String key, long count, String value) {
+        return enqueue(commands.lrem(bytes(key), count, bytes(value)));
+    }
+
+    @Override
+    public Response<String> lpop(String key) {
+        return enqueue(commands.lpop(bytes(key)), LettuceClient::str);
+    }
+
+    @Override
+    public Response<String> rpop(String key) {
+        return enqueue(commands.rpop(bytes(key)), LettuceClient::str);
+    }
+
+    @Override
+    public Response<Long> rpush(byte[] key, byte[]... args) {
+        return enqueue(commands.rpush(key, args));
+    }
+
+    @Override
+    public Response<Long> lpush(byte[] key, byte[]... args) {
+        return enqueue(commands.lpush(key, args));
+    }
+
+    @Override
+    public Response<Long> llen(byte[] key) {
+        return enqueue(commands.llen(key));
+    }
+
+    @Override
+    public Response<byte[]> lpop(byte[] key) {
+        return enqueue(commands.lpop(key));
+    }
+
+    @Override
+    public Response<byte[]> rpop(byte[] key) {
+        return enqueue(commands.rpop(key));
+    }
+
+    @Override
+    public Response<Long> hset(String key, String field, String value) {
+        return hset(bytes(key), bytes(field), bytes(value));
+    }
+
+    @Override
+    public Response<String> hget(String key, String field) {
+        return enqueue(commands.hget(bytes(key), bytes(field)), LettuceClient::str);
+    }
+
+    @Override
+    public Response<Long> hdel(String key, String... field) {
+        return enqueue(commands.hdel(bytes(key), bytes(field)));
+    }
+
+    @Override
+    public Response<Long> hlen(String key) {
+        return enqueue(commands.hlen(bytes(key)));
+    }
+
+    @Override
+    public Response<Map<String, String>> hgetAll(String key) {
+        return enqueue(commands.hgetall(bytes(key)), LettuceClient::strMap);
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return enqueue(commands.hmget(bytes(key), bytes(fields)), LettuceClient::values);
+    }
+
+    @Override
+    public Response<Long> hset(String key, Map<String, String> hash) {
+        Map<byte[], byte[]> map = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        hash.forEach((k, v) -> map.put(bytes(k), bytes(v)));
+        return enqueue(commands.hset(bytes(key), map));
+    }
+
+    @Override
+    public Response<Long> hset(byte[] key, byte[] field, byte[] value) {
+        return enqueue(commands.hset(key, field, value), LettuceClient::toLong);
+    }
+
+    @Override
+    public Response<byte[]> hget(byte[] key, byte[] field) {
+        return enqueue(commands.hget(key, field));
+    }
+
+    @Override
+    public Response<Long> hdel(byte[] key, byte[]... field) {
+        return enqueue(commands.hdel(key, field));
+    }
+
+    @Override
+    public Response<Long> hlen(byte[] key) {
+        return enqueue(commands.hlen(key));
+    }
+
+    @Override
+    public Response<Map<byte[], byte[]>> hgetAll(byte[] key) {
+        return enqueue(commands.hgetall(key));
+    }
+
+    @Override
+    public Response<Long> sadd(String key, String... members) {
+        return enqueue(commands.sadd(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Response<Set<String>> smembers(String key) {
+        return enqueue(commands.smembers(bytes(key)), LettuceClient::strSet);
+    }
+
+    @Override
+    public Response<Long> srem(String key, String... members) {
+        return enqueue(commands.srem(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Response<Set<String>> spop(String key, long count) {
+        return enqueue(commands.spop(bytes(key), count), LettuceClient::strSet);
+    }
+
+    @Override
+    public Response<Long> scard(String key) {
+        return enqueue(commands.scard(bytes(key)));
+    }
+
+    @Override
+    public Response<Boolean> sismember(String key, String member) {
+        return enqueue(commands.sismember(bytes(key), bytes(member)));
+    }
+
+    @Override
+    public Response<Long> sadd(byte[] key, byte[]... member) {
+        return enqueue(commands.sadd(key, member));
+    }
+
+    @Override
+    public Response<Set<byte[]>> smembers(byte[] key) {
+        return enqueue(commands.smembers(key));
+    }
+
+    @Override
+    public Response<Long> srem(byte[] key, byte[]... member) {
+        return enqueue(commands.srem(key, member));
+    }
+
+    @Override
+    public Response<byte[]> spop(byte[] key) {
+        return enqueue(commands.spop(key));
+    }
+
+    @Override
+    public Response<Long> scard(byte[] key) {
+        return enqueue(commands.scard(key));
+    }
+
+    @Override
+    public Response<Boolean> sismember(byte[] key, byte[] member) {
+        return enqueue(commands.sismember(key, member));
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member) {
+        return zadd(bytes(key), score, bytes(member));
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member, boolean nx, boolean xx, boolean ch) {
+        return zadd(bytes(key), score, bytes(member), nx, xx, ch);
+    }
+
+    @Override
+    public Response<Long> zrem(String key, String... members) {
+        return enqueue(commands.zrem(bytes(key), bytes(members)));
+    }
+
+    @Override
+    public Response<Set<String>> zrange(String key, long start, long stop) {
+        return enqueue(commands.zrange(bytes(key), start, stop), LettuceClient::strSet);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+        return enqueue(commands.zrangebyscore(bytes(key), Range.create(min, max)), LettuceClient::strSet);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, double min, double max) {
+        return enqueue(commands.zremrangebyscore(bytes(key), Range.create(min, max)));
+    }
+
+    @Override
+    public Response<Long> zadd(byte[] key, double score, byte[] member) {
+        return enqueue(commands.zadd(key, score, member));
+    }
+
+    @Override
+    public Response<Long> zadd(byte[] key, double score, byte[] member, boolean nx, boolean xx, boolean ch) {
+        return enqueue(commands.zadd(key, zaddArgs(nx, xx, ch), score, member));
+    }
+
+    @Override
+    public Response<Set<byte[]>> zrange(byte[] key, long start, long stop) {
+        return enqueue(commands.zrange(key, start, stop), LinkedHashSet::new);
+    }
+
+    @Override
+    public Response<Set<byte[]>> zrangeByScore(byte[] key, double min, double max) {
+        return enqueue(commands.zrangebyscore(key, Range.create(min, max)), LinkedHashSet::new);
+    }
+
+    @Override
+    public Response<Object> eval(String script, List<String> keys, List<String> args) {
+        return enqueue(commands.dispatch(CommandType.EVAL, new LettuceEvalOutput(), evalArgs(script, keys, args)));
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * MultiplexedConnection
+ * 多个调用方共享的一条redis连接，命令进入队列，由该连接的io线程取出一批依次写入后按序读取回复，
+ * redis对同一连接的回复顺序与命令顺序一致，按位置即可对应到各命令的future
+ * 连接异常时本批未回复的命令均失败，下一批重新建立连接
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class MultiplexedConnection implements Closeable {
+
+    private static final int MAX_BATCH = 1024;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String host;
+
+    private final int port;
+
+    private final int timeout;
+
+    private final String password;
+
+    private final boolean ssl;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    private final Thread ioThread;
+
+    private volatile boolean closed = false;
+
+    private Client client;
+
+    public MultiplexedConnection(String host, int port, int timeout, String password, boolean ssl) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.password = password;
+        this.ssl = ssl;
+        this.ioThread = new Thread(this::run, "RedisMultiplexed-" + host + ":" + port);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    /**
+     * 命令入队，回复由io线程填入；入队后连接已关闭且命令未被io线程取出时直接失败
+     * @param command
+     * @param args
+     * @return 回复，错误回复以JedisDataException完成
+     */
+    public CompletableFuture<Object> submit(ProtocolCommand command, byte[][] args) {
+        Request request = new Request(command, args);
+        if (closed) {
+            request.reply.completeExceptionally(new JedisConnectionException("multiplexed connection closed"));
+        } else {
+            queue.add(request);
+            if (closed && queue.remove(request)) {
+                // io线程可能已退出，不会再取出该命令
+                request.reply.completeExceptionally(new JedisConnectionException("multiplexed connection closed"));
+            }
+        }
+        return request.reply;
+    }
+
+    /**
+     * 等待回复，超时时间为连接超时的2倍（排队+执行），超时的命令标记为失败，尚未写入连接时不再发送
+     * @param reply
+     * @return
+     */
+    public Object await(CompletableFuture<Object> reply) {
+        try {
+            return reply.get(timeout * 2L, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JedisException) {
+                throw (JedisException) e.getCause();
+            }
+            throw new JedisConnectionException(e.getCause());
+        } catch (TimeoutException e) {
+            JedisConnectionException timeoutException = new JedisConnectionException(
+                "multiplexed reply timeout after " + timeout * 2L + "ms");
+            reply.completeExceptionally(timeoutException);
+            throw timeoutException;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException(e);
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                Request first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                execute(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        disconnect();
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.reply.completeExceptionally(new JedisConnectionException("multiplexed connection closed"));
+        }
+    }
+
+    private void execute(List<Request> batch) {
+        try {
+            if (client == null) {
+                client = connect();
+            }
+            List<Request> sent = new ArrayList<>(batch.size());
+            for (Request request : batch) {
+                // 调用方已超时放弃的命令不再写入
+                if (!request.reply.isDone()) {
+                    client.sendCommand(request.command, request.args);
+                    sent.add(request);
+                }
+            }
+            // 已写入的命令即使调用方已超时也要读取其回复，保持回复与命令的顺序对应
+            for (Request request : sent) {
+                try {
+                    request.reply.complete(client.getOne());
+                } catch (JedisDataException e) {
+                    request.reply.completeExceptionally(e);
+                }
+            }
+        } catch (RuntimeException e) {
+            int discarded = 0;
+            for (Request request : batch) {
+                if (request.reply.completeExceptionally(e)) {
+                    discarded++;
+                }
+            }
+            log.warn("multiplexed connection {}:{} fail, {} commands discarded! error:{}", host, port,
+                discarded, e.getMessage());
+            disconnect();
+        }
+    }
+
+    private Client connect() {
+        Client c = new Client(host, port, ssl);
+        c.setConnectionTimeout(timeout);
+        c.setSoTimeout(timeout);
+        if (password != null && !password.isEmpty()) {
+            c.setPassword(password);
+        }
+        c.connect();
+        return c;
+    }
+
+    /**
+     * 断开后丢弃，连接标记broken后不能复用
+     */
+    private void disconnect() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (RuntimeException e) {
+                log.debug("close multiplexed connection fail! error:{}", e.getMessage());
+            }
+            client = null;
+        }
+    }
+
+    /**
+     * 停止io线程，未发送的命令均失败
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ioThread.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiplexedConnection[" + host + ":" + port + "]";
+    }
+
+    private static class Request {
+
+        private final ProtocolCommand command;
+
+        private final byte[][] args;
+
+        private final CompletableFuture<Object> reply = new CompletableFuture<>();
+
+        Request(ProtocolCommand command, byte[][] args) {
+            this.command = command;
+            this.args = args;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisClientPool;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * ReplicaReadClientPool
+ * 单机主从模式，getResource为主节点连接，getReadResource按readFrom在主节点和从节点间选择，
+ * 从节点不可用时读主节点
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class ReplicaReadClientPool implements RedisClientPool, Closeable {
+
+    private final JedisSingleClientPool master;
+
+    private final List<ReplicaRouter.Node> nodes;
+
+    private final ReplicaRouter router;
+
+    /**
+     * @param master 主节点连接池
+     * @param replicas 从节点地址（host:port）和连接池
+     * @param readFrom
+     * @param checkIntervalSeconds 节点检测间隔
+     */
+    public ReplicaReadClientPool(JedisSingleClientPool master, Map<String, Pool<Jedis>> replicas, ReadFromMode readFrom,
+            int checkIntervalSeconds) {
+        this.master = master;
+        this.nodes = new ArrayList<>(replicas.size() + 1);
+        this.nodes.add(new ReplicaRouter.Node("master", master.getPool(), false));
+        replicas.forEach((name, pool) -> this.nodes.add(new ReplicaRouter.Node(name, pool, false)));
+        this.router = new ReplicaRouter(readFrom);
+        this.router.schedule(() -> nodes.forEach(ReplicaRouter.Node::check), checkIntervalSeconds);
+    }
+
+    @Override
+    public RedisClient getResource() {
+        return master.getResource();
+    }
+
+    @Override
+    public RedisClient getReadResource() {
+        ReplicaRouter.Node node = router.select(nodes);
+        if (node == null) {
+            return master.getResource();
+        }
+        try {
+            return new JedisSingleClient(node.getResource());
+        } catch (JedisConnectionException e) {
+            node.markDown();
+            return master.getResource();
+        }
+    }
+
+    @Override
+    public List<RedisClientPool> getMasterPools() {
+        return master.getMasterPools();
+    }
+
+    /**
+     * 关闭从节点连接池，主节点连接池由调用方管理
+     */
+    @Override
+    public void close() {
+        router.close();
+        for (int i = 1; i < nodes.size(); i++) {
+            nodes.get(i).getPool().close();
+        }
+    }
+
+}
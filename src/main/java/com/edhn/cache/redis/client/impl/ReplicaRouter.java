@@ -0,0 +1,202 @@
+package com.edhn.cache.redis.client.impl;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * ReplicaRouter
+ * 只读命令的节点选择，候选节点列表第一个为主节点，其余为从节点；
+ * 节点的可用性和延迟由定时PING检测，不可用的节点不参与选择，全部从节点不可用时读主节点
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class ReplicaRouter implements Closeable {
+
+    private final ReadFromMode readFrom;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RedisReplicaCheck");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ReplicaRouter(ReadFromMode readFrom) {
+        this.readFrom = readFrom;
+    }
+
+    /**
+     * @param nodes 第一个为主节点
+     * @return 选中的从节点，null表示读主节点
+     */
+    public Node select(List<Node> nodes) {
+        int size = nodes.size();
+        if (size <= 1 || readFrom == null || readFrom == ReadFromMode.master) {
+            return null;
+        }
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        switch (readFrom) {
+            case replicaPreferred:
+                for (int i = 0; i < size - 1; i++) {
+                    Node node = nodes.get(1 + (start + i) % (size - 1));
+                    if (node.healthy) {
+                        return node;
+                    }
+                }
+                return null;
+            case roundRobin:
+                for (int i = 0; i < size; i++) {
+                    int index = (start + i) % size;
+                    if (index == 0) {
+                        return null;
+                    } else if (nodes.get(index).healthy) {
+                        return nodes.get(index);
+                    }
+                }
+                return null;
+            case nearest:
+                Node nearest = null;
+                long latency = nodes.get(0).healthy ? nodes.get(0).latencyNanos : Long.MAX_VALUE;
+                for (int i = 1; i < size; i++) {
+                    Node node = nodes.get(i);
+                    if (node.healthy && node.latencyNanos < latency) {
+                        nearest = node;
+                        latency = node.latencyNanos;
+                    }
+                }
+                return nearest;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 定时执行检测任务
+     * @param task
+     * @param intervalSeconds
+     */
+    public void schedule(Runnable task, int intervalSeconds) {
+        int interval = Math.max(1, intervalSeconds);
+        checker.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("redis replica check fail! error:{}", e.getMessage());
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+    }
+
+    /**
+     * 候选节点，集群节点的连接首次用于读时发送READONLY
+     */
+    public static class Node {
+
+        private final String name;
+
+        private final Pool<Jedis> pool;
+
+        private final boolean cluster;
+
+        /**
+         * 已发送过READONLY的连接，连接断开重建后为新对象
+         */
+        private final Set<Jedis> readonlyConnections = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+        private volatile boolean healthy = true;
+
+        /**
+         * PING延迟的移动平均，单位ns
+         */
+        private volatile long latencyNanos;
+
+        /**
+         * @param name host:port
+         * @param pool
+         * @param cluster 是否集群节点，集群从节点需READONLY后才能读
+         */
+        public Node(String name, Pool<Jedis> pool, boolean cluster) {
+            this.name = name;
+            this.pool = pool;
+            this.cluster = cluster;
+        }
+
+        public Pool<Jedis> getPool() {
+            return pool;
+        }
+
+        /**
+         * @return 可读的连接，用完需关闭
+         */
+        public Jedis getResource() {
+            Jedis jedis = pool.getResource();
+            if (cluster && !readonlyConnections.contains(jedis)) {
+                try {
+                    jedis.readonly();
+                } catch (RuntimeException e) {
+                    jedis.close();
+                    throw e;
+                }
+                readonlyConnections.add(jedis);
+            }
+            return jedis;
+        }
+
+        /**
+         * 读失败时标记不可用，下次检测通过后恢复
+         */
+        public void markDown() {
+            healthy = false;
+        }
+
+        /**
+         * PING检测可用性，延迟按1/8权重计入移动平均
+         */
+        public void check() {
+            try (Jedis jedis = pool.getResource()) {
+                long start = System.nanoTime();
+                jedis.ping();
+                long sample = System.nanoTime() - start;
+                latencyNanos = latencyNanos == 0 ? sample : (latencyNanos * 7 + sample) / 8;
+                if (!healthy) {
+                    log.info("redis node {} is available again", name);
+                }
+                healthy = true;
+            } catch (Exception e) {
+                if (healthy) {
+                    log.warn("redis node {} is unavailable! error:{}", name, e.getMessage());
+                }
+                healthy = false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
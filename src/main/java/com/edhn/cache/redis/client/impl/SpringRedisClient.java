@@ -1,19 +1,30 @@
 package com.edhn.cache.redis.client.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
 import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.types.Expiration;
 
+import com.edhn.cache.redis.client.LuaScript;
 import com.edhn.cache.redis.client.RedisClient;
 import com.edhn.cache.redis.client.RedisPipeline;
 import com.edhn.cache.redis.serializer.IObjectSerializer;
@@ -22,8 +33,10 @@ import com.edhn.cache.redis.serializer.impl.JacksonObjectSerializer;
 
 import lombok.Getter;
 import lombok.Setter;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
 
 /**
  * SpringRedisClient
@@ -44,6 +57,15 @@ public class SpringRedisClient implements RedisClient {
 
     protected static IObjectSerializer serializer = new JacksonObjectSerializer();
 
+    private static final int DEFAULT_SCAN_COUNT = 10;
+
+    /**
+     * 未遍历完的scan游标，key为返回给调用方的游标编号
+     */
+    private final Map<String, Cursor<?>> cursors = new HashMap<>();
+
+    private long cursorSeq = 0;
+
 
     public SpringRedisClient(RedisConnection conn, 
             RedisSerializerWrapper redisSerializerWrapper) {
@@ -63,6 +85,8 @@ public class SpringRedisClient implements RedisClient {
 
     @Override
     public void close() {
+        cursors.values().forEach(Cursor::close);
+        cursors.clear();
         conn.close();
     }
 
@@ -108,6 +132,11 @@ public class SpringRedisClient implements RedisClient {
         return conn.exists(serializeKey(key));
     }
 
+    @Override
+    public Long exists(String... keys) {
+        return conn.exists(serializeKeys(keys));
+    }
+
     @Override
     public Long expire(String key, int seconds) {
         Boolean rt = conn.expire(serializeKey(key), seconds);
@@ -129,6 +158,11 @@ public class SpringRedisClient implements RedisClient {
         return conn.del(serializeKeys(keys));
     }
 
+    @Override
+    public Long unlink(String... keys) {
+        return conn.unlink(serializeKeys(keys));
+    }
+
     @Override
     public String set(String key, String value) {
         return set(serializeKey(key), serializeValue(value));
@@ -162,6 +196,15 @@ public class SpringRedisClient implements RedisClient {
         return valList.stream().map(this::deserializeValue).collect(Collectors.toList());
     }
 
+    @Override
+    public String mset(String... keysvalues) {
+        Map<byte[], byte[]> tuple = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysvalues.length; i += 2) {
+            tuple.put(serializeKey(keysvalues[i]), serializeValue(keysvalues[i + 1]));
+        }
+        return Boolean.TRUE.equals(conn.mSet(tuple)) ? "OK" : null;
+    }
+
     @Override
     public Long incr(String key) {
         return conn.incr(serializeKey(key));
@@ -172,6 +215,11 @@ public class SpringRedisClient implements RedisClient {
         return conn.decr(serializeKey(key));
     }
 
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        return conn.setBit(serializeKey(key), offset, value);
+    }
+
     @Override
     public byte[] get(byte[] key) {
         return conn.get(key);
@@ -341,6 +389,20 @@ public class SpringRedisClient implements RedisClient {
         return deserializeMapValue(map);
     }
 
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        List<byte[]> valList = conn.hMGet(serializeKey(key), serializeKeys(fields));
+        return valList == null ? null : valList.stream().map(this::deserializeValue).collect(Collectors.toList());
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        Map<byte[], byte[]> values = new LinkedHashMap<>((int)(hash.size() / 0.75 + 1));
+        hash.forEach((field, value) -> values.put(serializeKey(field), serializeValue(value)));
+        conn.hMSet(serializeKey(key), values);
+        return (long) values.size();
+    }
+
     @Override
     public Long hset(byte[] key, byte[] field, byte[] value) {
         Boolean rt = conn.hSet(key, field, value);
@@ -453,8 +515,7 @@ public class SpringRedisClient implements RedisClient {
 
     @Override
     public Long zadd(String key, double score, String member, boolean nx, boolean xx, boolean ch) {
-        Boolean rt = conn.zAdd(serializeKey(key), score, serializeValue(member));
-        return rt ? 1L : 0;
+        return zadd(serializeKey(key), score, serializeValue(member), nx, xx, ch);
     }
 
     @Override
@@ -493,8 +554,8 @@ public class SpringRedisClient implements RedisClient {
 
     @Override
     public Long zadd(byte[] key, double score, byte[] member, boolean nx, boolean xx, boolean ch) {
-        Boolean rt = conn.zAdd(key, score, member);
-        return rt ? 1L : 0;
+        Boolean rt = conn.zAdd(key, score, member, zAddArgs(nx, xx, ch));
+        return rt != null && rt ? 1L : 0;
     }
 
     @Override
@@ -540,12 +601,166 @@ public class SpringRedisClient implements RedisClient {
 
     @Override
     public ScanResult<String> scan(String cursor, ScanParams params) {
-        throw new UnsupportedOperationException("unsupported");
+        return scanPage(cursor, params, conn::scan, this::deSerializeKey);
+    }
+
+    @Override
+    public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+        return scanPage(cursor, params, options -> conn.hScan(serializeKey(key), options),
+            e -> new AbstractMap.SimpleImmutableEntry<>(deSerializeKey(e.getKey()), deserializeValue(e.getValue())));
+    }
+
+    @Override
+    public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
+        return scanPage(cursor, params, options -> conn.sScan(serializeKey(key), options), this::deserializeValue);
+    }
+
+    @Override
+    public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+        return scanPage(cursor, params, options -> conn.zScan(serializeKey(key), options),
+            t -> new Tuple(deserializeValue(t.getValue()), t.getScore()));
+    }
+
+    /**
+     * spring的scan游标不能从指定位置开始，未遍历完的游标保留在本连接上，返回的游标为其编号，
+     * 每次最多返回count个元素
+     * @param <E>
+     * @param <R>
+     * @param cursor 首次为0，之后为上次返回的游标
+     * @param params
+     * @param open 开始scan
+     * @param mapper 元素转换
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <E, R> ScanResult<R> scanPage(String cursor, ScanParams params, Function<ScanOptions, Cursor<E>> open,
+            Function<E, R> mapper) {
+        Cursor<E> scanCursor;
+        if (ScanParams.SCAN_POINTER_START.equals(cursor)) {
+            scanCursor = open.apply(toScanOptions(params));
+        } else {
+            scanCursor = (Cursor<E>) cursors.remove(cursor);
+            if (scanCursor == null) {
+                throw new IllegalArgumentException("unknown scan cursor " + cursor);
+            }
+        }
+        int count = scanCount(params);
+        List<R> page = new ArrayList<>(count);
+        while (page.size() < count && scanCursor.hasNext()) {
+            page.add(mapper.apply(scanCursor.next()));
+        }
+        if (!scanCursor.hasNext()) {
+            scanCursor.close();
+            return new ScanResult<>(ScanParams.SCAN_POINTER_START, page);
+        }
+        String next = String.valueOf(++cursorSeq);
+        cursors.put(next, scanCursor);
+        return new ScanResult<>(next, page);
+    }
+
+    static RedisZSetCommands.ZAddArgs zAddArgs(boolean nx, boolean xx, boolean ch) {
+        RedisZSetCommands.ZAddArgs args = RedisZSetCommands.ZAddArgs.empty();
+        if (nx) {
+            args.nx();
+        }
+        if (xx) {
+            args.xx();
+        }
+        if (ch) {
+            args.ch();
+        }
+        return args;
+    }
+
+    private static ScanOptions toScanOptions(ScanParams params) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions();
+        Iterator<byte[]> it = params.getParams().iterator();
+        while (it.hasNext()) {
+            String name = new String(it.next(), StandardCharsets.UTF_8);
+            byte[] value = it.hasNext() ? it.next() : null;
+            if ("MATCH".equalsIgnoreCase(name) && value != null) {
+                builder.match(value);
+            } else if ("COUNT".equalsIgnoreCase(name) && value != null) {
+                builder.count(Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+            }
+        }
+        return builder.build();
+    }
+
+    private static int scanCount(ScanParams params) {
+        ScanOptions options = toScanOptions(params);
+        return options.getCount() != null && options.getCount() > 0 ? options.getCount().intValue() : DEFAULT_SCAN_COUNT;
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        Set<RedisZSetCommands.Tuple> tuples = conn.zRangeByScoreWithScores(serializeKey(key),
+                RedisZSetCommands.Range.range().gte(min).lte(max), RedisZSetCommands.Limit.limit().offset(offset).count(count));
+        if (tuples != null) {
+            return tuples.stream().map(t -> new Tuple(deserializeValue(t.getValue()), t.getScore()))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+        return null;
+    }
+
+    @Override
+    public Long publish(String channel, String message) {
+        return conn.publish(channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        byte[][] channelBytes = Arrays.stream(channels).map(c -> c.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        conn.subscribe((message, pattern) -> {
+            jedisPubSub.onMessage(new String(message.getChannel(), StandardCharsets.UTF_8), 
+                new String(message.getBody(), StandardCharsets.UTF_8));
+        }, channelBytes);
     }
 
     @Override
     public Object eval(String script, List<String> keys, List<String> args) {
-        throw new UnsupportedOperationException("unsupported");
+        LuaScript registered = LuaScript.getBySource(script);
+        Object result = conn.eval(script.getBytes(StandardCharsets.UTF_8), scriptReturnType(registered), keys.size(),
+            keysAndArgs(redisSerializerWrapper, keys, args));
+        return decodeScriptResult(result);
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        Object result = conn.evalSha(sha1, scriptReturnType(LuaScript.getBySha1(sha1)), keys.size(),
+            keysAndArgs(redisSerializerWrapper, keys, args));
+        return decodeScriptResult(result);
+    }
+
+    /**
+     * spring执行脚本需指定返回类型，已注册的脚本按注册的类型，未注册的按单个值
+     * @param script
+     * @return
+     */
+    static ReturnType scriptReturnType(LuaScript script) {
+        return script != null ? ReturnType.fromJavaType(script.getResultType()) : ReturnType.VALUE;
+    }
+
+    static byte[][] keysAndArgs(RedisSerializerWrapper redisSerializerWrapper, List<String> keys, List<String> args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.size()][];
+        int i = 0;
+        for (String key : keys) {
+            keysAndArgs[i++] = redisSerializerWrapper.serializeKey(key);
+        }
+        for (String arg : args) {
+            keysAndArgs[i++] = arg.getBytes(StandardCharsets.UTF_8);
+        }
+        return keysAndArgs;
+    }
+
+    static Object decodeScriptResult(Object result) {
+        if (result instanceof byte[]) {
+            return new String((byte[]) result, StandardCharsets.UTF_8);
+        }
+        if (result instanceof List) {
+            return ((List<?>) result).stream().map(SpringRedisClient::decodeScriptResult).collect(Collectors.toList());
+        }
+        return result;
     }
 
 }
@@ -1,16 +1,24 @@
 package com.edhn.cache.redis.client.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
 import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
 import org.springframework.data.redis.core.types.Expiration;
 
+import com.edhn.cache.redis.client.LuaScript;
 import com.edhn.cache.redis.client.RedisPipeline;
 import com.edhn.cache.redis.serializer.IObjectSerializer;
 import com.edhn.cache.redis.serializer.RedisSerializerWrapper;
@@ -18,17 +26,27 @@ import com.edhn.cache.redis.serializer.impl.JacksonObjectSerializer;
 
 import lombok.Getter;
 import lombok.Setter;
+import redis.clients.jedis.Builder;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 /**
  * SpringRedisPipeline
- * @description
+ * @description 命令返回延迟的Response，sync/close时按顺序用closePipeline的结果填充，
+ * 无返回值的命令（如HMSET）不占用结果位置，其Response直接填充
  * @author edhn
  * @date 2023/5/13 20:00
  */
 public class SpringRedisPipeline implements RedisPipeline {
 
     private RedisConnection conn;
+
+    /**
+     * 等待closePipeline结果的Response，与结果顺序一致
+     */
+    private final List<Response<?>> pending = new ArrayList<>();
+
+    private final List<Response<?>> all = new ArrayList<>();
     @Getter
     @Setter
     private RedisSerializerWrapper redisSerializerWrapper;
@@ -48,15 +66,105 @@ public class SpringRedisPipeline implements RedisPipeline {
 
     @Override
     public void sync() {
+        flush();
+        conn.openPipeline();
     }
 
     public List<Object> syncAndReturnAll() {
-        return null;
+        sync();
+        List<Object> results = new ArrayList<>(all.size());
+        for (Response<?> response : all) {
+            try {
+                results.add(response.get());
+            } catch (JedisDataException e) {
+                results.add(e);
+            }
+        }
+        all.clear();
+        return results;
     }
 
     @Override
     public void close() {
-        conn.closePipeline();
+        flush();
+    }
+
+    /**
+     * 结束pipeline，按顺序填充Response，执行出错的命令在Response.get时抛出异常
+     */
+    private void flush() {
+        List<Object> results;
+        try {
+            results = conn.closePipeline();
+        } catch (RedisPipelineException e) {
+            results = e.getPipelineResult();
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            Object result = results != null && i < results.size() ? results.get(i) : null;
+            if (result instanceof Throwable && !(result instanceof JedisDataException)) {
+                result = new JedisDataException(((Throwable) result).getMessage(), (Throwable) result);
+            }
+            pending.get(i).set(result);
+        }
+        pending.clear();
+    }
+
+    /**
+     * @param <T>
+     * @param converter spring返回值转换为jedis的返回类型，结果为null时不调用
+     * @return 等待pipeline结果的Response
+     */
+    private <T> Response<T> enqueue(Function<Object, T> converter) {
+        Response<T> response = new Response<>(new Builder<T>() {
+            @Override
+            public T build(Object data) {
+                return converter.apply(data);
+            }
+        });
+        pending.add(response);
+        all.add(response);
+        return response;
+    }
+
+    /**
+     * @param <T>
+     * @param value
+     * @return 已填充的Response，用于无返回值的命令
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Response<T> completed(T value) {
+        Response<T> response = new Response<>(new Builder<T>() {
+            @Override
+            public T build(Object data) {
+                return (T) data;
+            }
+        });
+        response.set(value);
+        all.add(response);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Function<Object, T> cast() {
+        return data -> (T) data;
+    }
+
+    private static Long toLong(Object data) {
+        if (data instanceof Boolean) {
+            return (Boolean) data ? 1L : 0L;
+        }
+        return data instanceof Number ? ((Number) data).longValue() : Long.valueOf(data.toString());
+    }
+
+    private static Boolean toBoolean(Object data) {
+        if (data instanceof Number) {
+            return ((Number) data).longValue() != 0;
+        }
+        return data instanceof Boolean ? (Boolean) data : Boolean.valueOf(data.toString());
+    }
+
+    private static String toStatus(Object data) {
+        return Boolean.FALSE.equals(data) ? null : "OK";
     }
 
     protected byte[] serializeKey(String key) {
@@ -85,378 +193,398 @@ public class SpringRedisPipeline implements RedisPipeline {
         return redisSerializerWrapper.deserializeValue(bytes, String.class);
     }
 
+    private String toValue(Object data) {
+        return deserializeValue((byte[]) data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> toValueSet(Object data) {
+        return ((Collection<byte[]>) data).stream().map(this::deserializeValue)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
 
     @Override
     public Response<Boolean> exists(String key) {
         conn.exists(serializeKey(key));
-        return null;
+        return enqueue(SpringRedisPipeline::toBoolean);
     }
 
     @Override
     public Response<Long> expire(String key, int seconds) {
-        Boolean rt = conn.expire(serializeKey(key), seconds);
-        return null;
+        conn.expire(serializeKey(key), seconds);
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> ttl(String key) {
         conn.ttl(serializeKey(key));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> del(String key) {
         conn.del(serializeKey(key));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<String> set(String key, String value) {
-        set(serializeKey(key), serializeValue(value));
-        return null;
+        return set(serializeKey(key), serializeValue(value));
     }
 
     @Override
     public Response<String> set(String key, int seconds, String value, boolean nx, boolean xx) {
-        set(serializeKey(key), seconds, serializeValue(value), nx, xx);
-        return null;
+        return set(serializeKey(key), seconds, serializeValue(value), nx, xx);
     }
 
     @Override
     public Response<String> setex(String key, int seconds, String value) {
-        setex(serializeKey(key), seconds, serializeValue(value));
-        return null;
+        return setex(serializeKey(key), seconds, serializeValue(value));
     }
 
     @Override
     public Response<String> get(String key) {
-        byte[] val = conn.get(serializeKey(key));
-        deserializeValue(val);
-        return null;
+        conn.get(serializeKey(key));
+        return enqueue(this::toValue);
     }
 
     @Override
     public Response<String> getSet(String key, String value) {
-        byte[] val = conn.getSet(serializeKey(key), serializeValue(value));
-        deserializeValue(val);
-        return null;
+        conn.getSet(serializeKey(key), serializeValue(value));
+        return enqueue(this::toValue);
     }
 
     @Override
     public Response<Long> incr(String key) {
         conn.incr(serializeKey(key));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> decr(String key) {
         conn.decr(serializeKey(key));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
+    }
+
+    @Override
+    public Response<Boolean> setbit(String key, long offset, boolean value) {
+        conn.setBit(serializeKey(key), offset, value);
+        return enqueue(SpringRedisPipeline::toBoolean);
+    }
+
+    @Override
+    public Response<Boolean> getbit(String key, long offset) {
+        conn.getBit(serializeKey(key), offset);
+        return enqueue(SpringRedisPipeline::toBoolean);
     }
 
     @Override
     public Response<byte[]> get(byte[] key) {
         conn.get(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<String> set(byte[] key, byte[] value) {
-        Boolean rt = conn.set(key, value);
-        return null;
+        conn.set(key, value);
+        return enqueue(SpringRedisPipeline::toStatus);
     }
 
     @Override
     public Response<String> setex(byte[] key, int seconds, byte[] value) {
-        Boolean rt = conn.setEx(key, seconds, value);
-        return null;
+        conn.setEx(key, seconds, value);
+        return enqueue(SpringRedisPipeline::toStatus);
     }
 
     @Override
     public Response<String> set(byte[] key, int seconds, byte[] value, boolean nx, boolean xx) {
         Expiration expiration = Expiration.from(seconds, TimeUnit.SECONDS);
-        SetOption option = null;
+        SetOption option = SetOption.UPSERT;
         if (nx) {
             option = SetOption.SET_IF_ABSENT;
         } else if (xx) {
             option = SetOption.SET_IF_PRESENT;
         }
-        Boolean rt = conn.set(key, value, expiration, option);
-        return null;
+        conn.set(key, value, expiration, option);
+        return enqueue(SpringRedisPipeline::toStatus);
     }
 
     @Override
     public Response<Long> rpush(String key, String... args) {
-        conn.rPush(serializeKey(key), serializeValues(args));
-        return null;
+        return rpush(serializeKey(key), serializeValues(args));
     }
 
     @Override
     public Response<Long> lpush(String key, String... args) {
-        conn.lPush(serializeKey(key), serializeValues(args));
-        return null;
+        return lpush(serializeKey(key), serializeValues(args));
     }
 
     @Override
     public Response<Long> llen(String key) {
-        llen(serializeKey(key));
-        return null;
+        return llen(serializeKey(key));
     }
 
     @Override
     public Response<Long> lrem(String key, long count, String value) {
         conn.lRem(serializeKey(key), count, serializeValue(value));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<String> lpop(String key) {
-        byte[] val = conn.lPop(serializeKey(key));
-        return null;
+        conn.lPop(serializeKey(key));
+        return enqueue(this::toValue);
     }
 
     @Override
     public Response<String> rpop(String key) {
-        byte[] val = conn.rPop(serializeKey(key));
-        return null;
+        conn.rPop(serializeKey(key));
+        return enqueue(this::toValue);
     }
 
     @Override
     public Response<Long> rpush(byte[] key, byte[]... args) {
         conn.rPush(key, args);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> lpush(byte[] key, byte[]... args) {
         conn.lPush(key, args);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> llen(byte[] key) {
         conn.lLen(key);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<byte[]> lpop(byte[] key) {
         conn.lPop(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<byte[]> rpop(byte[] key) {
         conn.rPop(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Long> hset(String key, String field, String value) {
-        Boolean rt = conn.hSet(serializeKey(key), serializeKey(field), serializeValue(value));
-        return null;
+        return hset(serializeKey(key), serializeKey(field), serializeValue(value));
     }
 
     @Override
     public Response<String> hget(String key, String field) {
-        byte[] val = conn.hGet(serializeKey(key), serializeKey(field));
-        deserializeValue(val);
-        return null;
+        conn.hGet(serializeKey(key), serializeKey(field));
+        return enqueue(this::toValue);
     }
 
     @Override
     public Response<Long> hdel(String key, String... field) {
-        conn.hDel(serializeKey(key), serializeKeys(field));
-        return null;
+        return hdel(serializeKey(key), serializeKeys(field));
     }
 
     @Override
     public Response<Long> hlen(String key) {
-        conn.hLen(serializeKey(key));
-        return null;
+        return hlen(serializeKey(key));
     }
 
     @Override
     public Response<Map<String, String>> hgetAll(String key) {
-        Map<byte[], byte[]> map = conn.hGetAll(serializeKey(key));
-        return null;
+        conn.hGetAll(serializeKey(key));
+        return enqueue(data -> {
+            @SuppressWarnings("unchecked")
+            Map<byte[], byte[]> map = (Map<byte[], byte[]>) data;
+            Map<String, String> result = new LinkedHashMap<>((int)(map.size() / 0.75 + 1));
+            map.forEach((field, value) -> result.put(deSerializeKey(field), deserializeValue(value)));
+            return result;
+        });
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        conn.hMGet(serializeKey(key), serializeKeys(fields));
+        return enqueue(data -> {
+            @SuppressWarnings("unchecked")
+            List<byte[]> values = (List<byte[]>) data;
+            return values.stream().map(this::deserializeValue).collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    public Response<Long> hset(String key, Map<String, String> hash) {
+        Map<byte[], byte[]> values = new LinkedHashMap<>((int)(hash.size() / 0.75 + 1));
+        hash.forEach((field, value) -> values.put(serializeKey(field), serializeValue(value)));
+        // HMSET无返回值，不占用pipeline结果位置
+        conn.hMSet(serializeKey(key), values);
+        return completed((long) hash.size());
     }
 
     @Override
     public Response<Long> hset(byte[] key, byte[] field, byte[] value) {
-        Boolean rt = conn.hSet(key, field, value);
-        return null;
+        conn.hSet(key, field, value);
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<byte[]> hget(byte[] key, byte[] field) {
         conn.hGet(key, field);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Long> hdel(byte[] key, byte[]... field) {
         conn.hDel(key, field);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> hlen(byte[] key) {
         conn.hLen(key);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Map<byte[], byte[]>> hgetAll(byte[] key) {
         conn.hGetAll(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Long> sadd(String key, String... members) {
-        conn.sAdd(serializeKey(key), serializeValues(members));
-        return null;
+        return sadd(serializeKey(key), serializeValues(members));
     }
 
     @Override
     public Response<Set<String>> smembers(String key) {
-        Set<byte[]> bytes = conn.sMembers(serializeKey(key));
-        if (bytes != null) {
-            bytes.stream().map(this::deserializeValue).collect(Collectors.toSet());
-            return null;
-        }
-        return null;
+        conn.sMembers(serializeKey(key));
+        return enqueue(this::toValueSet);
     }
 
     @Override
     public Response<Long> srem(String key, String... members) {
-        conn.sRem(serializeKey(key), serializeValues(members));
-        return null;
+        return srem(serializeKey(key), serializeValues(members));
     }
 
     @Override
     public Response<Set<String>> spop(String key, long count) {
-        List<byte[]> bytes = conn.sPop(serializeKey(key), count);
-        if (bytes != null) {
-            bytes.stream().map(this::deserializeValue).collect(Collectors.toSet());
-            return null;
-        }
-        return null;
+        conn.sPop(serializeKey(key), count);
+        return enqueue(this::toValueSet);
     }
 
     @Override
     public Response<Long> scard(String key) {
-        conn.sCard(serializeKey(key));
-        return null;
+        return scard(serializeKey(key));
     }
 
     @Override
     public Response<Boolean> sismember(String key, String member) {
-        conn.sIsMember(serializeKey(key), serializeValue(member));
-        return null;
+        return sismember(serializeKey(key), serializeValue(member));
     }
 
     @Override
     public Response<Long> sadd(byte[] key, byte[]... member) {
         conn.sAdd(key, member);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Set<byte[]>> smembers(byte[] key) {
         conn.sMembers(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Long> srem(byte[] key, byte[]... member) {
         conn.sRem(key, member);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<byte[]> spop(byte[] key) {
         conn.sPop(key);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Long> scard(byte[] key) {
         conn.sCard(key);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Boolean> sismember(byte[] key, byte[] member) {
         conn.sIsMember(key, member);
-        return null;
+        return enqueue(SpringRedisPipeline::toBoolean);
     }
 
     @Override
     public Response<Long> zadd(String key, double score, String member) {
-        Boolean rt = conn.zAdd(serializeKey(key), score, serializeValue(member));
-        return null;
+        return zadd(serializeKey(key), score, serializeValue(member));
     }
 
     @Override
     public Response<Long> zadd(String key, double score, String member, boolean nx, boolean xx, boolean ch) {
-        Boolean rt = conn.zAdd(serializeKey(key), score, serializeValue(member));
-        return null;
+        return zadd(serializeKey(key), score, serializeValue(member), nx, xx, ch);
     }
 
     @Override
     public Response<Long> zrem(String key, String... members) {
         conn.zRem(serializeKey(key), serializeValues(members));
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Set<String>> zrange(String key, long start, long stop) {
-        Set<byte[]> bytes = conn.zRange(serializeKey(key), start, stop);
-        if (bytes != null) {
-            bytes.stream().map(this::deserializeValue).collect(Collectors.toSet());
-            return null;
-        }
-        return null;
+        conn.zRange(serializeKey(key), start, stop);
+        return enqueue(this::toValueSet);
     }
 
     @Override
     public Response<Set<String>> zrangeByScore(String key, double min, double max) {
-        Set<byte[]> bytes = conn.zRangeByScore(serializeKey(key), min, max);
-        if (bytes != null) {
-            bytes.stream().map(this::deserializeValue).collect(Collectors.toSet());
-            return null;
-        }
-        return null;
+        conn.zRangeByScore(serializeKey(key), min, max);
+        return enqueue(this::toValueSet);
     }
 
     @Override
     public Response<Long> zremrangeByScore(String key, double min, double max) {
         conn.zRemRangeByScore(serializeKey(key), min, max);
-        return null;
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> zadd(byte[] key, double score, byte[] member) {
-        Boolean rt = conn.zAdd(key, score, member);
-        return null;
+        conn.zAdd(key, score, member);
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Long> zadd(byte[] key, double score, byte[] member, boolean nx, boolean xx, boolean ch) {
-        Boolean rt = conn.zAdd(key, score, member);
-        return null;
+        conn.zAdd(key, score, member, SpringRedisClient.zAddArgs(nx, xx, ch));
+        return enqueue(SpringRedisPipeline::toLong);
     }
 
     @Override
     public Response<Set<byte[]>> zrange(byte[] key, long start, long stop) {
         conn.zRange(key, start, stop);
-        return null;
+        return enqueue(cast());
     }
 
     @Override
     public Response<Set<byte[]>> zrangeByScore(byte[] key, double min, double max) {
         conn.zRangeByScore(key, min, max);
-        return null;
+        return enqueue(cast());
+    }
+
+    @Override
+    public Response<Object> eval(String script, List<String> keys, List<String> args) {
+        conn.eval(script.getBytes(StandardCharsets.UTF_8), SpringRedisClient.scriptReturnType(LuaScript.getBySource(script)),
+            keys.size(), SpringRedisClient.keysAndArgs(redisSerializerWrapper, keys, args));
+        return enqueue(SpringRedisClient::decodeScriptResult);
     }
-}
\ No newline at end of file
+}
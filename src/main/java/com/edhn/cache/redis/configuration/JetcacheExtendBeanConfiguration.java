@@ -18,6 +18,8 @@ import com.alicp.jetcache.anno.support.DefaultEncoderParser;
 import com.alicp.jetcache.anno.support.EncoderParser;
 import com.alicp.jetcache.anno.support.KeyConvertorParser;
 import com.alicp.jetcache.anno.support.SpringConfigProvider;
+import com.edhn.cache.redis.configuration.modal.CompressionConfig;
+import com.edhn.cache.redis.configuration.modal.RedisConfig;
 import com.edhn.cache.redis.lock.IRedisLockService;
 import com.edhn.cache.redis.lock.JetCacheLockService;
 import com.edhn.cache.redis.serializer.ExtendKeyConvertorParser;
@@ -29,6 +31,7 @@ import com.edhn.cache.redis.serializer.GsonValueEncoder;
 import com.edhn.cache.redis.serializer.JacksonKeyConvertor;
 import com.edhn.cache.redis.serializer.JacksonValueDecoder;
 import com.edhn.cache.redis.serializer.JacksonValueEncoder;
+import com.edhn.cache.redis.serializer.ValueCompressor;
 import com.edhn.cache.redis.service.RedisSimpleApi;
 import com.edhn.cache.redis.service.impl.JedisCacheUnWrapper;
 import com.edhn.cache.redis.service.impl.JedisSimpleApiImpl;
@@ -47,6 +50,9 @@ import com.edhn.cache.redis.util.JetCacheUtil;
 @ConditionalOnProperty(name = "jetcache.remote.default.type", havingValue = "redis", matchIfMissing = false)
 public class JetcacheExtendBeanConfiguration {
     
+    @Autowired
+    private CacheExtendProperties properties;
+    
     /**
      * jetcache序列化器
      * @return json parser
@@ -55,9 +61,16 @@ public class JetcacheExtendBeanConfiguration {
     public EncoderParser jsonSupportedEncoderParser(
             @Autowired(required = false) GsonValueEncoder gsonEncoder,
             @Autowired(required = false) GsonValueDecoder gsonDecoder) {
+        ValueCompressor compressor = Optional.ofNullable(properties.getRedis())
+                .map(RedisConfig::getCompression).map(CompressionConfig::createCompressor).orElse(null);
         return new DefaultEncoderParser() {
             @Override
             public Function<Object, byte[]> parseEncoder(String valueEncoder) {
+                Function<Object, byte[]> encoder = parseJsonEncoder(valueEncoder);
+                return compressor != null ? compressor.compressing(encoder) : encoder;
+            }
+
+            private Function<Object, byte[]> parseJsonEncoder(String valueEncoder) {
                 URI uri = URI.create(valueEncoder.trim());
                 String encoder = uri.getPath();
                 boolean useIdentityNumber = Optional.ofNullable(uri.getQuery())
@@ -76,6 +89,11 @@ public class JetcacheExtendBeanConfiguration {
 
             @Override
             public Function<byte[], Object> parseDecoder(String valueDecoder) {
+                // 无论是否开启压缩都识别压缩值，便于灰度开启或关闭
+                return ValueCompressor.decompressing(parseJsonDecoder(valueDecoder));
+            }
+
+            private Function<byte[], Object> parseJsonDecoder(String valueDecoder) {
                 URI uri = URI.create(valueDecoder.trim());
                 String decoder = uri.getPath();
                 boolean useIdentityNumber = Optional.ofNullable(uri.getQuery())
@@ -154,11 +172,13 @@ public class JetcacheExtendBeanConfiguration {
     @ConditionalOnMissingBean
     @ConditionalOnProperty(name = "jetcache.remote.default.type", havingValue = "redis")
     public RedisSimpleApi redisSimpleApi(@Autowired JetcacheBean cacheBean) {
-        return new JedisSimpleApiImpl(() ->  {
+        JedisSimpleApiImpl api = new JedisSimpleApiImpl(() ->  {
             Cache<?, ?> redisCache = JetCacheUtil.getFirstRedisCache();
             redisCache = redisCache == null ? cacheBean.getRedisCache() : redisCache;
             return new JedisCacheUnWrapper(redisCache).getPool();
         });
+        api.configure(properties.getRedis());
+        return api;
     }
 
 }
@@ -0,0 +1,31 @@
+package com.edhn.cache.redis.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+import com.edhn.cache.redis.service.impl.AbstractRedisSimpleApi;
+import com.edhn.cache.redis.stats.CacheStatsMeterBinder;
+
+/**
+ * MetricsConfiguration
+ * 
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ * 
+ */
+@ConditionalOnClass(name="io.micrometer.core.instrument.MeterRegistry")
+public class MetricsConfiguration {
+
+    /**
+     * 缓存命中和耗时指标，由actuator绑定到MeterRegistry
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheStatsMeterBinder redisCacheStatsMeterBinder() {
+        return new CacheStatsMeterBinder(AbstractRedisSimpleApi.getCacheStats());
+    }
+
+}
@@ -1,11 +1,17 @@
 package com.edhn.cache.redis.configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -13,12 +19,29 @@ import org.springframework.context.annotation.Configuration;
 
 import com.edhn.cache.redis.client.RedisClientPool;
 import com.edhn.cache.redis.client.impl.JedisClusterClientPool;
+import com.edhn.cache.redis.client.impl.JedisMultiplexedClientPool;
 import com.edhn.cache.redis.client.impl.JedisSingleClientPool;
+import com.edhn.cache.redis.client.impl.LettuceClientPool;
+import com.edhn.cache.redis.client.impl.ReplicaReadClientPool;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+import com.edhn.cache.redis.configuration.modal.RedisClientType;
 import com.edhn.cache.redis.configuration.modal.RedisConfig;
+import com.edhn.cache.redis.configuration.modal.ReplicaReadConfig;
+import com.edhn.cache.redis.service.RedisAsyncApi;
 import com.edhn.cache.redis.service.RedisSimpleApi;
+import com.edhn.cache.redis.service.impl.AbstractRedisSimpleApi;
 import com.edhn.cache.redis.service.impl.JedisSimpleApiImpl;
+import com.edhn.cache.redis.service.impl.LettuceAsyncApiImpl;
 
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
 import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.util.Pool;
 
 /**
  * RedisExcendCacheConfiguration
@@ -41,19 +64,53 @@ public class RedisExcendCacheConfiguration {
     public RedisClientPool redisPool() {
         RedisConfig redisConfig = properties.getRedis();
         GenericObjectPoolConfig<?> poolConfig = redisConfig.getPool();
+        if (redisConfig.getClientType() == RedisClientType.lettuce) {
+            return RedisAsyncApiConfiguration.createLettucePool(redisConfig);
+        }
         if (redisConfig.getCluster() != null && redisConfig.getCluster().length > 0) {
             Set<HostAndPort> clusterNodes = Arrays.stream(redisConfig.getCluster())
                     .map(uri -> uri.toString().split(":"))
                     .map(hostAndPort -> new HostAndPort(hostAndPort[0], Integer.parseInt(hostAndPort[1])))
                     .collect(Collectors.toSet());
-            return new JedisClusterClientPool(clusterNodes, redisConfig.getTimeout(), redisConfig.getTimeout(), 10, 
-                redisConfig.getPassword(), poolConfig, redisConfig.isSsl());
+            JedisClusterClientPool clusterPool = new JedisClusterClientPool(clusterNodes, redisConfig.getTimeout(),
+                redisConfig.getTimeout(), 10, redisConfig.getPassword(), poolConfig, redisConfig.isSsl());
+            if (isReplicaRead(redisConfig)) {
+                clusterPool.enableReplicaRead(redisConfig.getReplicaRead().getReadFrom(),
+                    redisConfig.getReplicaRead().getCheckIntervalSeconds());
+            }
+            return clusterPool;
+        } else if (redisConfig.isMultiplexed()) {
+            return new JedisMultiplexedClientPool(redisConfig.getHost(), redisConfig.getPort(), redisConfig.getTimeout(),
+                redisConfig.getPassword(), redisConfig.isSsl(), redisConfig.getMultiplexedConnections());
         } else {
-            return new JedisSingleClientPool(poolConfig, redisConfig.getHost(), redisConfig.getPort(),
+            JedisSingleClientPool masterPool = new JedisSingleClientPool(poolConfig, redisConfig.getHost(), redisConfig.getPort(),
                 redisConfig.getTimeout(), redisConfig.getPassword(), redisConfig.isSsl());
+            ReplicaReadConfig replicaRead = redisConfig.getReplicaRead();
+            if (!isReplicaRead(redisConfig) || replicaRead.getReplicas() == null || replicaRead.getReplicas().length == 0) {
+                return masterPool;
+            }
+            @SuppressWarnings("unchecked")
+            GenericObjectPoolConfig<Jedis> config = (GenericObjectPoolConfig<Jedis>) poolConfig;
+            Map<String, Pool<Jedis>> replicas = new LinkedHashMap<>();
+            for (String replica : replicaRead.getReplicas()) {
+                String[] hostAndPort = replica.trim().split(":");
+                replicas.put(replica.trim(), new JedisPool(config, hostAndPort[0], Integer.parseInt(hostAndPort[1]),
+                    redisConfig.getTimeout(), redisConfig.getPassword(), redisConfig.isSsl()));
+            }
+            return new ReplicaReadClientPool(masterPool, replicas, replicaRead.getReadFrom(),
+                replicaRead.getCheckIntervalSeconds());
         }
     }
     
+    /**
+     * @param redisConfig
+     * @return 是否开启从节点读
+     */
+    static boolean isReplicaRead(RedisConfig redisConfig) {
+        return redisConfig.getReplicaRead() != null && redisConfig.getReplicaRead().getReadFrom() != null
+                && redisConfig.getReplicaRead().getReadFrom() != ReadFromMode.master;
+    }
+    
 
     /**
      * @return
@@ -61,7 +118,98 @@ public class RedisExcendCacheConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public RedisSimpleApi redisSimpleApi(RedisClientPool pool) {
-        return new JedisSimpleApiImpl(pool);
+        JedisSimpleApiImpl api = new JedisSimpleApiImpl(pool);
+        api.configure(properties.getRedis());
+        return api;
+    }
+    
+    
+    /**
+     * 异步api，基于lettuce非阻塞io，需引入lettuce-core；使用独立的lettuce连接，需cache.redis.async-api=true开启
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.lettuce.core.RedisClient")
+    static class RedisAsyncApiConfiguration {
+        
+        @Autowired
+        private CacheExtendProperties properties;
+        
+        /**
+         * @param redisSimpleApi 序列化、近端缓存失效等处理与同步api共用
+         * @return
+         */
+        @Bean(destroyMethod = "close")
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(name = "cache.redis.async-api", havingValue = "true", matchIfMissing = false)
+        public RedisAsyncApi redisAsyncApi(RedisSimpleApi redisSimpleApi) {
+            if (!(redisSimpleApi instanceof AbstractRedisSimpleApi)) {
+                throw new IllegalStateException("redisAsyncApi requires RedisSimpleApi extends AbstractRedisSimpleApi, but found "
+                        + redisSimpleApi.getClass().getName());
+            }
+            AbstractRedisSimpleApi syncApi = (AbstractRedisSimpleApi) redisSimpleApi;
+            RedisConfig redisConfig = properties.getRedis();
+            Duration timeout = Duration.ofMillis(redisConfig.getTimeout());
+            LettuceAsyncApiImpl api;
+            if (redisConfig.getCluster() != null && redisConfig.getCluster().length > 0) {
+                List<RedisURI> clusterNodes = Arrays.stream(redisConfig.getCluster())
+                        .map(uri -> uri.toString().split(":"))
+                        .map(hostAndPort -> buildUri(redisConfig, hostAndPort[0], Integer.parseInt(hostAndPort[1]), timeout))
+                        .collect(Collectors.toList());
+                api = new LettuceAsyncApiImpl(RedisClusterClient.create(clusterNodes), syncApi);
+            } else {
+                api = new LettuceAsyncApiImpl(RedisClient.create(
+                    buildUri(redisConfig, redisConfig.getHost(), redisConfig.getPort(), timeout)), syncApi);
+            }
+            return api;
+        }
+        
+        /**
+         * RedisSimpleApi使用lettuce客户端时的连接池，集群开启拓扑定时刷新和自适应刷新
+         * @param redisConfig
+         * @return
+         */
+        static RedisClientPool createLettucePool(RedisConfig redisConfig) {
+            Duration timeout = Duration.ofMillis(redisConfig.getTimeout());
+            if (redisConfig.getCluster() != null && redisConfig.getCluster().length > 0) {
+                List<RedisURI> clusterNodes = Arrays.stream(redisConfig.getCluster())
+                        .map(uri -> uri.toString().split(":"))
+                        .map(hostAndPort -> buildUri(redisConfig, hostAndPort[0], Integer.parseInt(hostAndPort[1]), timeout))
+                        .collect(Collectors.toList());
+                RedisClusterClient client = RedisClusterClient.create(clusterNodes);
+                ClusterTopologyRefreshOptions refreshOptions = ClusterTopologyRefreshOptions.builder()
+                        .enablePeriodicRefresh(Duration.ofSeconds(Math.max(1, redisConfig.getTopologyRefreshSeconds())))
+                        .enableAllAdaptiveRefreshTriggers()
+                        .build();
+                client.setOptions(ClusterClientOptions.builder().topologyRefreshOptions(refreshOptions).build());
+                LettuceClientPool pool = new LettuceClientPool(client, redisConfig.getTimeout());
+                if (isReplicaRead(redisConfig)) {
+                    pool.enableReplicaRead(redisConfig.getReplicaRead().getReadFrom(), null);
+                }
+                return pool;
+            }
+            RedisURI masterUri = buildUri(redisConfig, redisConfig.getHost(), redisConfig.getPort(), timeout);
+            LettuceClientPool pool = new LettuceClientPool(RedisClient.create(masterUri), redisConfig.getTimeout());
+            String[] replicas = redisConfig.getReplicaRead() != null ? redisConfig.getReplicaRead().getReplicas() : null;
+            if (isReplicaRead(redisConfig) && replicas != null && replicas.length > 0) {
+                List<RedisURI> nodes = new ArrayList<>(replicas.length + 1);
+                nodes.add(masterUri);
+                Arrays.stream(replicas)
+                        .map(replica -> replica.trim().split(":"))
+                        .map(hostAndPort -> buildUri(redisConfig, hostAndPort[0], Integer.parseInt(hostAndPort[1]), timeout))
+                        .forEach(nodes::add);
+                pool.enableReplicaRead(redisConfig.getReplicaRead().getReadFrom(), nodes);
+            }
+            return pool;
+        }
+        
+        private static RedisURI buildUri(RedisConfig redisConfig, String host, int port, Duration timeout) {
+            RedisURI.Builder builder = RedisURI.Builder.redis(host, port).withSsl(redisConfig.isSsl()).withTimeout(timeout);
+            if (redisConfig.getPassword() != null && !redisConfig.getPassword().isEmpty()) {
+                builder.withPassword(redisConfig.getPassword().toCharArray());
+            }
+            return builder.build();
+        }
+        
     }
             
 
@@ -25,7 +25,9 @@ import com.edhn.cache.redis.service.impl.RedisTemplateSimpleApiImpl;
 @Configuration
 @ConditionalOnClass(name = "org.springframework.data.redis.core.RedisTemplate")
 public class SpringDataExtendBeanConfiguration {
-
+    
+    @Autowired
+    private CacheExtendProperties properties;
 
     @Bean
     @ConditionalOnMissingBean
@@ -53,7 +55,9 @@ public class SpringDataExtendBeanConfiguration {
     @ConditionalOnMissingBean
     public RedisSimpleApi redisSimpleApi(
             @Autowired RedisTemplate<Object, Object> redisTemplate) {
-        return new RedisTemplateSimpleApiImpl(redisTemplate);
+        RedisTemplateSimpleApiImpl api = new RedisTemplateSimpleApiImpl(redisTemplate);
+        api.configure(properties.getRedis());
+        return api;
     }
 
 }
@@ -0,0 +1,49 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import lombok.Data;
+
+/**
+ * AutoPipelineConfig
+ * 自动合并pipeline配置，开启后并发的单key读写(get/exists/hget/set)在短时间窗口内合并为一次pipeline执行，
+ * 减少往返次数和连接池占用，仅对jedis实现生效
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     auto-pipeline:
+ *       enabled: true
+ *       max-batch: 64
+ *       window-micros: 100
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class AutoPipelineConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * 单次pipeline最多合并的命令数
+     */
+    private int maxBatch = 64;
+
+    /**
+     * 收到第一个命令后等待更多命令的时间，单位微秒，0表示只合并已在排队的命令
+     */
+    private int windowMicros = 100;
+
+    /**
+     * 执行pipeline的线程数，即同时占用的连接数
+     */
+    private int threads = 2;
+
+    /**
+     * 排队命令上限，超过时直接执行
+     */
+    private int queueCapacity = 10000;
+
+}
@@ -0,0 +1,77 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * BloomFilterConfig
+ * 布隆过滤器配置，过滤器记录区域内存在的key，判断为一定不存在时computeIfAbsent、batchGet不再读redis也不执行加载，
+ * 代替为每个不存在的key写入NULL特殊值；仅对namespaces中配置的区域生效，区域划分与近端缓存相同
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     bloom-filter:
+ *       enabled: true
+ *       namespaces:
+ *         "[user]":
+ *           expected-insertions: 5000000
+ *           fpp: 0.01
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class BloomFilterConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * redis中位图的key前缀，区域的位图为前缀+区域名+:位数:哈希函数个数，就绪标记为位图key+:ready，
+     * 修改expectedInsertions/fpp后使用新的位图，需重新预热并调用bloomReady
+     */
+    private String keyPrefix = "redis-extend:bloom:";
+
+    /**
+     * 从redis同步位图到本地的间隔，单位s
+     */
+    private int syncSeconds = 30;
+
+    /**
+     * 默认每个区域预计的key数量
+     */
+    private long expectedInsertions = 1000000;
+
+    /**
+     * 默认误判率
+     */
+    private double fpp = 0.01;
+
+    /**
+     * 每个区域位图的最大位数，默认2^28（32MB），各进程定时同步整个位图，超过时截断位数，误判率相应升高
+     */
+    private long maxBits = 1L << 28;
+
+    /**
+     * 启用布隆过滤器的区域，key为区域名
+     */
+    private Map<String, NamespaceConfig> namespaces = new LinkedHashMap<>();
+
+    /**
+     * 区域配置，未设置的项使用默认值
+     */
+    @Data
+    public static class NamespaceConfig {
+
+        private Long expectedInsertions;
+
+        private Double fpp;
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import com.edhn.cache.redis.serializer.ValueCompressor;
+
+import lombok.Data;
+
+/**
+ * CompressionConfig
+ * 缓存值压缩配置，开启后序列化结果超过阈值的值压缩后写入，读取时自动识别压缩值与未压缩值
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     compression:
+ *       enabled: true
+ *       algorithm: deflate
+ *       threshold: 4096
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class CompressionConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * 压缩算法，deflate或gzip
+     */
+    private ValueCompressor.Algorithm algorithm = ValueCompressor.Algorithm.DEFLATE;
+
+    /**
+     * 序列化后长度超过该值才压缩
+     */
+    private int threshold = 4096;
+
+    /**
+     * @return 未开启返回null
+     */
+    public ValueCompressor createCompressor() {
+        return enabled ? new ValueCompressor(algorithm, threshold) : null;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import lombok.Data;
+
+/**
+ * DistributedFillConfig
+ * 跨进程合并computeIfAbsent加载的配置，开启后同一key仅一个进程执行加载，
+ * 其他进程等待填充完成通知后读取缓存
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     distributed-fill:
+ *       enabled: true
+ *       lease-millis: 3000
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class DistributedFillConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * 填充完成通知的pub/sub通道
+     */
+    private String channel = "redis-extend:fill:done";
+
+    /**
+     * 填充租约(redis锁)key前缀
+     */
+    private String leasePrefix = "redis-extend:fill:lease:";
+
+    /**
+     * 填充租约时间，单位ms，等待者最长等待此时间后自行加载，应大于通常的加载耗时
+     */
+    private int leaseMillis = 3000;
+
+    public void setLeaseMillis(int leaseMillis) {
+        if (leaseMillis < 1) {
+            throw new IllegalArgumentException("leaseMillis must be positive: " + leaseMillis);
+        }
+        this.leaseMillis = leaseMillis;
+    }
+
+}
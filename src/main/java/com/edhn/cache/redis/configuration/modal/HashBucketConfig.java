@@ -0,0 +1,55 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * HashBucketConfig
+ * 分桶存储配置，区域内的key不再各自占用一个redis key，而是按hash(key) % buckets存为桶（hash）中的字段，
+ * 适用于数量巨大的小值（标记、计数、短字符串），字段数和值长度不超过hash-max-listpack-entries/value时redis使用紧凑编码，
+ * 每个值的内存开销远小于独立key；仅对namespaces中配置的区域生效，区域划分与近端缓存相同
+ * 过期时间按桶计算：写入时把桶的过期时间设为本次写入的ttl，桶内的值随桶一起过期
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     hash-bucket:
+ *       enabled: true
+ *       namespaces:
+ *         "[flag]":
+ *           buckets: 65536
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class HashBucketConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * 默认每个区域的桶数，建议使每桶字段数不超过hash-max-listpack-entries（默认128）
+     */
+    private int buckets = 1024;
+
+    /**
+     * 启用分桶存储的区域，key为区域名
+     */
+    private Map<String, NamespaceConfig> namespaces = new LinkedHashMap<>();
+
+    /**
+     * 区域配置，未设置的项使用默认值
+     */
+    @Data
+    public static class NamespaceConfig {
+
+        private Integer buckets;
+
+    }
+
+}
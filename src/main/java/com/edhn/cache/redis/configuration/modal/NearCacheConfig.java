@@ -0,0 +1,66 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * NearCacheConfig
+ * 近端缓存（进程内缓存）配置，仅对namespaces中配置的缓存区域生效
+ * 缓存区域为key中第一个冒号之前的部分，如key=dict:gender的区域为dict
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     near-cache:
+ *       enabled: true
+ *       namespaces:
+ *         "[dict]":
+ *           maximum-size: 2000
+ *           expire-seconds: 30
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class NearCacheConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * 失效通知的pub/sub通道，同一redis上的不同应用应保持不同
+     */
+    private String channel = "redis-extend:near-cache:invalidate";
+
+    /**
+     * 默认每个区域的最大条目数
+     */
+    private int maximumSize = 10000;
+
+    /**
+     * 默认写入后过期时间，单位s，失效通知丢失时以此兜底
+     */
+    private int expireSeconds = 60;
+
+    /**
+     * 启用近端缓存的区域，key为区域名
+     */
+    private Map<String, NamespaceConfig> namespaces = new LinkedHashMap<>();
+
+    /**
+     * 区域配置，未设置的项使用默认值
+     */
+    @Data
+    public static class NamespaceConfig {
+
+        private Integer maximumSize;
+
+        private Integer expireSeconds;
+
+    }
+
+}
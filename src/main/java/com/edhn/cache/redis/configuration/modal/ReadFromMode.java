@@ -0,0 +1,34 @@
+package com.edhn.cache.redis.configuration.modal;
+
+/**
+ * ReadFromMode
+ * 只读命令的节点选择方式
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public enum ReadFromMode {
+
+    /**
+     * 全部读主节点
+     */
+    master,
+
+    /**
+     * 在可用的从节点间轮询，没有可用从节点时读主节点
+     */
+    replicaPreferred,
+
+    /**
+     * 读延迟最低的可用节点（含主节点）
+     */
+    nearest,
+
+    /**
+     * 在主节点和可用的从节点间轮询
+     */
+    roundRobin
+
+}
@@ -0,0 +1,24 @@
+package com.edhn.cache.redis.configuration.modal;
+
+/**
+ * RedisClientType
+ * RedisSimpleApi使用的客户端实现
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public enum RedisClientType {
+    
+    /**
+     * jedis连接池（或multiplexed共享连接）
+     */
+    jedis,
+    
+    /**
+     * lettuce共享连接，需引入lettuce-core
+     */
+    lettuce
+
+}
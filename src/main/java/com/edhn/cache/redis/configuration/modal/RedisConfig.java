@@ -27,6 +27,100 @@ public class RedisConfig {
     
     private boolean ssl = false;
     
+    /**
+     * 客户端实现，默认jedis
+     */
+    private RedisClientType clientType = RedisClientType.jedis;
+    
     private RedisPoolConfig pool = new RedisPoolConfig();
+    
+    /**
+     * 单机模式下多路复用共享连接，开启后不使用连接池，所有调用方共享multiplexedConnections条连接
+     */
+    private boolean multiplexed = false;
+    
+    /**
+     * 多路复用模式的共享连接数
+     */
+    private int multiplexedConnections = 2;
+    
+    /**
+     * lettuce集群拓扑定时刷新间隔，单位s，MOVED/ASK等触发的自适应刷新始终开启
+     */
+    private int topologyRefreshSeconds = 60;
+    
+    /**
+     * 是否创建异步api(RedisAsyncApi)，需引入lettuce-core，开启后另建一条lettuce连接
+     */
+    private boolean asyncApi = false;
+    
+    private ReplicaReadConfig replicaRead = new ReplicaReadConfig();
+    
+    private NearCacheConfig nearCache = new NearCacheConfig();
+    
+    private DistributedFillConfig distributedFill = new DistributedFillConfig();
+    
+    /**
+     * 提前重算(XFetch)系数，大于0时开启，通常取1
+     */
+    private double earlyRecomputeBeta = 0;
+    
+    private AutoPipelineConfig autoPipeline = new AutoPipelineConfig();
+    
+    private CompressionConfig compression = new CompressionConfig();
+    
+    private BloomFilterConfig bloomFilter = new BloomFilterConfig();
+    
+    private HashBucketConfig hashBucket = new HashBucketConfig();
+    
+    /**
+     * 缓存统计日志输出间隔，单位s，0关闭（micrometer指标不受影响）
+     */
+    private int statIntervalSeconds = 3600;
+    
+    /**
+     * 按模式遍历key时同时scan的节点数
+     */
+    private int scanParallelism = 4;
+    
+    /**
+     * 按模式批量操作时每批key数
+     */
+    private int scanBatchSize = 500;
+    
+    /**
+     * 按模式遍历key时消费方空闲超时，单位s，流未关闭被丢弃时后台scan在超时后停止并释放连接
+     */
+    private int scanIdleTimeoutSeconds = 60;
+    
+    /**
+     * hash批量读写时每条HMGET/HSET的字段数
+     */
+    private int hashBatchChunkSize = 500;
+
+    /**
+     * batchGet命中值达到此数量时并行反序列化，0关闭
+     */
+    private int parallelDecodeThreshold = 1000;
+
+    /**
+     * 回调方式batchGet每个pipeline的key数
+     */
+    private int batchGetChunkSize = 1000;
+
+    /**
+     * 批量操作每个pipeline的最大命令数
+     */
+    private int pipelineDepth = 1000;
+
+    /**
+     * 批量写每个pipeline的最大估算字节数
+     */
+    private long pipelineFlushBytes = 1024 * 1024;
+
+    /**
+     * 批量操作分块后同时使用的连接数，1为在一个连接上依次执行，大于1时需确保连接池足够
+     */
+    private int pipelineParallelism = 1;
 
 }
@@ -0,0 +1,49 @@
+package com.edhn.cache.redis.configuration.modal;
+
+import lombok.Data;
+
+/**
+ * ReplicaReadConfig
+ * 从节点读配置，开启后无副作用的读命令（get/mget/batchGet/hget/hgetAll/smembers/zrange/exists）按readFrom选择节点，
+ * 写命令和其余命令仍在主节点执行；单机模式需在replicas中配置从节点地址，集群模式从CLUSTER SLOTS获取各slot的从节点
+ * 从节点复制有延迟，当前线程staleMillis内写过的key仍读主节点，保证线程内读到自己的写
+ *
+ * <pre>
+ * cache:
+ *   redis:
+ *     replica-read:
+ *       read-from: replicaPreferred
+ *       replicas: 10.0.0.2:6379,10.0.0.3:6379
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Data
+public class ReplicaReadConfig {
+
+    private ReadFromMode readFrom = ReadFromMode.master;
+
+    /**
+     * 单机模式的从节点地址，格式host:port，集群模式不需要
+     */
+    private String[] replicas;
+
+    /**
+     * 写入后读主节点的时间，单位ms，应大于主从复制延迟
+     */
+    private int staleMillis = 1000;
+
+    /**
+     * 每个线程最多记录的最近写入key数，超出时淘汰最早写入的
+     */
+    private int maxTrackedKeys = 1000;
+
+    /**
+     * 节点可用性和延迟检测间隔，集群模式同时刷新slot的从节点，单位s
+     */
+    private int checkIntervalSeconds = 5;
+
+}
@@ -41,4 +41,13 @@ public interface IMultiLevelBatchLoader<K,T> {
         return 0;
     }
 
+    /**
+     * 判断数据一定不存在（如布隆过滤器），返回true的key不再向下级加载
+     * @param key
+     * @return
+     */
+    default boolean isDefinitelyAbsent(K key) {
+        return false;
+    }
+
 }
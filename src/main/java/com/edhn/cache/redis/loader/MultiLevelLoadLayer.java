@@ -63,8 +63,10 @@ public class MultiLevelLoadLayer<K,T> {
         Map<K, T> mapData = new HashMap<>((int)(keys.size()/0.75 + 1));
         List<K> keysFalldown = new ArrayList<>(keys);
         MultiLevelLoadContext loaderContext = new MultiLevelLoadContext();
+        // 去掉确定不存在的key，避免穿透到db
+        keysFalldown.removeIf(k -> loaders.stream().anyMatch(loader -> loader.isDefinitelyAbsent(k)));
         // 使用loader依次加载
-        for (int i = 0; i < loaders.size(); i++) {
+        for (int i = 0; i < loaders.size() && !keysFalldown.isEmpty(); i++) {
             IMultiLevelBatchLoader<K,T> loader = loaders.get(i);
             Map<K, T> batchGetData;
             if (keysFalldown.size() > batchSize * 1.2) {
@@ -83,6 +83,11 @@ public class RedisMultiLevelBatchLoader<K,T> implements IMultiLevelBatchLoader<K
 		return null;
 	}
 	
+	@Override
+	public boolean isDefinitelyAbsent(K key) {
+	    return redisApi.isDefinitelyAbsent(getCacheKey(key));
+	}
+	
 	@Override
 	public void batchInvalid(Collection<K> keys) {
         Map<K, String> keyMappings = getCachekeyMappings(keys);
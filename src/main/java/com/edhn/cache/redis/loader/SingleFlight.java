@@ -0,0 +1,143 @@
+package com.edhn.cache.redis.loader;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight
+ * 同一key的并发加载合并为一次：首个调用者执行加载，其余调用者共享同一个CompletableFuture的结果，
+ * 加载结束后即移除，之后的调用重新发起加载
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>(256);
+
+    /**
+     * 当前线程正在执行加载的key，加载函数中重入同一key时直接执行，避免等待自身
+     */
+    private final ThreadLocal<Set<String>> leadingKeys = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * 同步执行，首个调用者在当前线程执行加载，其余调用者等待其结果
+     * @param <T>
+     * @param key
+     * @param loader
+     * @return 加载结果，加载异常时所有调用者抛出同一异常
+     */
+    public <T> T execute(String key, Supplier<T> loader) {
+        if (leadingKeys.get().contains(key)) {
+            return loader.get();
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+        run(key, flight, loader);
+        return await(flight);
+    }
+
+    /**
+     * 异步执行，首个调用者将加载提交到executor，其余调用者直接获得同一结果的future，不阻塞线程
+     * @param <T>
+     * @param key
+     * @param loader
+     * @param executor
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<T> loader, Executor executor) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(key, flight);
+        if (existing == null) {
+            try {
+                executor.execute(() -> run(key, flight, loader));
+            } catch (RejectedExecutionException e) {
+                flights.remove(key, flight);
+                flight.completeExceptionally(e);
+            }
+            existing = flight;
+        }
+        // 返回派生的future，调用方complete/cancel不影响其他等待者
+        return existing.thenApply(v -> (T) v);
+    }
+
+    /**
+     * 异步加载函数的合并，首个调用者发起加载，其余调用者直接获得同一结果的future
+     * @param <T>
+     * @param key
+     * @param loader 返回加载结果future的函数
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeCompose(String key, Supplier<CompletableFuture<T>> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(key, flight);
+        if (existing == null) {
+            CompletableFuture<T> loading;
+            try {
+                loading = loader.get();
+            } catch (Throwable e) {
+                loading = new CompletableFuture<>();
+                loading.completeExceptionally(e);
+            }
+            loading.whenComplete((v, e) -> {
+                flights.remove(key, flight);
+                if (e != null) {
+                    flight.completeExceptionally(e);
+                } else {
+                    flight.complete(v);
+                }
+            });
+            existing = flight;
+        }
+        return existing.thenApply(v -> (T) v);
+    }
+
+    /**
+     * @return 正在加载中的key数量
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private void run(String key, CompletableFuture<Object> flight, Supplier<?> loader) {
+        Set<String> keys = leadingKeys.get();
+        keys.add(key);
+        try {
+            flight.complete(loader.get());
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+        } finally {
+            keys.remove(key);
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T await(CompletableFuture<Object> flight) {
+        try {
+            return (T) flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.edhn.cache.redis.nearcache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import com.edhn.cache.redis.configuration.modal.NearCacheConfig;
+import com.edhn.cache.redis.service.RedisSimpleApi;
+import com.edhn.cache.redis.service.impl.CloseableSubscription;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * NearCache
+ * 近端缓存，在进程内按区域缓存redis读取结果（caffeine，W-TinyLFU淘汰），
+ * 写操作通过redis pub/sub广播失效通知，保证多个进程间的一致性
+ * 每个key有失效代数，读redis前取代数，写入时代数已变化说明期间收到失效，不缓存读到的值；
+ * 订阅建立（含断开后重新订阅）时清空本地缓存，期间丢失的失效通知不会留下旧值
+ * 
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ * 
+ */
+@Slf4j
+public class NearCache {
+    
+    private static final String MESSAGE_SEPARATOR = "|";
+    
+    private static final int GENERATION_STRIPES = 1024;
+    
+    /**     * 一条通知中多个key的分隔符     */
+    private static final String KEY_SEPARATOR = "\n";
+    
+    private final RedisSimpleApi redisApi;
+    
+    @Getter
+    private final NearCacheConfig config;
+    
+    /**     * 当前实例标识，用于忽略自己发出的通知     */
+    private final String instanceId = UUID.randomUUID().toString().replaceAll("-", "");
+    
+    private final Map<String, Cache<String, Entry>> caches = new ConcurrentHashMap<>();
+    
+    /**     * key按hash分段的失效代数，失效时递增     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    
+    /**     * 清空全部本地缓存的次数     */
+    private final AtomicLong epoch = new AtomicLong();
+    
+    private volatile CloseableSubscription subscription;
+    
+    public NearCache(RedisSimpleApi redisApi, NearCacheConfig config) {
+        this.redisApi = redisApi;
+        this.config = config;
+        config.getNamespaces().forEach((ns, nsConfig) -> {
+            int maximumSize = nsConfig != null && nsConfig.getMaximumSize() != null ? nsConfig.getMaximumSize() : config.getMaximumSize();
+            int expireSeconds = nsConfig != null && nsConfig.getExpireSeconds() != null ? nsConfig.getExpireSeconds() : config.getExpireSeconds();
+            Cache<String, Entry> cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                    .build();
+            caches.put(ns, cache);
+        });
+    }
+    
+    /**
+     * 缓存区域，冒号之前的算缓存区域
+     * @param key
+     * @return
+     */
+    public static String getNamespace(String key) {
+        int nsPos = key.indexOf(":");
+        return nsPos >= 0 ? key.substring(0, nsPos) : key;
+    }
+    
+    /**
+     * @param key
+     * @return key所在区域启用了近端缓存返回true
+     */
+    public boolean isCached(String key) {
+        return key != null && caches.containsKey(getNamespace(key));
+    }
+    
+    /**
+     * 读本地缓存
+     * @param key
+     * @return 未命中返回null
+     */
+    public Entry get(String key) {
+        Cache<String, Entry> cache = key != null ? caches.get(getNamespace(key)) : null;
+        if (cache == null) {
+            return null;
+        }
+        ensureSubscribed();
+        return cache.getIfPresent(key);
+    }
+    
+    /**
+     * 读redis前调用，写入时传给put
+     * @param key
+     * @return key当前的失效代数
+     */
+    public long generation(String key) {
+        // 两个计数只增不减，和变化即任一递增过
+        return generations.get(stripe(key)) + epoch.get();
+    }
+    
+    /**
+     * 写本地缓存，读取后key已失效（代数变化）时不缓存
+     * @param key
+     * @param raw 从redis读取的原始值
+     * @param generation 读redis前的generation(key)
+     * @return 区域未启用近端缓存返回null
+     */
+    public Entry put(String key, Object raw, long generation) {
+        Cache<String, Entry> cache = key != null && raw != null ? caches.get(getNamespace(key)) : null;
+        if (cache == null) {
+            return null;
+        }
+        ensureSubscribed();
+        Entry entry = new Entry(raw);
+        if (generation(key) != generation) {
+            return entry;
+        }
+        cache.put(key, entry);
+        // 失效先递增代数再删除，写入后再检查一次，并发的失效要么删除了此条目要么在此处被发现
+        if (generation(key) != generation) {
+            cache.asMap().remove(key, entry);
+        }
+        return entry;
+    }
+    
+    /**
+     * 使本地缓存失效，并通知其他进程，一次调用的所有key合并为一条通知
+     * @param keys
+     */
+    public void invalidate(String... keys) {
+        List<String> cachedKeys = new ArrayList<>(keys.length);
+        for (String key: keys) {
+            if (!isCached(key)) {
+                continue;
+            }
+            invalidateLocal(caches.get(getNamespace(key)), key);
+            cachedKeys.add(key);
+        }
+        if (cachedKeys.isEmpty()) {
+            return;
+        }
+        try {
+            redisApi.publish(config.getChannel(), instanceId + MESSAGE_SEPARATOR + String.join(KEY_SEPARATOR, cachedKeys));
+        } catch (Exception e) {
+            log.warn("near cache publish invalidation fail! keys={}", cachedKeys, e);
+        }
+    }
+    
+    /**
+     * 清空本地缓存，不通知其他进程
+     */
+    public void invalidateAllLocal() {
+        epoch.incrementAndGet();
+        caches.values().forEach(Cache::invalidateAll);
+    }
+    
+    private void invalidateLocal(Cache<String, Entry> cache, String key) {
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+    
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+    
+    protected void onMessage(String message) {
+        int pos = message.indexOf(MESSAGE_SEPARATOR);
+        if (pos < 0 || instanceId.equals(message.substring(0, pos))) {
+            return;
+        }
+        for (String key : message.substring(pos + 1).split(KEY_SEPARATOR)) {
+            Cache<String, Entry> cache = caches.get(getNamespace(key));
+            if (cache != null) {
+                invalidateLocal(cache, key);
+            }
+        }
+    }
+    
+    /**
+     * 首次使用时订阅失效通知，每次订阅建立时清空本地缓存
+     */
+    protected void ensureSubscribed() {
+        if (subscription == null) {
+            synchronized (this) {
+                if (subscription == null) {
+                    subscription = redisApi.subscribe(config.getChannel(), this::onMessage, this::invalidateAllLocal);
+                    log.info("near cache subscribed invalidation channel {}, namespaces={}", config.getChannel(), caches.keySet());
+                }
+            }
+        }
+    }
+    
+    public void close() {
+        CloseableSubscription sub = subscription;
+        subscription = null;
+        if (sub != null) {
+            sub.close();
+        }
+        invalidateAllLocal();
+    }
+    
+    
+    /**
+     * 本地缓存条目，保存redis原始值，并记住最近一次反序列化的结果避免重复解析
+     * 注意反序列化结果在多个调用方间共享，调用方不应修改返回的对象
+     */
+    public static class Entry {
+        
+        @Getter
+        private final Object raw;
+        
+        /**     * [type, value]，保证type和value一致     */
+        private volatile Object[] decoded;
+        
+        Entry(Object raw) {
+            this.raw = raw;
+        }
+        
+        /**
+         * @param <T>
+         * @param type 反序列化类型，Class或java.lang.reflect.Type
+         * @param decoder 反序列化方法
+         * @return
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T decode(Object type, Function<Object, T> decoder) {
+            Object[] current = decoded;
+            if (current != null && Objects.equals(current[0], type)) {
+                return (T) current[1];
+            }
+            T value = decoder.apply(raw);
+            decoded = new Object[] {type, value};
+            return value;
+        }
+        
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.edhn.cache.redis.serializer;
+
+import java.nio.charset.StandardCharsets;
+
+import lombok.Getter;
+
+/**
+ * CacheEnvelope
+ * 带逻辑过期时间的缓存值，格式：$ENV$逻辑过期时间戳:加载耗时:序列化值
+ * 逻辑过期时间可早于redis中的ttl（软过期），由读取方决定是否刷新
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Getter
+public class CacheEnvelope {
+
+    public static final String PREFIX = "$ENV$";
+    
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 逻辑过期时间戳，单位ms
+     */
+    private final long softExpireAt;
+
+    /**
+     * 加载该值的耗时，单位ms
+     */
+    private final long delta;
+
+    /**
+     * 序列化值
+     */
+    private final String payload;
+
+    public CacheEnvelope(long softExpireAt, long delta, String payload) {
+        this.softExpireAt = softExpireAt;
+        this.delta = delta;
+        this.payload = payload;
+    }
+
+    /**
+     * @return 是否已软过期
+     */
+    public boolean isSoftExpired() {
+        return System.currentTimeMillis() >= softExpireAt;
+    }
+
+    /**
+     * 封装为缓存值
+     * @param payload
+     * @param softExpireAt
+     * @param delta
+     * @return
+     */
+    public static String wrap(String payload, long softExpireAt, long delta) {
+        return PREFIX + softExpireAt + ":" + delta + ":" + payload;
+    }
+
+    /**
+     * 解析缓存值
+     * @param value
+     * @return 不是封装格式返回null
+     */
+    public static CacheEnvelope parse(String value) {
+        if (value == null || !value.startsWith(PREFIX)) {
+            return null;
+        }
+        int index = value.indexOf(':', PREFIX.length());
+        int index2 = index < 0 ? -1 : value.indexOf(':', index + 1);
+        if (index2 < 0) {
+            return null;
+        }
+        try {
+            long softExpireAt = Long.parseLong(value.substring(PREFIX.length(), index));
+            long delta = Long.parseLong(value.substring(index + 1, index2));
+            return new CacheEnvelope(softExpireAt, delta, value.substring(index2 + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 去掉封装（含版本值的前缀），普通读取方法读到封装值时使用
+     * @param value
+     * @return 序列化值，不是封装格式原样返回
+     */
+    public static String strip(String value) {
+        value = VersionedValue.strip(value);
+        CacheEnvelope envelope = parse(value);
+        return envelope != null ? envelope.getPayload() : value;
+    }
+
+    /**
+     * @param value
+     * @return 字节值是否为封装格式（含版本值），需按字符串去掉封装后再反序列化
+     */
+    public static boolean isWrapped(byte[] value) {
+        if (VersionedValue.isVersioned(value)) {
+            return true;
+        }
+        if (value == null || value.length < PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX_BYTES.length; i++) {
+            if (value[i] != PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
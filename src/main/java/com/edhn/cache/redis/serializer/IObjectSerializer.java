@@ -1,5 +1,7 @@
 package com.edhn.cache.redis.serializer;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * IObjectSerializer
  * 
@@ -26,5 +28,27 @@ public interface IObjectSerializer {
      * @throws Exception
      */
     <T> T deserializeObject(String json, Class<T> cls) throws Exception;
+    
+    /**
+     * 序列化为utf-8字节，默认经由json字符串转换，实现类可直接输出字节避免中间字符串
+     * @param value
+     * @return
+     * @throws Exception
+     */
+    default byte[] serializeObjectBytes(Object value) throws Exception {
+        String json = serializeObject(value);
+        return json == null ? null : json.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 从utf-8字节反序列化，默认经由json字符串转换，实现类可直接解析字节避免中间字符串
+     * @param bytes
+     * @param cls
+     * @return
+     * @throws Exception
+     */
+    default <T> T deserializeObject(byte[] bytes, Class<T> cls) throws Exception {
+        return bytes == null ? null : deserializeObject(new String(bytes, StandardCharsets.UTF_8), cls);
+    }
 
 }
@@ -36,6 +36,11 @@ public class RedisSerializerWrapper {
     @Setter
     private IObjectSerializer primitiveSerializer = new JacksonObjectSerializer();
     
+    /**
+     * 缓存null的特殊值，与AbstractRedisSimpleApi.VALUE_NULL一致
+     */
+    private static final String VALUE_NULL = "$NULL$";
+    
     @SuppressWarnings("unchecked")
     public RedisSerializerWrapper(RedisTemplate<Object, Object> redisTemplate) {
         this.keySerializer = (RedisSerializer<Object>)redisTemplate.getKeySerializer(); 
@@ -96,6 +101,21 @@ public class RedisSerializerWrapper {
         return Objects.toString(keySerializer.deserialize(bytes), null);
     }
     
+    /**
+     * 读取为字符串，原始字符串保存的封装值原样返回，其他值经RedisTempate的value序列化
+     * @param bytes
+     * @return
+     */
+    public String deserializeRaw(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (CacheEnvelope.isWrapped(bytes)) {
+            return ValueCompressor.toText(bytes);
+        }
+        return Objects.toString(valueSerializer.deserialize(bytes), null);
+    }
+    
     public boolean isPrimitiveOrBoxed(Class<?> cls) {
         try {
             return cls.isPrimitive() || ((Class<?>) cls.getField("TYPE").get(null)).isPrimitive();
@@ -119,11 +139,19 @@ public class RedisSerializerWrapper {
         }
         if (isPrimitiveOrBoxed(cls)) {
             // 原始类型数据，主动设值时不使用RedisTempate的value序列化
-            return bytes == null ? null : deserializeObject(new String(bytes, StandardCharsets.UTF_8),  cls);
+            return bytes == null ? null : deserializeObject(ValueCompressor.decompress(CacheEnvelope.strip(ValueCompressor.toText(bytes))),  cls);
         };
+        if (CacheEnvelope.isWrapped(bytes)) {
+            // 版本值、字段过期封装由脚本或hash批量写入，按原始字符串保存，不能交给RedisTempate的value序列化
+            String payload = ValueCompressor.decompress(CacheEnvelope.strip(ValueCompressor.toText(bytes)));
+            return VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls);
+        }
         Object result = valueSerializer.deserialize(bytes);
-        if (result instanceof String && !cls.isAssignableFrom(result.getClass())) {
-            result = deserializeObject(Objects.toString(result),  cls);
+        if (result instanceof String) {
+            result = ValueCompressor.decompress(CacheEnvelope.strip((String) result));
+            if (!cls.isAssignableFrom(result.getClass())) {
+                result = deserializeObject(Objects.toString(result),  cls);
+            }
         }
         return (T) result;
     }
@@ -0,0 +1,317 @@
+package com.edhn.cache.redis.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ValueCompressor
+ * 缓存值压缩，两种格式：
+ * <ul>
+ * <li>字节格式：0xFF + 算法标识 + 压缩内容，用于按字节写入的值（jetcache编码器、serializeObjectBytes），没有base64的膨胀；
+ * UTF-8文本不会出现0xFF，不会与文本值混淆</li>
+ * <li>文本格式：$CMP$ + 算法标识 + 压缩内容的base64，用于按字符串写入的值，压缩后仍是合法字符串</li>
+ * </ul>
+ * 未压缩的值若恰好以上述标识开头，写入时加转义标识'='，读取时去掉，不会被误解压；
+ * 读取时未压缩的旧值原样返回，便于灰度切换
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class ValueCompressor {
+
+    public static final String PREFIX = "$CMP$";
+
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 字节格式的头字节
+     */
+    private static final byte MAGIC = (byte) 0xFF;
+
+    /**
+     * 转义标识，其后为未压缩的原值
+     */
+    private static final char RAW = '=';
+
+    /**
+     * 压缩算法
+     */
+    public enum Algorithm {
+
+        DEFLATE('D') {
+            @Override
+            OutputStream wrap(OutputStream out) throws IOException {
+                return new DeflaterOutputStream(out);
+            }
+
+            @Override
+            InputStream wrap(InputStream in) throws IOException {
+                return new InflaterInputStream(in);
+            }
+        },
+
+        GZIP('G') {
+            @Override
+            OutputStream wrap(OutputStream out) throws IOException {
+                return new GZIPOutputStream(out);
+            }
+
+            @Override
+            InputStream wrap(InputStream in) throws IOException {
+                return new GZIPInputStream(in);
+            }
+        };
+
+        private final char id;
+
+        Algorithm(char id) {
+            this.id = id;
+        }
+
+        abstract OutputStream wrap(OutputStream out) throws IOException;
+
+        abstract InputStream wrap(InputStream in) throws IOException;
+
+        static Algorithm of(char id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id == id) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Algorithm algorithm;
+
+    private final int threshold;
+
+    /**
+     * @param algorithm 压缩算法
+     * @param threshold 超过该长度才压缩
+     */
+    public ValueCompressor(Algorithm algorithm, int threshold) {
+        this.algorithm = algorithm;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param value
+     * @return 超过阈值且压缩后更短时返回文本格式的压缩值，否则返回原值（以压缩标识开头时转义）
+     */
+    public String compress(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() >= threshold) {
+            byte[] deflated = deflate(value.getBytes(StandardCharsets.UTF_8));
+            String encoded = Base64.getEncoder().encodeToString(deflated);
+            if (PREFIX.length() + 1 + encoded.length() < value.length()) {
+                return PREFIX + algorithm.id + encoded;
+            }
+        }
+        return escape(value);
+    }
+
+    /**
+     * @param value
+     * @return 超过阈值且压缩后更短时返回字节格式的压缩值，否则返回原值（以压缩标识开头时转义）
+     */
+    public byte[] compress(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length >= threshold) {
+            byte[] deflated = deflate(value);
+            if (2 + deflated.length < value.length) {
+                byte[] result = new byte[2 + deflated.length];
+                result[0] = MAGIC;
+                result[1] = (byte) algorithm.id;
+                System.arraycopy(deflated, 0, result, 2, deflated.length);
+                return result;
+            }
+        }
+        return escape(value);
+    }
+
+    /**
+     * 包装jetcache的encoder，编码结果超过阈值时压缩
+     * @param encoder
+     * @return
+     */
+    public Function<Object, byte[]> compressing(Function<Object, byte[]> encoder) {
+        return encoder == null ? null : value -> compress(encoder.apply(value));
+    }
+
+    /**
+     * 包装jetcache的decoder，先解压再解码
+     * @param decoder
+     * @return
+     */
+    public static Function<byte[], Object> decompressing(Function<byte[], Object> decoder) {
+        return decoder == null ? null : buffer -> decoder.apply(decompress(buffer));
+    }
+
+    /**
+     * 未开启压缩时按字符串写入的原值也需转义，避免以压缩标识开头的值被误解压
+     * @param value
+     * @return 以压缩标识开头时加转义标识，否则原样返回
+     */
+    public static String escape(String value) {
+        return value != null && value.startsWith(PREFIX) ? PREFIX + RAW + value : value;
+    }
+
+    private static byte[] escape(byte[] value) {
+        if (value.length == 0 || (value[0] != MAGIC && !startsWith(value, PREFIX_BYTES))) {
+            return value;
+        }
+        byte[] result = new byte[value.length + 2];
+        result[0] = MAGIC;
+        result[1] = (byte) RAW;
+        System.arraycopy(value, 0, result, 2, value.length);
+        return result;
+    }
+
+    /**
+     * @param value
+     * @return 是否为压缩格式
+     */
+    public static boolean isCompressed(String value) {
+        return value != null && value.length() > PREFIX.length() && value.startsWith(PREFIX)
+                && Algorithm.of(value.charAt(PREFIX.length())) != null;
+    }
+
+    /**
+     * @param value
+     * @return 是否为压缩格式（字节或文本格式）
+     */
+    public static boolean isCompressed(byte[] value) {
+        if (value == null || value.length < 2) {
+            return false;
+        }
+        if (value[0] == MAGIC) {
+            return Algorithm.of((char) value[1]) != null;
+        }
+        return value.length > PREFIX_BYTES.length && startsWith(value, PREFIX_BYTES)
+                && Algorithm.of((char) value[PREFIX_BYTES.length]) != null;
+    }
+
+    /**
+     * @param value 文本格式
+     * @return 解压后的值，转义的值去掉转义标识，不是压缩格式原样返回
+     */
+    public static String decompress(String value) {
+        if (value == null || value.length() <= PREFIX.length() || !value.startsWith(PREFIX)) {
+            return value;
+        }
+        char id = value.charAt(PREFIX.length());
+        if (id == RAW) {
+            return value.substring(PREFIX.length() + 1);
+        }
+        Algorithm algorithm = Algorithm.of(id);
+        if (algorithm == null) {
+            return value;
+        }
+        byte[] compressed = Base64.getDecoder().decode(value.substring(PREFIX.length() + 1));
+        return new String(inflate(algorithm, compressed, 0, compressed.length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param value 字节或文本格式
+     * @return 解压后的值，转义的值去掉转义标识，不是压缩格式原样返回
+     */
+    public static byte[] decompress(byte[] value) {
+        if (value == null || value.length < 2) {
+            return value;
+        }
+        if (value[0] == MAGIC) {
+            char id = (char) value[1];
+            if (id == RAW) {
+                return Arrays.copyOfRange(value, 2, value.length);
+            }
+            Algorithm algorithm = Algorithm.of(id);
+            return algorithm == null ? value : inflate(algorithm, value, 2, value.length - 2);
+        }
+        if (value.length <= PREFIX_BYTES.length || !startsWith(value, PREFIX_BYTES)) {
+            return value;
+        }
+        int offset = PREFIX_BYTES.length + 1;
+        char id = (char) value[PREFIX_BYTES.length];
+        if (id == RAW) {
+            return Arrays.copyOfRange(value, offset, value.length);
+        }
+        Algorithm algorithm = Algorithm.of(id);
+        if (algorithm == null) {
+            return value;
+        }
+        byte[] compressed = Base64.getDecoder().decode(
+            new String(value, offset, value.length - offset, StandardCharsets.ISO_8859_1));
+        return inflate(algorithm, compressed, 0, compressed.length);
+    }
+
+    /**
+     * 按字符串读取可能为字节格式的值时使用：字节格式解压为文本（结果以压缩标识开头时转义），
+     * 其他值按UTF-8转为字符串，文本格式的压缩和转义保持原样，由decompress(String)处理
+     * @param value redis原始字节
+     * @return 文本
+     */
+    public static String toText(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length >= 2 && value[0] == MAGIC) {
+            return escape(new String(decompress(value), StandardCharsets.UTF_8));
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] value, byte[] prefix) {
+        if (value.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (value[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] inflate(Algorithm algorithm, byte[] compressed, int offset, int length) {
+        try (InputStream in = algorithm.wrap(new ByteArrayInputStream(compressed, offset, length))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buff = new byte[4096];
+            int len;
+            while ((len = in.read(buff)) > 0) {
+                out.write(buff, 0, len);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("decompress value fail!", e);
+        }
+    }
+
+    private byte[] deflate(byte[] value) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(value.length / 4);
+        try (OutputStream out = algorithm.wrap(buffer)) {
+            out.write(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("compress value fail!", e);
+        }
+        return buffer.toByteArray();
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.edhn.cache.redis.serializer;
+
+import java.nio.charset.StandardCharsets;
+
+import lombok.Getter;
+
+/**
+ * VersionedValue
+ * 带版本号的缓存值，格式：$VER$版本号:序列化值，版本号由compareAndSet脚本在redis端递增
+ * 不存在的key和普通值的版本号为0
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ * @param <T>
+ */
+@Getter
+public class VersionedValue<T> {
+
+    public static final String PREFIX = "$VER$";
+
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.UTF_8);
+
+    private final long version;
+
+    private final T value;
+
+    public VersionedValue(long version, T value) {
+        this.version = version;
+        this.value = value;
+    }
+
+    /**
+     * @param raw redis中的值
+     * @return 版本号，不存在或不是版本格式返回0
+     */
+    public static long versionOf(String raw) {
+        int index = indexOfPayload(raw);
+        if (index < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(raw.substring(PREFIX.length(), index - 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 去掉版本前缀，普通读取方法读到版本值时使用
+     * @param raw
+     * @return 序列化值，不是版本格式原样返回
+     */
+    public static String strip(String raw) {
+        int index = indexOfPayload(raw);
+        return index < 0 ? raw : raw.substring(index);
+    }
+
+    /**
+     * @param value
+     * @return 字节值是否为版本格式
+     */
+    public static boolean isVersioned(byte[] value) {
+        if (value == null || value.length < PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX_BYTES.length; i++) {
+            if (value[i] != PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfPayload(String raw) {
+        if (raw == null || !raw.startsWith(PREFIX)) {
+            return -1;
+        }
+        int index = raw.indexOf(':', PREFIX.length());
+        return index < 0 ? -1 : index + 1;
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.edhn.cache.redis.serializer.impl;
 
+import java.nio.charset.StandardCharsets;
+
 import com.edhn.cache.redis.serializer.IObjectSerializer;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -36,6 +38,17 @@ public class JacksonObjectSerializer implements IObjectSerializer {
         return realValue;
     }
 
+    @Override
+    public byte[] serializeObjectBytes(Object value) throws Exception {
+        if (value == null) {
+            return null;
+        }
+        if (value.getClass().isPrimitive() || value instanceof String) {
+            return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        }
+        return jsonMapper.writeValueAsBytes(value);
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> T deserializePrimitive(String value, Class<T> cls) {
         value = value.replaceAll("\"", "");
@@ -97,4 +110,33 @@ public class JacksonObjectSerializer implements IObjectSerializer {
         return result;
     }
 
+    @Override
+    public <T> T deserializeObject(byte[] bytes, Class<T> cls) throws Exception {
+        if (bytes == null) {
+            return null;
+        }
+        if (cls.isAssignableFrom(String.class)) {
+            return cls.cast(new String(bytes, StandardCharsets.UTF_8));
+        } else if (isPrimitiveOrBoxed(cls)) {
+            T value = deserializePrimitive(new String(bytes, StandardCharsets.UTF_8), cls);
+            if (value != null) {
+                return value;
+            }
+        }
+        T result = jsonMapper.readValue(bytes, cls);
+        return result;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> T deserializeObject(byte[] bytes, TypeReference<T> type) throws Exception {
+        if (bytes == null) {
+            return null;
+        }
+        if (String.class.equals(type.getType())) {
+            return (T) new String(bytes, StandardCharsets.UTF_8);
+        }
+        T result = jsonMapper.readValue(bytes, type);
+        return result;
+    }
+
 }
@@ -0,0 +1,257 @@
+package com.edhn.cache.redis.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+
+/**
+ * RedisAsyncApi
+ * RedisSimpleApi的异步版本，所有操作立即返回CompletableFuture，不占用调用线程等待redis响应
+ * 数据格式与RedisSimpleApi(jedis实现)一致，两者可读写同一份缓存
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public interface RedisAsyncApi {
+
+    /**
+     * 设置过期时间
+     * @param key
+     * @param seconds
+     * @return
+     */
+    CompletableFuture<Boolean> expire(String key, int seconds);
+
+    /**
+     * 读取string数据
+     * @param key
+     * @return
+     */
+    CompletableFuture<String> get(String key);
+
+    /**
+     * 读取对象数据
+     * @param <T>
+     * @param key
+     * @param cls
+     * @return
+     */
+    <T> CompletableFuture<T> get(String key, Class<T> cls);
+
+    /**
+     * 读取对象数据
+     * @param <T>
+     * @param key
+     * @param type
+     * @return
+     */
+    <T> CompletableFuture<T> get(String key, TypeReference<T> type);
+
+    /**
+     * 批量读取string数据
+     * @param keys
+     * @return 与keys顺序一致，不存在的为null
+     */
+    CompletableFuture<List<String>> mget(List<String> keys);
+
+    /**
+     * 批量读取对象数据
+     * @param <T>
+     * @param keys
+     * @param cls
+     * @return 与keys顺序一致，不存在的为null
+     */
+    <T> CompletableFuture<List<T>> mget(List<String> keys, Class<T> cls);
+
+    /**
+     * @param key
+     * @return
+     */
+    CompletableFuture<Boolean> exists(String key);
+
+    /**
+     * 写入数据
+     * @param <T>
+     * @param key
+     * @param expireSeconds
+     * @param value
+     * @return
+     */
+    <T> CompletableFuture<String> set(String key, int expireSeconds, T value);
+
+    /**
+     * @param key
+     * @return
+     */
+    CompletableFuture<Long> incr(String key);
+
+    /**
+     * @param keys
+     * @return
+     */
+    CompletableFuture<Long> del(String... keys);
+
+    /**
+     * @param key
+     * @param field
+     * @return
+     */
+    CompletableFuture<String> hget(String key, String field);
+
+    /**
+     * @param <T>
+     * @param key
+     * @param field
+     * @param type
+     * @return
+     */
+    <T> CompletableFuture<T> hget(String key, String field, TypeReference<T> type);
+
+    /**
+     * @param <T>
+     * @param key
+     * @param cls
+     * @return
+     */
+    <T> CompletableFuture<Map<String, T>> hgetAll(String key, Class<T> cls);
+
+    /**
+     * 写入hash数据，expireSeconds>0时同时设置整个key的过期时间
+     * @param <T>
+     * @param key
+     * @param field
+     * @param expireSeconds
+     * @param value
+     * @return
+     */
+    <T> CompletableFuture<Boolean> hset(String key, String field, int expireSeconds, T value);
+
+    /**
+     * @param key
+     * @param fields
+     * @return
+     */
+    CompletableFuture<Long> hdel(String key, String... fields);
+
+    /**
+     * @param key
+     * @param score
+     * @param member
+     * @return
+     */
+    CompletableFuture<Long> zadd(String key, double score, String member);
+
+    /**
+     * @param key
+     * @param member
+     * @return
+     */
+    CompletableFuture<Long> zrem(String key, String... member);
+
+    /**
+     * @param key
+     * @param start
+     * @param stop
+     * @return
+     */
+    CompletableFuture<Collection<String>> zrange(String key, long start, long stop);
+
+    /**
+     * @param key
+     * @param min
+     * @param max
+     * @return
+     */
+    CompletableFuture<Collection<String>> zrangeByScore(String key, double min, double max);
+
+    /**
+     * 批量读数据
+     * @param <K>
+     * @param <T>
+     * @param keys
+     * @param cls
+     * @return
+     */
+    default <K,T> CompletableFuture<Map<K, T>> batchGet(Collection<K> keys, Class<T> cls) {
+        return this.batchGet(keys, String::valueOf, cls);
+    }
+
+    /**
+     * 批量读数据，可指定读取缓存所用key映射方法，返回数据的key仍是原始key
+     * @param <K>
+     * @param <T>
+     * @param oriKeys 原始key
+     * @param cacheKeyMapper 缓存key映射
+     * @param cls
+     * @return
+     */
+    <K,T> CompletableFuture<Map<K, T>> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls);
+
+    /**
+     * 批量写数据
+     * @param <K>
+     * @param <T>
+     * @param datas
+     * @param expireSeconds
+     * @return
+     */
+    default <K,T> CompletableFuture<Integer> batchSet(Map<K, T> datas, int expireSeconds) {
+        return this.batchSet(datas, String::valueOf, expireSeconds);
+    }
+
+    /**
+     * 批量写数据，可指定读取缓存所用key映射方法
+     * @param <K>
+     * @param <T>
+     * @param datas
+     * @param cacheKeyMapper 缓存key映射
+     * @param expireSeconds
+     * @return
+     */
+    <K,T> CompletableFuture<Integer> batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper, int expireSeconds);
+
+    /**
+     * 批量读hash数据
+     * @param <K>
+     * @param <T>
+     * @param key
+     * @param fields
+     * @param cls
+     * @return
+     */
+    <K,T> CompletableFuture<Map<K, T>> hBatchGet(String key, Collection<K> fields, Class<T> cls);
+
+    /**
+     * 获取缓存对象数据如为空则执行mappingFunction，并将结果保存到缓存，
+     * 同一key的并发调用合并为一次加载
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds
+     * @param mappingFunction 当value为空则执行的异步回调
+     * @return
+     */
+    <T> CompletableFuture<T> computeIfAbsent(String key, Class<T> type, int expireSeconds,
+        Function<String, CompletableFuture<T>> mappingFunction);
+
+    /**
+     * 获取缓存对象数据如为空则执行mappingFunction，并将结果保存到缓存，
+     * 同一key的并发调用合并为一次加载
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds
+     * @param mappingFunction 当value为空则执行的异步回调
+     * @return
+     */
+    <T> CompletableFuture<T> computeIfAbsent(String key, TypeReference<T> type, int expireSeconds,
+        Function<String, CompletableFuture<T>> mappingFunction);
+
+}
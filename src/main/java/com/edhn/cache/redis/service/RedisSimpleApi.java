@@ -5,10 +5,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
+import com.edhn.cache.redis.client.LuaScript;
+import com.edhn.cache.redis.serializer.VersionedValue;
 import com.edhn.cache.redis.service.impl.CloseableLock;
+import com.edhn.cache.redis.service.impl.CloseableSubscription;
 import com.fasterxml.jackson.core.type.TypeReference;
 
 
@@ -153,12 +161,75 @@ public interface RedisSimpleApi {
     Long decr(String key);
     
     /**
+     * 值大于min时减1，lua脚本执行，多进程下也是原子的
      * @param key
      * @param min
-     * @return
+     * @return 减后的值，不大于min时不减并返回当前值，key不存在返回null
      */
     Long decrMin(String key, long min);
     
+    /**
+     * 读取值并重设过期时间，一次往返原子执行，适合滑动过期
+     * @param <T>
+     * @param key
+     * @param expireSeconds
+     * @param cls
+     * @return
+     */
+    <T> T getAndExpire(String key, int expireSeconds, Class<T> cls);
+    
+    /**
+     * 值等于expectedValue时删除，用于只释放自己持有的锁等场景，值需是set(key, String)原样写入的字符串
+     * @param key
+     * @param expectedValue
+     * @return 是否删除
+     */
+    boolean compareAndDelete(String key, String expectedValue);
+    
+    /**
+     * 读取值及其版本号，直接读redis不经过近端缓存
+     * @param <T>
+     * @param key
+     * @param cls
+     * @return 不存在时版本号为0、值为null
+     */
+    <T> VersionedValue<T> getWithVersion(String key, Class<T> cls);
+    
+    /**
+     * 版本号与expectedVersion一致时写入并递增版本，redis端脚本原子执行
+     * @param <T>
+     * @param key
+     * @param expectedVersion getWithVersion读到的版本号，key不存在时为0
+     * @param value
+     * @param expireSeconds 0不过期
+     * @return 新版本号，版本不一致（已被其他更新方修改）返回-1
+     */
+    <T> long compareAndSet(String key, long expectedVersion, T value, int expireSeconds);
+    
+    /**
+     * 乐观更新：读取值和版本号、计算新值、compareAndSet，冲突时随机退避后重试，不需要加锁
+     * updater可能被执行多次，不应有副作用
+     * @param <T>
+     * @param key
+     * @param expireSeconds 0不过期
+     * @param cls
+     * @param updater 参数为当前值（不存在时为null），返回新值
+     * @param retries 冲突后的最大重试次数
+     * @return 写入的新值
+     * @throws java.util.ConcurrentModificationException 重试次数用完仍冲突
+     */
+    <T> T update(String key, int expireSeconds, Class<T> cls, UnaryOperator<T> updater, int retries);
+    
+    /**
+     * 执行已注册的lua脚本，优先EVALSHA，节点上没有脚本时自动改用EVAL
+     * 参数和返回值按原始字符串传递，不经过值序列化；集群模式下keys需在同一slot
+     * @param script 通过LuaScript.register注册
+     * @param keys
+     * @param args
+     * @return
+     */
+    Object eval(LuaScript script, List<String> keys, List<String> args);
+    
     /**
      * 删除key
      * @param keys
@@ -303,6 +374,53 @@ public interface RedisSimpleApi {
      * @return
      */
     Collection<String> zrangeByScore(String key, double min, double max);
+    
+    /**
+     * 用HSCAN分批遍历hash，值在读取到时才反序列化，field很多时不会一次加载全部数据
+     * 遍历期间hash有修改时同一field可能返回多次
+     * @param <T>
+     * @param key
+     * @param count 每次HSCAN的count提示
+     * @param cls
+     * @return field和值的流，未遍历完时应关闭
+     */
+    <T> Stream<Map.Entry<String, T>> hscan(String key, int count, Class<T> cls);
+    
+    /**
+     * 用SSCAN分批遍历set
+     * @param key
+     * @param count 每次SSCAN的count提示
+     * @return 成员流，未遍历完时应关闭
+     */
+    Stream<String> sscan(String key, int count);
+    
+    /**
+     * 用ZSCAN分批遍历zset，不保证按分数排序
+     * @param key
+     * @param count 每次ZSCAN的count提示
+     * @return 成员和分数的流，未遍历完时应关闭
+     */
+    Stream<Map.Entry<String, Double>> zscan(String key, int count);
+    
+    /**
+     * 按下标分页的ZRANGE，按分数排序，每页读取pageSize个成员
+     * @param key
+     * @param start 起始下标，不小于0
+     * @param stop 结束下标（包含），-1表示到末尾
+     * @param pageSize
+     * @return 成员流
+     */
+    Stream<String> zrangeStream(String key, long start, long stop, int pageSize);
+    
+    /**
+     * 按分数分页的ZRANGEBYSCORE，下一页从上一页最后的分数继续，不使用大的LIMIT偏移
+     * @param key
+     * @param min
+     * @param max
+     * @param pageSize
+     * @return 成员流，按分数排序
+     */
+    Stream<String> zrangeByScoreStream(String key, double min, double max, int pageSize);
 
     /**
      * 获取string数据如为空则执行mappingFunction，并将结果保存到缓存
@@ -343,6 +461,53 @@ public interface RedisSimpleApi {
      */
     <T> T computeIfAbsent(String key, TypeReference<T> type, int expireSeconds, Function<String, T> mappingFunction);
 
+    /**
+     * 软过期模式的computeIfAbsent：值在expireSeconds后软过期，之后staleSeconds内读取直接返回旧值，
+     * 同时由后台线程刷新(同一key仅一个刷新)，避免热点key过期时调用方同时等待加载
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds 软过期时间
+     * @param staleSeconds 软过期后仍可返回旧值的时间，<=0时同普通computeIfAbsent
+     * @param mappingFunction 当value为空或需刷新时执行的回调
+     * @return
+     */
+    <T> T computeIfAbsent(String key, Class<T> type, int expireSeconds, int staleSeconds, Function<String, T> mappingFunction);
+
+    /**
+     * 软过期模式的computeIfAbsent，见{@link #computeIfAbsent(String, Class, int, int, Function)}
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds 软过期时间
+     * @param staleSeconds 软过期后仍可返回旧值的时间
+     * @param mappingFunction
+     * @return
+     */
+    <T> T computeIfAbsent(String key, TypeReference<T> type, int expireSeconds, int staleSeconds, Function<String, T> mappingFunction);
+
+    /**
+     * computeIfAbsent的异步版本，同一key已在加载时直接返回其结果的future，不阻塞调用线程
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds
+     * @param mappingFunction 当value为空则执行的回调，在加载线程池中执行
+     * @return
+     */
+    <T> CompletableFuture<T> computeIfAbsentAsync(String key, Class<T> type, int expireSeconds, Function<String, T> mappingFunction);
+
+    /**
+     * computeIfAbsent的异步版本，同一key已在加载时直接返回其结果的future，不阻塞调用线程
+     * @param <T>
+     * @param key
+     * @param type
+     * @param expireSeconds
+     * @param mappingFunction 当value为空则执行的回调，在加载线程池中执行
+     * @return
+     */
+    <T> CompletableFuture<T> computeIfAbsentAsync(String key, TypeReference<T> type, int expireSeconds, Function<String, T> mappingFunction);
+
     /**
      * hget方式获取string数据如为空则执行mappingFunction，将结果保存到缓存
      * @param key
@@ -386,6 +551,42 @@ public interface RedisSimpleApi {
      */
     <K,T> Map<K, T> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls);
 
+    /**
+     * 批量读数据，泛型类型
+     * @param <K>
+     * @param <T>
+     * @param keys
+     * @param type
+     * @return
+     */
+    default <K,T> Map<K, T> batchGet(Collection<K> keys, TypeReference<T> type) {
+        return this.batchGet(keys, String::valueOf, type);
+    }
+
+    /**
+     * 批量读数据，泛型类型，可指定读取缓存所用key映射方法
+     * @param <K>
+     * @param <T>
+     * @param oriKeys
+     * @param cacheKeyMapper
+     * @param type
+     * @return
+     */
+    <K,T> Map<K, T> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, TypeReference<T> type);
+
+    /**
+     * 分块批量读数据，每个pipeline返回后即把该块命中的数据交给consumer，不等全部读完，也不汇总结果
+     * 适用于key数量很大、逐条处理的场景，consumer在调用线程中执行
+     * @param <K>
+     * @param <T>
+     * @param oriKeys
+     * @param cacheKeyMapper
+     * @param cls
+     * @param consumer 参数为原始key和数据
+     * @return 命中数量
+     */
+    <K,T> int batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls, BiConsumer<K, T> consumer);
+
     /**
      * 批量写数据
      * @param <T>
@@ -411,7 +612,8 @@ public interface RedisSimpleApi {
     <K,T> int batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper, int expireSeconds);
     
     /**
-     * 批量读hash数据
+     * 批量读hash数据，按块使用HMGET，各块在一个pipeline中执行
+     * 带字段过期时间（hBatchSet指定fieldExpireSeconds写入）的字段已过期时视为不存在，并在redis中清除
      * @param <T>
      * @param key key
      * @param fields fields
@@ -421,13 +623,27 @@ public interface RedisSimpleApi {
     <K,T> Map<K, T> hBatchGet(String key, Collection<K> fields, Class<T> cls);
 
     /**
-     * 批量写hash数据
+     * 批量写hash数据，按块使用多字段HSET
      * @param <T>
      * @param hashKey hashKey
      * @param datas 数据
      * @return
      */
-    <K,T> int hBatchSet(String hashKey, Map<K, T> datas);
+    default <K,T> int hBatchSet(String hashKey, Map<K, T> datas) {
+        return hBatchSet(hashKey, datas, 0);
+    }
+    
+    /**
+     * 批量写hash数据，每个字段带逻辑过期时间，hash本身的过期时间只延长不缩短
+     * 适合每个字段一个实体的hash，替代每个实体一个key；hget、hgetAll、hscan读到过期字段时视为不存在，hBatchGet同时在redis中清除
+     * @param <K>
+     * @param <T>
+     * @param hashKey
+     * @param datas
+     * @param fieldExpireSeconds 字段过期时间，0表示字段不过期
+     * @return 写入的字段数
+     */
+    <K,T> int hBatchSet(String hashKey, Map<K, T> datas, int fieldExpireSeconds);
     
     /**
      * redis锁，尝试加锁并设定时间为expreSeconds，如果加锁失败可在awaitSeconds指定的时间内重试
@@ -452,5 +668,85 @@ public interface RedisSimpleApi {
      */
     CloseableLock tryLock(String key, String instanceName, int expreMillis, int awaitMillis);
     
+    /**
+     * 遍历匹配的key，集群模式在各主节点并行scan，按批从redis读取，不会一次加载全部key
+     * 同一key可能返回多次（scan期间发生rehash）
+     * @param pattern 匹配模式，如 user:*
+     * @param count 每次scan的count提示
+     * @return key流，应在try-with-resources中使用，关闭后停止后台scan；
+     *         消费方超过cache.redis.scan-idle-timeout-seconds未取走结果时后台scan停止，之后继续消费抛出IllegalStateException
+     */
+    Stream<String> scan(String pattern, int count);
+    
+    /**
+     * 统计匹配的key数，scan期间可能重复计数，为近似值
+     * @param pattern 匹配模式
+     * @return
+     */
+    long countByPattern(String pattern);
+    
+    /**
+     * 按批用unlink删除匹配的key，不阻塞redis
+     * @param pattern 匹配模式
+     * @return 删除的数量
+     */
+    long deleteByPattern(String pattern);
+    
+    /**
+     * 按批重设匹配的key的过期时间
+     * @param pattern 匹配模式
+     * @param seconds 过期时间
+     * @return 设置成功的数量
+     */
+    long expireByPattern(String pattern, int seconds);
+    
+    /**
+     * 布隆过滤器判断key一定不存在，未开启、key所在区域未配置或未就绪时返回false
+     * 本地副本判断不存在时会读redis位图确认
+     * @param key 缓存key
+     * @return
+     */
+    boolean isDefinitelyAbsent(String key);
+    
+    /**
+     * 向布隆过滤器记录存在的key，经本api写入缓存的非null值已自动记录，
+     * 在缓存之外新增的数据（如新建的id）需调用此方法
+     * @param keys 缓存key
+     */
+    void bloomAdd(String... keys);
+    
+    /**
+     * 标记区域的布隆过滤器已包含全部存在的key（如预热全部id后），之后才用于判断不存在
+     * @param namespace 区域，同近端缓存区域，即key第一个冒号前的部分
+     */
+    void bloomReady(String namespace);
+    
+    /**
+     * 发布消息
+     * @param channel 通道
+     * @param message 消息
+     * @return 收到消息的订阅者数
+     */
+    Long publish(String channel, String message);
+    
+    /**
+     * 订阅通道，在后台线程接收消息，连接断开后自动重新订阅
+     * @param channel 通道
+     * @param listener 消息回调，在订阅线程中执行，不应有耗时操作
+     * @return 订阅对象，关闭即取消订阅
+     */
+    default CloseableSubscription subscribe(String channel, Consumer<String> listener) {
+        return subscribe(channel, listener, null);
+    }
+    
+    /**
+     * 订阅通道，在后台线程接收消息，连接断开后自动重新订阅
+     * @param channel 通道
+     * @param listener 消息回调，在订阅线程中执行，不应有耗时操作
+     * @param onSubscribed 每次订阅建立（含重新订阅）后回调，断开期间发布的消息会丢失，可在此回调中补偿，可为null
+     * @return 订阅对象，关闭即取消订阅
+     */
+    CloseableSubscription subscribe(String channel, Consumer<String> listener, Runnable onSubscribed);
+    
 
 }
@@ -1,24 +1,59 @@
 package com.edhn.cache.redis.service.impl;
 
 import java.lang.reflect.Array;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.util.ConcurrentReferenceHashMap;
+import javax.annotation.PreDestroy;
 
+import org.springframework.util.ClassUtils;
+
+import com.edhn.cache.redis.client.LuaScript;
+import com.edhn.cache.redis.configuration.modal.BloomFilterConfig;
+import com.edhn.cache.redis.configuration.modal.DistributedFillConfig;
+import com.edhn.cache.redis.configuration.modal.HashBucketConfig;
+import com.edhn.cache.redis.configuration.modal.NearCacheConfig;
+import com.edhn.cache.redis.configuration.modal.RedisConfig;
+import com.edhn.cache.redis.loader.SingleFlight;
+import com.edhn.cache.redis.nearcache.NearCache;
+import com.edhn.cache.redis.serializer.CacheEnvelope;
+import com.edhn.cache.redis.serializer.ValueCompressor;
+import com.edhn.cache.redis.serializer.VersionedValue;
 import com.edhn.cache.redis.serializer.impl.JacksonObjectSerializer;
 import com.edhn.cache.redis.service.RedisSimpleApi;
+import com.edhn.cache.redis.stats.CacheStats;
 import com.edhn.cache.redis.util.CacheLogger;
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -61,18 +96,385 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
     @Setter
     protected boolean addRandomTTL = true;
     
+    /**
+     * 统计日志输出间隔，单位s，小于等于0不输出
+     */
+    @Getter
+    @Setter
     protected int statIntervalSeconds = 3600;
-    
-    protected static volatile long lastStatTimestamp = System.currentTimeMillis();
 
-    /**     * 缓存命中次数统计数据    */
-    protected static Map<Object, CacheStatsInfo> cacheHitedMap = new ConcurrentReferenceHashMap<>(256);
+    /**     * 缓存命中和耗时统计数据    */
+    @Getter
+    protected static final CacheStats cacheStats = new CacheStats();
     
     protected static JacksonObjectSerializer serializer = new JacksonObjectSerializer();
     
-    protected static Map<String, ReentrantLock> loaderLock = new ConcurrentReferenceHashMap<>(256);
+    /**     * computeIfAbsent并发加载合并     */
+    protected static SingleFlight singleFlight = new SingleFlight();
+    
+    /**
+     * computeIfAbsentAsync执行加载的线程池，加载函数有阻塞IO时建议设置独立线程池
+     */
+    @Getter
+    @Setter
+    protected Executor loaderExecutor = ForkJoinPool.commonPool();
+    
+    /**
+     * 软过期值后台刷新的线程池，有界，队列满时放弃本次刷新
+     */
+    @Getter
+    @Setter
+    protected Executor refreshExecutor = REFRESH_EXECUTOR;
+    
+    protected static final String REFRESH_LOCK_PREFIX = "redis-extend:refresh:";
+    
+    protected static final int REFRESH_LOCK_MILLIS = 30000;
+    
+    /**
+     * 值大于ARGV[1]时decr，返回减后的值或当前值，key不存在返回nil
+     */
+    protected static final LuaScript DECR_MIN = LuaScript.register("redis-extend:decrMin",
+            "local value = tonumber(redis.call('get', KEYS[1]));"
+            + "if (value == nil) then return nil; end;"
+            + "if (value > tonumber(ARGV[1])) then return redis.call('decr', KEYS[1]); end;"
+            + "return value;", Long.class);
+    
+    /**
+     * 分桶存储的decrMin，hash字段ARGV[1]的值大于ARGV[2]时减1，返回减后的值或当前值，字段不存在返回nil
+     */
+    protected static final LuaScript HDECR_MIN = LuaScript.register("redis-extend:hdecrMin",
+            "local value = tonumber(redis.call('hget', KEYS[1], ARGV[1]));"
+            + "if (value == nil) then return nil; end;"
+            + "if (value > tonumber(ARGV[2])) then return redis.call('hincrby', KEYS[1], ARGV[1], -1); end;"
+            + "return value;", Long.class);
+    
+    /**
+     * 值等于ARGV[1]时删除，释放锁时仅释放自己持有的锁
+     */
+    protected static final LuaScript COMPARE_AND_DELETE = LuaScript.register("redis-extend:compareAndDelete",
+            "if (redis.call('get', KEYS[1]) == ARGV[1]) then return redis.call('del', KEYS[1]); end;"
+            + "return 0;", Long.class);
+    
+    /**
+     * 读取值并重设过期时间
+     */
+    protected static final LuaScript GET_AND_EXPIRE = LuaScript.register("redis-extend:getAndExpire",
+            "local value = redis.call('get', KEYS[1]);"
+            + "if (value) then redis.call('expire', KEYS[1], ARGV[1]); end;"
+            + "return value;", String.class);
+    
+    /**
+     * 版本号等于ARGV[1]时写入$VER$新版本号:ARGV[2]，ARGV[3]为过期秒数（0不过期），返回新版本号，版本不一致返回-1
+     */
+    protected static final LuaScript COMPARE_AND_SET = LuaScript.register("redis-extend:compareAndSet",
+            "local current = redis.call('get', KEYS[1]);"
+            + "local version = 0;"
+            + "if (current) then version = tonumber(string.match(current, '^%$VER%$(%d+):')) or 0; end;"
+            + "if (version ~= tonumber(ARGV[1])) then return -1; end;"
+            + "version = version + 1;"
+            + "local value = '$VER$' .. string.format('%d', version) .. ':' .. ARGV[2];"
+            + "if (tonumber(ARGV[3]) > 0) then redis.call('set', KEYS[1], value, 'EX', ARGV[3]);"
+            + "else redis.call('set', KEYS[1], value); end;"
+            + "return version;", Long.class);
+    
+    /**
+     * hash字段值仍等于读取时的值才删除，参数为field1, value1, field2, value2...，清除已过期字段时不会误删并发写入的新值
+     */
+    protected static final LuaScript HDEL_IF_EQUALS = LuaScript.register("redis-extend:hdelIfEquals",
+            "local num = 0;"
+            + "for i = 1, #ARGV, 2 do "
+            + "  if (redis.call('hget', KEYS[1], ARGV[i]) == ARGV[i + 1]) then num = num + redis.call('hdel', KEYS[1], ARGV[i]); end;"
+            + "end;"
+            + "return num;", Long.class);
+    
+    /**
+     * 过期时间小于ARGV[1]或未设置时设为ARGV[1]，只延长不缩短
+     */
+    protected static final LuaScript EXTEND_EXPIRE = LuaScript.register("redis-extend:extendExpire",
+            "local ttl = redis.call('ttl', KEYS[1]);"
+            + "if (ttl == -1 or ttl < tonumber(ARGV[1])) then return redis.call('expire', KEYS[1], ARGV[1]); end;"
+            + "return 0;", Long.class);
+    
+    /**
+     * 分桶写入，ARGV[1]为ttl，其后为字段和值；写入后桶的过期时间小于ttl或未设置时设为ttl，只延长不缩短
+     */
+    protected static final LuaScript BUCKET_SET = LuaScript.register("redis-extend:bucketSet",
+            "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]); end;"
+            + "local ttl = tonumber(ARGV[1]);"
+            + "if (ttl > 0) then "
+            + "  local current = redis.call('ttl', KEYS[1]);"
+            + "  if (current == -1 or current < ttl) then redis.call('expire', KEYS[1], ttl); end;"
+            + "end;"
+            + "return 1;", Long.class);
+    
+    /**
+     * SET NX PX获取租约，ARGV[1]为实例名，ARGV[2]为毫秒超时，成功返回1
+     */
+    protected static final LuaScript SET_LEASE = LuaScript.register("redis-extend:setLease",
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1; end;"
+            + "return 0;", Long.class);
+    
+    private static final ThreadPoolExecutor REFRESH_EXECUTOR = createRefreshExecutor();
+    
+    private static final ForkJoinPool DECODE_POOL = createDecodePool();
+    
+    private static final ExecutorService PIPELINE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "RedisPipeline");
+        t.setDaemon(true);
+        return t;
+    });
     
     protected static ThreadLocal<String> threadContext = new ThreadLocal<>();
+    
+    /**
+     * 近端缓存，未启用时为null
+     */
+    @Getter
+    @Setter
+    protected NearCache nearCache;
+    
+    /**
+     * 跨进程合并computeIfAbsent加载，未启用时为null
+     */
+    @Getter
+    protected DistributedFill distributedFill;
+    
+    /**
+     * 提前重算(XFetch)系数，大于0时computeIfAbsent(key, type, expireSeconds, fn)按概率在过期前重算，
+     * 越大越早，通常取1
+     */
+    @Getter
+    @Setter
+    protected double earlyRecomputeBeta = 0;
+    
+    /**
+     * 值压缩，未开启时为null
+     */
+    @Getter
+    @Setter
+    protected ValueCompressor valueCompressor;
+    
+    /**
+     * 按模式遍历key时同时scan的节点数
+     */
+    @Getter
+    @Setter
+    protected int scanParallelism = 4;
+    
+    /**
+     * 按模式批量操作时每批key数，同时也是scan的count提示
+     */
+    @Getter
+    @Setter
+    protected int scanBatchSize = 500;
+    
+    /**
+     * 按模式遍历key时消费方空闲超时，单位s，超时后后台scan停止
+     */
+    @Getter
+    @Setter
+    protected int scanIdleTimeoutSeconds = 60;
+    
+    /**
+     * hBatchGet/hBatchSet每条HMGET/HSET的字段数
+     */
+    @Getter
+    @Setter
+    protected int hashBatchChunkSize = 500;
+    
+    /**
+     * batchGet命中值达到此数量时并行反序列化，0关闭
+     */
+    @Getter
+    @Setter
+    protected int parallelDecodeThreshold = 1000;
+    
+    /**
+     * 回调方式batchGet每个pipeline的key数
+     */
+    @Getter
+    @Setter
+    protected int batchGetChunkSize = 1000;
+    
+    /**
+     * 批量操作每个pipeline的最大命令数，超过后分块执行
+     */
+    @Getter
+    @Setter
+    protected int pipelineDepth = 1000;
+    
+    /**
+     * 批量写每个pipeline的最大估算字节数，超过后分块执行
+     */
+    @Getter
+    @Setter
+    protected long pipelineFlushBytes = 1024 * 1024;
+    
+    /**
+     * 批量操作分块后同时执行的块数，每块占用一个连接，1为在一个连接上依次执行
+     */
+    @Getter
+    @Setter
+    protected int pipelineParallelism = 1;
+    
+    /**
+     * 并行反序列化的线程池，默认为共享的有界池，不占用commonPool
+     */
+    @Getter
+    @Setter
+    protected ForkJoinPool decodePool = DECODE_POOL;
+    
+    /**
+     * 存在key的布隆过滤器，未开启时为null
+     */
+    @Getter
+    protected KeyBloomFilter keyBloomFilter;
+    
+    /**
+     * 分桶存储的key映射，未开启时为null
+     */
+    @Getter
+    @Setter
+    protected HashBuckets hashBuckets;
+    
+    /**
+     * 从节点读时各线程最近写入的key，未开启时为null
+     */
+    protected ReadAfterWriteGuard readGuard;
+    
+    /**
+     * 根据cache.redis配置启用扩展特性
+     * @param config
+     */
+    public void configure(RedisConfig config) {
+        if (config == null) {
+            return;
+        }
+        NearCacheConfig nearCacheConfig = config.getNearCache();
+        if (nearCacheConfig != null && nearCacheConfig.isEnabled() && !nearCacheConfig.getNamespaces().isEmpty()) {
+            if (ClassUtils.isPresent("com.github.benmanes.caffeine.cache.Caffeine", getClass().getClassLoader())) {
+                this.nearCache = new NearCache(this, nearCacheConfig);
+            } else {
+                log.warn("near cache is enabled but caffeine not found in classpath, ignored!");
+            }
+        }
+        this.earlyRecomputeBeta = config.getEarlyRecomputeBeta();
+        this.statIntervalSeconds = config.getStatIntervalSeconds();
+        this.scanParallelism = Math.max(1, config.getScanParallelism());
+        this.scanBatchSize = Math.max(1, config.getScanBatchSize());
+        this.scanIdleTimeoutSeconds = Math.max(1, config.getScanIdleTimeoutSeconds());
+        this.hashBatchChunkSize = Math.max(1, config.getHashBatchChunkSize());
+        this.parallelDecodeThreshold = config.getParallelDecodeThreshold();
+        this.batchGetChunkSize = Math.max(1, config.getBatchGetChunkSize());
+        this.pipelineDepth = Math.max(1, config.getPipelineDepth());
+        this.pipelineFlushBytes = Math.max(1, config.getPipelineFlushBytes());
+        this.pipelineParallelism = Math.max(1, config.getPipelineParallelism());
+        if (config.getCompression() != null) {
+            this.valueCompressor = config.getCompression().createCompressor();
+        }
+        DistributedFillConfig fillConfig = config.getDistributedFill();
+        if (fillConfig != null && fillConfig.isEnabled()) {
+            this.distributedFill = new DistributedFill(this, fillConfig);
+            this.distributedFill.start();
+        }
+        HashBucketConfig bucketConfig = config.getHashBucket();
+        if (bucketConfig != null && bucketConfig.isEnabled() && !bucketConfig.getNamespaces().isEmpty()) {
+            this.hashBuckets = new HashBuckets(bucketConfig);
+        }
+        BloomFilterConfig bloomConfig = config.getBloomFilter();
+        if (bloomConfig != null && bloomConfig.isEnabled() && !bloomConfig.getNamespaces().isEmpty()) {
+            this.keyBloomFilter = new KeyBloomFilter(this, bloomConfig);
+            this.keyBloomFilter.start();
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        if (nearCache != null) {
+            nearCache.close();
+        }
+        if (distributedFill != null) {
+            distributedFill.close();
+        }
+        if (keyBloomFilter != null) {
+            keyBloomFilter.close();
+        }
+    }
+    
+    /**
+     * @param key
+     * @return 近端缓存条目，未启用或未命中返回null
+     */
+    protected NearCache.Entry getNearCacheEntry(String key) {
+        return nearCache != null ? nearCache.get(key) : null;
+    }
+    
+    /**
+     * @param key
+     * @return key所在区域启用了近端缓存返回true
+     */
+    protected boolean isNearCached(String key) {
+        return nearCache != null && nearCache.isCached(key);
+    }
+    
+    /**
+     * 近端缓存未命中时读取redis原始值，结果写入近端缓存并在其有效期内沿用，因此读主节点
+     * @param key
+     * @return redis原始值，同getInner
+     */
+    protected String getNearCacheMiss(String key) {
+        return isNearCached(key) ? readFromMaster(() -> getInner(key)) : getInner(key);
+    }
+    
+    /**
+     * 读redis前调用，结果传给putNearCache，读取期间收到的失效不会被写入的旧值覆盖
+     * @param key
+     * @return key的近端缓存失效代数，未启用返回0
+     */
+    protected long nearCacheGeneration(String key) {
+        return nearCache != null ? nearCache.generation(key) : 0;
+    }
+    
+    /**
+     * @param key
+     * @param raw redis原始值
+     * @param generation 读redis前的nearCacheGeneration(key)
+     * @return 近端缓存条目，未启用返回null，读取后已失效时条目不缓存
+     */
+    protected NearCache.Entry putNearCache(String key, Object raw, long generation) {
+        return nearCache != null ? nearCache.put(key, raw, generation) : null;
+    }
+    
+    /**
+     * 数据变更后使近端缓存失效，并广播到其他进程；开启从节点读时同时记为当前线程最近写入
+     * @param keys
+     */
+    protected void invalidateNearCache(String... keys) {
+        if (nearCache != null) {
+            nearCache.invalidate(keys);
+        }
+        recordWrite(keys);
+    }
+    
+    /**
+     * 开启从节点读时记录当前线程写入的key，短时间内读这些key走主节点
+     * @param keys
+     */
+    protected void recordWrite(String... keys) {
+        if (readGuard != null) {
+            readGuard.written(keys);
+        }
+    }
+
+    /**
+     * 开启从节点读时在主节点执行reader，读到的值会被其他进程等待后沿用或写入近端缓存时使用，避免沿用复制延迟前的旧值
+     * @param <R>
+     * @param reader
+     * @return reader的结果
+     */
+    protected <R> R readFromMaster(Supplier<R> reader) {
+        return readGuard != null ? readGuard.readMaster(reader) : reader.get();
+    }
 
     /**
      * 记录缓存统计信息
@@ -80,40 +482,32 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
      * @param hitted
      */
     protected void updateCacheStatsInfo(Object key, boolean hitted) {
-        // 区域统计，冒号之前的算缓存区域
-        String keyStr = Objects.toString(key);
-        int nsPos = keyStr.indexOf(":");
-        String statKey = nsPos >= 0 ? keyStr.substring(0, nsPos+1) : keyStr;
-        CacheStatsInfo cacheStatInfo = cacheHitedMap.computeIfAbsent(statKey, k -> new CacheStatsInfo());
-        cacheStatInfo.getCallCount().incrementAndGet();
-        if (hitted) {
-            cacheStatInfo.getHitCount().incrementAndGet();
-        }
-        if (System.currentTimeMillis() - lastStatTimestamp >= statIntervalSeconds * 1000 && !cacheHitedMap.isEmpty()) {
+        cacheStats.recordAccess(key, hitted);
+        if (cacheStats.shouldLog(statIntervalSeconds)) {
             StringBuffer out = new StringBuffer();
             buildStatsLogInfo(out);
             log.info("======== cache stats in recent {}s ========\n{}", this.statIntervalSeconds, out.toString());
         }
     }
     
+    /**
+     * 记录操作耗时
+     * @param op
+     * @param key 批量操作取任一key
+     * @param startNanos System.nanoTime()
+     */
+    protected void recordLatency(CacheStats.Operation op, Object key, long startNanos) {
+        cacheStats.recordLatency(op, key, System.nanoTime() - startNanos);
+    }
+    
     /**
      * print stats
      * @param out
      * @return
      */
     public StringBuffer buildStatsLogInfo(StringBuffer out) {
-        Map<Object, CacheStatsInfo> snapshot = cacheHitedMap;
-        cacheHitedMap = new ConcurrentReferenceHashMap<>(256);
-        lastStatTimestamp = System.currentTimeMillis();
         if (log.isInfoEnabled()) {
-            snapshot.forEach((k,v)->{
-                double hitRate = v.getHitCount().doubleValue() / v.getCallCount().get();
-                hitRate = new BigDecimal(hitRate * 100).setScale(2, BigDecimal.ROUND_HALF_UP).doubleValue();
-                out.append(k).append("  \t").append(v.getHitCount().get())
-                        .append("/").append(v.getCallCount().get())
-                        .append("  \t").append(hitRate).append("%")
-                        .append("\n");
-            });
+            cacheStats.buildLogInfo(out);
         }
         return out;
     }
@@ -128,7 +522,8 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
             if (value == null) {
                 return null;
             }
-            return serializer.serializeObject(value);
+            String result = serializer.serializeObject(value);
+            return valueCompressor != null ? valueCompressor.compress(result) : result;
         } catch (Exception e) {
             log.warn("serialize value fail! value=" + value, e);
         }
@@ -144,7 +539,7 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
      */
     public <T> T deserializeObject(String value, Class<T> cls) {
         try {
-           T result = serializer.deserializeObject(value, cls);
+           T result = serializer.deserializeObject(ValueCompressor.decompress(CacheEnvelope.strip(value)), cls);
            return result;
         } catch (Exception e) {
             log.warn("deserialize value cast to " + cls.getSimpleName() + " fail! value=" + value, e);
@@ -161,7 +556,7 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
      */
     public <T> T deserializeObject(String value, TypeReference<T> type) {
         try {
-            T result = serializer.deserializeObject(value, type);
+            T result = serializer.deserializeObject(ValueCompressor.decompress(CacheEnvelope.strip(value)), type);
             return result;
         } catch (Exception e) {
             log.warn("deserialize value cast to " + type.getClass().getName() + " fail! value=" + value, e);
@@ -169,6 +564,89 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
         return null;
     }
     
+    /**
+     * 序列化对象为字节，不经过中间字符串
+     * @param value
+     * @return
+     */
+    public byte[] serializeObjectBytes(Object value) {
+        try {
+            if (value == null) {
+                return null;
+            }
+            byte[] result = serializer.serializeObjectBytes(value);
+            return valueCompressor != null ? valueCompressor.compress(result) : result;
+        } catch (Exception e) {
+            log.warn("serialize value fail! value=" + value, e);
+        }
+        return null;
+    }
+    
+    /**
+     * 从redis返回的字节直接反序列化对象
+     * @param <T>
+     * @param value
+     * @param cls
+     * @return
+     */
+    public <T> T deserializeObject(byte[] value, Class<T> cls) {
+        if (CacheEnvelope.isWrapped(value)) {
+            return deserializeObject(new String(value, StandardCharsets.UTF_8), cls);
+        }
+        try {
+            T result = serializer.deserializeObject(ValueCompressor.decompress(value), cls);
+            return result;
+        } catch (Exception e) {
+            log.warn("deserialize value cast to " + cls.getSimpleName() + " fail! value="
+                    + new String(value, StandardCharsets.UTF_8), e);
+        }
+        return null;
+    }
+    
+    /**
+     * 从redis返回的字节直接反序列化对象
+     * @param <T>
+     * @param value
+     * @param type
+     * @return
+     */
+    public <T> T deserializeObject(byte[] value, TypeReference<T> type) {
+        if (CacheEnvelope.isWrapped(value)) {
+            return deserializeObject(new String(value, StandardCharsets.UTF_8), type);
+        }
+        try {
+            T result = serializer.deserializeObject(ValueCompressor.decompress(value), type);
+            return result;
+        } catch (Exception e) {
+            log.warn("deserialize value cast to " + type.getClass().getName() + " fail! value="
+                    + new String(value, StandardCharsets.UTF_8), e);
+        }
+        return null;
+    }
+    
+    private static ThreadPoolExecutor createRefreshExecutor() {
+        AtomicInteger threadNum = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, 
+            new ArrayBlockingQueue<>(1024), r -> {
+                Thread t = new Thread(r, "RedisRefresh-" + threadNum.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    private static ForkJoinPool createDecodePool() {
+        AtomicInteger threadNum = new AtomicInteger();
+        int parallelism = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("RedisDecode-" + threadNum.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+    
     /**
      * 判断是否空、空集合、空数字、空map等
      * @param o
@@ -185,58 +663,803 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
         } else if (o instanceof Map) {
            return ((Map)o).isEmpty();
         }
-        return false;
+        return false;
+    }
+
+    
+    protected int genExpireSeconds(int baseTTL) {
+        if (baseTTL == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return addRandomTTL && baseTTL > 0 ? baseTTL + new Random().nextInt(baseTTL) : baseTTL; 
+    }
+    
+    /**
+     * @param value
+     * @return 写入redis的值，null在开启cacheNull时为NULL特殊值，否则为null表示不写入
+     */
+    protected String toCacheValue(Object value) {
+        if (value == null) {
+            return this.cacheNull ? VALUE_NULL : null;
+        }
+        return serializeObject(value);
+    }
+    
+    /**
+     * @param value
+     * @param expireSeconds
+     * @return 写入value时的过期时间，null特殊值使用nullCacheTTL
+     */
+    protected int cacheTTL(Object value, int expireSeconds) {
+        return genExpireSeconds(value == null && this.cacheNull ? nullCacheTTL : expireSeconds);
+    }
+    
+    protected abstract byte[] getBytes(String key);
+    
+    /**
+     * 执行COMPARE_AND_SET脚本
+     * @param key
+     * @param expectedVersion
+     * @param payload 序列化值
+     * @param expireSeconds
+     * @return 新版本号，版本不一致返回-1
+     */
+    protected abstract Long compareAndSetInner(String key, long expectedVersion, String payload, int expireSeconds);
+    
+    /**
+     * 按写入时的值序列化解码redis返回的字节
+     * @param <T>
+     * @param bytes
+     * @param cls
+     * @return
+     */
+    protected <T> T deserializeValue(byte[] bytes, Class<T> cls) {
+        return deserializeObject(bytes, cls);
+    }
+    
+    @Override
+    public <T> VersionedValue<T> getWithVersion(String key, Class<T> cls) {
+        rejectBucketed(key);
+        // 版本号用于随后的compareAndSet，从节点的旧版本必然比较失败
+        byte[] bytes = readFromMaster(() -> getBytes(key));
+        updateCacheStatsInfo(key, bytes != null);
+        if (bytes == null || !VersionedValue.isVersioned(bytes)) {
+            // set()写入的值没有版本，与get(key, cls)同样解码
+            T value = bytes == null || Arrays.equals(VALUE_NULL_BYTES, bytes) ? null : deserializeValue(bytes, cls);
+            return new VersionedValue<>(0, VALUE_NULL.equals(value) ? null : value);
+        }
+        String raw = new String(bytes, StandardCharsets.UTF_8);
+        String payload = VersionedValue.strip(raw);
+        T value = payload == null || VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls);
+        return new VersionedValue<>(VersionedValue.versionOf(raw), value);
+    }
+    
+    @Override
+    public <T> long compareAndSet(String key, long expectedVersion, T value, int expireSeconds) {
+        rejectBucketed(key);
+        String payload = value == null ? VALUE_NULL : serializeObject(value);
+        Long version = compareAndSetInner(key, expectedVersion, payload, expireSeconds);
+        if (version == null || version <= 0) {
+            return -1;
+        }
+        invalidateNearCache(key);
+        if (value != null) {
+            bloomAdd(key);
+        }
+        return version;
+    }
+    
+    @Override
+    public <T> T update(String key, int expireSeconds, Class<T> cls, UnaryOperator<T> updater, int retries) {
+        for (int i = 0; ; i++) {
+            VersionedValue<T> current = getWithVersion(key, cls);
+            T updated = updater.apply(current.getValue());
+            if (compareAndSet(key, current.getVersion(), updated, expireSeconds) > 0) {
+                return updated;
+            }
+            if (i >= retries) {
+                throw new ConcurrentModificationException(
+                    String.format("update key %s conflict after %d retries", key, retries));
+            }
+            // 随机退避，上限随重试次数增长，避免冲突的更新方同时重试
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(
+                ThreadLocalRandom.current().nextInt(1, 2 << Math.min(i, 6))));
+        }
+    }
+    
+    protected abstract String getInner(String key); 
+    
+    protected abstract List<String> mGetInner(Collection<String> keys); 
+    
+    protected abstract String hGetInner(String key, String field); 
+    
+    protected abstract String setInner(String key, int finalExpireSeconds, String value, Class<?> valueClass);
+    
+    /**
+     * 位图批量置1，所有位图在一个pipeline中执行
+     * @param bits key为位图key，value为要置1的偏移
+     */
+    protected abstract void setBits(Map<String, long[]> bits);
+    
+    /**
+     * 读主节点位图的多个位
+     * @param key
+     * @param offsets
+     * @return 与offsets一一对应，位为1时为true
+     */
+    protected abstract boolean[] getBits(String key, long[] offsets);
+    
+    /**
+     * @return 各主节点的scan
+     */
+    protected abstract List<KeyScanner.Node> scanNodes();
+    
+    /**
+     * 批量unlink
+     * @param keys
+     * @return 删除的数量
+     */
+    protected abstract long unlinkKeys(List<String> keys);
+    
+    /**
+     * 批量设置过期时间
+     * @param keys
+     * @param seconds
+     * @return 设置成功的数量
+     */
+    protected abstract long expireKeys(List<String> keys, int seconds);
+    
+    /**
+     * hash批量写入的字段值，fieldExpireSeconds大于0时封装逻辑过期时间
+     * @param <K>
+     * @param <T>
+     * @param datas
+     * @param fieldExpireSeconds
+     * @return 字段和序列化值，保持datas顺序
+     */
+    protected <K, T> Map<String, String> toHashValues(Map<K, T> datas, int fieldExpireSeconds) {
+        long expireAt = fieldExpireSeconds > 0 ? System.currentTimeMillis() + fieldExpireSeconds * 1000L : 0;
+        Map<String, String> values = new LinkedHashMap<>((int)(datas.size() / 0.75 + 1));
+        for (Map.Entry<K, T> en : datas.entrySet()) {
+            T value = en.getValue();
+            String realValue = value == null && this.cacheNull ? VALUE_NULL : serializeObject(value);
+            if (realValue == null) {
+                continue;
+            }
+            values.put(String.valueOf(en.getKey()), expireAt > 0 ? CacheEnvelope.wrap(realValue, expireAt, 0) : realValue);
+        }
+        return values;
+    }
+    
+    /**
+     * @param <E>
+     * @param list
+     * @param size
+     * @return 按size切分的子列表（视图）
+     */
+    protected static <E> List<List<E>> partition(List<E> list, int size) {
+        List<List<E>> chunks = new ArrayList<>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size) {
+            chunks.add(list.subList(i, Math.min(list.size(), i + size)));
+        }
+        return chunks;
+    }
+    
+    /**
+     * @param value hash字段值
+     * @return 带字段过期时间且已过期
+     */
+    protected static boolean isFieldExpired(String value) {
+        CacheEnvelope envelope = CacheEnvelope.parse(value);
+        return envelope != null && envelope.isSoftExpired();
+    }
+    
+    /**
+     * 去掉hash字段值的字段过期封装，缓存的null也会被封装，需在去掉封装后再与VALUE_NULL比较
+     * @param value hash字段的原始值
+     * @return 序列化值（可能为VALUE_NULL），不存在或字段已过期返回null
+     */
+    protected static String hashFieldPayload(String value) {
+        if (value == null || isFieldExpired(value)) {
+            return null;
+        }
+        return CacheEnvelope.strip(value);
+    }
+    
+    /**
+     * 批量写入的一条数据
+     */
+    @Getter
+    protected static class BatchSetEntry {
+        
+        private final String key;
+        
+        private final int ttl;
+        
+        private final String value;
+        
+        /**
+         * 原始值类型，RedisTemplate据此决定值的序列化方式
+         */
+        private final Class<?> valueClass;
+        
+        public BatchSetEntry(String key, int ttl, String value, Class<?> valueClass) {
+            this.key = key;
+            this.ttl = ttl;
+            this.value = value;
+            this.valueClass = valueClass;
+        }
+    }
+    
+    /**
+     * 用一个pipeline写入一批数据（SETEX）
+     * @param entries
+     */
+    protected abstract void batchSetRaw(List<BatchSetEntry> entries);
+    
+    @Override
+    public <K, T> int batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper, int expireSeconds) {
+        long startNanos = System.nanoTime();
+        List<BatchSetEntry> entries = new ArrayList<>(datas.size());
+        List<String> existKeys = new ArrayList<>(datas.size());
+        for (Map.Entry<K, T> en: datas.entrySet()) {
+            String cacheKey = cacheKeyMapper.apply(en.getKey());
+            T value = en.getValue();
+            String realValue = serializeObject(value);
+            int ttl = genExpireSeconds(expireSeconds);
+            if (realValue == null && this.cacheNull) {
+                realValue = VALUE_NULL;
+                ttl = genExpireSeconds(nullCacheTTL);
+            }
+            if (realValue == null) {
+                continue;
+            }
+            entries.add(new BatchSetEntry(cacheKey, ttl, realValue, value != null ? value.getClass() : String.class));
+            if (value != null) {
+                existKeys.add(cacheKey);
+            }
+        }
+        try {
+            batchWriteRaw(entries);
+        } finally {
+            invalidateNearCache(entries.stream().map(BatchSetEntry::getKey).toArray(String[]::new));
+        }
+        if (!entries.isEmpty()) {
+            recordLatency(CacheStats.Operation.BATCH, entries.get(0).getKey(), startNanos);
+        }
+        bloomAdd(existKeys.toArray(new String[existKeys.size()]));
+        return entries.size();
+    }
+    
+    /**
+     * 读取一批key的原始值，分桶存储的key按桶用HMGET读取
+     * @param cacheKeys
+     * @return 与cacheKeys顺序一致
+     */
+    private List<?> batchReadRaw(List<String> cacheKeys) {
+        if (hashBuckets == null) {
+            return pipelineInChunks(cacheKeys, cacheKey -> cacheKey.length(), this::batchGetRaw);
+        }
+        List<Integer> plain = new ArrayList<>();
+        List<Integer> bucketed = new ArrayList<>();
+        for (int i = 0; i < cacheKeys.size(); i++) {
+            (hashBuckets.isBucketed(cacheKeys.get(i)) ? bucketed : plain).add(i);
+        }
+        if (bucketed.isEmpty()) {
+            return pipelineInChunks(cacheKeys, cacheKey -> cacheKey.length(), this::batchGetRaw);
+        }
+        Object[] raws = new Object[cacheKeys.size()];
+        if (!plain.isEmpty()) {
+            List<String> plainKeys = plain.stream().map(cacheKeys::get).collect(Collectors.toList());
+            List<?> plainRaws = pipelineInChunks(plainKeys, cacheKey -> cacheKey.length(), this::batchGetRaw);
+            for (int i = 0; i < plain.size(); i++) {
+                raws[plain.get(i)] = plainRaws.get(i);
+            }
+        }
+        List<Map.Entry<String, List<Integer>>> groups = new ArrayList<>(hashBuckets.group(bucketed, cacheKeys::get).entrySet());
+        List<List<?>> groupRaws = pipelineInChunks(groups, group -> group.getKey().length(), chunk -> new ArrayList<>(
+            bucketGetRaw(chunk.stream().map(Map.Entry::getKey).collect(Collectors.toList()),
+                chunk.stream().map(group -> group.getValue().stream().map(i -> HashBuckets.field(cacheKeys.get(i)))
+                    .collect(Collectors.toList())).collect(Collectors.toList()))));
+        for (int g = 0; g < groups.size(); g++) {
+            List<Integer> indexes = groups.get(g).getValue();
+            for (int i = 0; i < indexes.size(); i++) {
+                raws[indexes.get(i)] = groupRaws.get(g).get(i);
+            }
+        }
+        return Arrays.asList(raws);
+    }
+    
+    /**
+     * 写入一批数据，分桶存储的key按桶用HSET写入
+     * @param entries
+     */
+    private void batchWriteRaw(List<BatchSetEntry> entries) {
+        List<BatchSetEntry> plain = entries;
+        if (hashBuckets != null) {
+            plain = new ArrayList<>(entries.size());
+            List<BatchSetEntry> bucketed = new ArrayList<>();
+            for (BatchSetEntry entry : entries) {
+                (hashBuckets.isBucketed(entry.getKey()) ? bucketed : plain).add(entry);
+            }
+            List<Map.Entry<String, List<BatchSetEntry>>> groups = new ArrayList<>(hashBuckets.group(bucketed, BatchSetEntry::getKey).entrySet());
+            pipelineInChunks(groups, group -> group.getValue().stream().mapToLong(entry -> entry.getValue().length()).sum(), chunk -> {
+                bucketSetRaw(chunk.stream().map(Map.Entry::getKey).collect(Collectors.toList()),
+                    chunk.stream().map(group -> toFieldEntries(group.getValue())).collect(Collectors.toList()));
+                return chunk;
+            });
+        }
+        pipelineInChunks(plain, entry -> entry.getKey().length() + entry.getValue().length(), chunk -> {
+            batchSetRaw(chunk);
+            return chunk;
+        });
+    }
+    
+    private static List<BatchSetEntry> toFieldEntries(List<BatchSetEntry> entries) {
+        return entries.stream().map(entry -> new BatchSetEntry(HashBuckets.field(entry.getKey()), entry.getTtl(),
+            entry.getValue(), entry.getValueClass())).collect(Collectors.toList());
+    }
+    
+    /**
+     * @param key
+     * @return key所在区域启用了分桶存储
+     */
+    protected boolean isBucketed(String key) {
+        return hashBuckets != null && hashBuckets.isBucketed(key);
+    }
+    
+    /**
+     * 分桶存储的key没有独立的过期时间和版本，按单个key设置过期、带版本读写等操作不支持
+     * @param key
+     */
+    protected void rejectBucketed(String key) {
+        if (isBucketed(key)) {
+            throw new UnsupportedOperationException("unsupported for bucketed key");
+        }
+    }
+    
+    /**
+     * 读取分桶存储的一个值
+     * @param key
+     * @return 原始值，同batchGetRaw
+     */
+    protected Object bucketGet(String key) {
+        long startNanos = System.nanoTime();
+        Object raw = bucketGetRaw(Collections.singletonList(hashBuckets.bucketKey(key)),
+            Collections.singletonList(Collections.singletonList(HashBuckets.field(key)))).get(0).get(0);
+        recordLatency(CacheStats.Operation.GET, key, startNanos);
+        return raw;
+    }
+    
+    /**
+     * 写入分桶存储的一个值，桶的过期时间只延长不缩短
+     * @param key
+     * @param ttl
+     * @param value
+     * @param valueClass
+     * @return OK
+     */
+    protected String bucketSet(String key, int ttl, String value, Class<?> valueClass) {
+        long startNanos = System.nanoTime();
+        bucketSetRaw(Collections.singletonList(hashBuckets.bucketKey(key)),
+            Collections.singletonList(Collections.singletonList(new BatchSetEntry(HashBuckets.field(key), ttl, value, valueClass))));
+        recordLatency(CacheStats.Operation.SET, key, startNanos);
+        return "OK";
+    }
+    
+    /**
+     * 用一个pipeline在每个桶上执行HMGET
+     * @param bucketKeys
+     * @param fields 每个桶读取的字段
+     * @return 每个桶的原始值，与fields顺序一致
+     */
+    protected abstract List<? extends List<?>> bucketGetRaw(List<String> bucketKeys, List<List<String>> fields);
+    
+    /**
+     * 用一个pipeline在每个桶上执行BUCKET_SET脚本，写入和过期时间的延长在同一脚本中原子完成：
+     * 桶的过期时间小于其中最大的ttl时延长到该ttl，较短的ttl不缩短整个桶的过期时间
+     * @param bucketKeys
+     * @param entries 每个桶写入的数据，key为字段
+     */
+    protected abstract void bucketSetRaw(List<String> bucketKeys, List<List<BatchSetEntry>> entries);
+    
+    /**
+     * 删除key
+     * @param keys
+     * @return
+     */
+    protected abstract Long delInner(String... keys);
+    
+    @Override
+    public Long del(String... keys) {
+        if (hashBuckets == null) {
+            return delInner(keys);
+        }
+        List<String> plain = new ArrayList<>(keys.length);
+        List<String> bucketed = new ArrayList<>();
+        for (String key : keys) {
+            (hashBuckets.isBucketed(key) ? bucketed : plain).add(key);
+        }
+        long num = plain.isEmpty() ? 0 : delInner(plain.toArray(new String[plain.size()]));
+        for (Map.Entry<String, List<String>> group : hashBuckets.group(bucketed, key -> key).entrySet()) {
+            num += hdel(group.getKey(), group.getValue().stream().map(HashBuckets::field).toArray(String[]::new));
+        }
+        invalidateNearCache(bucketed.toArray(new String[bucketed.size()]));
+        return num;
+    }
+    
+    /**
+     * 分块执行pipeline，每块命令数不超过pipelineDepth、估算字节数不超过pipelineFlushBytes，
+     * 避免一次pipeline在客户端和服务端堆积大量请求和响应。
+     * pipelineParallelism大于1时各块在不同连接上并行执行，同时执行的块数不超过pipelineParallelism
+     * @param <E>
+     * @param <R>
+     * @param items 命令参数
+     * @param sizeOf 单条命令的估算字节数
+     * @param executor 在一个连接上用pipeline执行一块，返回与块内顺序一致的结果
+     * @return 与items顺序一致的结果
+     */
+    protected <E, R> List<R> pipelineInChunks(List<E> items, ToLongFunction<E> sizeOf, Function<List<E>, List<R>> executor) {
+        List<List<E>> chunks = new ArrayList<>();
+        int from = 0;
+        long bytes = 0;
+        for (int i = 0; i < items.size(); i++) {
+            bytes += sizeOf.applyAsLong(items.get(i));
+            if (i + 1 - from >= pipelineDepth || bytes >= pipelineFlushBytes) {
+                chunks.add(items.subList(from, i + 1));
+                from = i + 1;
+                bytes = 0;
+            }
+        }
+        if (from < items.size()) {
+            chunks.add(items.subList(from, items.size()));
+        }
+        if (chunks.size() <= 1) {
+            return chunks.isEmpty() ? new ArrayList<>(0) : executor.apply(chunks.get(0));
+        }
+        List<R> result = new ArrayList<>(items.size());
+        int workers = Math.min(pipelineParallelism, chunks.size());
+        if (workers <= 1) {
+            chunks.forEach(chunk -> result.addAll(executor.apply(chunk)));
+            return result;
+        }
+        // 各worker领取下一块执行，调用线程也是一个worker
+        @SuppressWarnings("unchecked")
+        List<R>[] chunkResults = new List[chunks.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < chunks.size(); i = next.getAndIncrement()) {
+                chunkResults[i] = executor.apply(chunks.get(i));
+            }
+        };
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers - 1);
+        Runnable asyncWorker = readGuard != null ? readGuard.propagate(worker) : worker;
+        for (int i = 1; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(asyncWorker, PIPELINE_EXECUTOR));
+        }
+        try {
+            worker.run();
+        } catch (RuntimeException e) {
+            next.set(chunks.size());
+            throw e;
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        for (List<R> chunkResult : chunkResults) {
+            result.addAll(chunkResult);
+        }
+        return result;
+    }
+    
+    /**
+     * 用一个pipeline读取一批key的原始值
+     * @param cacheKeys
+     * @return 与cacheKeys顺序一致，不存在为null
+     */
+    protected abstract List<?> batchGetRaw(List<String> cacheKeys);
+    
+    /**
+     * 反序列化batchGetRaw返回的值
+     * @param <T>
+     * @param raw
+     * @param cls
+     * @return
+     */
+    protected abstract <T> T decodeRaw(Object raw, Class<T> cls);
+    
+    /**
+     * 反序列化batchGetRaw返回的值
+     * @param <T>
+     * @param raw
+     * @param type
+     * @return
+     */
+    protected abstract <T> T decodeRaw(Object raw, TypeReference<T> type);
+    
+    @Override
+    public <K, T> Map<K, T> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls) {
+        Map<K, T> result = new LinkedHashMap<>((int)(oriKeys.size()/0.75 + 1));
+        batchGetChunk(oriKeys, cacheKeyMapper, raw -> decodeRaw(raw, cls), result::put);
+        return result;
+    }
+    
+    @Override
+    public <K, T> Map<K, T> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, TypeReference<T> type) {
+        Map<K, T> result = new LinkedHashMap<>((int)(oriKeys.size()/0.75 + 1));
+        batchGetChunk(oriKeys, cacheKeyMapper, raw -> decodeRaw(raw, type), result::put);
+        return result;
+    }
+    
+    @Override
+    public <K, T> int batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls,
+            BiConsumer<K, T> consumer) {
+        int num = 0;
+        for (List<K> chunk : partition(new ArrayList<>(oriKeys), batchGetChunkSize)) {
+            num += batchGetChunk(chunk, cacheKeyMapper, raw -> decodeRaw(raw, cls), consumer);
+        }
+        return num;
+    }
+    
+    /**
+     * 一个pipeline读取一批key，命中值反序列化后按keys顺序交给consumer
+     * @return 交给consumer的数量
+     */
+    private <K, T> int batchGetChunk(Collection<K> keys, Function<K, String> cacheKeyMapper, Function<Object, T> decoder,
+            BiConsumer<K, T> consumer) {
+        // 布隆过滤器判断不存在的key不再读取
+        List<K> readKeys = new ArrayList<>(keys.size());
+        List<String> cacheKeys = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            String cacheKey = cacheKeyMapper.apply(key);
+            if (!isDefinitelyAbsent(cacheKey)) {
+                readKeys.add(key);
+                cacheKeys.add(cacheKey);
+            }
+        }
+        if (readKeys.isEmpty()) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        List<?> raws = batchReadRaw(cacheKeys);
+        recordLatency(CacheStats.Operation.BATCH, cacheKeys.get(0), startNanos);
+        List<K> hitKeys = new ArrayList<>(readKeys.size());
+        List<Object> hitRaws = new ArrayList<>(readKeys.size());
+        for (int i = 0; i < readKeys.size(); i++) {
+            Object raw = raws.get(i);
+            updateCacheStatsInfo(readKeys.get(i), raw != null);
+            if (raw == null || VALUE_NULL.equals(raw) || raw instanceof byte[] && Arrays.equals(VALUE_NULL_BYTES, (byte[]) raw)) {
+                continue;
+            }
+            hitKeys.add(readKeys.get(i));
+            hitRaws.add(raw);
+        }
+        List<T> values = decodeAll(hitRaws, decoder);
+        int num = 0;
+        for (int i = 0; i < hitKeys.size(); i++) {
+            T value = values.get(i);
+            if (value != null) {
+                consumer.accept(hitKeys.get(i), value);
+                num++;
+            }
+        }
+        return num;
+    }
+    
+    /**
+     * 反序列化一批值，数量达到parallelDecodeThreshold时在decodePool中并行执行
+     * @param <V>
+     * @param <T>
+     * @param raws
+     * @param decoder
+     * @return 与raws顺序一致
+     */
+    protected <V, T> List<T> decodeAll(List<V> raws, Function<V, T> decoder) {
+        if (parallelDecodeThreshold <= 0 || raws.size() < parallelDecodeThreshold) {
+            List<T> values = new ArrayList<>(raws.size());
+            for (V raw : raws) {
+                values.add(decoder.apply(raw));
+            }
+            return values;
+        }
+        // 在decodePool中提交的并行流只使用该池的线程
+        return decodePool.submit(() -> raws.parallelStream().map(decoder).collect(Collectors.toList())).join();
+    }
+    
+    /**
+     * 带分数的ZRANGEBYSCORE ... LIMIT
+     * @param key
+     * @param min
+     * @param max
+     * @param offset
+     * @param count
+     * @return 成员和分数，按分数排序
+     */
+    protected abstract List<Map.Entry<String, Double>> zrangeByScorePage(String key, double min, double max,
+            int offset, int count);
+    
+    protected KeyScanner newKeyScanner(String pattern, int count) {
+        // 队列中最多缓存约4批，消费方慢时scan线程等待
+        return new KeyScanner(scanNodes(), pattern, count, scanParallelism, Math.max(4, scanParallelism * 2),
+                TimeUnit.SECONDS.toMillis(scanIdleTimeoutSeconds));
+    }
+    
+    @Override
+    public Stream<String> scan(String pattern, int count) {
+        return newKeyScanner(pattern, count).stream();
+    }
+    
+    @Override
+    public long countByPattern(String pattern) {
+        return KeyScanner.forEachBatch(newKeyScanner(pattern, scanBatchSize), scanBatchSize, List::size);
+    }
+    
+    @Override
+    public long deleteByPattern(String pattern) {
+        return KeyScanner.forEachBatch(newKeyScanner(pattern, scanBatchSize), scanBatchSize, keys -> {
+            long num = unlinkKeys(keys);
+            invalidateNearCache(keys.toArray(new String[keys.size()]));
+            return num;
+        });
+    }
+    
+    @Override
+    public long expireByPattern(String pattern, int seconds) {
+        return KeyScanner.forEachBatch(newKeyScanner(pattern, scanBatchSize), scanBatchSize,
+            keys -> expireKeys(keys, seconds));
+    }
+    
+    @Override
+    public Stream<String> zrangeStream(String key, long start, long stop, int pageSize) {
+        if (start < 0 || stop < -1 || pageSize <= 0) {
+            throw new IllegalArgumentException(String.format("invalid zrange page, start=%d, stop=%d, pageSize=%d",
+                    start, stop, pageSize));
+        }
+        return PagedStream.of(new Supplier<Collection<String>>() {
+            
+            private long from = start;
+            
+            private boolean finished = false;
+            
+            @Override
+            public Collection<String> get() {
+                if (finished || (stop >= 0 && from > stop)) {
+                    return null;
+                }
+                long to = stop >= 0 ? Math.min(stop, from + pageSize - 1) : from + pageSize - 1;
+                Collection<String> page = zrange(key, from, to);
+                finished = page == null || page.size() < to - from + 1;
+                from = to + 1;
+                return page;
+            }
+        });
+    }
+    
+    @Override
+    public Stream<String> zrangeByScoreStream(String key, double min, double max, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        return PagedStream.of(new Supplier<Collection<String>>() {
+            
+            private double from = min;
+            
+            /**
+             * 已返回的分数等于from的成员数，下一页从from开始时跳过，分数相同的成员很多时偏移也只有这些
+             */
+            private int skip = 0;
+            
+            private boolean finished = false;
+            
+            @Override
+            public Collection<String> get() {
+                if (finished) {
+                    return null;
+                }
+                List<Map.Entry<String, Double>> page = zrangeByScorePage(key, from, max, skip, pageSize);
+                if (page == null || page.size() < pageSize) {
+                    finished = true;
+                }
+                if (page == null) {
+                    return null;
+                }
+                List<String> members = new ArrayList<>(page.size());
+                for (Map.Entry<String, Double> entry : page) {
+                    members.add(entry.getKey());
+                    if (entry.getValue() == from) {
+                        skip++;
+                    } else {
+                        from = entry.getValue();
+                        skip = 1;
+                    }
+                }
+                return members;
+            }
+        });
+    }
+    
+    @Override
+    public boolean isDefinitelyAbsent(String key) {
+        return keyBloomFilter != null && keyBloomFilter.isDefinitelyAbsent(key);
+    }
+    
+    @Override
+    public void bloomAdd(String... keys) {
+        if (keyBloomFilter != null) {
+            keyBloomFilter.add(keys);
+        }
     }
-
     
-    protected int genExpireSeconds(int baseTTL) {
-        if (baseTTL == 0) {
-            return Integer.MAX_VALUE;
+    /**
+     * hash批量写入后把写入了非null值的字段（key.field）加入布隆过滤器，与hset一致
+     * @param hashKey
+     * @param datas
+     */
+    protected <K, T> void bloomAddFields(String hashKey, Map<K, T> datas) {
+        if (keyBloomFilter == null) {
+            return;
         }
-        return addRandomTTL && baseTTL > 0 ? baseTTL + new Random().nextInt(baseTTL) : baseTTL; 
+        bloomAdd(datas.entrySet().stream().filter(en -> en.getValue() != null)
+            .map(en -> hashKey + "." + en.getKey()).toArray(String[]::new));
     }
     
-    protected abstract byte[] getBytes(String key);
-    
-    protected abstract String getInner(String key); 
-    
-    protected abstract List<String> mGetInner(Collection<String> keys); 
-    
-    protected abstract String hGetInner(String key, String field); 
-    
-    protected abstract String setInner(String key, int finalExpireSeconds, String value, Class<?> valueClass);
+    @Override
+    public void bloomReady(String namespace) {
+        if (keyBloomFilter != null) {
+            keyBloomFilter.markReady(namespace);
+        }
+    }
     
 
     @Override
     public String get(String key) {
-        String value = getInner(key);
+        NearCache.Entry entry = getNearCacheEntry(key);
+        long generation = entry != null ? 0 : nearCacheGeneration(key);
+        String value = entry != null ? (String) entry.getRaw() : getNearCacheMiss(key);
         updateCacheStatsInfo(key, value != null);
+        if (entry == null) {
+            putNearCache(key, value, generation);
+        }
         if (value == null || VALUE_NULL.equals(value)) {
             return null;
         }
-        return value;
+        return ValueCompressor.decompress(CacheEnvelope.strip(value));
     }
     
     @Override
     public <T> T get(String key, Class<T> cls) {
-        String value = getInner(key);
-        updateCacheStatsInfo(key, value != null);
-        if (value == null || VALUE_NULL.equals(value)) {
-            return null;
+        NearCache.Entry entry = getNearCacheEntry(key);
+        if (entry == null) {
+            long generation = nearCacheGeneration(key);
+            String value = getNearCacheMiss(key);
+            updateCacheStatsInfo(key, value != null);
+            entry = putNearCache(key, value, generation);
+            if (entry == null) {
+                return value == null || VALUE_NULL.equals(value) ? null : deserializeObject(value, cls);
+            }
+        } else {
+            updateCacheStatsInfo(key, true);
         }
-        T objValue = deserializeObject(value, cls);
-        return objValue;
+        return entry.decode(cls, raw -> VALUE_NULL.equals(raw) ? null : deserializeObject((String) raw, cls));
     }
 
     @Override
     public <T> T get(String key, TypeReference<T> type) {
-        String value = getInner(key);
-        updateCacheStatsInfo(key, value != null);
-        if (value == null || VALUE_NULL.equals(value)) {
-            return null;
+        NearCache.Entry entry = getNearCacheEntry(key);
+        if (entry == null) {
+            long generation = nearCacheGeneration(key);
+            String value = getNearCacheMiss(key);
+            updateCacheStatsInfo(key, value != null);
+            entry = putNearCache(key, value, generation);
+            if (entry == null) {
+                return value == null || VALUE_NULL.equals(value) ? null : deserializeObject(value, type);
+            }
+        } else {
+            updateCacheStatsInfo(key, true);
         }
-        T objValue = deserializeObject(value, type);
-        return objValue;
+        return entry.decode(type.getType(), raw -> VALUE_NULL.equals(raw) ? null : deserializeObject((String) raw, type));
     }
 
     @Override
@@ -246,12 +1469,17 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
         if (buff == null || Arrays.equals(VALUE_NULL_BYTES, buff)) {
             return null;
         }
-        return decoder.apply(buff);
+        return decoder.apply(ValueCompressor.decompress(buff));
     }
     
     @Override
     public List<String> mget(List<String> keys) {
-        return mGetInner(keys);
+        List<String> strList = mGetInner(keys);
+        if (strList == null) {
+            return null;
+        }
+        // set(String)总是转义以压缩标识开头的值，未开启压缩时也需还原
+        return strList.stream().map(ValueCompressor::decompress).collect(Collectors.toList());
     }
 
     @Override
@@ -275,44 +1503,8 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
     
     @Override
     public String computeIfAbsent(String key, int expireSeconds, Function<String, String> mappingFunction) {
-        if (!isCurrentThreadCacheEnabeld()) {
-            return mappingFunction.apply(key);
-        }
-        long start = System.currentTimeMillis();
-        String value = null;
-        boolean cacheReadFail = false;
-        try {
-            value = getInner(key);
-            updateCacheStatsInfo(key, value != null && !VALUE_NULL.equals(value));
-            start = CacheLogger.logSlow(start, "computeIfAbsent from cache", key);
-            if (value != null && !VALUE_NULL.equals(value)) {
-                return value;
-            }
-        } catch (Exception e) {
-            cacheReadFail = true;
-        }
-        ReentrantLock lock = loaderLock.computeIfAbsent(key, k->new ReentrantLock());
-        lock.lock();
-        try {
-            value = cacheReadFail ? null : getInner(key);
-            if (value == null) {
-                value = mappingFunction.apply(key);
-                start = CacheLogger.logSlow(start, "computeIfAbsent from func", key);
-                try {
-                    if (!isNullOrEmptyCollection(value)) {
-                        this.set(key, expireSeconds, value);
-                        CacheLogger.logSlow(start, "computeIfAbsent to cache", key);
-                    }
-                } catch (Exception e) {
-                    log.warn("computeIfAbsent write to cache fail! key={}", key, e);
-                }
-            } else if (VALUE_NULL.equals(value)) {
-                return null;
-            }
-            return value;
-        } finally {
-            lock.unlock();
-        }
+        return computeIfAbsentInner(key, null, key, () -> getInner(key), ValueCompressor::decompress, mappingFunction,
+            v -> this.set(key, expireSeconds, v));
     }
 
     @Override
@@ -320,205 +1512,383 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
         if (value == null && this.cacheNull) {
             value = VALUE_NULL;
         }
-        return this.setInner(key, genExpireSeconds(defaultTTL), value, String.class);
+        // 原始字符串不经过序列化，以压缩标识开头时需转义，否则读取时会被误解压
+        String result = this.setInner(key, genExpireSeconds(defaultTTL), ValueCompressor.escape(value), String.class);
+        invalidateNearCache(key);
+        return result;
     }
 
     @Override
     public <T> String set(String key, int expireSeconds, T value) {
-        String realValue;
-        int ttl = genExpireSeconds(expireSeconds);
-        if (value == null && this.cacheNull) {
-            realValue = VALUE_NULL;
-            ttl = genExpireSeconds(nullCacheTTL);
-        } else {
-            realValue = serializeObject(value);
+        String realValue = toCacheValue(value);
+        int ttl = cacheTTL(value, expireSeconds);
+        String result = this.setInner(key, ttl, realValue, value != null ? value.getClass() : String.class);
+        invalidateNearCache(key);
+        if (value != null) {
+            bloomAdd(key);
         }
-        return this.setInner(key, ttl, realValue, value != null ? value.getClass() : String.class);
+        return result;
     }
     
 
     @Override
     public <T> T computeIfAbsent(String key, Class<T> type, int expireSeconds,
             Function<String, T> mappingFunction) {
-        if (!isCurrentThreadCacheEnabeld()) {
-            return mappingFunction.apply(key);
-        }
-        long start = System.currentTimeMillis();        
-        String value = null;
-        boolean cacheReadFail = false;
-        try {
-            value = getInner(key);
-            updateCacheStatsInfo(key, value != null && !VALUE_NULL.equals(value));
-            start = CacheLogger.logSlow(start, "computeIfAbsent from cache", key);
-            if (value != null && !VALUE_NULL.equals(value)) {
-                return deserializeObject(value, type);
-            }
-        } catch (Exception e) {
-            cacheReadFail = true;
-        }
-        ReentrantLock lock = loaderLock.computeIfAbsent(key, k->new ReentrantLock());
-        lock.lock();
-        try {
-            value = cacheReadFail ? null : getInner(key);
-            if (value == null) {
-                T result = mappingFunction.apply(key);
-                start = CacheLogger.logSlow(start, "computeIfAbsent from func", key, type.getName());
-                try {
-                    if (!isNullOrEmptyCollection(result)) {
-                        this.set(key, expireSeconds, result);
-                    }
-                } catch (Exception e) {
-                    log.warn("computeIfAbsent write to cache fail! key={}", key, e);
-                }
-                return result;
-            } else if (VALUE_NULL.equals(value)) {
-                return null;
-            } else {
-                return deserializeObject(value, type);
-            }
-        } finally {
-            lock.unlock();
-            CacheLogger.logSlow(start, "computeIfAbsent to cache", key);
-        }
+        return computeIfAbsentEarly(key, type.getName(), v -> deserializeObject(v, type), expireSeconds,
+            mappingFunction);
     }
 
     @Override
     public <T> T computeIfAbsent(String key, TypeReference<T> type, int expireSeconds,
             Function<String, T> mappingFunction) {
+        return computeIfAbsentEarly(key, type.getType().getTypeName(), v -> deserializeObject(v, type), expireSeconds,
+            mappingFunction);
+    }
+
+    @Override
+    public <T> T computeIfAbsent(String key, Class<T> type, int expireSeconds, int staleSeconds,
+            Function<String, T> mappingFunction) {
+        return computeIfAbsentStale(key, type.getName(), v -> deserializeObject(v, type), expireSeconds,
+            staleSeconds, mappingFunction);
+    }
+
+    @Override
+    public <T> T computeIfAbsent(String key, TypeReference<T> type, int expireSeconds, int staleSeconds,
+            Function<String, T> mappingFunction) {
+        return computeIfAbsentStale(key, type.getType().getTypeName(), v -> deserializeObject(v, type), expireSeconds,
+            staleSeconds, mappingFunction);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> computeIfAbsentAsync(String key, Class<T> type, int expireSeconds,
+            Function<String, T> mappingFunction) {
+        return computeIfAbsentAsyncInner(key, type.getName(), key, () -> getInner(key),
+            v -> deserializeObject(v, type), mappingFunction, v -> this.set(key, expireSeconds, v));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> computeIfAbsentAsync(String key, TypeReference<T> type, int expireSeconds,
+            Function<String, T> mappingFunction) {
+        return computeIfAbsentAsyncInner(key, type.getType().getTypeName(), key, () -> getInner(key),
+            v -> deserializeObject(v, type), mappingFunction, v -> this.set(key, expireSeconds, v));
+    }
+
+    @Override
+    public String hComputeIfAbsent(String key, String field, Function<String, String> mappingFunction) {
+        return computeIfAbsentInner(key + "." + field, null, key, () -> hashFieldPayload(hGetInner(key, field)),
+            ValueCompressor::decompress, mappingFunction, v -> this.hset(key, field, defaultTTL, v));
+    }
+
+    @Override
+    public <T> T hComputeIfAbsent(String key, String field, TypeReference<T> type, int expireSeconds,
+            Function<String, T> mappingFunction) {
+        return computeIfAbsentInner(key + "." + field, type.getType().getTypeName(), key,
+            () -> hashFieldPayload(hGetInner(key, field)), v -> deserializeObject(v, type), mappingFunction,
+            v -> this.hset(key, field, expireSeconds, v));
+    }
+
+    /**
+     * computeIfAbsent公共流程，缓存未命中时同一缓存key、同一返回类型的并发调用合并为一次加载，
+     * 等待者直接共享加载者的结果，不再重复读取redis；开启跨进程填充时加载者再经填充租约与其他进程合并
+     * @param <T>
+     * @param fillKey 缓存key，hash为key.field
+     * @param typeName 返回类型名，原始字符串为null
+     * @param key 缓存key，传给mappingFunction
+     * @param reader 读取缓存原始值
+     * @param decoder 缓存原始值转换为结果
+     * @param mappingFunction 加载函数
+     * @param writer 加载结果写入缓存
+     * @return
+     */
+    protected <T> T computeIfAbsentInner(String fillKey, String typeName, String key, Supplier<String> reader,
+            Function<String, T> decoder, Function<String, T> mappingFunction, Consumer<T> writer) {
+        return computeIfAbsentInner(fillKey, typeName, key, reader, decoder, mappingFunction, writer, null);
+    }
+
+    /**
+     * computeIfAbsent公共流程，支持命中时判断是否提前重算
+     * @param <T>
+     * @param fillKey
+     * @param typeName
+     * @param key
+     * @param reader
+     * @param decoder
+     * @param mappingFunction
+     * @param writer
+     * @param expired 命中的缓存原始值是否需提前重算，为null时不判断
+     * @return
+     */
+    protected <T> T computeIfAbsentInner(String fillKey, String typeName, String key, Supplier<String> reader,
+            Function<String, T> decoder, Function<String, T> mappingFunction, Consumer<T> writer,
+            Predicate<String> expired) {
         if (!isCurrentThreadCacheEnabeld()) {
             return mappingFunction.apply(key);
         }
+        if (isDefinitelyAbsent(fillKey)) {
+            // 布隆过滤器判断数据不存在，不读缓存也不加载
+            return null;
+        }
+        String flightKey = typeName != null ? fillKey + "@" + typeName : fillKey;
         long start = System.currentTimeMillis();
-        String value = null;
         boolean cacheReadFail = false;
         try {
-            value = getInner(key);
+            String value = reader.get();
             updateCacheStatsInfo(key, value != null && !VALUE_NULL.equals(value));
-            start = CacheLogger.logSlow(start, "computeIfAbsent from cache", key);
+            CacheLogger.logSlow(start, "computeIfAbsent from cache", flightKey);
             if (value != null && !VALUE_NULL.equals(value)) {
-                return deserializeObject(value, type);
+                if (expired == null || !expired.test(value)) {
+                    return decoder.apply(value);
+                }
+                // 提前重算，本进程内合并
+                return singleFlight.execute(flightKey, () -> loadAndWrite(fillKey, key, mappingFunction, writer, false));
             }
         } catch (Exception e) {
             cacheReadFail = true;
         }
-        ReentrantLock lock = loaderLock.computeIfAbsent(key, k->new ReentrantLock());
-        lock.lock();
-        try {
-            value = cacheReadFail ? null : getInner(key);
-            if (value == null) {
-                T result = mappingFunction.apply(key);
-                start = CacheLogger.logSlow(start, "computeIfAbsent from func", key, type.getType().getTypeName());
-                try {
-                    if (!isNullOrEmptyCollection(result)) {
-                        this.set(key, expireSeconds, result);
-                    }
-                } catch (Exception e) {
-                    log.warn("computeIfAbsent write to cache fail! key={}", key, e);
-                }
-                return result;
-            } else if (VALUE_NULL.equals(value)) {
-                return null;
-            } else {
-                return deserializeObject(value, type);
-            }
-        } finally {
-            lock.unlock();
-            CacheLogger.logSlow(start, "computeIfAbsent to cache", key);
-        }
+        boolean reread = !cacheReadFail;
+        return singleFlight.execute(flightKey, () -> loadIfAbsent(fillKey, key, reread, reader, decoder,
+            mappingFunction, writer));
     }
 
-    @Override
-    public String hComputeIfAbsent(String key, String field, Function<String, String> mappingFunction) {
+    /**
+     * computeIfAbsent异步流程，已有同一缓存key、同一返回类型在加载时直接返回其结果的future
+     * @param <T>
+     * @param fillKey
+     * @param typeName
+     * @param key
+     * @param reader
+     * @param decoder
+     * @param mappingFunction
+     * @param writer
+     * @return
+     */
+    protected <T> CompletableFuture<T> computeIfAbsentAsyncInner(String fillKey, String typeName, String key,
+            Supplier<String> reader, Function<String, T> decoder, Function<String, T> mappingFunction, Consumer<T> writer) {
         if (!isCurrentThreadCacheEnabeld()) {
-            return mappingFunction.apply(key);
+            return CompletableFuture.supplyAsync(() -> mappingFunction.apply(key), loaderExecutor);
         }
-        long start = System.currentTimeMillis();
-        String value = null;
-        try {
-            value = hGetInner(key, field);
-            updateCacheStatsInfo(key, value != null && !VALUE_NULL.equals(value));
-            if (value != null && !VALUE_NULL.equals(value)) {
-                return value;
+        if (isDefinitelyAbsent(fillKey)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String flightKey = typeName != null ? fillKey + "@" + typeName : fillKey;
+        // 在loader线程中按同步流程执行，其内部对同一flightKey重入时直接加载
+        return singleFlight.executeAsync(flightKey, () -> computeIfAbsentInner(fillKey, typeName, key, reader, decoder,
+            mappingFunction, writer), loaderExecutor);
+    }
+
+    /**
+     * 软过期模式的computeIfAbsent，值按expireSeconds软过期，redis中保留expireSeconds+staleSeconds，
+     * 软过期后读取方直接返回旧值，由后台线程刷新，同一key同时只有一个刷新
+     * @param <T>
+     * @param key
+     * @param typeName
+     * @param decoder
+     * @param expireSeconds
+     * @param staleSeconds
+     * @param mappingFunction
+     * @return
+     */
+    protected <T> T computeIfAbsentStale(String key, String typeName, Function<String, T> decoder,
+            int expireSeconds, int staleSeconds, Function<String, T> mappingFunction) {
+        if (staleSeconds <= 0 || expireSeconds <= 0) {
+            return computeIfAbsentInner(key, typeName, key, () -> getInner(key), decoder, mappingFunction,
+                v -> this.set(key, expireSeconds, v));
+        }
+        Consumer<T> writer = v -> setWithSoftExpire(key, expireSeconds, staleSeconds, v);
+        Function<String, T> staleDecoder = value -> {
+            CacheEnvelope envelope = CacheEnvelope.parse(value);
+            if (envelope == null) {
+                return decoder.apply(value);
             }
-        } finally {
-            start = CacheLogger.logSlow(start, "hComputeIfAbsent from cache", key, field);
+            if (envelope.isSoftExpired()) {
+                refreshInBackground(key, mappingFunction, writer);
+            }
+            return decoder.apply(envelope.getPayload());
+        };
+        return computeIfAbsentInner(key, typeName, key, () -> getInner(key), staleDecoder, mappingFunction, writer);
+    }
+
+    /**
+     * 写入带软过期时间的值
+     * @param <T>
+     * @param key
+     * @param expireSeconds 软过期时间
+     * @param staleSeconds 软过期后仍保留的时间
+     * @param value
+     * @return
+     */
+    protected <T> String setWithSoftExpire(String key, int expireSeconds, int staleSeconds, T value) {
+        if (value == null) {
+            return this.set(key, expireSeconds, value);
         }
-        ReentrantLock lock = loaderLock.computeIfAbsent(key + "." + field, k->new ReentrantLock());
-        lock.lock();
-        try {
-            value = hGetInner(key, field);
-            if (value == null) {
-                value = mappingFunction.apply(key);
-                start = CacheLogger.logSlow(start, "hComputeIfAbsent from func", key, field);
-                if (!isNullOrEmptyCollection(value)) {
-                    this.hset(key, field, defaultTTL, value);
+        return setEnvelope(key, expireSeconds * 1000L, genExpireSeconds(expireSeconds + staleSeconds), 0, value);
+    }
+
+    /**
+     * 写入记录了加载耗时的值，逻辑过期时间与redis中的过期时间一致
+     * @param <T>
+     * @param key
+     * @param expireSeconds
+     * @param delta 加载耗时，单位ms
+     * @param value
+     * @return
+     */
+    protected <T> String setWithLoadCost(String key, int expireSeconds, long delta, T value) {
+        if (value == null) {
+            return this.set(key, expireSeconds, value);
+        }
+        int ttl = genExpireSeconds(expireSeconds);
+        return setEnvelope(key, ttl * 1000L, ttl, delta, value);
+    }
+
+    private <T> String setEnvelope(String key, long softExpireMillis, int ttl, long delta, T value) {
+        String realValue = serializeObject(value);
+        if (realValue == null) {
+            return null;
+        }
+        long softExpireAt = System.currentTimeMillis() + softExpireMillis;
+        String result = this.setInner(key, ttl, CacheEnvelope.wrap(realValue, softExpireAt, delta), String.class);
+        invalidateNearCache(key);
+        bloomAdd(key);
+        return result;
+    }
+
+    /**
+     * 提前重算(XFetch)模式的computeIfAbsent：值中记录加载耗时delta，每个读取方在过期前以
+     * now - delta * beta * ln(random) >= expireAt 判断是否提前重算，越接近过期、加载越慢越可能重算，
+     * 从而把同一key的重算分散到过期前的不同读取上，无需额外的协调
+     * @param <T>
+     * @param key
+     * @param typeName
+     * @param decoder
+     * @param expireSeconds
+     * @param mappingFunction
+     * @return
+     */
+    protected <T> T computeIfAbsentEarly(String key, String typeName, Function<String, T> decoder,
+            int expireSeconds, Function<String, T> mappingFunction) {
+        double beta = this.earlyRecomputeBeta;
+        if (beta <= 0 || expireSeconds <= 0) {
+            return computeIfAbsentInner(key, typeName, key, () -> getInner(key), decoder, mappingFunction,
+                v -> this.set(key, expireSeconds, v));
+        }
+        long[] cost = new long[1];
+        Function<String, T> timedFunction = k -> {
+            long start = System.currentTimeMillis();
+            T result = mappingFunction.apply(k);
+            cost[0] = System.currentTimeMillis() - start;
+            return result;
+        };
+        Predicate<String> expired = value -> {
+            CacheEnvelope envelope = CacheEnvelope.parse(value);
+            if (envelope == null || envelope.getDelta() <= 0) {
+                return false;
+            }
+            double gap = -envelope.getDelta() * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+            return System.currentTimeMillis() + gap >= envelope.getSoftExpireAt();
+        };
+        return computeIfAbsentInner(key, typeName, key, () -> getInner(key), decoder, timedFunction,
+            v -> setWithLoadCost(key, expireSeconds, cost[0], v), expired);
+    }
+
+    private <T> void refreshInBackground(String key, Function<String, T> mappingFunction, Consumer<T> writer) {
+        // 本进程内合并，跨进程由刷新锁保证只有一个刷新
+        singleFlight.executeAsync(REFRESH_LOCK_PREFIX + key, () -> {
+            String instanceName = UUID.randomUUID().toString().replaceAll("-", "");
+            try (CloseableLock lock = tryLease(REFRESH_LOCK_PREFIX + key, instanceName, REFRESH_LOCK_MILLIS)) {
+                if (lock != null) {
+                    long start = System.currentTimeMillis();
+                    T result = mappingFunction.apply(key);
+                    if (!isNullOrEmptyCollection(result)) {
+                        writer.accept(result);
+                    }
+                    CacheLogger.logSlow(start, "refresh stale value", key);
                 }
-            } else if (VALUE_NULL.equals(value)) {
-                return null;
+            } catch (Exception e) {
+                log.warn("refresh stale value fail! key={}", key, e);
             }
-            return value;
-        } finally {
-            lock.unlock();
-            CacheLogger.logSlow(start, "hComputeIfAbsent to cache", key, field);
-        }
+            return null;
+        }, refreshExecutor).exceptionally(e -> {
+            log.warn("submit refresh of {} fail! error:{}", key, e.getMessage());
+            return null;
+        });
     }
 
-    @Override
-    public <T> T hComputeIfAbsent(String key, String field, TypeReference<T> type, int expireSeconds,
-            Function<String, T> mappingFunction) {
-        long start = System.currentTimeMillis();
-        String value = null;
-        try {
-            value = hGetInner(key, field);
-            updateCacheStatsInfo(key, value != null && !VALUE_NULL.equals(value));
-            if (value != null && !VALUE_NULL.equals(value)) {
-                return deserializeObject(value, type);
+    private <T> T loadIfAbsent(String fillKey, String key, boolean reread, Supplier<String> reader,
+            Function<String, T> decoder, Function<String, T> mappingFunction, Consumer<T> writer) {
+        // 仅加载者再读一次，期间可能已被其他进程写入
+        String value = reread ? readFromMaster(reader) : null;
+        if (value == null) {
+            DistributedFill fill = this.distributedFill;
+            if (fill != null && reread) {
+                return fill.fill(fillKey, reader, decoder, () -> loadAndWrite(fillKey, key, mappingFunction, writer, true));
             }
-        } finally {
-            start = CacheLogger.logSlow(start, "hComputeIfAbsent from cache", key, field);
+            return loadAndWrite(fillKey, key, mappingFunction, writer, false);
+        } else if (VALUE_NULL.equals(value)) {
+            return null;
         }
-        ReentrantLock lock = loaderLock.computeIfAbsent(key + "." + field, k->new ReentrantLock());
-        lock.lock();
+        return decoder.apply(value);
+    }
+
+    private <T> T loadAndWrite(String fillKey, String key, Function<String, T> mappingFunction, Consumer<T> writer,
+            boolean shared) {
+        long start = System.currentTimeMillis();
+        T result = mappingFunction.apply(key);
+        start = CacheLogger.logSlow(start, "computeIfAbsent from func", fillKey);
         try {
-            value = hGetInner(key, field);
-            if (value == null) {
-                T objValue = mappingFunction.apply(key);
-                start = CacheLogger.logSlow(start, "hComputeIfAbsent from func", key, field);
-                if (!isNullOrEmptyCollection(objValue)) {
-                    this.hset(key, field, expireSeconds, objValue);
-                }
-                return objValue;
-            } else if (VALUE_NULL.equals(value)) {
-                return null;
-            } else {
-                return deserializeObject(value, type);
+            // 跨进程填充时null结果也写入NULL特殊值，其他进程读到后不再加载
+            if (!isNullOrEmptyCollection(result) || (shared && result == null && this.cacheNull)) {
+                writer.accept(result);
+                CacheLogger.logSlow(start, "computeIfAbsent to cache", fillKey);
             }
-        } finally {
-            lock.unlock();
-            CacheLogger.logSlow(start, "hComputeIfAbsent to cache", key, field);
+        } catch (Exception e) {
+            log.warn("computeIfAbsent write to cache fail! key={}", fillKey, e);
         }
+        return result;
+    }
+
+    /**
+     * 用一条SET NX PX获取租约，不等待、不重入
+     * @param key 锁关键字
+     * @param instanceName 实例名
+     * @param expreMillis 租约超时时间，单位ms
+     * @return 获取成功返回true
+     */
+    protected abstract boolean setLease(String key, String instanceName, int expreMillis);
+
+    /**
+     * 获取租约（redis锁），不等待、不重入，一次往返，填充和刷新等每次使用新实例名的场景使用
+     * @param key 锁关键字
+     * @param instanceName 实例名
+     * @param expreMillis 租约超时时间，单位ms
+     * @return 未获取到返回null
+     */
+    protected CloseableLock tryLease(String key, String instanceName, int expreMillis) {
+        return setLease(key, instanceName, expreMillis) ? createLock(key, instanceName) : null;
     }
 
     /**
-     * redis锁，不等待
+     * redis锁，不等待，已由同一实例持有时重入
      * @param key 锁关键字
-     * @param lockId 实例名
+     * @param instanceName 实例名
      * @param expreMillis 锁超时时间
      * @return
      */
-    protected abstract CloseableLock tryLockOnce(String key, String instanceName, int expreMillis);
+    protected CloseableLock tryLockOnce(String key, String instanceName, int expreMillis) {
+        CloseableLock lock = tryLease(key, instanceName, expreMillis);
+        if (lock != null) {
+            return lock;
+        }
+        // 只在竞争时多读一次主节点判断是否重入
+        return instanceName.equals(readFromMaster(() -> get(key))) ? createLock(key, instanceName) : null;
+    }
 
     protected CloseableLock createLock(String key, String instanceName) {
         CloseableLock lock = new CloseableLock() {
             @Override
             public void close() {
-                    synchronized (this) {
-                        String currInstance = getInner(key);
-                        if (instanceName.equals(currInstance)) {
-                            del(key);
-                        }
-                    }
-                }
+                compareAndDelete(key, instanceName);
+            }
         };
         return lock;
     }
@@ -563,45 +1933,4 @@ public abstract class AbstractRedisSimpleApi implements RedisSimpleApi {
     }
     
 
-    /**
-     * 缓存统计信息
-     */
-    public static class CacheStatsInfo {
-        public AtomicLong callCount = new AtomicLong(0);
-        public AtomicLong hitCount = new AtomicLong(0);
-
-        public void reset() {
-            this.callCount = new AtomicLong(0);
-            this.hitCount = new AtomicLong(0);
-        }
-
-        /**
-         * @return the callCount
-         */
-        public AtomicLong getCallCount() {
-            return callCount;
-        }
-
-        /**
-         * @param callCount the callCount to set
-         */
-        public void setCallCount(AtomicLong callCount) {
-            this.callCount = callCount;
-        }
-
-        /**
-         * @return the hitCount
-         */
-        public AtomicLong getHitCount() {
-            return hitCount;
-        }
-
-        /**
-         * @param hitCount the hitCount to set
-         */
-        public void setHitCount(AtomicLong hitCount) {
-            this.hitCount = hitCount;
-        }
-
-    }
 }
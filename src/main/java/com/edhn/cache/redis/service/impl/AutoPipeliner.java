@@ -0,0 +1,172 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisPipeline;
+import com.edhn.cache.redis.configuration.modal.AutoPipelineConfig;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Response;
+
+/**
+ * AutoPipeliner
+ * 将多个线程并发提交的单个命令合并为pipeline执行，调用线程等待各自的结果
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class AutoPipeliner {
+
+    private final Supplier<RedisClient> clientSupplier;
+
+    private final AutoPipelineConfig config;
+
+    private final BlockingQueue<Command<?>> queue;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean closed = false;
+
+    public AutoPipeliner(Supplier<RedisClient> clientSupplier, AutoPipelineConfig config) {
+        this.clientSupplier = clientSupplier;
+        this.config = config;
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+        for (int i = 1; i <= Math.max(1, config.getThreads()); i++) {
+            Thread worker = new Thread(this::runWorker, "RedisAutoPipeline-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * 提交命令并等待结果
+     * @param <R>
+     * @param action 在pipeline上执行的命令
+     * @return
+     */
+    public <R> R execute(Function<RedisPipeline, Response<R>> action) {
+        Command<R> command = new Command<>(action);
+        if (closed || !queue.offer(command)) {
+            // 已关闭或排队已满，直接执行
+            executeBatch(Collections.singletonList(command));
+        } else if (closed) {
+            // 入队时并发关闭，close可能已清空队列，留在队列中的命令不会再有worker执行
+            executeRemains();
+        }
+        try {
+            return command.future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 停止合并，已排队的命令在当前线程执行，之后提交的命令由调用线程直接执行
+     */
+    public void close() {
+        closed = true;
+        workers.forEach(Thread::interrupt);
+        executeRemains();
+    }
+
+    private void executeRemains() {
+        List<Command<?>> remains = new ArrayList<>();
+        queue.drainTo(remains);
+        if (!remains.isEmpty()) {
+            executeBatch(remains);
+        }
+    }
+
+    private void runWorker() {
+        int maxBatch = Math.max(1, config.getMaxBatch());
+        long windowNanos = TimeUnit.MICROSECONDS.toNanos(config.getWindowMicros());
+        List<Command<?>> batch = new ArrayList<>(maxBatch);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remain = deadline - System.nanoTime();
+                    Command<?> command = remain > 0 ? queue.poll(remain, TimeUnit.NANOSECONDS) : null;
+                    if (command == null) {
+                        break;
+                    }
+                    batch.add(command);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // 只在close时中断，由closed结束循环；不保留中断标记，避免已取出的命令获取连接失败
+                if (batch.isEmpty()) {
+                    break;
+                }
+            }
+            executeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void executeBatch(List<Command<?>> batch) {
+        try (RedisClient client = clientSupplier.get();
+                RedisPipeline pipelined = client.pipelined()) {
+            for (Command<?> command : batch) {
+                command.send(pipelined);
+            }
+            pipelined.sync();
+            for (Command<?> command : batch) {
+                command.complete();
+            }
+        } catch (Exception e) {
+            log.warn("execute auto pipeline of {} commands fail! error:{}", batch.size(), e.getMessage());
+            for (Command<?> command : batch) {
+                command.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Command<R> {
+
+        private final Function<RedisPipeline, Response<R>> action;
+
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Response<R> response;
+
+        Command(Function<RedisPipeline, Response<R>> action) {
+            this.action = action;
+        }
+
+        void send(RedisPipeline pipelined) {
+            response = action.apply(pipelined);
+        }
+
+        void complete() {
+            try {
+                future.complete(response.get());
+            } catch (Exception e) {
+                // 单个命令的错误不影响同批其他命令
+                future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.io.Closeable;
+
+/**
+ * CloseableSubscription
+ * 
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ * 
+ */
+public interface CloseableSubscription extends Closeable {
+    
+    public void close();
+
+}
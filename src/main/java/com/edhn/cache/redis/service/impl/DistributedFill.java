@@ -0,0 +1,129 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.edhn.cache.redis.configuration.modal.DistributedFillConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DistributedFill
+ * 跨进程合并缓存填充：首个未命中的进程获取填充租约后执行加载，
+ * 其他进程等待pub/sub填充完成通知后重读缓存，租约时间内未完成则自行加载
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class DistributedFill {
+
+    private final AbstractRedisSimpleApi redisApi;
+
+    private final DistributedFillConfig config;
+
+    /**
+     * 等待填充通知的key，先登记再尝试获取租约，避免错过通知
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>(256);
+
+    private volatile CloseableSubscription subscription;
+
+    public DistributedFill(AbstractRedisSimpleApi redisApi, DistributedFillConfig config) {
+        this.redisApi = redisApi;
+        this.config = config;
+    }
+
+    /**
+     * 订阅填充完成通知
+     */
+    public void start() {
+        if (subscription == null) {
+            subscription = redisApi.subscribe(config.getChannel(), this::onMessage);
+        }
+    }
+
+    /**
+     * 执行填充
+     * @param <T>
+     * @param fillKey 缓存key，hash为key.field
+     * @param reader 读取缓存原始值
+     * @param decoder 缓存原始值转换为结果
+     * @param loader 加载并写入缓存
+     * @return
+     */
+    public <T> T fill(String fillKey, Supplier<String> reader, Function<String, T> decoder, Supplier<T> loader) {
+        CompletableFuture<Void> signal = waiters.computeIfAbsent(fillKey, k -> new CompletableFuture<>());
+        try {
+            String leaseKey = config.getLeasePrefix() + fillKey;
+            String instanceName = UUID.randomUUID().toString().replaceAll("-", "");
+            CloseableLock lease = redisApi.tryLease(leaseKey, instanceName, config.getLeaseMillis());
+            if (lease != null) {
+                try {
+                    return loader.get();
+                } finally {
+                    lease.close();
+                    notifyFilled(fillKey);
+                }
+            }
+            // 其他进程持有租约，获取租约前可能已填充完成；填充值刚写入主节点，从节点可能尚未复制
+            String value = redisApi.readFromMaster(reader);
+            if (value == null) {
+                awaitFilled(fillKey, signal);
+                value = redisApi.readFromMaster(reader);
+            }
+            if (value == null) {
+                // 租约过期或加载结果未写入缓存
+                return loader.get();
+            }
+            return AbstractRedisSimpleApi.VALUE_NULL.equals(value) ? null : decoder.apply(value);
+        } finally {
+            waiters.remove(fillKey, signal);
+        }
+    }
+
+    public void close() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        waiters.values().forEach(f -> f.complete(null));
+        waiters.clear();
+    }
+
+    private void awaitFilled(String fillKey, CompletableFuture<Void> signal) {
+        try {
+            signal.get(config.getLeaseMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("wait fill of {} timeout after {}ms, load by self", fillKey, config.getLeaseMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("wait fill of {} fail! error:{}", fillKey, e.getMessage());
+        }
+    }
+
+    private void notifyFilled(String fillKey) {
+        try {
+            redisApi.publish(config.getChannel(), fillKey);
+        } catch (Exception e) {
+            log.warn("publish fill of {} fail! error:{}", fillKey, e.getMessage());
+        }
+    }
+
+    private void onMessage(String fillKey) {
+        CompletableFuture<Void> signal = waiters.remove(fillKey);
+        if (signal != null) {
+            signal.complete(null);
+        }
+    }
+
+}
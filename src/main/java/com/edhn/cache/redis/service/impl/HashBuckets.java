@@ -0,0 +1,83 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.edhn.cache.redis.configuration.modal.HashBucketConfig;
+import com.edhn.cache.redis.nearcache.NearCache;
+
+import lombok.Getter;
+
+/**
+ * HashBuckets
+ * 分桶存储的key映射，key=ns:id的值保存在桶ns:$bucket$:n的字段id中，n=hash(key) % 桶数
+ * hash使用String.hashCode，各进程计算结果一致；修改桶数会使已有数据无法读到，相当于清空该区域
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class HashBuckets {
+
+    public static final String BUCKET_INFIX = ":$bucket$:";
+
+    @Getter
+    private final HashBucketConfig config;
+
+    private final Map<String, Integer> buckets = new ConcurrentHashMap<>();
+
+    public HashBuckets(HashBucketConfig config) {
+        this.config = config;
+        config.getNamespaces().forEach((ns, nsConfig) -> {
+            int count = nsConfig != null && nsConfig.getBuckets() != null ? nsConfig.getBuckets() : config.getBuckets();
+            buckets.put(ns, Math.max(1, count));
+        });
+    }
+
+    /**
+     * @param key
+     * @return key所在区域启用了分桶存储返回true
+     */
+    public boolean isBucketed(String key) {
+        return key != null && buckets.containsKey(NearCache.getNamespace(key));
+    }
+
+    /**
+     * @param key 已启用分桶存储的key
+     * @return 桶的key
+     */
+    public String bucketKey(String key) {
+        String ns = NearCache.getNamespace(key);
+        return ns + BUCKET_INFIX + ((key.hashCode() & Integer.MAX_VALUE) % buckets.get(ns));
+    }
+
+    /**
+     * @param key
+     * @return 桶中的字段，即key去掉区域前缀的部分
+     */
+    public static String field(String key) {
+        int nsPos = key.indexOf(":");
+        return nsPos >= 0 ? key.substring(nsPos + 1) : key;
+    }
+
+    /**
+     * 按桶分组
+     * @param <E>
+     * @param items
+     * @param keyOf 取元素的key，均为已启用分桶存储的key
+     * @return 桶key和桶内元素，保持items中的相对顺序
+     */
+    public <E> Map<String, List<E>> group(List<E> items, Function<E, String> keyOf) {
+        Map<String, List<E>> groups = new LinkedHashMap<>();
+        for (E item : items) {
+            groups.computeIfAbsent(bucketKey(keyOf.apply(item)), k -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+}
@@ -1,29 +1,46 @@
 package com.edhn.cache.redis.service.impl;
 
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.edhn.cache.redis.client.LuaScript;
 import com.edhn.cache.redis.client.RedisClient;
 import com.edhn.cache.redis.client.RedisClientPool;
 import com.edhn.cache.redis.client.RedisPipeline;
-import com.edhn.cache.redis.client.impl.JedisClusterClient;
+import com.edhn.cache.redis.configuration.modal.AutoPipelineConfig;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+import com.edhn.cache.redis.configuration.modal.RedisConfig;
+import com.edhn.cache.redis.configuration.modal.ReplicaReadConfig;
+import com.edhn.cache.redis.serializer.CacheEnvelope;
+import com.edhn.cache.redis.serializer.ValueCompressor;
 import com.edhn.cache.redis.service.CacheUnWrapper;
 import com.edhn.cache.redis.service.RedisSimpleApi;
+import com.edhn.cache.redis.stats.CacheStats.Operation;
 import com.edhn.cache.redis.util.CacheLogger;
 import com.fasterxml.jackson.core.type.TypeReference;
 
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.Tuple;
 
 /**
  * JedisSimpleApiImpl
@@ -33,27 +50,9 @@ import redis.clients.jedis.Response;
  * @date 2021-04-28
  * 
  */
+@Slf4j
 public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisSimpleApi {
     
-//    private static final String REDIS_DECR_MIN = 
-//            "local num = redis.call('decr', KEYS[1]);"
-//            + "local minNum=tonumber(ARGV[1]);"
-//            + "if (num < minNum) then"
-//            + "  redis.call('set', KEYS[1], minNum);"
-//            + "  return minNum;"
-//            + "end;"
-//            + "return num;";
-    
-
-    /**
-     * 是否启用lua脚本，默认关闭
-     *   开启后可以控制操作原子性并能支持cas操作接口，但有故障风险，暂未找到稳妥办法解决
-     *   不开启时使用程序内锁控制，不能保证多进程原子性，但非严格场景一般可满足
-     */
-//    @Getter
-//    @Setter
-//    private boolean luaEnabled = false;
-    
     /**
      * jedis连接池
      */
@@ -64,6 +63,16 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
      */
     private Supplier<RedisClientPool> poolSupplier;
     
+    /**
+     * 自动合并pipeline，未开启时为null
+     */
+    private AutoPipeliner autoPipeliner;
+    
+    /**
+     * 开启从节点读时读命令的自动合并pipeline，否则为null
+     */
+    private AutoPipeliner readPipeliner;
+    
 //    public static ObjectMapper jsonMapper;
 //    
 //    static {
@@ -118,55 +127,259 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         return this;
     }
     
+    @Override
+    public void configure(RedisConfig config) {
+        super.configure(config);
+        AutoPipelineConfig autoPipelineConfig = config != null ? config.getAutoPipeline() : null;
+        ReplicaReadConfig replicaRead = config != null ? config.getReplicaRead() : null;
+        if (replicaRead != null && replicaRead.getReadFrom() != null && replicaRead.getReadFrom() != ReadFromMode.master) {
+            this.readGuard = new ReadAfterWriteGuard(replicaRead.getStaleMillis(), replicaRead.getMaxTrackedKeys());
+        }
+        if (autoPipelineConfig != null && autoPipelineConfig.isEnabled()) {
+            this.autoPipeliner = new AutoPipeliner(this::getRedisClient, autoPipelineConfig);
+            if (readGuard != null) {
+                this.readPipeliner = new AutoPipeliner(() -> getPool().getReadResource(), autoPipelineConfig);
+            }
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (autoPipeliner != null) {
+            autoPipeliner.close();
+        }
+        if (readPipeliner != null) {
+            readPipeliner.close();
+        }
+    }
+    
     protected RedisClient getRedisClient() {
         long start = System.currentTimeMillis();
         RedisClient jedis = getPool().getResource();
         start = CacheLogger.logSlow(start, "get connection");
         return jedis;
     }
+    
+    /**
+     * 只读命令的连接，开启从节点读时按readFrom选择节点，当前线程刚写入过的key仍读主节点
+     * @param key
+     * @return
+     */
+    protected RedisClient getReadClient(String key) {
+        if (readGuard == null || readGuard.isRecent(key)) {
+            return getRedisClient();
+        }
+        long start = System.currentTimeMillis();
+        RedisClient jedis = getPool().getReadResource();
+        CacheLogger.logSlow(start, "get connection");
+        return jedis;
+    }
+    
+    /**
+     * @param keys
+     * @return 只读命令的连接，任一key刚写入过时读主节点
+     */
+    protected RedisClient getReadClient(Collection<String> keys) {
+        if (readGuard == null || readGuard.isRecent(keys)) {
+            return getRedisClient();
+        }
+        long start = System.currentTimeMillis();
+        RedisClient jedis = getPool().getReadResource();
+        CacheLogger.logSlow(start, "get connection");
+        return jedis;
+    }
+    
+    /**
+     * @param key
+     * @return 读key使用的自动合并pipeline
+     */
+    private AutoPipeliner readPipeliner(String key) {
+        return readPipeliner != null && !readGuard.isRecent(key) ? readPipeliner : autoPipeliner;
+    }
 
     @Override
     public Long expire(String key, int seconds) {
+        rejectBucketed(key);
         try (RedisClient jedis = getRedisClient()) {
             return jedis.expire(key, seconds);
+        } finally {
+            recordWrite(key);
         }
     }
     
     @Override
     protected byte[] getBytes(String key) {
-        try (RedisClient jedis = getRedisClient()) {
+        if (isBucketed(key)) {
+            String value = (String) bucketGet(key);
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+        if (autoPipeliner != null) {
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            byte[] value = readPipeliner(key).execute(p -> p.get(key.getBytes(StandardCharsets.UTF_8)));
+            CacheLogger.logSlow(start, "get", key);
+            recordLatency(Operation.GET, key, startNanos);
+            return value;
+        }
+        try (RedisClient jedis = getReadClient(key)) {
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             byte[] value = jedis.get(key.getBytes(StandardCharsets.UTF_8));
             CacheLogger.logSlow(start, "get", key);
+            recordLatency(Operation.GET, key, startNanos);
             return value;
         }
     }
 
     @Override
     protected String getInner(String key) {
-        try (RedisClient jedis = getRedisClient()) {
+        if (isBucketed(key)) {
+            return (String) bucketGet(key);
+        }
+        // 按字节读取，字节格式的压缩值按字符串读取会被UTF-8解码破坏
+        if (autoPipeliner != null) {
             long start = System.currentTimeMillis();
-            String value = jedis.get(key);
+            long startNanos = System.nanoTime();
+            byte[] value = readPipeliner(key).execute(p -> p.get(key.getBytes(StandardCharsets.UTF_8)));
             CacheLogger.logSlow(start, "get", key);
-            return value;
+            recordLatency(Operation.GET, key, startNanos);
+            return ValueCompressor.toText(value);
+        }
+        try (RedisClient jedis = getReadClient(key)) {
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            byte[] value = jedis.get(key.getBytes(StandardCharsets.UTF_8));
+            CacheLogger.logSlow(start, "get", key);
+            recordLatency(Operation.GET, key, startNanos);
+            return ValueCompressor.toText(value);
         }
     }
+    
+    /**
+     * 多key命令没有按字节读取的方法，UTF-8解码后以U+FFFD开头的值为字节格式的压缩值（0xFF不是合法UTF-8），需按字节重新读取
+     * @param value
+     * @return
+     */
+    private static boolean isBinaryValue(String value) {
+        return value != null && !value.isEmpty() && value.charAt(0) == '\uFFFD';
+    }
 
     @Override
-    protected List<String> mGetInner(Collection<String> keys) {
+    protected List<KeyScanner.Node> scanNodes() {
+        return getPool().getMasterPools().stream().map(KeyScanner::node).collect(Collectors.toList());
+    }
+
+    @Override
+    protected long unlinkKeys(List<String> keys) {
         try (RedisClient jedis = getRedisClient()) {
+            Long num = jedis.unlink(keys.toArray(new String[keys.size()]));
+            return num != null ? num : 0;
+        }
+    }
+
+    @Override
+    protected long expireKeys(List<String> keys, int seconds) {
+        try (RedisClient jedis = getRedisClient();
+                RedisPipeline pipelined = jedis.pipelined();) {
+            List<Response<Long>> responses = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                responses.add(pipelined.expire(key, seconds));
+            }
+            pipelined.sync();
+            return responses.stream().map(Response::get).filter(r -> r != null && r > 0).count();
+        }
+    }
+
+    @Override
+    protected void setBits(Map<String, long[]> bits) {
+        try (RedisClient jedis = getRedisClient();
+                RedisPipeline pipelined = jedis.pipelined();) {
+            bits.forEach((key, offsets) -> {
+                for (long offset : offsets) {
+                    pipelined.setbit(key, offset, true);
+                }
+            });
+            pipelined.sync();
+        }
+    }
+
+    @Override
+    protected boolean[] getBits(String key, long[] offsets) {
+        try (RedisClient jedis = getRedisClient();
+                RedisPipeline pipelined = jedis.pipelined();) {
+            List<Response<Boolean>> responses = new ArrayList<>(offsets.length);
+            for (long offset : offsets) {
+                responses.add(pipelined.getbit(key, offset));
+            }
+            pipelined.sync();
+            boolean[] result = new boolean[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                result[i] = Boolean.TRUE.equals(responses.get(i).get());
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> cls) {
+        if (isNearCached(key)) {
+            return super.get(key, cls);
+        }
+        // 直接从响应字节反序列化，不经过中间字符串
+        @SuppressWarnings("unchecked")
+        T value = (T) get(key, buff -> deserializeObject(buff, cls));
+        return value;
+    }
+
+    @Override
+    public <T> T get(String key, TypeReference<T> type) {
+        if (isNearCached(key)) {
+            return super.get(key, type);
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) get(key, buff -> deserializeObject(buff, type));
+        return value;
+    }
+
+    @Override
+    protected List<String> mGetInner(Collection<String> keys) {
+        long startNanos = System.nanoTime();
+        try (RedisClient jedis = getReadClient(keys)) {
             List<String> values = jedis.mget(keys.toArray(new String[keys.size()]));
+            if (values != null && values.stream().anyMatch(JedisSimpleApiImpl::isBinaryValue)) {
+                values = new ArrayList<>(values);
+                Iterator<String> it = keys.iterator();
+                for (int i = 0; i < values.size(); i++) {
+                    String key = it.next();
+                    if (isBinaryValue(values.get(i))) {
+                        values.set(i, ValueCompressor.toText(jedis.get(key.getBytes(StandardCharsets.UTF_8))));
+                    }
+                }
+            }
+            if (!keys.isEmpty()) {
+                recordLatency(Operation.BATCH, keys.iterator().next(), startNanos);
+            }
             return values;
         }
     }
     
     @Override
     public boolean exists(String key) {
-        try (RedisClient jedis = getRedisClient()) {
-            Boolean exists = jedis.exists(key);
-            updateCacheStatsInfo(key, exists);
-            return exists;
+        Boolean exists;
+        if (isBucketed(key)) {
+            try (RedisClient jedis = getReadClient(key)) {
+                exists = jedis.hexists(hashBuckets.bucketKey(key), HashBuckets.field(key));
+            }
+        } else if (autoPipeliner != null) {
+            exists = readPipeliner(key).execute(p -> p.exists(key));
+        } else {
+            try (RedisClient jedis = getReadClient(key)) {
+                exists = jedis.exists(key);
+            }
         }
+        updateCacheStatsInfo(key, exists);
+        return exists;
     }
     
     @Override
@@ -174,17 +387,32 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         if (value == null) {
             return null;
         }
+        if (isBucketed(key)) {
+            return bucketSet(key, finalExpireSeconds, value, valueClass);
+        }
+        if (autoPipeliner != null) {
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            String result = autoPipeliner.execute(p -> finalExpireSeconds > 0 ? p.setex(key, finalExpireSeconds, value)
+                    : p.set(key, value));
+            CacheLogger.logSlow(start, "set", key);
+            recordLatency(Operation.SET, key, startNanos);
+            return result;
+        }
         try (RedisClient jedis = getRedisClient()) {
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             String result = finalExpireSeconds > 0 ? jedis.setex(key, finalExpireSeconds, value)
                     : jedis.set(key, value);
             CacheLogger.logSlow(start, "set", key);
+            recordLatency(Operation.SET, key, startNanos);
             return result;
         }
     }
 
     @Override
     public <T> String set(String key, int expires, TimeUnit unit, Boolean nxOrXx, T value) {
+        rejectBucketed(key);
         String realValue;
         int ttl = genExpireSeconds(Long.valueOf(unit.toSeconds(expires)).intValue());
         if (value == null && this.cacheNull) {
@@ -198,17 +426,34 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         }
         try (RedisClient jedis = getRedisClient()) {
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             String result = null;
             boolean nx = Boolean.TRUE.equals(nxOrXx);
             boolean xx = Boolean.FALSE.equals(nxOrXx);
             result = jedis.set(key, ttl, realValue, nx, xx);
             CacheLogger.logSlow(start, "set", key);
+            recordLatency(Operation.SET, key, startNanos);
+            if (result != null) {
+                invalidateNearCache(key);
+                if (value != null) {
+                    bloomAdd(key);
+                }
+            }
             return result;
         }
     }
 
+    @Override
+    public <T> String set(String key, int expireSeconds, T value) {
+        if (isBucketed(key)) {
+            return super.set(key, expireSeconds, value);
+        }
+        return set(key, expireSeconds, value, this::serializeObjectBytes);
+    }
+
     @Override
     public String set(String key, int expireSeconds, Object value, Function<Object, byte[]> encoder) {
+        rejectBucketed(key);
         byte[] realValue;
         int ttl = genExpireSeconds(expireSeconds);
         if (value == null && this.cacheNull) {
@@ -220,11 +465,32 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         if (realValue == null) {
             return null;
         }
+        if (autoPipeliner != null) {
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            byte[] finalValue = realValue;
+            int finalTTL = ttl;
+            String result = autoPipeliner.execute(p -> finalTTL > 0 ? p.setex(key.getBytes(StandardCharsets.UTF_8), finalTTL, finalValue)
+                    : p.set(key.getBytes(StandardCharsets.UTF_8), finalValue));
+            CacheLogger.logSlow(start, "set", key);
+            recordLatency(Operation.SET, key, startNanos);
+            invalidateNearCache(key);
+            if (value != null) {
+                bloomAdd(key);
+            }
+            return result;
+        }
         try (RedisClient jedis = getRedisClient()) {
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             String result = ttl > 0 ? jedis.setex(key.getBytes(StandardCharsets.UTF_8), ttl, realValue)
                     : jedis.set(key.getBytes(StandardCharsets.UTF_8), realValue);
             CacheLogger.logSlow(start, "set", key);
+            recordLatency(Operation.SET, key, startNanos);
+            invalidateNearCache(key);
+            if (value != null) {
+                bloomAdd(key);
+            }
             return result;
         }
     }
@@ -232,28 +498,90 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     @Override
     public Long incr(String key) {
         try (RedisClient jedis = getRedisClient()) {
+            if (isBucketed(key)) {
+                return jedis.hincrBy(hashBuckets.bucketKey(key), HashBuckets.field(key), 1);
+            }
             return jedis.incr(key);
+        } finally {
+            invalidateNearCache(key);
         }
     }
 
     @Override
     public Long decr(String key) {
         try (RedisClient jedis = getRedisClient()) {
+            if (isBucketed(key)) {
+                return jedis.hincrBy(hashBuckets.bucketKey(key), HashBuckets.field(key), -1);
+            }
             return jedis.decr(key);
+        } finally {
+            invalidateNearCache(key);
         }
     }
 
     @Override
     public Long decrMin(String key, long min) {
         try (RedisClient jedis = getRedisClient()) {
-            synchronized (this) {
-                Long value = Optional.ofNullable(jedis.get(key)).filter(Objects::nonNull).map(Long::valueOf).orElse(null);
-                if (value != null && value > min) {
-                    return jedis.decr(key);
-                }
+            if (isBucketed(key)) {
+                return (Long) HDECR_MIN.execute(jedis, Collections.singletonList(hashBuckets.bucketKey(key)),
+                    Arrays.asList(HashBuckets.field(key), String.valueOf(min)));
+            }
+            return (Long) DECR_MIN.execute(jedis, Collections.singletonList(key),
+                Collections.singletonList(String.valueOf(min)));
+        } finally {
+            invalidateNearCache(key);
+        }
+    }
+
+    @Override
+    public <T> T getAndExpire(String key, int expireSeconds, Class<T> cls) {
+        rejectBucketed(key);
+        long startNanos = System.nanoTime();
+        String value;
+        try (RedisClient jedis = getRedisClient()) {
+            value = (String) GET_AND_EXPIRE.execute(jedis, Collections.singletonList(key),
+                Collections.singletonList(String.valueOf(expireSeconds)));
+            if (isBinaryValue(value)) {
+                value = ValueCompressor.toText(jedis.get(key.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        recordLatency(Operation.GET, key, startNanos);
+        updateCacheStatsInfo(key, value != null);
+        return value == null || VALUE_NULL.equals(value) ? null : deserializeObject(value, cls);
+    }
+
+    @Override
+    public boolean compareAndDelete(String key, String expectedValue) {
+        Long num;
+        try (RedisClient jedis = getRedisClient()) {
+            num = (Long) COMPARE_AND_DELETE.execute(jedis, Collections.singletonList(key),
+                Collections.singletonList(expectedValue));
+        }
+        if (num != null && num > 0) {
+            invalidateNearCache(key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected Long compareAndSetInner(String key, long expectedVersion, String payload, int expireSeconds) {
+        try (RedisClient jedis = getRedisClient()) {
+            return (Long) COMPARE_AND_SET.execute(jedis, Collections.singletonList(key),
+                Arrays.asList(String.valueOf(expectedVersion), payload, String.valueOf(expireSeconds)));
+        }
+    }
+
+    @Override
+    public Object eval(LuaScript script, List<String> keys, List<String> args) {
+        try (RedisClient jedis = getRedisClient()) {
+            return script.execute(jedis, keys, args);
+        } finally {
+            // 脚本可能修改keys
+            if (keys != null) {
+                recordWrite(keys.toArray(new String[keys.size()]));
             }
         }
-        return 0L;
     }
 
     /**
@@ -261,17 +589,12 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
      * @param keys
      */
     @Override
-    public Long del(String... keys) {
-        Long num = 0L;
+    protected Long delInner(String... keys) {
         try (RedisClient jedis = getRedisClient()) {
-            if (jedis instanceof JedisClusterClient) {
-                for (String key: keys) {
-                    num += jedis.del(key);
-                }
-                return num;
-            } else {
-                return jedis.del(keys);
-            }
+            // 集群模式由client按节点分组执行
+            return jedis.del(keys);
+        } finally {
+            invalidateNearCache(keys);
         }
     }
 
@@ -284,6 +607,8 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     public Long hdel(String key, String... fields) {
         try (RedisClient jedis = getRedisClient()) {
             return jedis.hdel(key, fields);
+        } finally {
+            invalidateNearCache(key);
         }
     }
     
@@ -295,61 +620,80 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
      */
     @Override
     public String hget(String key, String field) {
-        try (RedisClient jedis = getRedisClient()) {
-            String value = jedis.hget(key, field);
-            updateCacheStatsInfo(key, value != null);
-            if (value == null || VALUE_NULL.equals(value)) {
-                return null;
-            }
-            return value;
+        String value = hashFieldPayload(hGetInner(key, field));
+        updateCacheStatsInfo(key, value != null);
+        if (value == null || VALUE_NULL.equals(value)) {
+            return null;
         }
+        return ValueCompressor.decompress(value);
     }
 
     @Override
     public <T> T hget(String key, String field, Function<byte[], Object> decoder) {
-        try (RedisClient jedis = getRedisClient()) {
-            byte[] buff = jedis.hget(key.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8));
-            updateCacheStatsInfo(key, buff != null);
-            if (buff == null || Arrays.equals(VALUE_NULL_BYTES, buff)) {
-                return null;
+        long startNanos = System.nanoTime();
+        byte[] buff;
+        if (autoPipeliner != null) {
+            buff = readPipeliner(key).execute(p -> p.hget(key.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8)));
+        } else {
+            try (RedisClient jedis = getReadClient(key)) {
+                buff = jedis.hget(key.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8));
             }
-            @SuppressWarnings("unchecked")
-            T result = (T) decoder.apply(buff);
-            return result;
         }
+        recordLatency(Operation.GET, key, startNanos);
+        if (CacheEnvelope.isWrapped(buff)) {
+            String payload = hashFieldPayload(new String(buff, StandardCharsets.UTF_8));
+            buff = payload == null ? null : payload.getBytes(StandardCharsets.UTF_8);
+        }
+        updateCacheStatsInfo(key, buff != null);
+        if (buff == null || Arrays.equals(VALUE_NULL_BYTES, buff)) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) decoder.apply(ValueCompressor.decompress(buff));
+        return result;
     }
     
     @Override
     protected String hGetInner(String key, String field) {
-        try (RedisClient jedis = getRedisClient()) {
-            String value = jedis.hget(key, field);
-            return value;
+        long startNanos = System.nanoTime();
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        byte[] rawField = field.getBytes(StandardCharsets.UTF_8);
+        if (autoPipeliner != null) {
+            byte[] value = readPipeliner(key).execute(p -> p.hget(rawKey, rawField));
+            recordLatency(Operation.GET, key, startNanos);
+            return ValueCompressor.toText(value);
+        }
+        try (RedisClient jedis = getReadClient(key)) {
+            byte[] value = jedis.hget(rawKey, rawField);
+            recordLatency(Operation.GET, key, startNanos);
+            return ValueCompressor.toText(value);
         }
     }
 
     @Override
     public <T> T hget(String key, String field, TypeReference<T> type) {
-        try (RedisClient jedis = getRedisClient()) {
-            String value = jedis.hget(key, field);
-            updateCacheStatsInfo(key, value != null);
-            if (value == null || VALUE_NULL.equals(value)) {
-                return null;
-            }
-            T objValue = deserializeObject(value, type);
-            return objValue;
-        }
+        return hget(key, field, buff -> deserializeObject(buff, type));
     }
 
     @Override
     public <T> Map<String, T> hgetAll(String key, Class<T> cls) {
-        try (RedisClient jedis = getRedisClient()) {
+        try (RedisClient jedis = getReadClient(key)) {
             Map<String, T> result = null;
-            Map<String, String> mapData = jedis.hgetAll(key);
+            Map<byte[], byte[]> mapData = jedis.hgetAll(key.getBytes(StandardCharsets.UTF_8));
             if (mapData != null) {
                 Map<String, T> map = new LinkedHashMap<>((int)(mapData.size() / 0.75 + 1));
                 mapData.forEach((field,v)->{
-                    T value = deserializeObject(v, cls);
-                    map.put(field, value);
+                    byte[] raw = v;
+                    if (CacheEnvelope.isWrapped(v)) {
+                        String payload = hashFieldPayload(new String(v, StandardCharsets.UTF_8));
+                        if (payload == null) {
+                            // 字段已过期
+                            return;
+                        }
+                        raw = payload.getBytes(StandardCharsets.UTF_8);
+                    }
+                    T value = Arrays.equals(VALUE_NULL_BYTES, raw) ? null : deserializeObject(raw, cls);
+                    map.put(new String(field, StandardCharsets.UTF_8), value);
                 });
                 result = map;
             }
@@ -367,26 +711,7 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
      */
     @Override
     public <T> Long hset(String key, String field, int expireSeconds, T value) {
-        String realValue;
-        int ttl = genExpireSeconds(expireSeconds);
-        if (value == null && this.cacheNull) {
-            realValue = VALUE_NULL;
-            ttl = genExpireSeconds(nullCacheTTL);
-        } else {
-            realValue = value == null ? null : serializeObject(value);
-        }
-        if (realValue == null) {
-            return null;
-        }
-        try (RedisClient jedis = getRedisClient()) {
-            long start = System.currentTimeMillis();
-            Long result = jedis.hset(key, field, realValue);
-            if (ttl > 0) {
-                jedis.expire(key, ttl);
-            }
-            CacheLogger.logSlow(start, "hset", key, field);
-            return result;
-        }
+        return hset(key, field, expireSeconds, value, this::serializeObjectBytes);
     }
 
     @Override
@@ -404,12 +729,19 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         }
         try (RedisClient jedis = getRedisClient()) {
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             Long result = jedis.hset(key.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8), buff);
             if (ttl > 0) {
                 jedis.expire(key, ttl);
             }
             CacheLogger.logSlow(start, "hset", key, field);
+            recordLatency(Operation.SET, key, startNanos);
+            if (value != null) {
+                bloomAdd(key + "." + field);
+            }
             return result;
+        } finally {
+            invalidateNearCache(key);
         }
     }
     
@@ -422,7 +754,7 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     
     @Override
     public Set<String> smembers(String key) {
-        try (RedisClient jedis = getRedisClient()) {
+        try (RedisClient jedis = getReadClient(key)) {
             return jedis.smembers(key);
         }
     }
@@ -431,6 +763,8 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     public Long sadd(String key, String... member) {
         try (RedisClient jedis = getRedisClient()) {
             return jedis.sadd(key, member);
+        } finally {
+            recordWrite(key);
         }
     }
     
@@ -438,6 +772,8 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     public Long srem(String key, String... member) {
         try (RedisClient jedis = getRedisClient()) {
             return jedis.srem(key, member);
+        } finally {
+            recordWrite(key);
         }
     }
 
@@ -453,6 +789,8 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
         try (RedisClient jedis = getRedisClient()) {
             Set<String> set = jedis.spop(key, 1);
             return set.isEmpty() ? null : set.iterator().next();
+        } finally {
+            recordWrite(key);
         }
     }
 
@@ -467,6 +805,8 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     public Long zadd(String key, double score, String member) {
         try (RedisClient jedis = getRedisClient()) {
             return jedis.zadd(key, score, member);
+        } finally {
+            recordWrite(key);
         }
     }
 
@@ -474,12 +814,14 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     public Long zrem(String key, String... member) {
         try (RedisClient jedis = getRedisClient()) {
             return jedis.zrem(key, member);
+        } finally {
+            recordWrite(key);
         }
     }
 
     @Override
     public Collection<String> zrange(String key, long start, long stop) {
-        try (RedisClient jedis = getRedisClient()) {
+        try (RedisClient jedis = getReadClient(key)) {
             return jedis.zrange(key, start, stop);
         }
     }
@@ -492,149 +834,280 @@ public class JedisSimpleApiImpl extends AbstractRedisSimpleApi implements RedisS
     }
 
     @Override
-    public <K,T> Map<K, T> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper, Class<T> cls) {
-        try (RedisClient jedis = getRedisClient(); 
+    public <T> Stream<Map.Entry<String, T>> hscan(String key, int count, Class<T> cls) {
+        ScanParams params = new ScanParams().count(count);
+        // 每页单独借还连接，流不占用连接
+        return PagedStream.scan(cursor -> {
+            try (RedisClient jedis = getRedisClient()) {
+                return jedis.hscan(key, cursor, params);
+            }
+        }).<Map.Entry<String, T>>map(entry -> {
+            String value = isBinaryValue(entry.getValue()) ? hGetInner(key, entry.getKey()) : entry.getValue();
+            String payload = hashFieldPayload(value);
+            if (payload == null) {
+                return null;
+            }
+            return new SimpleImmutableEntry<>(entry.getKey(), VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls));
+        }).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<String> sscan(String key, int count) {
+        ScanParams params = new ScanParams().count(count);
+        return PagedStream.scan(cursor -> {
+            try (RedisClient jedis = getRedisClient()) {
+                return jedis.sscan(key, cursor, params);
+            }
+        });
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Double>> zscan(String key, int count) {
+        ScanParams params = new ScanParams().count(count);
+        return PagedStream.scan(cursor -> {
+            try (RedisClient jedis = getRedisClient()) {
+                return jedis.zscan(key, cursor, params);
+            }
+        }).map(tuple -> new SimpleImmutableEntry<>(tuple.getElement(), tuple.getScore()));
+    }
+
+    @Override
+    protected List<Map.Entry<String, Double>> zrangeByScorePage(String key, double min, double max, int offset,
+            int count) {
+        try (RedisClient jedis = getRedisClient()) {
+            Set<Tuple> tuples = jedis.zrangeByScoreWithScores(key, min, max, offset, count);
+            if (tuples == null) {
+                return null;
+            }
+            return tuples.stream().map(tuple -> new SimpleImmutableEntry<>(tuple.getElement(), tuple.getScore()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    protected List<String> batchGetRaw(List<String> cacheKeys) {
+        try (RedisClient jedis = getReadClient(cacheKeys); 
                 RedisPipeline pipelined = jedis.pipelined();) {
-            Map<K, Response<String>> pipResponses = new HashMap<>((int)(oriKeys.size()/0.75 + 1));
-            for (K key: oriKeys) {
-                String cacheKey = cacheKeyMapper.apply(key);
-                Response<String> response = pipelined.get(cacheKey);
-                pipResponses.put(key, response);
+            List<Response<byte[]>> responses = new ArrayList<>(cacheKeys.size());
+            for (String cacheKey: cacheKeys) {
+                responses.add(pipelined.get(cacheKey.getBytes(StandardCharsets.UTF_8)));
             }
             pipelined.sync();
-            Map<K, T> result = new LinkedHashMap<>((int)(oriKeys.size()/0.75 + 1));
-            for (K key: oriKeys) {
-                String value = pipResponses.get(key).get();
-                updateCacheStatsInfo(key, value != null);
-                if (value == null || VALUE_NULL.equals(value)) {
-                    continue;
-                }
-                T objValue = deserializeObject(value, cls);
-                result.put(key, objValue);
+            return responses.stream().map(r -> ValueCompressor.toText(r.get())).collect(Collectors.toList());
+        }
+    }
+    
+    @Override
+    protected <T> T decodeRaw(Object raw, Class<T> cls) {
+        return deserializeObject((String) raw, cls);
+    }
+    
+    @Override
+    protected <T> T decodeRaw(Object raw, TypeReference<T> type) {
+        return deserializeObject((String) raw, type);
+    }
+    
+    @Override
+    protected List<List<String>> bucketGetRaw(List<String> bucketKeys, List<List<String>> fields) {
+        try (RedisClient jedis = getRedisClient(); 
+                RedisPipeline pipelined = jedis.pipelined();) {
+            List<Response<List<String>>> responses = new ArrayList<>(bucketKeys.size());
+            for (int i = 0; i < bucketKeys.size(); i++) {
+                responses.add(pipelined.hmget(bucketKeys.get(i), toFieldArray(fields.get(i))));
             }
-            return result;
+            pipelined.sync();
+            return responses.stream().map(Response::get).collect(Collectors.toList());
         }
     }
     
     @Override
-    public <K,T> int batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper, int expireSeconds) {
+    protected void bucketSetRaw(List<String> bucketKeys, List<List<BatchSetEntry>> entries) {
         try (RedisClient jedis = getRedisClient(); 
                 RedisPipeline pipelined = jedis.pipelined();) {
-            int num = 0;
-            for (Map.Entry<K, T> en: datas.entrySet()) {
-                String cacheKey = cacheKeyMapper.apply(en.getKey());
-                T value = en.getValue();
-                String realValue = serializeObject(value);
-                int ttl = genExpireSeconds(expireSeconds);
-                if (realValue == null && this.cacheNull) {
-                    realValue = VALUE_NULL;
-                    ttl = genExpireSeconds(nullCacheTTL);
+            List<Response<Object>> responses = new ArrayList<>(bucketKeys.size());
+            for (int i = 0; i < bucketKeys.size(); i++) {
+                List<String> args = new ArrayList<>(entries.get(i).size() * 2 + 1);
+                int ttl = 0;
+                // ARGV[1]为ttl，写完字段后填入
+                args.add("0");
+                for (BatchSetEntry entry : entries.get(i)) {
+                    args.add(entry.getKey());
+                    args.add(entry.getValue());
+                    ttl = Math.max(ttl, entry.getTtl());
                 }
-                if (realValue == null) {
-                    continue;
-                }
-                pipelined.setex(cacheKey, ttl, realValue);
-                num ++;
+                args.set(0, String.valueOf(ttl));
+                responses.add(pipelined.eval(BUCKET_SET.getSource(), Collections.singletonList(bucketKeys.get(i)), args));
             }
             pipelined.sync();
-            return num;
+            // 执行出错时抛出
+            responses.forEach(Response::get);
         }
     }
     
-
     @Override
-    public <K,T> Map<K, T> hBatchGet(String key, Collection<K> fields, Class<T> cls) {
+    protected void batchSetRaw(List<BatchSetEntry> entries) {
         try (RedisClient jedis = getRedisClient(); 
                 RedisPipeline pipelined = jedis.pipelined();) {
-            Map<K, Response<String>> pipResponses = new HashMap<>((int)(fields.size()/0.75 + 1));
-            for (K field: fields) {
-                Response<String> response = pipelined.hget(key, String.valueOf(field));
-                pipResponses.put(field, response);
+            for (BatchSetEntry entry: entries) {
+                pipelined.setex(entry.getKey(), entry.getTtl(), entry.getValue());
             }
             pipelined.sync();
-            Map<K, T> result = new LinkedHashMap<>((int)(fields.size()/0.75 + 1));
-            for (K field: fields) {
-                String value = pipResponses.get(field).get();
+        }
+    }
+    
+
+    @Override
+    public <K,T> Map<K, T> hBatchGet(String key, Collection<K> fields, Class<T> cls) {
+        if (fields.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        long startNanos = System.nanoTime();
+        List<K> fieldList = new ArrayList<>(fields);
+        List<String> values = new ArrayList<>(fieldList.size());
+        try (RedisClient jedis = getRedisClient()) {
+            List<List<K>> chunks = partition(fieldList, hashBatchChunkSize);
+            if (chunks.size() == 1) {
+                values.addAll(jedis.hmget(key, toFieldArray(chunks.get(0))));
+            } else {
+                try (RedisPipeline pipelined = jedis.pipelined()) {
+                    List<Response<List<String>>> responses = new ArrayList<>(chunks.size());
+                    for (List<K> chunk : chunks) {
+                        responses.add(pipelined.hmget(key, toFieldArray(chunk)));
+                    }
+                    pipelined.sync();
+                    responses.forEach(response -> values.addAll(response.get()));
+                }
+            }
+            recordLatency(Operation.BATCH, key, startNanos);
+            Map<K, T> result = new LinkedHashMap<>((int)(fieldList.size()/0.75 + 1));
+            List<String> expired = new ArrayList<>();
+            for (int i = 0; i < fieldList.size(); i++) {
+                String value = values.get(i);
+                if (isBinaryValue(value)) {
+                    value = ValueCompressor.toText(jedis.hget(key.getBytes(StandardCharsets.UTF_8),
+                        String.valueOf(fieldList.get(i)).getBytes(StandardCharsets.UTF_8)));
+                }
+                if (value != null && isFieldExpired(value)) {
+                    expired.add(String.valueOf(fieldList.get(i)));
+                    expired.add(value);
+                    value = null;
+                }
                 updateCacheStatsInfo(key, value != null);
-                if (value == null || VALUE_NULL.equals(value)) {
+                String payload = hashFieldPayload(value);
+                if (payload == null || VALUE_NULL.equals(payload)) {
                     continue;
                 }
-                T objValue = deserializeObject(value, cls);
-                result.put(field, objValue);
+                result.put(fieldList.get(i), deserializeObject(payload, cls));
+            }
+            if (!expired.isEmpty()) {
+                HDEL_IF_EQUALS.execute(jedis, Collections.singletonList(key), expired);
             }
             return result;
         }
     }
 
+    private static <K> String[] toFieldArray(List<K> fields) {
+        return fields.stream().map(String::valueOf).toArray(String[]::new);
+    }
+
     @Override
-    public <K,T> int hBatchSet(String hashKey, Map<K, T> datas) {
-        try (RedisClient jedis = getRedisClient(); 
-                RedisPipeline pipelined = jedis.pipelined();) {
-            int num = 0;
-            for (Map.Entry<K, T> en: datas.entrySet()) {
-                String field = String.valueOf(en.getKey());
-                T value = en.getValue();
-                String realValue;
-                if (value == null && this.cacheNull) {
-                    realValue = VALUE_NULL;
-                } else {
-                    realValue = serializeObject(value);
-                }
-                if (realValue == null) {
-                    continue;
+    public <K,T> int hBatchSet(String hashKey, Map<K, T> datas, int fieldExpireSeconds) {
+        long startNanos = System.nanoTime();
+        Map<String, String> values = toHashValues(datas, fieldExpireSeconds);
+        if (values.isEmpty()) {
+            return 0;
+        }
+        try (RedisClient jedis = getRedisClient()) {
+            List<List<Map.Entry<String, String>>> chunks = partition(new ArrayList<>(values.entrySet()), hashBatchChunkSize);
+            try (RedisPipeline pipelined = jedis.pipelined()) {
+                for (List<Map.Entry<String, String>> chunk : chunks) {
+                    Map<String, String> hash = new LinkedHashMap<>((int)(chunk.size()/0.75 + 1));
+                    chunk.forEach(en -> hash.put(en.getKey(), en.getValue()));
+                    pipelined.hset(hashKey, hash);
                 }
-                pipelined.hset(hashKey, field, realValue);
-                num ++;
+                pipelined.sync();
             }
-            pipelined.sync();
-            return num;
+            if (fieldExpireSeconds > 0) {
+                EXTEND_EXPIRE.execute(jedis, Collections.singletonList(hashKey),
+                    Collections.singletonList(String.valueOf(fieldExpireSeconds)));
+            }
+            recordLatency(Operation.BATCH, hashKey, startNanos);
+            bloomAddFields(hashKey, datas);
+            return values.size();
+        } finally {
+            invalidateNearCache(hashKey);
         }
     }
 
-    /**
-     * 释放锁的脚本，仅释放自己持有的锁
-     */
-//    private final static String LOCK_CLOSE_LUA = 
-//            "local lockId = redis.call('get', KEYS[1]);"
-//            + "if (lockId == ARGV[1]) then "
-//            + " redis.call('del', KEYS[1]);"
-//            + "end;";
-    
-    protected CloseableLock createLock(String key, String instanceName) {
-        CloseableLock lock = new CloseableLock() {
+    @Override
+    public Long publish(String channel, String message) {
+        try (RedisClient jedis = getRedisClient()) {
+            return jedis.publish(channel, message);
+        }
+    }
+
+    @Override
+    public CloseableSubscription subscribe(String channel, Consumer<String> listener, Runnable onSubscribed) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        JedisPubSub pubSub = new JedisPubSub() {
             @Override
-            public void close() {
-                try (RedisClient jedis = getRedisClient()){
-//                    if (luaEnabled) {
-//                        jedis.eval(LOCK_CLOSE_LUA, Arrays.asList(key), Arrays.asList(instanceName));
-//                    } else {
-                        synchronized (this) {
-                            if (instanceName.equals(jedis.get(key))) {
-                                jedis.del(key);
-                            }
-                        }
-//                    }
+            public void onMessage(String ch, String message) {
+                try {
+                    listener.accept(message);
+                } catch (Exception e) {
+                    log.warn("handle message of channel {} fail! message={}", ch, message, e);
+                }
+            }
+            
+            @Override
+            public void onSubscribe(String ch, int subscribedChannels) {
+                if (onSubscribed == null) {
+                    return;
+                }
+                try {
+                    onSubscribed.run();
+                } catch (Exception e) {
+                    log.warn("handle subscribed of channel {} fail!", ch, e);
                 }
             }
         };
-        return lock;
-    }
-    
-    @Override
-    protected synchronized CloseableLock tryLockOnce(String key, String instanceName, int expreMillis) {
-        try (RedisClient jedis = getRedisClient()){
-            // already current instance
-            String currInstance = jedis.get(key);
-            if (instanceName.equals(currInstance)) {
-                return createLock(key, instanceName);
+        // 订阅会独占连接并阻塞，使用独立线程，断开后重新订阅
+        Thread subscribeThread = new Thread(() -> {
+            while (!closed.get()) {
+                try (RedisClient jedis = getRedisClient()) {
+                    jedis.subscribe(pubSub, channel);
+                } catch (Exception e) {
+                    if (closed.get()) {
+                        break;
+                    }
+                    log.warn("subscribe channel {} fail, retry later! error:{}", channel, e.getMessage());
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e1) {
+                        break;
+                    }
+                }
             }
-            // try lock
-            String result = jedis.set(key, expreMillis / 1000, instanceName, true, false);
-            if (result != null) {
-                return createLock(key, instanceName);
+        });
+        subscribeThread.setName("RedisSubscriber-" + channel);
+        subscribeThread.setDaemon(true);
+        subscribeThread.start();
+        return () -> {
+            closed.set(true);
+            if (pubSub.isSubscribed()) {
+                pubSub.unsubscribe();
             }
+            subscribeThread.interrupt();
+        };
+    }
+
+    @Override
+    protected boolean setLease(String key, String instanceName, int expreMillis) {
+        try (RedisClient jedis = getRedisClient()) {
+            Object result = SET_LEASE.execute(jedis, Collections.singletonList(key),
+                Arrays.asList(instanceName, String.valueOf(expreMillis)));
+            return result instanceof Long && (Long) result > 0;
         }
-        return null;
     }
 
 }
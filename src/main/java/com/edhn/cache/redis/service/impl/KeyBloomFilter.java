@@ -0,0 +1,392 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.edhn.cache.redis.configuration.modal.BloomFilterConfig;
+import com.edhn.cache.redis.nearcache.NearCache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * KeyBloomFilter
+ * 按区域记录存在的key的布隆过滤器，位图保存在redis中（setbit），本地保留一份副本用于判断，定时从redis同步
+ * 区域标记就绪（已包含全部存在的key）后才用于判断不存在，未就绪时只记录不判断；
+ * 本地判断不存在即返回，不访问redis，其他进程新增的key最多在一个同步间隔后可见；本地副本超过同步间隔未同步时
+ * 再用getbit向redis确认；写redis失败的位保留在本地，同步时重发
+ * 位图key包含位数和哈希函数个数，配置不同的进程使用各自的位图和就绪标记，不会按不同的位置判断
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class KeyBloomFilter {
+
+    /**
+     * redis字符串最大512MB
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    /**
+     * 同步间隔的纳秒数
+     */
+    private final long syncNanos;
+
+    private final AbstractRedisSimpleApi redisApi;
+
+    @Getter
+    private final BloomFilterConfig config;
+
+    private final Map<String, Filter> filters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public KeyBloomFilter(AbstractRedisSimpleApi redisApi, BloomFilterConfig config) {
+        this.redisApi = redisApi;
+        this.config = config;
+        this.syncNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getSyncSeconds()));
+        long maxBits = Math.max(64, Math.min(MAX_BITS, config.getMaxBits()));
+        config.getNamespaces().forEach((ns, nsConfig) -> {
+            long expected = nsConfig != null && nsConfig.getExpectedInsertions() != null ? nsConfig.getExpectedInsertions()
+                    : config.getExpectedInsertions();
+            double fpp = nsConfig != null && nsConfig.getFpp() != null ? nsConfig.getFpp() : config.getFpp();
+            Filter filter = new Filter(ns, expected, fpp, maxBits);
+            if (filter.capped) {
+                log.warn("bloom filter of namespace {} capped to {} bits, false positive rate will exceed {}", ns, maxBits, fpp);
+            }
+            filters.put(ns, filter);
+        });
+    }
+
+    /**
+     * 启动定时同步，首次同步完成前各区域均未就绪
+     */
+    public void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "RedisBloomSync");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::syncAll, 0, config.getSyncSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @param key
+     * @return key所在区域已就绪且过滤器中没有该key时返回true
+     */
+    public boolean isDefinitelyAbsent(String key) {
+        Filter filter = key != null ? filters.get(NearCache.getNamespace(key)) : null;
+        if (filter == null || !filter.ready) {
+            return false;
+        }
+        long[] missing = filter.missing(filter.offsets(key));
+        if (missing.length == 0) {
+            return false;
+        }
+        if (System.nanoTime() - filter.lastSyncNanos <= syncNanos) {
+            return true;
+        }
+        // 本地副本过旧（同步失败或未同步过）时向redis确认
+        try {
+            boolean[] bits = redisApi.getBits(bitmapKey(filter), missing);
+            boolean absent = false;
+            for (int i = 0; i < missing.length; i++) {
+                if (bits[i]) {
+                    filter.setBit(missing[i]);
+                } else {
+                    absent = true;
+                }
+            }
+            return absent;
+        } catch (Exception e) {
+            log.warn("bloom filter check key {} in redis fail! error:{}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 记录存在的key，本地已有时不再写redis，各key新置的位在一个pipeline中写入redis
+     * @param keys
+     */
+    public void add(String... keys) {
+        Map<Filter, List<long[]>> changed = new IdentityHashMap<>();
+        for (String key : keys) {
+            Filter filter = key != null ? filters.get(NearCache.getNamespace(key)) : null;
+            if (filter == null) {
+                continue;
+            }
+            long[] offsets = filter.offsets(key);
+            if (filter.setLocal(offsets)) {
+                changed.computeIfAbsent(filter, f -> new ArrayList<>()).add(offsets);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Filter, long[]> bits = new IdentityHashMap<>();
+        changed.forEach((filter, list) -> bits.put(filter, list.stream().flatMapToLong(Arrays::stream).toArray()));
+        sendBits(bits);
+    }
+
+    /**
+     * 标记区域已包含全部存在的key，之后所有进程同步后开始判断不存在
+     * @param namespace
+     */
+    public void markReady(String namespace) {
+        Filter filter = filters.get(namespace);
+        if (filter == null) {
+            log.warn("bloom filter of namespace {} is not configured, ignored!", namespace);
+            return;
+        }
+        redisApi.setInner(readyKey(filter), 0, "1", String.class);
+        filter.ready = true;
+    }
+
+    /**
+     * 写入redis，失败的位记为待重发
+     * @param bits
+     */
+    private void sendBits(Map<Filter, long[]> bits) {
+        Map<String, long[]> byKey = new LinkedHashMap<>();
+        bits.forEach((filter, offsets) -> byKey.put(bitmapKey(filter), offsets));
+        try {
+            redisApi.setBits(byKey);
+        } catch (Exception e) {
+            log.warn("bloom filter set bits of {} to redis fail, retry at next sync! error:{}", byKey.keySet(),
+                    e.getMessage());
+            bits.forEach(Filter::markPending);
+        }
+    }
+
+    /**
+     * 重发之前写redis失败的位
+     */
+    private void resendPending() {
+        Map<Filter, long[]> bits = new IdentityHashMap<>();
+        for (Filter filter : filters.values()) {
+            long[] offsets = filter.drainPending();
+            if (offsets.length > 0) {
+                bits.put(filter, offsets);
+            }
+        }
+        if (!bits.isEmpty()) {
+            sendBits(bits);
+        }
+    }
+
+    protected void syncAll() {
+        resendPending();
+        for (Filter filter : filters.values()) {
+            try {
+                long startNanos = System.nanoTime();
+                byte[] bitmap = redisApi.getBytes(bitmapKey(filter));
+                if (bitmap != null) {
+                    filter.merge(bitmap);
+                }
+                filter.lastSyncNanos = startNanos;
+                boolean ready = redisApi.getInner(readyKey(filter)) != null;
+                if (ready != filter.ready) {
+                    log.info("bloom filter of namespace {} ready={}", filter.namespace, ready);
+                }
+                filter.ready = ready;
+            } catch (Exception e) {
+                log.warn("sync bloom filter of namespace {} fail! error:{}", filter.namespace, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param filter
+     * @return 位图key，包含位数和哈希函数个数
+     */
+    private String bitmapKey(Filter filter) {
+        return config.getKeyPrefix() + filter.namespace + ":" + filter.numBits + ":" + filter.numHashes;
+    }
+
+    private String readyKey(Filter filter) {
+        return bitmapKey(filter) + ":ready";
+    }
+
+    /**
+     * 单个区域的过滤器，本地位序与redis位图一致：偏移i对应第i/8字节从高到低第i%8位
+     */
+    static class Filter {
+
+        private final String namespace;
+
+        private final long numBits;
+
+        private final int numHashes;
+
+        private final AtomicLongArray words;
+
+        private volatile boolean ready = false;
+
+        /**
+         * 最近一次成功同步开始的时间，System.nanoTime
+         */
+        private volatile long lastSyncNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+        /**
+         * 按配置计算的位数超过上限被截断
+         */
+        private final boolean capped;
+
+        /**
+         * 写redis失败待重发的位，首次失败时创建
+         */
+        private volatile AtomicLongArray pending;
+
+        Filter(String namespace, long expectedInsertions, double fpp, long maxBits) {
+            this.namespace = namespace;
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.capped = bits > maxBits;
+            this.numBits = Math.min(maxBits, Math.max(64, bits));
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((numBits + 63) >>> 6));
+        }
+
+        long[] offsets(String key) {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+            long[] offsets = new long[numHashes];
+            for (int i = 0; i < numHashes; i++) {
+                offsets[i] = Math.floorMod(hash1 + i * hash2, numBits);
+            }
+            return offsets;
+        }
+
+        /**
+         * @param offsets
+         * @return 本地为0的位
+         */
+        long[] missing(long[] offsets) {
+            return Arrays.stream(offsets).filter(offset -> (words.get((int) (offset >>> 6)) & mask(offset)) == 0)
+                    .toArray();
+        }
+
+        /**
+         * @param offsets
+         * @return 是否有位由0变为1
+         */
+        boolean setLocal(long[] offsets) {
+            boolean changed = false;
+            for (long offset : offsets) {
+                changed |= setBit(offset);
+            }
+            return changed;
+        }
+
+        void merge(byte[] bitmap) {
+            int length = (int) Math.min(bitmap.length, (numBits + 7) >>> 3);
+            for (int i = 0; i < length; i++) {
+                int b = bitmap[i] & 0xFF;
+                if (b == 0) {
+                    continue;
+                }
+                for (int j = 0; j < 8; j++) {
+                    long offset = ((long) i << 3) + j;
+                    if ((b & (0x80 >>> j)) != 0 && offset < numBits) {
+                        setBit(offset);
+                    }
+                }
+            }
+        }
+
+        boolean setBit(long offset) {
+            return setBit(words, offset);
+        }
+
+        void markPending(long[] offsets) {
+            AtomicLongArray bits = pending;
+            if (bits == null) {
+                synchronized (this) {
+                    if ((bits = pending) == null) {
+                        pending = bits = new AtomicLongArray(words.length());
+                    }
+                }
+            }
+            for (long offset : offsets) {
+                setBit(bits, offset);
+            }
+        }
+
+        /**
+         * @return 取出并清空待重发的位
+         */
+        long[] drainPending() {
+            AtomicLongArray bits = pending;
+            if (bits == null) {
+                return new long[0];
+            }
+            List<Long> offsets = new ArrayList<>();
+            for (int i = 0; i < bits.length(); i++) {
+                long word = bits.get(i) == 0 ? 0 : bits.getAndSet(i, 0);
+                while (word != 0) {
+                    offsets.add(((long) i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return offsets.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private static boolean setBit(AtomicLongArray bits, long offset) {
+            int index = (int) (offset >>> 6);
+            long mask = mask(offset);
+            long word;
+            while (((word = bits.get(index)) & mask) == 0) {
+                if (bits.compareAndSet(index, word, word | mask)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long mask(long offset) {
+            return 1L << (offset & 63);
+        }
+
+        private static long hash(String key) {
+            // FNV-1a 64
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xFF;
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+    }
+
+}
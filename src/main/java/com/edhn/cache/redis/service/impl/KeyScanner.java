@@ -0,0 +1,242 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisClientPool;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * KeyScanner
+ * 在各主节点上并行执行SCAN，每批结果放入有界队列，消费方处理慢时scan线程阻塞等待（背压），
+ * 同时scan的节点数受并行度限制，不会把全部key加载到内存；
+ * 使用方应在try-with-resources中使用，消费方超过空闲时间未取走结果（如流未关闭就被丢弃）时scan线程停止并释放连接，
+ * 之后继续消费会在取完已排队的批次后抛出异常
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class KeyScanner implements Iterator<List<String>>, Closeable {
+
+    /**
+     * 单个节点的scan
+     */
+    @FunctionalInterface
+    public interface Node {
+
+        /**
+         * 遍历节点上匹配的key
+         * @param pattern
+         * @param count
+         * @param sink 接收每批key，返回false时停止
+         */
+        void scan(String pattern, int count, Predicate<List<String>> sink);
+
+    }
+
+    private static final ExecutorService SCAN_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "RedisScan");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final List<String> END = new ArrayList<>(0);
+
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    private final BlockingQueue<List<String>> queue;
+
+    private final long idleTimeoutMillis;
+
+    private volatile boolean closed = false;
+
+    private volatile RuntimeException error;
+
+    private List<String> next;
+
+    private boolean finished = false;
+
+    /**
+     * @param nodes 各主节点
+     * @param pattern 匹配模式
+     * @param count 每次scan的count提示
+     * @param parallelism 同时scan的节点数
+     * @param queueCapacity 排队等待消费的批数
+     * @param idleTimeoutMillis 队列已满且消费方超过此时间未取走结果时停止scan
+     */
+    public KeyScanner(List<Node> nodes, String pattern, int count, int parallelism, int queueCapacity,
+            long idleTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.idleTimeoutMillis = Math.max(OFFER_WAIT_MILLIS, idleTimeoutMillis);
+        Queue<Node> pending = new ConcurrentLinkedQueue<>(nodes);
+        int workers = Math.max(1, Math.min(parallelism, nodes.size()));
+        AtomicInteger running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            SCAN_EXECUTOR.execute(() -> {
+                try {
+                    Node node;
+                    while (!closed && (node = pending.poll()) != null) {
+                        node.scan(pattern, count, this::offer);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("scan keys of {} fail! error:{}", pattern, e.getMessage());
+                    error = e;
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        offer(END);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @param pool 单个节点的连接池
+     * @return 基于SCAN命令的节点
+     */
+    public static Node node(RedisClientPool pool) {
+        return (pattern, count, sink) -> {
+            ScanParams params = new ScanParams().match(pattern).count(count);
+            try (RedisClient client = pool.getResource()) {
+                String cursor = ScanParams.SCAN_POINTER_START;
+                do {
+                    ScanResult<String> result = client.scan(cursor, params);
+                    if (!result.getResult().isEmpty() && !sink.test(result.getResult())) {
+                        return;
+                    }
+                    cursor = result.getCursor();
+                } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            }
+        };
+    }
+
+    /**
+     * @return 逐个key的流，关闭流即停止scan
+     */
+    public Stream<String> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.NONNULL), false)
+                .flatMap(List::stream).onClose(this::close);
+    }
+
+    private boolean offer(List<String> batch) {
+        long deadline = System.currentTimeMillis() + idleTimeoutMillis;
+        try {
+            while (!closed) {
+                if (queue.offer(batch, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("scan consumer idle for {}ms, stop scan! the stream should be closed after use",
+                            idleTimeoutMillis);
+                    error = new IllegalStateException("scan stopped, consumer idle for " + idleTimeoutMillis + "ms");
+                    closed = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            List<String> batch;
+            try {
+                batch = queue.poll(OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("scan interrupted", e);
+            }
+            if (batch == null) {
+                // 空闲超时停止后不会再有END
+                if (closed && queue.isEmpty()) {
+                    finished = true;
+                    if (error != null) {
+                        throw error;
+                    }
+                }
+            } else if (batch == END) {
+                finished = true;
+                if (error != null) {
+                    throw error;
+                }
+            } else if (!batch.isEmpty()) {
+                next = batch;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> batch = next;
+        next = null;
+        return batch;
+    }
+
+    /**
+     * 停止scan，未消费的批次丢弃
+     */
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        queue.clear();
+    }
+
+    /**
+     * @param scanner
+     * @param batchSize
+     * @param action 每批key的处理，返回处理的数量
+     * @return 处理总数
+     */
+    static long forEachBatch(KeyScanner scanner, int batchSize, ToLongFunction<List<String>> action) {
+        long total = 0;
+        List<String> buffer = new ArrayList<>(batchSize);
+        try {
+            while (scanner.hasNext()) {
+                buffer.addAll(scanner.next());
+                if (buffer.size() >= batchSize) {
+                    total += action.applyAsLong(buffer);
+                    buffer = new ArrayList<>(batchSize);
+                }
+            }
+            if (!buffer.isEmpty()) {
+                total += action.applyAsLong(buffer);
+            }
+        } finally {
+            scanner.close();
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,459 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.edhn.cache.redis.loader.SingleFlight;
+import com.edhn.cache.redis.serializer.CacheEnvelope;
+import com.edhn.cache.redis.serializer.ValueCompressor;
+import com.edhn.cache.redis.service.RedisAsyncApi;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LettuceAsyncApiImpl
+ * 基于lettuce的RedisAsyncApi实现，所有调用共享一个线程安全的连接，
+ * 命令在netty io线程上异步收发，少量线程即可支撑大量并发请求；io线程只接收原始字节，
+ * 解压和反序列化在同步api的loaderExecutor中执行，大值的解码不阻塞同一连接上的其他命令。
+ * 序列化、过期时间、null缓存、近端缓存失效、布隆过滤器和分桶存储沿用同步api的配置和处理，两者读写的数据一致
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+@Slf4j
+public class LettuceAsyncApiImpl implements RedisAsyncApi {
+
+    /**
+     * key按UTF-8编解码，值保留原始字节，在io线程之外转为文本（识别同步api按字节写入的压缩值）
+     */
+    private static final RedisCodec<String, byte[]> CODEC = new RedisCodec<String, byte[]>() {
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return StringCodec.UTF8.decodeKey(bytes);
+        }
+
+        @Override
+        public byte[] decodeValue(ByteBuffer bytes) {
+            byte[] value = new byte[bytes.remaining()];
+            bytes.get(value);
+            return value;
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return StringCodec.UTF8.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(byte[] value) {
+            return ByteBuffer.wrap(value);
+        }
+
+    };
+
+    private final AbstractRedisClient client;
+
+    private final StatefulConnection<String, byte[]> connection;
+
+    private final RedisClusterAsyncCommands<String, byte[]> commands;
+
+    /**
+     * 同步api，提供序列化和写入后的近端缓存失效、布隆过滤器等处理
+     */
+    private final AbstractRedisSimpleApi syncApi;
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * @param client 单机redis客户端
+     * @param syncApi 同步api，已按cache.redis配置
+     */
+    public LettuceAsyncApiImpl(RedisClient client, AbstractRedisSimpleApi syncApi) {
+        StatefulRedisConnection<String, byte[]> conn = client.connect(CODEC);
+        this.client = client;
+        this.connection = conn;
+        this.commands = conn.async();
+        this.syncApi = syncApi;
+    }
+
+    /**
+     * @param client 集群redis客户端，跨slot的多key命令由lettuce拆分
+     * @param syncApi 同步api，已按cache.redis配置
+     */
+    public LettuceAsyncApiImpl(RedisClusterClient client, AbstractRedisSimpleApi syncApi) {
+        StatefulRedisClusterConnection<String, byte[]> conn = client.connect(CODEC);
+        this.client = client;
+        this.connection = conn;
+        this.commands = conn.async();
+        this.syncApi = syncApi;
+    }
+
+    /**
+     * 关闭连接和客户端
+     */
+    public void close() {
+        connection.close();
+        client.shutdown();
+    }
+
+    /**
+     * @return 解压和反序列化使用的线程池
+     */
+    private Executor decodeExecutor() {
+        return syncApi.loaderExecutor;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] value) {
+        return ValueCompressor.toText(value);
+    }
+
+    /**
+     * hash字段值去掉字段过期的外层，与同步api一致
+     * @param raw
+     * @return 序列化值（可能为VALUE_NULL），不存在或字段已过期返回null
+     */
+    private static String fieldPayload(byte[] raw) {
+        return AbstractRedisSimpleApi.hashFieldPayload(text(raw));
+    }
+
+    private <T> T decode(String value, Class<T> cls) {
+        if (value == null || AbstractRedisSimpleApi.VALUE_NULL.equals(value)) {
+            return null;
+        }
+        return syncApi.deserializeObject(value, cls);
+    }
+
+    private <T> T decode(String value, TypeReference<T> type) {
+        if (value == null || AbstractRedisSimpleApi.VALUE_NULL.equals(value)) {
+            return null;
+        }
+        return syncApi.deserializeObject(value, type);
+    }
+
+    /**
+     * 写入完成后使近端缓存失效，写入了非null值的key加入布隆过滤器
+     * @param <R>
+     * @param write
+     * @param addedKeys 写入了非null值的key，没有时为null
+     * @param keys 变更的key
+     * @return
+     */
+    private <R> CompletableFuture<R> afterWrite(CompletableFuture<R> write, String[] addedKeys, String... keys) {
+        syncApi.recordWrite(keys);
+        if (syncApi.nearCache == null && syncApi.keyBloomFilter == null) {
+            return write;
+        }
+        // 失效通知和布隆过滤器写入会访问redis，不占用lettuce的io线程
+        return write.thenApplyAsync(result -> {
+            syncApi.invalidateNearCache(keys);
+            if (addedKeys != null) {
+                syncApi.bloomAdd(addedKeys);
+            }
+            return result;
+        }, syncApi.loaderExecutor);
+    }
+
+    /**
+     * @param key
+     * @return redis原始值，分桶存储的key从桶中读取
+     */
+    private CompletableFuture<byte[]> getRaw(String key) {
+        if (syncApi.isBucketed(key)) {
+            return commands.hget(syncApi.hashBuckets.bucketKey(key), HashBuckets.field(key)).toCompletableFuture();
+        }
+        return commands.get(key).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> expire(String key, int seconds) {
+        syncApi.rejectBucketed(key);
+        syncApi.recordWrite(key);
+        return commands.expire(key, seconds).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return getRaw(key).thenApplyAsync(raw -> {
+            String v = text(raw);
+            return v == null || AbstractRedisSimpleApi.VALUE_NULL.equals(v) ? null
+                : ValueCompressor.decompress(CacheEnvelope.strip(v));
+        }, decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String key, Class<T> cls) {
+        return getRaw(key).thenApplyAsync(v -> decode(text(v), cls), decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String key, TypeReference<T> type) {
+        return getRaw(key).thenApplyAsync(v -> decode(fieldPayload(v), type), decodeExecutor());
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(List<String> keys) {
+        if (syncApi.hashBuckets == null || keys.stream().noneMatch(syncApi::isBucketed)) {
+            return commands.mget(keys.toArray(new String[keys.size()])).toCompletableFuture()
+                .thenApplyAsync(list -> list.stream().map(kv -> ValueCompressor.decompress(text(kv.getValueOrElse(null))))
+                    .collect(Collectors.toList()), decodeExecutor());
+        }
+        // 含分桶存储的key时逐个读取，命令在同一连接上连续发送
+        List<CompletableFuture<byte[]>> futures = keys.stream().map(this::getRaw).collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+            .thenApplyAsync(v -> futures.stream().map(f -> ValueCompressor.decompress(text(f.join())))
+                .collect(Collectors.toList()), decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> mget(List<String> keys, Class<T> cls) {
+        // mget已在decodeExecutor中完成，后续反序列化在同一线程执行
+        return mget(keys).thenApply(list -> list.stream().map(v -> decode(v, cls)).collect(Collectors.toList()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        if (syncApi.isBucketed(key)) {
+            return commands.hexists(syncApi.hashBuckets.bucketKey(key), HashBuckets.field(key)).toCompletableFuture();
+        }
+        return commands.exists(key).toCompletableFuture().thenApply(n -> n != null && n > 0);
+    }
+
+    @Override
+    public <T> CompletableFuture<String> set(String key, int expireSeconds, T value) {
+        if (syncApi.isBucketed(key)) {
+            // 分桶写入需同时维护桶的过期时间，由同步api执行
+            return CompletableFuture.supplyAsync(() -> syncApi.set(key, expireSeconds, value), syncApi.loaderExecutor);
+        }
+        String realValue = syncApi.toCacheValue(value);
+        if (realValue == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int ttl = syncApi.cacheTTL(value, expireSeconds);
+        return afterWrite((ttl > 0 && ttl < Integer.MAX_VALUE ? commands.setex(key, ttl, bytes(realValue))
+            : commands.set(key, bytes(realValue))).toCompletableFuture(), value != null ? new String[] {key} : null, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(String key) {
+        if (syncApi.isBucketed(key)) {
+            return afterWrite(commands.hincrby(syncApi.hashBuckets.bucketKey(key), HashBuckets.field(key), 1)
+                .toCompletableFuture(), null, key);
+        }
+        return afterWrite(commands.incr(key).toCompletableFuture(), null, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String... keys) {
+        if (syncApi.hashBuckets == null) {
+            return afterWrite(commands.del(keys).toCompletableFuture(), null, keys);
+        }
+        List<String> plain = new ArrayList<>(keys.length);
+        List<String> bucketed = new ArrayList<>();
+        for (String key : keys) {
+            (syncApi.isBucketed(key) ? bucketed : plain).add(key);
+        }
+        String[] plainKeys = plain.toArray(new String[plain.size()]);
+        CompletableFuture<Long> plainNum = plain.isEmpty() ? CompletableFuture.completedFuture(0L)
+            : afterWrite(commands.del(plainKeys).toCompletableFuture(), null, plainKeys);
+        if (bucketed.isEmpty()) {
+            return plainNum;
+        }
+        CompletableFuture<Long> bucketedNum = CompletableFuture.supplyAsync(
+            () -> syncApi.del(bucketed.toArray(new String[bucketed.size()])), syncApi.loaderExecutor);
+        return plainNum.thenCombine(bucketedNum, Long::sum);
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field) {
+        return commands.hget(key, field).toCompletableFuture().thenApplyAsync(raw -> {
+            String v = fieldPayload(raw);
+            return v == null || AbstractRedisSimpleApi.VALUE_NULL.equals(v) ? null : ValueCompressor.decompress(v);
+        }, decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> hget(String key, String field, TypeReference<T> type) {
+        return commands.hget(key, field).toCompletableFuture().thenApplyAsync(v -> decode(fieldPayload(v), type), decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<String, T>> hgetAll(String key, Class<T> cls) {
+        return commands.hgetall(key).toCompletableFuture().thenApplyAsync(entries -> {
+            Map<String, T> result = new LinkedHashMap<>((int)(entries.size()/0.75 + 1));
+            entries.forEach((k, v) -> {
+                String payload = fieldPayload(v);
+                if (payload != null) {
+                    result.put(k, decode(payload, cls));
+                }
+            });
+            return result;
+        }, decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> hset(String key, String field, int expireSeconds, T value) {
+        String realValue = syncApi.toCacheValue(value);
+        if (realValue == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Boolean> result = commands.hset(key, field, bytes(realValue)).toCompletableFuture();
+        if (expireSeconds > 0) {
+            CompletableFuture<Boolean> expire = commands.expire(key, syncApi.cacheTTL(value, expireSeconds))
+                .toCompletableFuture();
+            result = result.thenCombine(expire, (r, e) -> r);
+        }
+        return afterWrite(result, value != null ? new String[] {key + "." + field} : null, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String... fields) {
+        return afterWrite(commands.hdel(key, fields).toCompletableFuture(), null, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        syncApi.recordWrite(key);
+        return commands.zadd(key, score, bytes(member)).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(String key, String... member) {
+        syncApi.recordWrite(key);
+        return commands.zrem(key, Arrays.stream(member).map(LettuceAsyncApiImpl::bytes).toArray(byte[][]::new))
+            .toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Collection<String>> zrange(String key, long start, long stop) {
+        return commands.zrange(key, start, stop).toCompletableFuture().thenApply(LettuceAsyncApiImpl::texts);
+    }
+
+    @Override
+    public CompletableFuture<Collection<String>> zrangeByScore(String key, double min, double max) {
+        return commands.zrangebyscore(key, Range.create(min, max)).toCompletableFuture().thenApply(LettuceAsyncApiImpl::texts);
+    }
+
+    private static Collection<String> texts(List<byte[]> members) {
+        return members.stream().map(m -> new String(m, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Map<K, T>> batchGet(Collection<K> oriKeys, Function<K, String> cacheKeyMapper,
+            Class<T> cls) {
+        if (oriKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        List<String> cacheKeys = oriKeys.stream().map(cacheKeyMapper).collect(Collectors.toList());
+        // mget已在decodeExecutor中完成，后续反序列化在同一线程执行
+        return mget(cacheKeys).thenApply(values -> {
+            Map<K, T> result = new LinkedHashMap<>((int)(oriKeys.size()/0.75 + 1));
+            int index = 0;
+            for (Iterator<K> it = oriKeys.iterator(); it.hasNext();) {
+                K key = it.next();
+                T value = decode(values.get(index++), cls);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Integer> batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper,
+            int expireSeconds) {
+        // lettuce在同一连接上连续发送命令，无需等待前一个响应，等同于pipeline
+        List<CompletableFuture<String>> futures = new ArrayList<>(datas.size());
+        for (Map.Entry<K, T> en : datas.entrySet()) {
+            futures.add(set(cacheKeyMapper.apply(en.getKey()), expireSeconds, en.getValue()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+            .thenApply(v -> (int) futures.stream().filter(f -> f.join() != null).count());
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Map<K, T>> hBatchGet(String key, Collection<K> fields, Class<T> cls) {
+        if (fields.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        String[] fieldArray = fields.stream().map(String::valueOf).toArray(String[]::new);
+        return commands.hmget(key, fieldArray).toCompletableFuture().thenApplyAsync(values -> {
+            Map<K, T> result = new LinkedHashMap<>((int)(fields.size()/0.75 + 1));
+            int index = 0;
+            for (Iterator<K> it = fields.iterator(); it.hasNext();) {
+                K field = it.next();
+                KeyValue<String, byte[]> kv = values.get(index++);
+                T value = decode(fieldPayload(kv.getValueOrElse(null)), cls);
+                if (value != null) {
+                    result.put(field, value);
+                }
+            }
+            return result;
+        }, decodeExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> computeIfAbsent(String key, Class<T> type, int expireSeconds,
+            Function<String, CompletableFuture<T>> mappingFunction) {
+        return computeIfAbsentInner(key + "@" + type.getName(), key, v -> decode(v, type), expireSeconds,
+            mappingFunction);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> computeIfAbsent(String key, TypeReference<T> type, int expireSeconds,
+            Function<String, CompletableFuture<T>> mappingFunction) {
+        return computeIfAbsentInner(key + "@" + type.getType().getTypeName(), key, v -> decode(v, type),
+            expireSeconds, mappingFunction);
+    }
+
+    private <T> CompletableFuture<T> computeIfAbsentInner(String flightKey, String key, Function<String, T> decoder,
+            int expireSeconds, Function<String, CompletableFuture<T>> mappingFunction) {
+        return getRaw(key).thenApplyAsync(LettuceAsyncApiImpl::text, decodeExecutor()).thenCompose(value -> {
+            if (value != null) {
+                return CompletableFuture.completedFuture(decoder.apply(value));
+            }
+            return singleFlight.executeCompose(flightKey, () -> mappingFunction.apply(key).thenCompose(result -> {
+                if (result == null && !syncApi.cacheNull) {
+                    return CompletableFuture.completedFuture(result);
+                }
+                return set(key, expireSeconds, result).handle((r, e) -> {
+                    if (e != null) {
+                        log.warn("computeIfAbsent write to cache fail! key={}", key, e);
+                    }
+                    return result;
+                });
+            }));
+        });
+    }
+
+}
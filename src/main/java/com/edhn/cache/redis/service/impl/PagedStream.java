@@ -0,0 +1,90 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * PagedStream
+ * 按页读取的流，消费完一页才读取下一页，任何时候只持有一页数据
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public final class PagedStream {
+
+    private PagedStream() {
+    }
+
+    /**
+     * @param <E>
+     * @param nextPage 返回下一页，返回null表示结束，允许返回空页
+     * @return
+     */
+    public static <E> Stream<E> of(Supplier<? extends Collection<E>> nextPage) {
+        Iterator<E> iterator = new Iterator<E>() {
+
+            private Iterator<E> page = Collections.emptyIterator();
+
+            private boolean finished = false;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !finished) {
+                    Collection<E> next = nextPage.get();
+                    if (next == null) {
+                        finished = true;
+                    } else {
+                        page = next.iterator();
+                    }
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * SCAN类命令（HSCAN/SSCAN/ZSCAN）的流，cursor回到0时结束
+     * @param <E>
+     * @param scanner 参数为cursor
+     * @return
+     */
+    public static <E> Stream<E> scan(Function<String, ScanResult<E>> scanner) {
+        return of(new Supplier<Collection<E>>() {
+
+            private String cursor = null;
+
+            @Override
+            public Collection<E> get() {
+                if (ScanParams.SCAN_POINTER_START.equals(cursor)) {
+                    return null;
+                }
+                ScanResult<E> result = scanner.apply(cursor == null ? ScanParams.SCAN_POINTER_START : cursor);
+                cursor = result.getCursor();
+                return result.getResult();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.edhn.cache.redis.service.impl;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ReadAfterWriteGuard
+ * 记录每个线程最近写入的key，从节点复制有延迟，这些key在写入后staleMillis内仍读主节点，保证线程内读到自己的写
+ * 每个线程最多记录maxKeys个key，超出时淘汰最早写入的；readMaster执行期间当前线程的所有读都走主节点
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class ReadAfterWriteGuard {
+
+    private final long staleNanos;
+
+    private final ThreadLocal<Map<String, Long>> recent;
+
+    /**
+     * 当前线程嵌套执行readMaster的层数
+     */
+    private final ThreadLocal<int[]> masterDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * @param staleMillis 写入后读主节点的时间，单位ms
+     * @param maxKeys 每个线程最多记录的key数
+     */
+    public ReadAfterWriteGuard(int staleMillis, int maxKeys) {
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, staleMillis));
+        int limit = Math.max(1, maxKeys);
+        this.recent = ThreadLocal.withInitial(() -> new LinkedHashMap<String, Long>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+
+    /**
+     * 记录当前线程写入了这些key
+     * @param keys
+     */
+    public void written(String... keys) {
+        Map<String, Long> writes = recent.get();
+        long now = System.nanoTime();
+        for (String key : keys) {
+            // 先删除再放入，使重复写入的key排到最后
+            writes.remove(key);
+            writes.put(key, now);
+        }
+    }
+
+    /**
+     * 在当前线程执行reader，期间读命令都走主节点，用于读结果会被其他进程或近端缓存沿用的场景
+     * @param <R>
+     * @param reader
+     * @return reader的结果
+     */
+    public <R> R readMaster(Supplier<R> reader) {
+        int[] depth = masterDepth.get();
+        depth[0]++;
+        try {
+            return reader.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * @param key
+     * @return 当前线程是否刚写入过key，在readMaster中执行时始终为true
+     */
+    public boolean isRecent(String key) {
+        if (masterDepth.get()[0] > 0) {
+            return true;
+        }
+        Long time = recent.get().get(key);
+        return time != null && System.nanoTime() - time < staleNanos;
+    }
+
+    /**
+     * @param keys
+     * @return 当前线程是否刚写入过其中任一key，在readMaster中执行时始终为true
+     */
+    public boolean isRecent(Collection<String> keys) {
+        if (masterDepth.get()[0] > 0) {
+            return true;
+        }
+        Map<String, Long> writes = recent.get();
+        if (writes.isEmpty()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (String key : keys) {
+            Long time = writes.get(key);
+            if (time != null && now - time < staleNanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 任务在其他线程执行时沿用当前线程的写入记录，任务中只读不写
+     * @param task
+     * @return
+     */
+    public Runnable propagate(Runnable task) {
+        Map<String, Long> writes = recent.get();
+        return () -> {
+            Map<String, Long> own = recent.get();
+            recent.set(writes);
+            try {
+                task.run();
+            } finally {
+                recent.set(own);
+            }
+        };
+    }
+
+}
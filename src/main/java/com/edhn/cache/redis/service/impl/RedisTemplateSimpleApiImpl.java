@@ -1,35 +1,54 @@
 package com.edhn.cache.redis.service.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.data.redis.core.types.Expiration;
 
+import com.edhn.cache.redis.client.LuaScript;
+import com.edhn.cache.redis.nearcache.NearCache;
+import com.edhn.cache.redis.serializer.CacheEnvelope;
 import com.edhn.cache.redis.serializer.RedisSerializerWrapper;
+import com.edhn.cache.redis.serializer.ValueCompressor;
 import com.edhn.cache.redis.service.CacheUnWrapper;
 import com.edhn.cache.redis.service.RedisSimpleApi;
+import com.edhn.cache.redis.stats.CacheStats.Operation;
 import com.edhn.cache.redis.util.CacheLogger;
 import com.fasterxml.jackson.core.type.TypeReference;
 
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * RedisTemplateSimpleApiImpl
@@ -39,6 +58,7 @@ import lombok.Setter;
  * @date 2022-06-21
  * 
  */
+@Slf4j
 public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implements RedisSimpleApi {
     
     @Getter
@@ -77,6 +97,7 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
         return redisSerializerWrapper.serializeValue(value, cls);
     }
     
+    @Override
     @SuppressWarnings("unchecked")
     protected <T> T deserializeValue(byte[] bytes, Class<T> cls) {
         Object result = redisSerializerWrapper.deserializeValue(bytes, cls);
@@ -85,48 +106,72 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
 
     @Override
     protected byte[] getBytes(String key) {
+        if (isBucketed(key)) {
+            return (byte[]) bucketGet(key);
+        }
         AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        long startNanos = System.nanoTime();
         byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> {
             start.set(CacheLogger.logSlow(start.get(), "get connection", key));
 			return connection.get(serializeKey(key));
         });
         CacheLogger.logSlow(start.get(), "get", key);
+        recordLatency(Operation.GET, key, startNanos);
         return value;
     }
 
     @Override
     public Long expire(String key, int seconds) {
+        rejectBucketed(key);
         redisTemplate.expire(key, seconds, TimeUnit.SECONDS);
         return new Long(seconds);
     }
     
     @Override
     protected String getInner(String key) {
-        long start = System.currentTimeMillis();
-        String value = Objects.toString(redisTemplate.opsForValue().get(key), null);
-        CacheLogger.logSlow(start, "get", key);
-        return value;
+        // getBytes记录耗时，版本值等原始字符串保存的值不经过value序列化
+        return redisSerializerWrapper.deserializeRaw(getBytes(key));
     }
 
     @Override
     protected List<String> mGetInner(Collection<String> keys) {
-        List<Object> mgetKeys = keys.stream().map(s->(Object)s).collect(Collectors.toList());
-        List<Object> result = redisTemplate.opsForValue().multiGet(mgetKeys);
-        return result.stream().map(s->Objects.toString(s, null)).collect(Collectors.toList());
+        long startNanos = System.nanoTime();
+        byte[][] rawKeys = keys.stream().map(this::serializeKey).toArray(byte[][]::new);
+        List<byte[]> result = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys));
+        if (!keys.isEmpty()) {
+            recordLatency(Operation.BATCH, keys.iterator().next(), startNanos);
+        }
+        return result.stream().map(redisSerializerWrapper::deserializeRaw).collect(Collectors.toList());
 
     }
 
     @Override
     public <T> T get(String key, Class<T> cls) {
-        long start = System.currentTimeMillis();
-        byte[] bytes = getBytes(key);
-        updateCacheStatsInfo(key, bytes != null);
-        CacheLogger.logSlow(start, "get", key);
-        return redisSerializerWrapper.deserializeValue(bytes, cls);
+        NearCache.Entry entry = getNearCacheEntry(key);
+        if (entry == null) {
+            long start = System.currentTimeMillis();
+            long generation = nearCacheGeneration(key);
+            byte[] bytes = isNearCached(key) ? readFromMaster(() -> getBytes(key)) : getBytes(key);
+            updateCacheStatsInfo(key, bytes != null);
+            CacheLogger.logSlow(start, "get", key);
+            entry = putNearCache(key, bytes, generation);
+            if (entry == null) {
+                return redisSerializerWrapper.deserializeValue(bytes, cls);
+            }
+        } else {
+            updateCacheStatsInfo(key, true);
+        }
+        // 近端缓存中可能是get(String)写入的字符串，也可能是此处写入的字节
+        return entry.decode(cls, raw -> raw instanceof byte[] ? redisSerializerWrapper.deserializeValue((byte[]) raw, cls)
+                : VALUE_NULL.equals(raw) ? null : deserializeObject((String) raw, cls));
     }
 
     @Override
     public boolean exists(String key) {
+        if (isBucketed(key)) {
+            return redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.hExists(
+                serializeKey(hashBuckets.bucketKey(key)), serializeKey(HashBuckets.field(key))));
+        }
         return redisTemplate.hasKey(key);
     }
     
@@ -135,7 +180,11 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
         if (value == null) {
             return null;
         }
+        if (isBucketed(key)) {
+            return bucketSet(key, finalExpireSeconds, value, valueClass);
+        }
         AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        long startNanos = System.nanoTime();
         boolean succ = redisTemplate.execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
@@ -149,11 +198,96 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
             }
         });
         CacheLogger.logSlow(start.get(), "set", key);
+        recordLatency(Operation.SET, key, startNanos);
         return succ ? "OK" : null;
     }
 
+    /**
+     * 集群模式在每个主节点分别scan
+     */
+    @Override
+    protected List<KeyScanner.Node> scanNodes() {
+        List<RedisClusterNode> masters = redisTemplate.execute((RedisCallback<List<RedisClusterNode>>) connection ->
+            connection instanceof RedisClusterConnection
+                    ? new ArrayList<>(((RedisClusterConnection) connection).clusterGetMasterSlaveMap().keySet()) : null);
+        if (masters == null) {
+            return Collections.singletonList(scanNode(null));
+        }
+        return masters.stream().map(this::scanNode).collect(Collectors.toList());
+    }
+
+    private KeyScanner.Node scanNode(RedisClusterNode node) {
+        return (pattern, count, sink) -> redisTemplate.execute((RedisCallback<Void>) connection -> {
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+            try (Cursor<byte[]> cursor = node != null ? ((RedisClusterConnection) connection).scan(node, options)
+                    : connection.scan(options)) {
+                List<String> batch = new ArrayList<>(count);
+                while (cursor.hasNext()) {
+                    batch.add(redisSerializerWrapper.deSerializeKey(cursor.next()));
+                    if (batch.size() >= count) {
+                        if (!sink.test(batch)) {
+                            return null;
+                        }
+                        batch = new ArrayList<>(count);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    sink.test(batch);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected long unlinkKeys(List<String> keys) {
+        Long num = redisTemplate.unlink(new ArrayList<Object>(keys));
+        return num != null ? num : 0;
+    }
+
+    @Override
+    protected long expireKeys(List<String> keys, int seconds) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.expire(serializeKey(key), seconds);
+            }
+            return null;
+        });
+        return results.stream().filter(Boolean.TRUE::equals).count();
+    }
+
+    @Override
+    protected void setBits(Map<String, long[]> bits) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            bits.forEach((key, offsets) -> {
+                byte[] rawKey = serializeKey(key);
+                for (long offset : offsets) {
+                    connection.setBit(rawKey, offset, true);
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    protected boolean[] getBits(String key, long[] offsets) {
+        byte[] rawKey = serializeKey(key);
+        List<Object> responses = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long offset : offsets) {
+                connection.getBit(rawKey, offset);
+            }
+            return null;
+        });
+        boolean[] result = new boolean[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            result[i] = Boolean.TRUE.equals(responses.get(i));
+        }
+        return result;
+    }
+
     @Override
     public <T> String set(String key, int expires, TimeUnit unit, Boolean nxOrXx, T value) {
+        rejectBucketed(key);
         String realValue;
         if (value == null && this.cacheNull) {
             realValue = VALUE_NULL;
@@ -167,6 +301,7 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
         Class<?> valueClass = value != null ? value.getClass() : String.class;
         final String finalValue = realValue;
         AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        long startNanos = System.nanoTime();
         if (Boolean.TRUE.equals(nxOrXx)) {
             if (expires > 0) {
                 succ = redisTemplate.execute((RedisCallback<Boolean>) connection -> {
@@ -205,13 +340,22 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
             });
         }
         CacheLogger.logSlow(start.get(), "set", key);
+        recordLatency(Operation.SET, key, startNanos);
+        if (succ) {
+            invalidateNearCache(key);
+            if (value != null) {
+                bloomAdd(key);
+            }
+        }
         return succ ? "OK" : null;
     }
 
     @Override
     public String set(String key, int expireSeconds, Object value, Function<Object, byte[]> encoder) {
+        rejectBucketed(key);
         byte[] bytes = encoder.apply(value);
         AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        long startNanos = System.nanoTime();
         boolean succ = redisTemplate.execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
@@ -221,68 +365,174 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
             }
         });
         CacheLogger.logSlow(start.get(), "set", key);
+        recordLatency(Operation.SET, key, startNanos);
+        invalidateNearCache(key);
+        if (succ && value != null) {
+            bloomAdd(key);
+        }
         return succ ? "OK" : null;
     }
 
 
     @Override
     public Long incr(String key) {
-        return redisTemplate.opsForValue().increment(key, 1);
+        try {
+            if (isBucketed(key)) {
+                return redisTemplate.execute((RedisCallback<Long>) connection -> connection.hIncrBy(
+                    serializeKey(hashBuckets.bucketKey(key)), serializeKey(HashBuckets.field(key)), 1));
+            }
+            return redisTemplate.opsForValue().increment(key, 1);
+        } finally {
+            invalidateNearCache(key);
+        }
     }
 
     @Override
     public Long decr(String key) {
-        return redisTemplate.execute(new RedisCallback<Long>() {
-            @Override
-            public Long doInRedis(RedisConnection connection) throws DataAccessException {
-                return connection.decr(serializeKey(key));
-            }
-        });
+        try {
+            return redisTemplate.execute(new RedisCallback<Long>() {
+                @Override
+                public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                    if (isBucketed(key)) {
+                        return connection.hIncrBy(serializeKey(hashBuckets.bucketKey(key)),
+                            serializeKey(HashBuckets.field(key)), -1);
+                    }
+                    return connection.decr(serializeKey(key));
+                }
+            });
+        } finally {
+            invalidateNearCache(key);
+        }
     }
 
     @Override
     public Long decrMin(String key, long min) {
-        return redisTemplate.execute(new RedisCallback<Long>() {
+        try {
+            if (isBucketed(key)) {
+                return executeScript(HDECR_MIN, ReturnType.INTEGER, new byte[][] {serializeKey(hashBuckets.bucketKey(key))},
+                    serializeKey(HashBuckets.field(key)), String.valueOf(min).getBytes(StandardCharsets.UTF_8));
+            }
+            return executeScript(DECR_MIN, ReturnType.INTEGER, new byte[][] {serializeKey(key)},
+                String.valueOf(min).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            invalidateNearCache(key);
+        }
+    }
+
+    @Override
+    public <T> T getAndExpire(String key, int expireSeconds, Class<T> cls) {
+        rejectBucketed(key);
+        long startNanos = System.nanoTime();
+        byte[] bytes = executeScript(GET_AND_EXPIRE, ReturnType.VALUE, new byte[][] {serializeKey(key)},
+            String.valueOf(expireSeconds).getBytes(StandardCharsets.UTF_8));
+        recordLatency(Operation.GET, key, startNanos);
+        updateCacheStatsInfo(key, bytes != null);
+        return redisSerializerWrapper.deserializeValue(bytes, cls);
+    }
+
+    @Override
+    public boolean compareAndDelete(String key, String expectedValue) {
+        // 与set(key, String)写入时的值序列化一致
+        Long num = executeScript(COMPARE_AND_DELETE, ReturnType.INTEGER, new byte[][] {serializeKey(key)},
+            redisSerializerWrapper.serializeValue(expectedValue, String.class));
+        if (num != null && num > 0) {
+            invalidateNearCache(key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected Long compareAndSetInner(String key, long expectedVersion, String payload, int expireSeconds) {
+        // 版本值由脚本拼接，按原始字符串保存，不经过RedisTemplate的值序列化
+        return executeScript(COMPARE_AND_SET, ReturnType.INTEGER, new byte[][] {serializeKey(key)},
+            String.valueOf(expectedVersion).getBytes(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8),
+            String.valueOf(expireSeconds).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Object eval(LuaScript script, List<String> keys, List<String> args) {
+        byte[][] keyBytes = keys.stream().map(this::serializeKey).toArray(byte[][]::new);
+        byte[][] argBytes = args.stream().map(arg -> arg.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        Object result = executeScript(script, ReturnType.fromJavaType(script.getResultType()), keyBytes, argBytes);
+        return decodeScriptResult(result);
+    }
+
+    /**
+     * 优先EVALSHA执行脚本，节点上没有脚本时改用EVAL，集群连接按第一个key路由
+     * @param <T>
+     * @param script
+     * @param returnType
+     * @param keys
+     * @param args
+     * @return
+     */
+    protected <T> T executeScript(LuaScript script, ReturnType returnType, byte[][] keys, byte[]... args) {
+        byte[][] keysAndArgs = new byte[keys.length + args.length][];
+        System.arraycopy(keys, 0, keysAndArgs, 0, keys.length);
+        System.arraycopy(args, 0, keysAndArgs, keys.length, args.length);
+        return redisTemplate.execute(new RedisCallback<T>() {
             @Override
-            public Long doInRedis(RedisConnection connection) throws DataAccessException {
-                byte[] bytes = connection.get(serializeKey(key));
-                Long value = bytes != null ? Long.valueOf(new String(bytes)) : null;
-                return value != null && value > min ? connection.decr(serializeKey(key)) : value;
+            public T doInRedis(RedisConnection connection) throws DataAccessException {
+                try {
+                    return connection.evalSha(script.getSha1(), returnType, keys.length, keysAndArgs);
+                } catch (DataAccessException e) {
+                    if (!LuaScript.isNoScript(e)) {
+                        throw e;
+                    }
+                    return connection.eval(script.getSource().getBytes(StandardCharsets.UTF_8), returnType,
+                        keys.length, keysAndArgs);
+                }
             }
         });
     }
 
+    private Object decodeScriptResult(Object result) {
+        if (result instanceof byte[]) {
+            return new String((byte[]) result, StandardCharsets.UTF_8);
+        }
+        if (result instanceof List) {
+            return ((List<?>) result).stream().map(this::decodeScriptResult).collect(Collectors.toList());
+        }
+        return result;
+    }
+
     @Override
-    public Long del(String... keys) {
+    protected Long delInner(String... keys) {
         Long num = 0L;
         for (String key: keys) {
             num += redisTemplate.delete(key) ? 1 : 0;
         }
+        invalidateNearCache(keys);
         return num;
     }
 
     @Override
     public Long hdel(String key, String... fields) {
-        return redisTemplate.opsForHash().delete(key, Arrays.asList(fields));
+        try {
+            return redisTemplate.opsForHash().delete(key, Arrays.asList(fields));
+        } finally {
+            invalidateNearCache(key);
+        }
     }
 
     @Override
     public String hget(String key, String field) {
-        String value = Objects.toString(redisTemplate.opsForHash().get(key, field), null);
-        if (VALUE_NULL.equals(value)) {
+        String value = hashFieldPayload(hGetInner(key, field));
+        if (value == null || VALUE_NULL.equals(value)) {
             return null;
         }
-        return value;
+        return ValueCompressor.decompress(value);
     }
     
     @Override
     protected String hGetInner(String key, String field) {
-        return Objects.toString(redisTemplate.opsForHash().get(key, field), null);
+        return hashValueOf(hGetBytes(key, field));
     }
 
     @Override
     public <T> T hget(String key, String field, TypeReference<T> type) {
-        String value = Objects.toString(redisTemplate.opsForHash().get(key, field), null);
+        String value = hashFieldPayload(hGetInner(key, field));
         updateCacheStatsInfo(key, value != null);
         if (value == null || VALUE_NULL.equals(value)) {
             return null;
@@ -292,9 +542,17 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
 
     @Override
     public <T> T hget(String key, String field, Function<byte[], Object> decoder) {
-        Object value = redisTemplate.opsForHash().get(key, field);
+        byte[] bytes = hGetBytes(key, field);
+        Object value;
+        if (CacheEnvelope.isWrapped(bytes)) {
+            String payload = hashFieldPayload(new String(bytes, StandardCharsets.UTF_8));
+            value = payload == null ? null : payload.getBytes(StandardCharsets.UTF_8);
+        } else {
+            value = bytes == null ? null : redisTemplate.getHashValueSerializer().deserialize(bytes);
+        }
         updateCacheStatsInfo(key, value != null);
-        if (value == null || VALUE_NULL.equals(value)) {
+        if (value == null || VALUE_NULL.equals(value)
+                || (value instanceof byte[] && Arrays.equals(VALUE_NULL_BYTES, (byte[]) value))) {
             return null;
         }
         @SuppressWarnings("unchecked")
@@ -304,17 +562,46 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
 
     @Override
     public <T> Map<String, T> hgetAll(String key, Class<T> cls) {
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
-        Map<String, T> result = new HashMap<>((int)(entries.size()/0.75 + 1));
-        entries.forEach((k,v)->{
-            T value = v == null || VALUE_NULL.equals(v) ? null 
-                    : deserializeObject(Objects.toString(v, null), cls);
-            result.put(Objects.toString(k, null), value);
-        });
+        byte[] rawKey = serializeKey(key);
+        Map<byte[], byte[]> entries = redisTemplate.execute(
+                (RedisCallback<Map<byte[], byte[]>>) connection -> connection.hGetAll(rawKey));
+        Map<String, T> result = new HashMap<>((int)((entries == null ? 0 : entries.size())/0.75 + 1));
+        if (entries != null) {
+            entries.forEach((k,v)->{
+                String payload = hashFieldPayload(hashValueOf(v));
+                if (payload == null) {
+                    // 字段已过期
+                    return;
+                }
+                T value = VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls);
+                result.put(redisSerializerWrapper.deSerializeKey(k), value);
+            });
+        }
         updateCacheStatsInfo(key, !result.isEmpty());
         return result;
     }
 
+    private byte[] hGetBytes(String key, String field) {
+        byte[] rawKey = serializeKey(key);
+        byte[] rawField = serializeKey(field);
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.hGet(rawKey, rawField));
+    }
+
+    /**
+     * 带字段过期时间的值由hBatchSet按原始字符串保存，不经过hash value序列化
+     * @param bytes
+     * @return hash字段的原始值
+     */
+    private String hashValueOf(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (CacheEnvelope.isWrapped(bytes)) {
+            return ValueCompressor.toText(bytes);
+        }
+        return Objects.toString(redisTemplate.getHashValueSerializer().deserialize(bytes), null);
+    }
+
     @Override
     public <T> Long hset(String key, String field, int expireSeconds, T value) {
         String realValue;
@@ -330,6 +617,10 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
         if (expireSeconds > 0) {
             redisTemplate.expire(key, genExpireSeconds(expireSeconds), TimeUnit.SECONDS);
         }
+        invalidateNearCache(key);
+        if (value != null) {
+            bloomAdd(key + "." + field);
+        }
         return null;
     }
 
@@ -348,6 +639,10 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
         if (expireSeconds > 0) {
             redisTemplate.expire(key, genExpireSeconds(expireSeconds), TimeUnit.SECONDS);
         }
+        invalidateNearCache(key);
+        if (value != null) {
+            bloomAdd(key + "." + field);
+        }
         return null;
     }
 
@@ -419,133 +714,314 @@ public class RedisTemplateSimpleApiImpl extends AbstractRedisSimpleApi implement
     }
 
     @Override
-    public <K, T> Map<K, T> batchGet(Collection<K> keys, Function<K, String> cacheKeyMapper, Class<T> cls) {
-        Map<K, T> result = new LinkedHashMap<>((int)(keys.size()/0.75 + 1));
-        List<Object> list = redisTemplate.executePipelined(new RedisCallback<T>() {
+    public <T> Stream<Map.Entry<String, T>> hscan(String key, int count, Class<T> cls) {
+        // cursor遍历期间占用连接，流关闭或遍历完时释放
+        byte[] rawKey = serializeKey(key);
+        ScanOptions options = ScanOptions.scanOptions().count(count).build();
+        Cursor<Map.Entry<byte[], byte[]>> cursor = redisTemplate.executeWithStickyConnection(
+                (RedisCallback<Cursor<Map.Entry<byte[], byte[]>>>) connection -> connection.hScan(rawKey, options));
+        return cursor.stream().onClose(cursor::close).<Map.Entry<String, T>>map(entry -> {
+            String payload = hashFieldPayload(hashValueOf(entry.getValue()));
+            if (payload == null) {
+                return null;
+            }
+            T value = VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls);
+            return new SimpleImmutableEntry<>(redisSerializerWrapper.deSerializeKey(entry.getKey()), value);
+        }).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<String> sscan(String key, int count) {
+        Cursor<Object> cursor = redisTemplate.opsForSet().scan(key, ScanOptions.scanOptions().count(count).build());
+        return cursor.stream().onClose(cursor::close).filter(Objects::nonNull).map(Objects::toString);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Double>> zscan(String key, int count) {
+        Cursor<TypedTuple<Object>> cursor = redisTemplate.opsForZSet().scan(key,
+                ScanOptions.scanOptions().count(count).build());
+        return cursor.stream().onClose(cursor::close)
+                .map(tuple -> new SimpleImmutableEntry<>(Objects.toString(tuple.getValue(), null), tuple.getScore()));
+    }
+
+    @Override
+    protected List<Map.Entry<String, Double>> zrangeByScorePage(String key, double min, double max, int offset,
+            int count) {
+        Set<TypedTuple<Object>> tuples = redisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max, offset, count);
+        if (tuples == null) {
+            return null;
+        }
+        return tuples.stream()
+                .map(tuple -> new SimpleImmutableEntry<>(Objects.toString(tuple.getValue(), null), tuple.getScore()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected List<Object> batchGetRaw(List<String> cacheKeys) {
+        return redisTemplate.executePipelined(new RedisCallback<Object>() {
             @Override
-            public T doInRedis(RedisConnection connection) throws DataAccessException {
-                keys.forEach(key->{
-                    connection.get(serializeKey(cacheKeyMapper.apply(key)));
-                });
+            public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                cacheKeys.forEach(cacheKey -> connection.get(serializeKey(cacheKey)));
                 return null;
             }
         }, null);
-        int index = 0;
-        for (Iterator<K> it = keys.iterator(); it.hasNext();) {
-            K key = it.next();
-            byte[] bytes = (byte[]) list.get(index++);
-            updateCacheStatsInfo(key, bytes != null);
-            if (bytes == null || Arrays.equals(VALUE_NULL_BYTES, bytes)) {
-                continue;
-            }
-            T value = deserializeValue(bytes, cls);
-            if (value != null) {
-                result.put(key, value);
+    }
+
+    @Override
+    protected <T> T decodeRaw(Object raw, Class<T> cls) {
+        return deserializeValue((byte[]) raw, cls);
+    }
+
+    @Override
+    protected <T> T decodeRaw(Object raw, TypeReference<T> type) {
+        String value = redisSerializerWrapper.deserializeRaw((byte[]) raw);
+        return value == null ? null : deserializeObject(value, type);
+    }
+
+    @Override
+    protected List<List<?>> bucketGetRaw(List<String> bucketKeys, List<List<String>> fields) {
+        List<Object> list = redisTemplate.executePipelined(new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                for (int i = 0; i < bucketKeys.size(); i++) {
+                    connection.hMGet(serializeKey(bucketKeys.get(i)),
+                        fields.get(i).stream().map(field -> serializeKey(field)).toArray(byte[][]::new));
+                }
+                return null;
             }
-        }
-        return result;
+        }, null);
+        return list.stream().map(values -> (List<?>) values).collect(Collectors.toList());
     }
 
     @Override
-    public <K, T> int batchSet(Map<K, T> datas, Function<K, String> cacheKeyMapper, int expireSeconds) {
-        AtomicInteger num = new AtomicInteger(0);
-        boolean cacheNull = this.cacheNull;
+    protected void bucketSetRaw(List<String> bucketKeys, List<List<BatchSetEntry>> entries) {
+        byte[] script = BUCKET_SET.getSource().getBytes(StandardCharsets.UTF_8);
         redisTemplate.executePipelined(new RedisCallback<Object>() {
             @Override
             public Object doInRedis(RedisConnection connection) throws DataAccessException {
-                for (Map.Entry<K,T> en: datas.entrySet()) {
-                    String cacheKey = cacheKeyMapper.apply(en.getKey());
-                    String realValue;
-                    int ttl = genExpireSeconds(expireSeconds);
-                    if (en.getValue() == null && cacheNull) {
-                        realValue = VALUE_NULL;
-                        ttl = genExpireSeconds(nullCacheTTL);
-                    } else {
-                        realValue = serializeObject(en.getValue());
-                    }
-                    Class<?> valueClass = en.getValue() != null ? en.getValue().getClass() : String.class;
-                    if (realValue == null) {
-                        continue;
+                for (int i = 0; i < bucketKeys.size(); i++) {
+                    // KEYS[1]为桶，ARGV[1]为ttl，其后为字段和值
+                    byte[][] keysAndArgs = new byte[entries.get(i).size() * 2 + 2][];
+                    keysAndArgs[0] = serializeKey(bucketKeys.get(i));
+                    int ttl = 0;
+                    int index = 2;
+                    for (BatchSetEntry entry : entries.get(i)) {
+                        keysAndArgs[index++] = serializeKey(entry.getKey());
+                        keysAndArgs[index++] = serializeValue(entry.getValue(), entry.getValueClass());
+                        ttl = Math.max(ttl, entry.getTtl());
                     }
-                    connection.setEx(serializeKey(cacheKey), ttl, serializeValue(realValue, valueClass));
-                    num.incrementAndGet();
+                    keysAndArgs[1] = String.valueOf(ttl).getBytes(StandardCharsets.UTF_8);
+                    connection.eval(script, ReturnType.INTEGER, 1, keysAndArgs);
+                }
+                return null;
+            }
+        }, null);
+    }
+
+    @Override
+    protected void batchSetRaw(List<BatchSetEntry> entries) {
+        redisTemplate.executePipelined(new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                for (BatchSetEntry entry: entries) {
+                    connection.setEx(serializeKey(entry.getKey()), entry.getTtl(),
+                            serializeValue(entry.getValue(), entry.getValueClass()));
                 }
                 return null;
             }
         }, null);
-        return num.get();
     }
 
     @Override
     public <K, T> Map<K, T> hBatchGet(String key, Collection<K> fields, Class<T> cls) {
-        Map<K, T> result = new LinkedHashMap<>((int)(fields.size()/0.75 + 1));
+        if (fields.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        List<K> fieldList = new ArrayList<>(fields);
+        Map<K, T> result = new LinkedHashMap<>((int)(fieldList.size()/0.75 + 1));
+        long startNanos = System.nanoTime();
+        byte[] rawKey = serializeKey(key);
         List<Object> list = redisTemplate.executePipelined(new RedisCallback<List<T>>() {
             @Override
             public List<T> doInRedis(RedisConnection connection) throws DataAccessException {
-                fields.forEach(field->{
-                    connection.hGet(serializeKey(key), serializeKey(Objects.toString(field)));
-                });
+                for (List<K> chunk : partition(fieldList, hashBatchChunkSize)) {
+                    connection.hMGet(rawKey, chunk.stream().map(field -> serializeKey(Objects.toString(field)))
+                        .toArray(byte[][]::new));
+                }
                 return null;
             }
         }, null);
-        int index = 0;
-        for (Iterator<K> it = fields.iterator(); it.hasNext();) {
-            K field = it.next();
-            byte[] bytes = (byte[]) list.get(index++);
-            updateCacheStatsInfo(key, bytes != null);
-            if (bytes == null || Arrays.equals(VALUE_NULL_BYTES, bytes)) {
-                continue;
+        recordLatency(Operation.BATCH, key, startNanos);
+        List<byte[]> values = new ArrayList<>(fieldList.size());
+        for (Object chunkValues : list) {
+            for (Object value : (List<?>) chunkValues) {
+                values.add((byte[]) value);
+            }
+        }
+        List<byte[]> expired = new ArrayList<>();
+        for (int i = 0; i < fieldList.size(); i++) {
+            K field = fieldList.get(i);
+            byte[] bytes = values.get(i);
+            T value = null;
+            if (bytes != null && CacheEnvelope.isWrapped(bytes)) {
+                // 带字段过期时间的值按原始字符串保存
+                String raw = new String(bytes, StandardCharsets.UTF_8);
+                if (isFieldExpired(raw)) {
+                    expired.add(serializeKey(Objects.toString(field)));
+                    expired.add(bytes);
+                    bytes = null;
+                } else {
+                    String payload = CacheEnvelope.strip(raw);
+                    value = VALUE_NULL.equals(payload) ? null : deserializeObject(payload, cls);
+                }
+            } else if (bytes != null && !Arrays.equals(VALUE_NULL_BYTES, bytes)) {
+                value = deserializeValue(bytes, cls);
             }
-            T value = deserializeValue(bytes, cls);
+            updateCacheStatsInfo(key, bytes != null);
             if (value != null) {
                 result.put(field, value);
             }
         }
+        if (!expired.isEmpty()) {
+            executeScript(HDEL_IF_EQUALS, ReturnType.INTEGER, new byte[][] {rawKey},
+                expired.toArray(new byte[expired.size()][]));
+        }
         return result;
     }
 
     @Override
-    public <K, T> int hBatchSet(String hashKey, Map<K, T> datas) {
-        AtomicInteger num = new AtomicInteger(0);
-        boolean cacheNull = this.cacheNull;
-        redisTemplate.executePipelined(new RedisCallback<List<T>>() {
-            @Override
-            public List<T> doInRedis(RedisConnection connection) throws DataAccessException {
-                for (Map.Entry<K,T> en: datas.entrySet()) {
-                    String field = Objects.toString(en.getKey());
-                    String realValue;
-                    if (en.getValue() == null && cacheNull) {
-                        realValue = VALUE_NULL;
-                    } else {
-                        realValue = serializeObject(en.getValue());
-                    }
-                    Class<?> valueClass = en.getValue() != null ? en.getValue().getClass() : String.class;
-                    if (realValue == null) {
-                        continue;
+    public <K, T> int hBatchSet(String hashKey, Map<K, T> datas, int fieldExpireSeconds) {
+        long startNanos = System.nanoTime();
+        byte[] rawKey = serializeKey(hashKey);
+        Map<byte[], byte[]> values = new LinkedHashMap<>((int)(datas.size()/0.75 + 1));
+        if (fieldExpireSeconds > 0) {
+            // 封装后的值按原始字符串保存，读取时可直接识别过期时间
+            toHashValues(datas, fieldExpireSeconds).forEach((field, value) ->
+                values.put(serializeKey(field), value.getBytes(StandardCharsets.UTF_8)));
+        } else {
+            for (Map.Entry<K, T> en : datas.entrySet()) {
+                String realValue = en.getValue() == null && cacheNull ? VALUE_NULL : serializeObject(en.getValue());
+                if (realValue == null) {
+                    continue;
+                }
+                Class<?> valueClass = en.getValue() != null ? en.getValue().getClass() : String.class;
+                values.put(serializeKey(Objects.toString(en.getKey())), serializeValue(realValue, valueClass));
+            }
+        }
+        if (values.isEmpty()) {
+            return 0;
+        }
+        try {
+            redisTemplate.executePipelined(new RedisCallback<List<T>>() {
+                @Override
+                public List<T> doInRedis(RedisConnection connection) throws DataAccessException {
+                    for (List<Map.Entry<byte[], byte[]>> chunk : partition(new ArrayList<>(values.entrySet()), hashBatchChunkSize)) {
+                        Map<byte[], byte[]> hash = new LinkedHashMap<>((int)(chunk.size()/0.75 + 1));
+                        chunk.forEach(en -> hash.put(en.getKey(), en.getValue()));
+                        connection.hMSet(rawKey, hash);
                     }
-                    connection.hSet(serializeKey(hashKey), serializeKey(field), 
-                        serializeValue(realValue, valueClass));
-                    num.incrementAndGet();
+                    return null;
                 }
-                return null;
+            }, null);
+            if (fieldExpireSeconds > 0) {
+                executeScript(EXTEND_EXPIRE, ReturnType.INTEGER, new byte[][] {rawKey},
+                    String.valueOf(fieldExpireSeconds).getBytes(StandardCharsets.UTF_8));
             }
-        }, null);
-        return num.get();
+            recordLatency(Operation.BATCH, hashKey, startNanos);
+            bloomAddFields(hashKey, datas);
+            return values.size();
+        } finally {
+            invalidateNearCache(hashKey);
+        }
     }
     
     @Override
-    protected synchronized CloseableLock tryLockOnce(String key, String instanceName, int expreMillis) {
-        // already current instance
-        String currInstance = get(key);
-        if (instanceName.equals(currInstance)) {
-            return createLock(key, instanceName);
-        }
-        // try lock
-        String result = set(key, expreMillis, TimeUnit.MILLISECONDS, true, instanceName);
-        if (result != null) {
-            return createLock(key, instanceName);
+    public Long publish(String channel, String message) {
+        return redisTemplate.execute((RedisCallback<Long>) connection -> 
+            connection.publish(channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public CloseableSubscription subscribe(String channel, Consumer<String> listener, Runnable onSubscribed) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        AtomicReference<RedisConnection> connectionRef = new AtomicReference<>();
+        MessageListener messageListener = (message, pattern) -> {
+            try {
+                listener.accept(new String(message.getBody(), StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                log.warn("handle message of channel {} fail!", channel, e);
+            }
+        };
+        // 订阅需独占连接，jedis下subscribe会阻塞，lettuce下subscribe立即返回
+        Thread subscribeThread = new Thread(() -> {
+            while (!closed.get()) {
+                RedisConnection connection = null;
+                try {
+                    connection = redisTemplate.getRequiredConnectionFactory().getConnection();
+                    connectionRef.set(connection);
+                    if (onSubscribed != null) {
+                        // jedis下subscribe阻塞到断开，只能在订阅前回调；lettuce下在订阅建立后再回调一次
+                        onSubscribed.run();
+                    }
+                    connection.subscribe(messageListener, channel.getBytes(StandardCharsets.UTF_8));
+                    if (connection.isSubscribed()) {
+                        if (onSubscribed != null) {
+                            onSubscribed.run();
+                        }
+                        break;
+                    }
+                } catch (Exception e) {
+                    if (closed.get()) {
+                        break;
+                    }
+                    log.warn("subscribe channel {} fail, retry later! error:{}", channel, e.getMessage());
+                }
+                closeQuietly(connection);
+                connectionRef.set(null);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        });
+        subscribeThread.setName("RedisSubscriber-" + channel);
+        subscribeThread.setDaemon(true);
+        subscribeThread.start();
+        return () -> {
+            closed.set(true);
+            RedisConnection connection = connectionRef.getAndSet(null);
+            if (connection != null) {
+                try {
+                    if (connection.isSubscribed()) {
+                        connection.getSubscription().unsubscribe();
+                    }
+                } catch (Exception e) {
+                    log.debug("unsubscribe channel {} fail! error:{}", channel, e.getMessage());
+                }
+                closeQuietly(connection);
+            }
+            subscribeThread.interrupt();
+        };
+    }
+
+    private void closeQuietly(RedisConnection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.debug("close connection fail! error:{}", e.getMessage());
+            }
         }
-        return null;
+    }
+
+    @Override
+    protected boolean setLease(String key, String instanceName, int expreMillis) {
+        // 值与compareAndDelete(key, instanceName)的序列化一致
+        Boolean succ = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(serializeKey(key),
+            redisSerializerWrapper.serializeValue(instanceName, String.class), Expiration.milliseconds(expreMillis),
+            RedisStringCommands.SetOption.SET_IF_ABSENT));
+        return Boolean.TRUE.equals(succ);
     }
     
 }
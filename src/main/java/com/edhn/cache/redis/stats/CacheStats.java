@@ -0,0 +1,331 @@
+package com.edhn.cache.redis.stats;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/**
+ * CacheStats
+ * 按区域统计缓存命中和操作耗时，key中第一个冒号及之前的部分为区域，没有冒号时整个key为区域
+ * 计数只增不减（LongAdder），定时日志按与上次输出的差值计算，不替换计数对象，不丢失并发的计数
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class CacheStats {
+
+    /**
+     * 统计耗时的操作
+     */
+    public enum Operation {
+        GET, SET, BATCH
+    }
+
+    /**
+     * 区域数上限，超过后的新区域都计入OTHER，避免没有冒号的key无限增长
+     */
+    public static final int MAX_NAMESPACES = 1024;
+
+    public static final String OTHER = "[other]";
+
+    private final Object lock = new Object();
+
+    /**
+     * 开放寻址表，只在加锁时整体替换，读取无锁且不产生临时字符串
+     */
+    private volatile NamespaceStats[] table = new NamespaceStats[256];
+
+    private final List<NamespaceStats> namespaces = new CopyOnWriteArrayList<>();
+
+    private volatile NamespaceStats other;
+
+    private final List<Consumer<NamespaceStats>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong lastLogTimestamp = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 记录一次读取
+     * @param key
+     * @param hitted
+     */
+    public void recordAccess(Object key, boolean hitted) {
+        NamespaceStats stats = resolve(key);
+        stats.calls.increment();
+        if (hitted) {
+            stats.hits.increment();
+        }
+    }
+
+    /**
+     * 记录一次操作耗时
+     * @param op
+     * @param key 批量操作取任一key
+     * @param nanos
+     */
+    public void recordLatency(Operation op, Object key, long nanos) {
+        resolve(key).latency(op).record(nanos);
+    }
+
+    /**
+     * @return 全部区域
+     */
+    public Collection<NamespaceStats> getNamespaces() {
+        return Collections.unmodifiableList(namespaces);
+    }
+
+    /**
+     * 注册区域监听，已有区域立即回调，之后新出现的区域创建时回调
+     * @param listener
+     */
+    public void onNamespace(Consumer<NamespaceStats> listener) {
+        synchronized (lock) {
+            listeners.add(listener);
+            namespaces.forEach(listener);
+        }
+    }
+
+    /**
+     * 距上次输出超过间隔时返回true，只有一个线程能拿到
+     * @param intervalSeconds 小于等于0时不输出
+     * @return
+     */
+    public boolean shouldLog(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return false;
+        }
+        long last = lastLogTimestamp.get();
+        long now = System.currentTimeMillis();
+        return now - last >= intervalSeconds * 1000L && lastLogTimestamp.compareAndSet(last, now);
+    }
+
+    /**
+     * 输出各区域自上次输出以来的命中情况
+     * @param out
+     * @return
+     */
+    public StringBuffer buildLogInfo(StringBuffer out) {
+        synchronized (lock) {
+            lastLogTimestamp.set(System.currentTimeMillis());
+            for (NamespaceStats stats : namespaces) {
+                long calls = stats.calls.sum();
+                long hits = stats.hits.sum();
+                long deltaCalls = calls - stats.loggedCalls;
+                long deltaHits = hits - stats.loggedHits;
+                stats.loggedCalls = calls;
+                stats.loggedHits = hits;
+                if (deltaCalls <= 0) {
+                    continue;
+                }
+                double hitRate = new BigDecimal((double) deltaHits / deltaCalls * 100)
+                        .setScale(2, BigDecimal.ROUND_HALF_UP).doubleValue();
+                out.append(stats.name).append("  \t").append(deltaHits)
+                        .append("/").append(deltaCalls)
+                        .append("  \t").append(hitRate).append("%");
+                LatencyHistogram get = stats.latency(Operation.GET);
+                if (get.getCount() > 0) {
+                    out.append("  \tget p50/p99 ").append(get.percentileMicros(0.5))
+                            .append("/").append(get.percentileMicros(0.99)).append("us");
+                }
+                out.append("\n");
+            }
+        }
+        return out;
+    }
+
+    protected NamespaceStats resolve(Object key) {
+        String keyStr = key instanceof String ? (String) key : Objects.toString(key);
+        int nsPos = keyStr.indexOf(':');
+        int length = nsPos >= 0 ? nsPos + 1 : keyStr.length();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + keyStr.charAt(i);
+        }
+        NamespaceStats[] tab = table;
+        int mask = tab.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            NamespaceStats stats = tab[i];
+            if (stats == null) {
+                break;
+            }
+            if (stats.hash == hash && stats.name.length() == length && keyStr.startsWith(stats.name)) {
+                return stats;
+            }
+        }
+        NamespaceStats overflow = other;
+        return overflow != null ? overflow : add(keyStr.substring(0, length));
+    }
+
+    private NamespaceStats add(String name) {
+        synchronized (lock) {
+            for (NamespaceStats stats : namespaces) {
+                if (stats.name.equals(name)) {
+                    return stats;
+                }
+            }
+            if (namespaces.size() >= MAX_NAMESPACES - 1 && !OTHER.equals(name)) {
+                return add(OTHER);
+            }
+            NamespaceStats stats = new NamespaceStats(name);
+            if (OTHER.equals(name)) {
+                other = stats;
+            }
+            List<NamespaceStats> all = new ArrayList<>(namespaces);
+            all.add(stats);
+            int size = table.length;
+            while (size < all.size() * 2) {
+                size <<= 1;
+            }
+            NamespaceStats[] tab = new NamespaceStats[size];
+            for (NamespaceStats s : all) {
+                int i = spread(s.hash) & (size - 1);
+                while (tab[i] != null) {
+                    i = (i + 1) & (size - 1);
+                }
+                tab[i] = s;
+            }
+            table = tab;
+            namespaces.add(stats);
+            listeners.forEach(l -> l.accept(stats));
+            return stats;
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 单个区域的统计
+     */
+    public static class NamespaceStats {
+
+        @Getter
+        private final String name;
+
+        private final int hash;
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+
+        private long loggedCalls;
+
+        private long loggedHits;
+
+        NamespaceStats(String name) {
+            this.name = name;
+            this.hash = name.hashCode();
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * @return 区域名去掉结尾的冒号，用作指标标签
+         */
+        public String getTag() {
+            return name.endsWith(":") && name.length() > 1 ? name.substring(0, name.length() - 1) : name;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return calls.sum() - hits.sum();
+        }
+
+        public LatencyHistogram latency(Operation op) {
+            return latencies[op.ordinal()];
+        }
+
+    }
+
+    /**
+     * 固定分桶的耗时直方图，桶上界按微秒指数增长
+     */
+    public static class LatencyHistogram {
+
+        private static final long[] BOUNDS_MICROS = {50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000,
+            100000, 200000, 500000, 1000000, 2000000, 5000000, Long.MAX_VALUE};
+
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length];
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int i = 0;
+            while (micros > BOUNDS_MICROS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param quantile 0~1
+         * @return 分位数所在桶的上界，单位微秒，最后一个桶返回最大值
+         */
+        public long percentileMicros(double quantile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length - 1; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target) {
+                    return BOUNDS_MICROS[i];
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.edhn.cache.redis.stats;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.edhn.cache.redis.stats.CacheStats.LatencyHistogram;
+import com.edhn.cache.redis.stats.CacheStats.NamespaceStats;
+import com.edhn.cache.redis.stats.CacheStats.Operation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * CacheStatsMeterBinder
+ * 将缓存统计发布为micrometer指标，按区域(namespace)打标签，新出现的区域自动注册
+ * <pre>
+ * redis.extend.cache.requests{namespace, result=hit|miss}
+ * redis.extend.cache.latency{namespace, operation=get|set|batch}
+ * redis.extend.cache.latency.percentile{namespace, operation, quantile=0.5|0.99}  单位秒，按直方图桶估算
+ * </pre>
+ *
+ * @author edhn
+ * @version 1.0
+ * @date 2026-10-17
+ *
+ */
+public class CacheStatsMeterBinder implements MeterBinder {
+
+    private static final double[] QUANTILES = {0.5, 0.99};
+
+    private final CacheStats cacheStats;
+
+    public CacheStatsMeterBinder(CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cacheStats.onNamespace(stats -> register(registry, stats));
+    }
+
+    private void register(MeterRegistry registry, NamespaceStats stats) {
+        String namespace = stats.getTag();
+        FunctionCounter.builder("redis.extend.cache.requests", stats, NamespaceStats::getHits)
+                .tags("namespace", namespace, "result", "hit")
+                .description("cache reads that found a value")
+                .register(registry);
+        FunctionCounter.builder("redis.extend.cache.requests", stats, NamespaceStats::getMisses)
+                .tags("namespace", namespace, "result", "miss")
+                .description("cache reads that found nothing")
+                .register(registry);
+        for (Operation op : Operation.values()) {
+            LatencyHistogram histogram = stats.latency(op);
+            String operation = op.name().toLowerCase(Locale.ROOT);
+            FunctionTimer.builder("redis.extend.cache.latency", histogram, LatencyHistogram::getCount,
+                    LatencyHistogram::getTotalNanos, TimeUnit.NANOSECONDS)
+                    .tags("namespace", namespace, "operation", operation)
+                    .register(registry);
+            for (double quantile : QUANTILES) {
+                Gauge.builder("redis.extend.cache.latency.percentile", histogram,
+                        h -> h.percentileMicros(quantile) / 1_000_000.0)
+                        .tags("namespace", namespace, "operation", operation, "quantile", String.valueOf(quantile))
+                        .baseUnit("seconds")
+                        .register(registry);
+            }
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.edhn.cache.redis.test.cases;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Objects;
@@ -26,6 +28,7 @@ import com.edhn.cache.redis.serializer.GsonValueEncoder;
 import com.edhn.cache.redis.serializer.IObjectSerializer;
 import com.edhn.cache.redis.serializer.JacksonValueDecoder;
 import com.edhn.cache.redis.serializer.JacksonValueEncoder;
+import com.edhn.cache.redis.serializer.ValueCompressor;
 import com.edhn.cache.redis.serializer.impl.JacksonObjectSerializer;
 import com.edhn.cache.redis.test.model.TestBean;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -156,6 +159,15 @@ public class RedisCacheValueParserTest extends AbstractTestCase {
             intValue = jacksonSeria.serializeObject(12345678);
             intValueDecode = jacksonSeria.deserializeObject(intValue, new TypeReference<Integer>() {});
             Assert.isTrue(Integer.valueOf(intValue).equals(intValueDecode), "Integer TypeReference 序列化反序列化不相等");
+
+            byte[] bytesValue = jacksonSeria.serializeObjectBytes(bean);
+            Assert.isTrue(value.equals(new String(bytesValue, StandardCharsets.UTF_8)), "字节序列化与字符串序列化结果不一致");
+            TestBean bytesDecode = jacksonSeria.deserializeObject(bytesValue, TestBean.class);
+            Assert.isTrue(Objects.equals(bean.getId(), bytesDecode.getId()), "字节序列化反序列化不相等");
+            strValueDecode = jacksonSeria.deserializeObject(jacksonSeria.serializeObjectBytes("abc"), String.class);
+            Assert.isTrue("abc".equals(strValueDecode), "String 字节序列化反序列化不相等");
+            intValueDecode = jacksonSeria.deserializeObject(jacksonSeria.serializeObjectBytes(1234567), Integer.class);
+            Assert.isTrue(intValueDecode == 1234567, "Integer 字节序列化反序列化不相等");
         }
     }
     
@@ -230,6 +242,53 @@ public class RedisCacheValueParserTest extends AbstractTestCase {
     }
     
     
+    @Test
+    public void test3_Compression() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(new String(beanJsonBytes, StandardCharsets.UTF_8));
+        }
+        String json = sb.toString();
+        for (ValueCompressor.Algorithm algorithm : ValueCompressor.Algorithm.values()) {
+            ValueCompressor compressor = new ValueCompressor(algorithm, 1024);
+            String compressed = compressor.compress(json);
+            Assert.isTrue(ValueCompressor.isCompressed(compressed) && compressed.length() < json.length(), algorithm + "未压缩");
+            Assert.isTrue(json.equals(ValueCompressor.decompress(compressed)), algorithm + "解压后不相等");
+            log.info("{} compress {} -> {}", algorithm, json.length(), compressed.length());
+        }
+        // 低于阈值及未压缩的旧值原样读写
+        ValueCompressor compressor = new ValueCompressor(ValueCompressor.Algorithm.DEFLATE, 1024);
+        String small = new String(beanJsonBytes, StandardCharsets.UTF_8);
+        Assert.isTrue(small == compressor.compress(small), "低于阈值不应压缩");
+        Assert.isTrue(small == ValueCompressor.decompress(small), "未压缩值应原样返回");
+
+        JacksonValueDecoder decoder = new JacksonValueDecoder(false, objectMapper);
+        Object decoded = ValueCompressor.decompressing(decoder).apply(
+            new ValueCompressor(ValueCompressor.Algorithm.GZIP, 16).compressing(new JacksonValueEncoder(false, objectMapper)).apply(bean));
+        Assert.isTrue(bean.getClass().equals(decoded.getClass()), "jetcache编码压缩后解码错误");
+        
+        // 字节格式没有base64的膨胀
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        byte[] binary = compressor.compress(jsonBytes);
+        Assert.isTrue(ValueCompressor.isCompressed(binary) && binary.length * 4 / 3 < compressor.compress(json).length(),
+            "字节格式压缩值应短于文本格式");
+        Assert.isTrue(Arrays.equals(jsonBytes, ValueCompressor.decompress(binary)), "字节格式解压后不相等");
+        Assert.isTrue(json.equals(ValueCompressor.toText(binary)), "字节格式转文本后不相等");
+        
+        // 以压缩标识开头的原值转义后原样读回
+        String marked = ValueCompressor.PREFIX + "D" + small;
+        Assert.isTrue(marked.equals(ValueCompressor.decompress(compressor.compress(marked))), "以压缩标识开头的字符串被误解压");
+        Assert.isTrue(marked.equals(ValueCompressor.decompress(ValueCompressor.escape(marked))), "转义的字符串读取错误");
+        byte[] markedBytes = marked.getBytes(StandardCharsets.UTF_8);
+        Assert.isTrue(Arrays.equals(markedBytes, ValueCompressor.decompress(compressor.compress(markedBytes))),
+            "以压缩标识开头的字节被误解压");
+        Assert.isTrue(marked.equals(ValueCompressor.decompress(ValueCompressor.toText(compressor.compress(markedBytes)))),
+            "以压缩标识开头的字节转文本后读取错误");
+        String longMarked = ValueCompressor.PREFIX + "D" + json;
+        Assert.isTrue(longMarked.equals(ValueCompressor.decompress(ValueCompressor.toText(
+            compressor.compress(longMarked.getBytes(StandardCharsets.UTF_8))))), "解压结果以压缩标识开头时转文本错误");
+    }
+    
     @Test
     public void test9_Perform() {
         /////////// encode 
@@ -267,6 +326,24 @@ public class RedisCacheValueParserTest extends AbstractTestCase {
         
         log.info("反序列化性能测试完毕！耗时顺序={}", orders.stream().map(s->s.substring(s.indexOf("_")+1)).collect(Collectors.toList()));
 
+        /////////// string vs bytes
+        JacksonObjectSerializer serializer = new JacksonObjectSerializer();
+        logPerform(()->{
+            try {
+                String json = serializer.serializeObject(bean);
+                serializer.deserializeObject(new String(json.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), TestBean.class);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "jackson string round trip");
+        logPerform(()->{
+            try {
+                serializer.deserializeObject(serializer.serializeObjectBytes(bean), TestBean.class);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "jackson bytes round trip");
+
         /////////// test reflect
 //        logPerform(() -> getClass("com.edhn.cache.jetcache.JetCacheValueParserTest.TestBean", false), "get class reflect");
 //        logPerform(()->getClass("com.edhn.cache.jetcache.JetCacheValueParserTest.TestBean", true), "get class with map");
@@ -23,6 +23,7 @@ import com.edhn.cache.redis.test.cases.AbstractTestCase;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 @Slf4j
 @RunWith(SpringRunner.class)
@@ -89,5 +90,67 @@ public class RedisClusterTest extends AbstractTestCase {
         Assert.isTrue(map.size() == count, "test cluster pipeline hash error");
         log.info("测试redis集群pipeline通过");
     }
+    
+    @Test
+    public void testPipelineErrorReply() {
+        if (!testEnabled) return;
+        // 命令分布在各节点，单条命令出错不影响其它命令
+        List<Response<String>> responseList = new ArrayList<>();
+        Response<Long> incr = redisApi.unwrap().doInPipeline(pipeline->{
+            for (int i = 0; i < 100; i++) {
+                pipeline.setex("junit.Jedis.pipeErr:" + i, 600, "v" + i);
+            }
+            Response<Long> response = pipeline.incr("junit.Jedis.pipeErr:0");
+            for (int i = 0; i < 100; i++) {
+                responseList.add(pipeline.get("junit.Jedis.pipeErr:" + i));
+            }
+            return response;
+        });
+        try {
+            incr.get();
+            Assert.isTrue(false, "test cluster pipeline error reply");
+        } catch (JedisDataException e) {
+            log.info("cluster pipeline incr error: {}", e.getMessage());
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.isTrue(("v" + i).equals(responseList.get(i).get()), "test cluster pipeline result order error");
+        }
+        log.info("测试redis集群pipeline结果顺序通过");
+    }
+    
+    @Test
+    public void testMultiKeyCrossSlot() {
+        if (!testEnabled) return;
+        // key分布在不同slot和节点，多key命令按节点拆分后结果应按输入顺序返回
+        final int count = 200;
+        String[] keys = new String[count];
+        String[] keysvalues = new String[count * 2];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "junit.Jedis.multiKey:" + i;
+            keysvalues[i * 2] = keys[i];
+            keysvalues[i * 2 + 1] = "v" + i;
+        }
+        try (RedisClient jedis = pool.getResource()) {
+            jedis.del(keys);
+            Assert.isTrue("OK".equals(jedis.mset(keysvalues)), "test cluster mset error");
+            
+            String[] mgetKeys = new String[count + 1];
+            System.arraycopy(keys, 0, mgetKeys, 0, count);
+            mgetKeys[count] = "junit.Jedis.multiKey:notExists";
+            List<String> values = jedis.mget(mgetKeys);
+            Assert.isTrue(values.size() == count + 1, "test cluster mget size error");
+            for (int i = 0; i < count; i++) {
+                Assert.isTrue(("v" + i).equals(values.get(i)), "test cluster mget order error at " + i);
+            }
+            Assert.isTrue(values.get(count) == null, "test cluster mget missing key error");
+            
+            Assert.isTrue(jedis.exists(mgetKeys) == count, "test cluster exists count error");
+            Assert.isTrue(jedis.unlink(keys[0], keys[1]) == 2, "test cluster unlink error");
+            Assert.isTrue(jedis.del(keys) == count - 2, "test cluster del count error");
+            Assert.isTrue(jedis.exists(keys) == 0, "test cluster del not effective");
+            Assert.isTrue(jedis.mget(keys).stream().allMatch(v -> v == null), "test cluster mget after del error");
+        }
+        log.info("测试redis集群跨slot多key命令通过");
+    }
 
 }
@@ -4,13 +4,24 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.AfterClass;
 import org.junit.FixMethodOrder;
@@ -26,16 +37,45 @@ import org.springframework.util.Assert;
 import com.alicp.jetcache.Cache;
 import com.alicp.jetcache.anno.CacheType;
 import com.alicp.jetcache.anno.CreateCache;
+import com.edhn.cache.redis.client.LuaScript;
+import com.edhn.cache.redis.client.RedisClient;
+import com.edhn.cache.redis.client.RedisPipeline;
 import com.edhn.cache.redis.client.impl.JedisClusterClientPool;
+import com.edhn.cache.redis.client.impl.JedisMultiplexedClientPool;
+import com.edhn.cache.redis.client.impl.JedisSingleClientPool;
+import com.edhn.cache.redis.client.impl.LettuceClientPool;
+import com.edhn.cache.redis.client.impl.ReplicaReadClientPool;
+import com.edhn.cache.redis.configuration.modal.AutoPipelineConfig;
+import com.edhn.cache.redis.configuration.modal.BloomFilterConfig;
+import com.edhn.cache.redis.configuration.modal.HashBucketConfig;
+import com.edhn.cache.redis.configuration.modal.ReadFromMode;
+import com.edhn.cache.redis.configuration.modal.RedisConfig;
+import com.edhn.cache.redis.nearcache.NearCache;
+import com.edhn.cache.redis.serializer.ValueCompressor;
+import com.edhn.cache.redis.serializer.VersionedValue;
 import com.edhn.cache.redis.service.RedisSimpleApi;
 import com.edhn.cache.redis.service.impl.AbstractRedisSimpleApi;
+import com.edhn.cache.redis.service.impl.AutoPipeliner;
+import com.edhn.cache.redis.service.impl.HashBuckets;
 import com.edhn.cache.redis.service.impl.JedisSimpleApiImpl;
+import com.edhn.cache.redis.service.impl.KeyScanner;
+import com.edhn.cache.redis.service.impl.LettuceAsyncApiImpl;
+import com.edhn.cache.redis.service.impl.ReadAfterWriteGuard;
+import com.edhn.cache.redis.stats.CacheStats;
+import com.edhn.cache.redis.stats.CacheStatsMeterBinder;
 import com.edhn.cache.redis.test.RedisCacheExtendApplicationTests;
 import com.edhn.cache.redis.test.cases.AbstractTestCase;
 import com.edhn.cache.redis.test.model.TestBean;
 import com.edhn.cache.redis.test.service.TestService;
+import com.fasterxml.jackson.core.type.TypeReference;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.Pool;
 
 @Slf4j
 @RunWith(SpringRunner.class)
@@ -88,6 +128,16 @@ public class RedisSimpleApiTest extends AbstractTestCase  {
         Assert.isTrue(result != null, "setnx无值测试失败");
         result = redisApi.set(setNxKey, 30, TimeUnit.SECONDS, true, value);
         Assert.isTrue(result == null, "setnx有值测试失败");
+        // 以压缩标识开头的原始字符串转义写入，get和mget都应还原
+        String markedKey = getCacheKeyPrefix() + ":TestSetMarked";
+        String marked = ValueCompressor.PREFIX + "G" + value;
+        redisApi.set(markedKey, marked);
+        try {
+            Assert.isTrue(marked.equals(redisApi.get(markedKey)), "get转义值读取错误");
+            Assert.isTrue(marked.equals(redisApi.mget(Arrays.asList(markedKey)).get(0)), "mget转义值读取错误");
+        } finally {
+            redisApi.del(markedKey);
+        }
         log.info("测试SetNx通过");
     }
 
@@ -186,6 +236,42 @@ public class RedisSimpleApiTest extends AbstractTestCase  {
         log.info("computeIfAbsent数据加载测试通过");
     }
     
+    @Test
+    public void testComputeIfAbsentAsync() throws Exception {
+        String key = getCacheKeyPrefix() + ":computeIfAbsentAsync:" + new Random().nextInt(Integer.MAX_VALUE);
+        redisApi.del(key);
+        AtomicInteger callNum = new AtomicInteger();
+        List<CompletableFuture<TestBean>> futures = new ArrayList<>();
+        for (int i = 1; i <= 5; i ++) {
+            futures.add(redisApi.computeIfAbsentAsync(key, TestBean.class, 600, k->{
+                callNum.incrementAndGet();
+                sleep(1000);
+                return new TestBean(key);
+            }));
+        }
+        for (CompletableFuture<TestBean> f: futures) {
+            Assert.isTrue(key.equals(f.get(5, TimeUnit.SECONDS).getId()), "computeIfAbsentAsync结果错误");
+        }
+        Assert.isTrue(callNum.get() == 1, "computeIfAbsentAsync合并加载测试失败，加载次数=" + callNum.get());
+        Assert.isTrue(redisApi.get(key, TestBean.class) != null, "computeIfAbsentAsync未写入缓存");
+        log.info("computeIfAbsentAsync数据加载测试通过");
+    }
+    
+    @Test
+    public void testComputeIfAbsentStale() throws Exception {
+        String key = getCacheKeyPrefix() + ":computeIfAbsentStale:" + new Random().nextInt(Integer.MAX_VALUE);
+        redisApi.del(key);
+        TestBean value = redisApi.computeIfAbsent(key, TestBean.class, 1, 60, k-> new TestBean("v1"));
+        Assert.isTrue("v1".equals(value.getId()), "computeIfAbsent(stale)首次加载失败");
+        sleep(1500);
+        // 软过期后直接返回旧值，后台刷新
+        value = redisApi.computeIfAbsent(key, TestBean.class, 1, 60, k-> new TestBean("v2"));
+        Assert.isTrue("v1".equals(value.getId()), "computeIfAbsent(stale)软过期后应返回旧值");
+        sleep(500);
+        Assert.isTrue("v2".equals(redisApi.get(key, TestBean.class).getId()), "computeIfAbsent(stale)后台刷新失败");
+        log.info("computeIfAbsent软过期测试通过");
+    }
+    
     @Test
     public void testRedisNum() {
         if (redisApi instanceof JedisSimpleApiImpl) {
@@ -211,6 +297,776 @@ public class RedisSimpleApiTest extends AbstractTestCase  {
         }
     }
     
+    @Test
+    public void testScanPattern() {
+        String prefix = getCacheKeyPrefix() + ":scan.test:";
+        Map<String, String> datas = new HashMap<>(128);
+        for (int i = 0; i < 100; i++) {
+            datas.put(prefix + "k_" + i, "value_" + i);
+        }
+        redisApi.batchSet(datas, 60);
+        
+        Assert.isTrue(redisApi.countByPattern(prefix + "*") >= datas.size(), "按模式统计key数量失败");
+        try (Stream<String> keys = redisApi.scan(prefix + "*", 10)) {
+            Assert.isTrue(keys.limit(5).count() == 5, "流式scan读取失败");
+        }
+        long deleted = redisApi.deleteByPattern(prefix + "*");
+        Assert.isTrue(deleted >= datas.size(), String.format("按模式删除数量不一致, %d:%d", deleted, datas.size()));
+        Assert.isTrue(redisApi.countByPattern(prefix + "*") == 0, "按模式删除后仍有key");
+        log.info("按模式遍历删除用例通过！");
+    }
+    
+    @Test
+    public void testScanIdleTimeout() throws Exception {
+        // 节点不断产生结果，流未关闭被丢弃时scan线程应在空闲超时后退出
+        CountDownLatch stopped = new CountDownLatch(1);
+        KeyScanner.Node node = (pattern, count, sink) -> {
+            try {
+                while (sink.test(Arrays.asList("k1", "k2"))) {
+                    // 持续产生
+                }
+            } finally {
+                stopped.countDown();
+            }
+        };
+        KeyScanner scanner = new KeyScanner(Arrays.asList(node), "*", 10, 1, 1, 200);
+        Assert.isTrue(stopped.await(3, TimeUnit.SECONDS), "消费方空闲超时后scan未停止");
+        Assert.isTrue(scanner.hasNext() && scanner.next().size() == 2, "超时前已排队的批次应可读取");
+        try {
+            scanner.hasNext();
+            Assert.isTrue(false, "空闲超时停止后继续读取应抛出异常");
+        } catch (IllegalStateException e) {
+            log.info("scan idle timeout: {}", e.getMessage());
+        }
+        log.info("scan空闲超时用例通过！");
+    }
+    
+    @Test
+    public void testScanCollections() {
+        String hashKey = getCacheKeyPrefix() + ":hscan.test";
+        String zsetKey = getCacheKeyPrefix() + ":zscan.test";
+        redisApi.del(hashKey, zsetKey);
+        for (int i = 0; i < 100; i++) {
+            redisApi.hset(hashKey, "f_" + i, 60, i);
+            redisApi.zadd(zsetKey, i / 10, "m_" + i);
+        }
+        
+        Map<String, Integer> fields = new HashMap<>();
+        try (Stream<Map.Entry<String, Integer>> entries = redisApi.hscan(hashKey, 10, Integer.class)) {
+            entries.forEach(e -> fields.put(e.getKey(), e.getValue()));
+        }
+        Assert.isTrue(fields.size() == 100 && fields.get("f_99") == 99, "hscan遍历hash失败");
+        
+        List<String> byIndex = redisApi.zrangeStream(zsetKey, 0, -1, 7).collect(Collectors.toList());
+        Assert.isTrue(byIndex.size() == 100, "分页zrange数量不一致, " + byIndex.size());
+        // 分数相同的成员跨页时不能重复或遗漏
+        List<String> byScore = redisApi.zrangeByScoreStream(zsetKey, 2, 5, 7).collect(Collectors.toList());
+        Assert.isTrue(byScore.size() == 40 && new HashSet<>(byScore).size() == 40, "分页zrangeByScore数量不一致, " + byScore.size());
+        redisApi.del(hashKey, zsetKey);
+        log.info("集合流式遍历用例通过！");
+    }
+    
+    @Test
+    public void testAtomicScripts() {
+        String key = getCacheKeyPrefix() + ":testScript";
+        redisApi.set(key, 10, "owner_1");
+        Assert.isTrue("owner_1".equals(redisApi.getAndExpire(key, 60, String.class)), "getAndExpire读取失败");
+        Assert.isTrue(redisApi.unwrap().doInRedis(jedis -> jedis.ttl(key)) > 10, "getAndExpire未重设过期时间");
+        Assert.isTrue(!redisApi.compareAndDelete(key, "owner_2"), "值不相等时不应删除");
+        Assert.isTrue(redisApi.compareAndDelete(key, "owner_1"), "值相等时应删除");
+        Assert.isTrue(redisApi.get(key) == null, "compareAndDelete后key仍存在");
+        
+        LuaScript script = LuaScript.register("junit:incrBy", "return redis.call('incrby', KEYS[1], ARGV[1]);", Long.class);
+        Assert.isTrue(Long.valueOf(5).equals(redisApi.eval(script, Arrays.asList(key), Arrays.asList("5"))), "执行注册脚本失败");
+        redisApi.del(key);
+        log.info("lua脚本原子操作用例通过！");
+    }
+    
+    @Test
+    public void testVersionedUpdate() throws Exception {
+        String key = getCacheKeyPrefix() + ":testVersioned";
+        redisApi.del(key);
+        VersionedValue<Integer> initial = redisApi.getWithVersion(key, Integer.class);
+        Assert.isTrue(initial.getVersion() == 0 && initial.getValue() == null, "不存在的key版本号应为0");
+        Assert.isTrue(redisApi.compareAndSet(key, 0, 0, 60) == 1, "首次compareAndSet失败");
+        Assert.isTrue(redisApi.compareAndSet(key, 0, 1, 60) == -1, "版本不一致时不应写入");
+        
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 25; i++) {
+                    redisApi.update(key, 60, Integer.class, v -> v + 1, 100);
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(30, TimeUnit.SECONDS);
+        VersionedValue<Integer> result = redisApi.getWithVersion(key, Integer.class);
+        Assert.isTrue(result.getValue() == 100 && result.getVersion() == 101, "并发乐观更新结果不一致, " + result.getValue());
+        Assert.isTrue(redisApi.get(key, Integer.class) == 100, "普通读取版本值失败");
+        redisApi.del(key);
+        log.info("版本号乐观更新用例通过！");
+    }
+    
+    @Test
+    public void testHashBatch() throws Exception {
+        String key = getCacheKeyPrefix() + ":hbatch.test";
+        redisApi.del(key);
+        Map<String, String> datas = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            datas.put("f_" + i, "value_" + i);
+        }
+        // 超过单条HMGET/HSET的字段数，按块执行
+        Assert.isTrue(redisApi.hBatchSet(key, datas) == datas.size(), "批量写hash数量不一致");
+        Map<String, String> values = redisApi.hBatchGet(key, datas.keySet(), String.class);
+        Assert.isTrue(values.equals(datas), "批量读hash结果不一致");
+        
+        Map<String, String> expiring = new HashMap<>();
+        expiring.put("f_0", "short");
+        // 缓存的null也带字段过期封装，读取时不能当作序列化值
+        expiring.put("f_null", null);
+        redisApi.hBatchSet(key, expiring, 1);
+        Map<String, String> beforeExpire = redisApi.hBatchGet(key, Arrays.asList("f_0", "f_null"), String.class);
+        Assert.isTrue("short".equals(beforeExpire.get("f_0")) && beforeExpire.get("f_null") == null, "字段过期前读取失败");
+        Assert.isTrue("short".equals(redisApi.hget(key, "f_0")) && redisApi.hget(key, "f_null") == null, "hget读取带过期字段失败");
+        Assert.isTrue("short".equals(redisApi.hgetAll(key, String.class).get("f_0")), "hgetAll读取带过期字段失败");
+        TimeUnit.MILLISECONDS.sleep(1500);
+        Assert.isTrue(redisApi.hget(key, "f_0") == null, "hget过期字段应视为不存在");
+        Assert.isTrue(!redisApi.hgetAll(key, String.class).containsKey("f_0"), "hgetAll过期字段应视为不存在");
+        try (Stream<Map.Entry<String, String>> entries = redisApi.hscan(key, 500, String.class)) {
+            Assert.isTrue(entries.noneMatch(e -> "f_0".equals(e.getKey())), "hscan过期字段应视为不存在");
+        }
+        Assert.isTrue(redisApi.hBatchGet(key, Arrays.asList("f_0", "f_1", "f_null"), String.class).size() == 1, "过期字段应视为不存在");
+        Assert.isTrue(redisApi.hlen(key) == datas.size() - 1, "过期字段应被清除");
+        redisApi.del(key);
+        log.info("hash批量读写用例通过！");
+    }
+    
+    @Test
+    public void testBatchGetLarge() {
+        String prefix = getCacheKeyPrefix() + ":bget.";
+        Map<String, List<String>> datas = new LinkedHashMap<>();
+        for (int i = 0; i < 2500; i++) {
+            datas.put(prefix + i, Arrays.asList("a" + i, "b" + i));
+        }
+        redisApi.batchSet(datas, 60);
+        // 超过并行反序列化阈值
+        Map<String, List<String>> values = redisApi.batchGet(datas.keySet(), new TypeReference<List<String>>() {});
+        Assert.isTrue(values.equals(datas), "泛型批量读结果不一致");
+        Assert.isTrue(new ArrayList<>(values.keySet()).equals(new ArrayList<>(datas.keySet())), "批量读结果顺序不一致");
+        
+        Map<String, List<?>> received = new LinkedHashMap<>();
+        int num = redisApi.batchGet(datas.keySet(), String::valueOf, List.class, received::put);
+        Assert.isTrue(num == datas.size() && received.equals(datas), "分块回调批量读结果不一致");
+        redisApi.deleteByPattern(prefix + "*");
+        log.info("大批量读取用例通过！");
+    }
+    
+    @Test
+    public void testBatchPipelineChunks() {
+        AbstractRedisSimpleApi api = (AbstractRedisSimpleApi) redisApi;
+        int oriDepth = api.getPipelineDepth();
+        int oriParallelism = api.getPipelineParallelism();
+        String prefix = getCacheKeyPrefix() + ":pipechunk.";
+        try {
+            // 分多块在多个连接上并行执行
+            api.setPipelineDepth(100);
+            api.setPipelineParallelism(3);
+            Map<String, String> datas = new LinkedHashMap<>();
+            for (int i = 0; i < 1050; i++) {
+                datas.put(prefix + i, "value_" + i);
+            }
+            Assert.isTrue(redisApi.batchSet(datas, 60) == datas.size(), "分块批量写数量不一致");
+            Map<String, String> values = redisApi.batchGet(datas.keySet(), String.class);
+            Assert.isTrue(new ArrayList<>(values.entrySet()).equals(new ArrayList<>(datas.entrySet())), "分块批量读结果不一致");
+        } finally {
+            api.setPipelineDepth(oriDepth);
+            api.setPipelineParallelism(oriParallelism);
+            redisApi.deleteByPattern(prefix + "*");
+        }
+        log.info("分块pipeline用例通过！");
+    }
+    
+    @Test
+    public void testHashBucket() {
+        AbstractRedisSimpleApi api = (AbstractRedisSimpleApi) redisApi;
+        HashBucketConfig config = new HashBucketConfig();
+        config.setBuckets(16);
+        config.getNamespaces().put("bktest", null);
+        HashBuckets buckets = new HashBuckets(config);
+        HashBuckets oriBuckets = api.getHashBuckets();
+        api.setHashBuckets(buckets);
+        try {
+            Assert.isTrue("OK".equals(redisApi.set("bktest:1", 60, 100)), "分桶写入失败");
+            Assert.isTrue(redisApi.get("bktest:1", Integer.class) == 100, "分桶读取失败");
+            Assert.isTrue(redisApi.exists("bktest:1"), "分桶存储的key应存在");
+            Assert.isTrue(!redisApi.exists("bktest:0"), "分桶存储中未写入的key不应存在");
+            Assert.isTrue(redisApi.hget(buckets.bucketKey("bktest:1"), "1") != null, "值应保存在桶中");
+            Assert.isTrue("OK".equals(redisApi.set("bktest:1", 5, 100)), "分桶写入失败");
+            try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+                Assert.isTrue(client.ttl(buckets.bucketKey("bktest:1")) > 5, "较短的ttl不应缩短桶的过期时间");
+                Assert.isTrue(!client.exists("bktest:1"), "分桶存储不应写入独立key");
+            }
+            boolean rejected = false;
+            try {
+                redisApi.expire("bktest:1", 10);
+            } catch (UnsupportedOperationException e) {
+                rejected = true;
+            }
+            Assert.isTrue(rejected, "分桶存储的key不支持单独设置过期时间");
+            
+            // 计数对桶内字段执行，不写入独立key
+            Assert.isTrue(redisApi.incr("bktest:c") == 1 && redisApi.incr("bktest:c") == 2, "分桶incr结果不一致");
+            Assert.isTrue(redisApi.decr("bktest:c") == 1, "分桶decr结果不一致");
+            Assert.isTrue(redisApi.decrMin("bktest:c", 0) == 0 && redisApi.decrMin("bktest:c", 0) == 0, "分桶decrMin不应低于下限");
+            Assert.isTrue(redisApi.decrMin("bktest:none", 0) == null, "分桶decrMin不存在的key应返回null");
+            Assert.isTrue(redisApi.get("bktest:c", Integer.class) == 0, "分桶计数读取失败");
+            try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+                Assert.isTrue(!client.exists("bktest:c"), "分桶计数不应写入独立key");
+            }
+            
+            Map<Long, String> datas = new LinkedHashMap<>();
+            for (long i = 0; i < 500; i++) {
+                datas.put(i, "flag" + i);
+            }
+            Assert.isTrue(redisApi.batchSet(datas, id -> "bktest:" + id, 60) == datas.size(), "分桶批量写数量不一致");
+            Map<Long, String> values = redisApi.batchGet(datas.keySet(), id -> "bktest:" + id, String.class);
+            Assert.isTrue(values.equals(datas), "分桶批量读结果不一致");
+            Assert.isTrue(redisApi.del("bktest:1", "bktest:2") == 2, "分桶删除数量不一致");
+            Assert.isTrue(redisApi.get("bktest:2", String.class) == null, "分桶删除后应读不到");
+        } finally {
+            api.setHashBuckets(oriBuckets);
+            redisApi.deleteByPattern("bktest:*");
+        }
+        log.info("分桶存储用例通过！");
+    }
+    
+    @Test
+    public void testMultiplexedClient() throws Exception {
+        if (!(redisApi.unwrap().getPool() instanceof JedisSingleClientPool)) {
+            return;
+        }
+        String host;
+        int port;
+        try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+            Jedis jedis = (Jedis) client.unwrap();
+            host = jedis.getClient().getHost();
+            port = jedis.getClient().getPort();
+        }
+        String prefix = getCacheKeyPrefix() + ":mux.";
+        try (JedisMultiplexedClientPool pool = new JedisMultiplexedClientPool(host, port, 3000, null, false, 2)) {
+            JedisSimpleApiImpl api = new JedisSimpleApiImpl(pool);
+            api.configure(new RedisConfig());
+            // 多线程共享连接，回复与各自命令对应
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String key = prefix + thread + "." + i;
+                        api.set(key, 60, thread * 1000 + i);
+                        if (api.get(key, Integer.class) != thread * 1000 + i) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (CompletableFuture<Boolean> future : futures) {
+                Assert.isTrue(future.get(30, TimeUnit.SECONDS), "共享连接读取结果与写入不一致");
+            }
+            Map<String, String> datas = new LinkedHashMap<>();
+            for (int i = 0; i < 500; i++) {
+                datas.put(prefix + "batch." + i, "value_" + i);
+            }
+            Assert.isTrue(api.batchSet(datas, 60) == datas.size(), "共享连接批量写数量不一致");
+            Map<String, String> values = api.batchGet(datas.keySet(), String.class);
+            Assert.isTrue(new ArrayList<>(values.entrySet()).equals(new ArrayList<>(datas.entrySet())), "共享连接批量读结果不一致");
+            // 错误回复只影响对应命令
+            try (RedisClient client = pool.getResource()) {
+                client.set(prefix + "str", "abc");
+                boolean failed = false;
+                try {
+                    client.incr(prefix + "str");
+                } catch (JedisDataException e) {
+                    failed = true;
+                }
+                Assert.isTrue(failed, "错误回复应抛出异常");
+                Assert.isTrue("abc".equals(client.get(prefix + "str")), "错误回复后连接应可继续使用");
+            }
+        } finally {
+            redisApi.deleteByPattern(prefix + "*");
+        }
+        log.info("多路复用连接用例通过！");
+    }
+    
+    @Test
+    public void testLettuceClient() {
+        if (!(redisApi.unwrap().getPool() instanceof JedisSingleClientPool)) {
+            return;
+        }
+        String host;
+        int port;
+        try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+            Jedis jedis = (Jedis) client.unwrap();
+            host = jedis.getClient().getHost();
+            port = jedis.getClient().getPort();
+        }
+        String prefix = getCacheKeyPrefix() + ":lettuce.";
+        try (LettuceClientPool pool = new LettuceClientPool(io.lettuce.core.RedisClient.create(
+                io.lettuce.core.RedisURI.create(host, port)), 3000)) {
+            JedisSimpleApiImpl api = new JedisSimpleApiImpl(pool);
+            api.configure(new RedisConfig());
+            api.set(prefix + "bean", 60, 100);
+            Assert.isTrue(api.get(prefix + "bean", Integer.class) == 100, "lettuce读写不一致");
+            Map<String, String> datas = new LinkedHashMap<>();
+            for (int i = 0; i < 500; i++) {
+                datas.put(prefix + "batch." + i, "value_" + i);
+            }
+            Assert.isTrue(api.batchSet(datas, 60) == datas.size(), "lettuce批量写数量不一致");
+            Map<String, String> values = api.batchGet(datas.keySet(), String.class);
+            Assert.isTrue(new ArrayList<>(values.entrySet()).equals(new ArrayList<>(datas.entrySet())), "lettuce批量读结果不一致");
+            // lua脚本
+            api.set(prefix + "lock", 60, "owner");
+            Assert.isTrue(!api.compareAndDelete(prefix + "lock", "other"), "值不相等时不应删除");
+            Assert.isTrue(api.compareAndDelete(prefix + "lock", "owner"), "值相等时应删除");
+            try (RedisClient client = pool.getResource()) {
+                client.hset(prefix + "hash", "f1", "v1");
+                Assert.isTrue("v1".equals(client.hgetAll(prefix + "hash").get("f1")), "lettuce hash读写不一致");
+                client.set(prefix + "str", "abc");
+                boolean failed = false;
+                try {
+                    client.incr(prefix + "str");
+                } catch (JedisDataException e) {
+                    failed = true;
+                }
+                Assert.isTrue(failed, "错误回复应转换为JedisDataException");
+                RedisPipeline pipeline = client.pipelined();
+                Response<Long> incr = pipeline.incr(prefix + "str");
+                Response<String> get = pipeline.get(prefix + "str");
+                pipeline.sync();
+                Assert.isTrue("abc".equals(get.get()), "pipeline错误回复不应影响其他命令");
+                failed = false;
+                try {
+                    incr.get();
+                } catch (JedisDataException e) {
+                    failed = true;
+                }
+                Assert.isTrue(failed, "pipeline错误回复应在get时抛出");
+            }
+        } finally {
+            redisApi.deleteByPattern(prefix + "*");
+        }
+        log.info("lettuce客户端用例通过！");
+    }
+    
+    @Test
+    public void testReplicaRead() throws Exception {
+        // 当前线程刚写入的key读主节点，其他线程和过期后不受影响
+        ReadAfterWriteGuard guard = new ReadAfterWriteGuard(200, 2);
+        guard.written("a", "b");
+        Assert.isTrue(guard.isRecent("a") && guard.isRecent(Arrays.asList("x", "b")), "刚写入的key应读主节点");
+        Assert.isTrue(!CompletableFuture.supplyAsync(() -> guard.isRecent("a")).get(), "其他线程写入的key不应影响读");
+        guard.written("c");
+        Assert.isTrue(!guard.isRecent("a") && guard.isRecent("c"), "超出记录数时应淘汰最早写入的key");
+        Thread.sleep(300);
+        Assert.isTrue(!guard.isRecent("c"), "超过staleMillis后应可读从节点");
+        Assert.isTrue(guard.readMaster(() -> guard.isRecent("x") && guard.isRecent(Arrays.asList("y"))), "readMaster中应读主节点");
+        Assert.isTrue(!guard.isRecent("x"), "readMaster结束后应恢复从节点读");
+        
+        if (!(redisApi.unwrap().getPool() instanceof JedisSingleClientPool)) {
+            return;
+        }
+        JedisSingleClientPool masterPool = (JedisSingleClientPool) redisApi.unwrap().getPool();
+        String host;
+        int port;
+        try (RedisClient client = masterPool.getResource()) {
+            Jedis jedis = (Jedis) client.unwrap();
+            host = jedis.getClient().getHost();
+            port = jedis.getClient().getPort();
+        }
+        String prefix = getCacheKeyPrefix() + ":replica.";
+        // 测试环境没有从节点，以同一redis作为从节点验证读写路由
+        Map<String, Pool<Jedis>> replicas = new LinkedHashMap<>();
+        replicas.put(host + ":" + port, new JedisPool(host, port));
+        try (ReplicaReadClientPool pool = new ReplicaReadClientPool(masterPool, replicas, ReadFromMode.replicaPreferred, 1)) {
+            RedisConfig config = new RedisConfig();
+            config.getReplicaRead().setReadFrom(ReadFromMode.replicaPreferred);
+            JedisSimpleApiImpl api = new JedisSimpleApiImpl(pool);
+            api.configure(config);
+            api.set(prefix + "k", 60, "v1");
+            Assert.isTrue("v1".equals(api.get(prefix + "k", String.class)) && api.exists(prefix + "k"), "写后读结果不一致");
+            Map<String, String> datas = new LinkedHashMap<>();
+            for (int i = 0; i < 100; i++) {
+                datas.put(prefix + "batch." + i, "value_" + i);
+            }
+            api.batchSet(datas, 60);
+            Map<String, String> values = api.batchGet(datas.keySet(), String.class);
+            Assert.isTrue(new ArrayList<>(values.entrySet()).equals(new ArrayList<>(datas.entrySet())), "从节点批量读结果不一致");
+            api.hset(prefix + "h", "f", 60, "hv");
+            Assert.isTrue("hv".equals(api.hget(prefix + "h", "f", new TypeReference<String>() {}))
+                    && api.hgetAll(prefix + "h", String.class).size() == 1, "从节点hash读结果不一致");
+            api.sadd(prefix + "s", "m1", "m2");
+            Assert.isTrue(api.smembers(prefix + "s").size() == 2, "从节点set读结果不一致");
+            api.zadd(prefix + "z", 1, "m1");
+            Assert.isTrue(api.zrange(prefix + "z", 0, -1).contains("m1"), "从节点zset读结果不一致");
+            // 其他线程读不受当前线程写入记录影响，从从节点读取
+            Assert.isTrue("v1".equals(CompletableFuture.supplyAsync(() -> api.get(prefix + "k", String.class)).get()),
+                "其他线程读结果不一致");
+        } finally {
+            redisApi.deleteByPattern(prefix + "*");
+        }
+        log.info("从节点读用例通过！");
+    }
+    
+    @Test
+    public void testNearCacheInvalidation() throws Exception {
+        // 两个实例模拟两个进程，一个实例写入后另一个实例的近端缓存应失效
+        RedisConfig config = new RedisConfig();
+        config.getNearCache().setEnabled(true);
+        config.getNearCache().getNamespaces().put("junitNear", null);
+        JedisSimpleApiImpl api1 = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        JedisSimpleApiImpl api2 = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        api1.configure(config);
+        api2.configure(config);
+        List<String> keys = Arrays.asList("junitNear:k1", "junitNear:k2");
+        try {
+            api1.set(keys.get(0), 60, "v1");
+            api1.set(keys.get(1), 60, "v1");
+            keys.forEach(key -> Assert.isTrue("v1".equals(api2.get(key, String.class)), "近端缓存首次读取结果不一致"));
+            // 订阅在首次使用时建立，等待订阅生效
+            sleep(500);
+            // 绕过api直接修改redis，近端缓存仍返回旧值
+            try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+                client.set(keys.get(0), "\"raw\"");
+            }
+            Assert.isTrue("v1".equals(api2.get(keys.get(0), String.class)), "近端缓存应命中本地值");
+            // 批量写一次调用的多个key合并为一条失效通知
+            Map<String, String> datas = new LinkedHashMap<>();
+            keys.forEach(key -> datas.put(key, "v2"));
+            api1.batchSet(datas, 60);
+            long deadline = System.currentTimeMillis() + 3000;
+            while (System.currentTimeMillis() < deadline
+                    && !keys.stream().allMatch(key -> "v2".equals(api2.get(key, String.class)))) {
+                sleep(50);
+            }
+            keys.forEach(key -> Assert.isTrue("v2".equals(api2.get(key, String.class)), "其他实例的近端缓存未失效"));
+            api1.del(keys.get(0));
+            deadline = System.currentTimeMillis() + 3000;
+            while (System.currentTimeMillis() < deadline && api2.get(keys.get(0), String.class) != null) {
+                sleep(50);
+            }
+            Assert.isTrue(api2.get(keys.get(0), String.class) == null, "删除后其他实例的近端缓存未失效");
+        } finally {
+            api1.del(keys.toArray(new String[keys.size()]));
+            api1.destroy();
+            api2.destroy();
+        }
+        // 读redis后、写入近端缓存前收到失效，读到的旧值不应缓存
+        NearCache near = new NearCache(redisApi, config.getNearCache());
+        try {
+            near.get(keys.get(1));
+            // 订阅建立时会清空本地缓存，等待订阅生效
+            sleep(500);
+            long generation = near.generation(keys.get(1));
+            near.invalidateAllLocal();
+            near.put(keys.get(1), "old", generation);
+            Assert.isTrue(near.get(keys.get(1)) == null, "读取后已失效的值不应写入近端缓存");
+            near.put(keys.get(1), "new", near.generation(keys.get(1)));
+            Assert.isTrue("new".equals(near.get(keys.get(1)).getRaw()), "未失效的值应写入近端缓存");
+        } finally {
+            near.close();
+        }
+        log.info("近端缓存跨实例失效用例通过！");
+    }
+    
+    @Test
+    public void testDistributedFill() throws Exception {
+        // 两个实例模拟两个进程，本进程内合并不跨实例，同一key只应由持有填充租约的实例加载
+        RedisConfig config = new RedisConfig();
+        config.getDistributedFill().setEnabled(true);
+        // 不足1秒的租约按毫秒设置
+        config.getDistributedFill().setLeaseMillis(800);
+        JedisSimpleApiImpl api1 = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        JedisSimpleApiImpl api2 = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        api1.configure(config);
+        api2.configure(config);
+        String key = getCacheKeyPrefix() + ":distributedFill:" + new Random().nextInt(Integer.MAX_VALUE);
+        AtomicInteger callNum = new AtomicInteger();
+        try {
+            api1.del(key);
+            List<CompletableFuture<TestBean>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                JedisSimpleApiImpl api = i % 2 == 0 ? api1 : api2;
+                futures.add(CompletableFuture.supplyAsync(() -> api.computeIfAbsent(key, TestBean.class, 600, k -> {
+                    callNum.incrementAndGet();
+                    sleep(300);
+                    return new TestBean(key);
+                })));
+            }
+            for (CompletableFuture<TestBean> f : futures) {
+                Assert.isTrue(key.equals(f.get(5, TimeUnit.SECONDS).getId()), "跨进程填充结果错误");
+            }
+            Assert.isTrue(callNum.get() == 1, "跨进程填充合并加载失败，加载次数=" + callNum.get());
+            Assert.isTrue(redisApi.get(key, TestBean.class) != null, "跨进程填充未写入缓存");
+        } finally {
+            api1.del(key);
+            api1.destroy();
+            api2.destroy();
+        }
+        boolean rejected = false;
+        try {
+            config.getDistributedFill().setLeaseMillis(0);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        Assert.isTrue(rejected, "租约时间应大于0");
+        log.info("跨进程填充用例通过！");
+    }
+    
+    @Test
+    public void testEarlyRecompute() throws Exception {
+        String key = getCacheKeyPrefix() + ":earlyRecompute:" + new Random().nextInt(Integer.MAX_VALUE);
+        AtomicInteger callNum = new AtomicInteger();
+        Function<String, TestBean> loader = k -> {
+            sleep(50);
+            return new TestBean(String.valueOf(callNum.incrementAndGet()));
+        };
+        // 未开启时命中即返回，不重算
+        redisApi.del(key);
+        redisApi.computeIfAbsent(key, TestBean.class, 600, loader);
+        TestBean value = redisApi.computeIfAbsent(key, TestBean.class, 600, loader);
+        Assert.isTrue(callNum.get() == 1 && "1".equals(value.getId()), "未开启提前重算时不应重新加载");
+        
+        // beta极大时加载耗时被放大到超过剩余有效期，命中后几乎必然提前重算
+        RedisConfig config = new RedisConfig();
+        config.setEarlyRecomputeBeta(1e8);
+        JedisSimpleApiImpl api = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        api.configure(config);
+        try {
+            callNum.set(0);
+            api.del(key);
+            value = api.computeIfAbsent(key, TestBean.class, 600, loader);
+            Assert.isTrue("1".equals(value.getId()), "提前重算首次加载失败");
+            value = api.computeIfAbsent(key, TestBean.class, 600, loader);
+            Assert.isTrue(callNum.get() == 2 && "2".equals(value.getId()), "提前重算未触发，加载次数=" + callNum.get());
+            Assert.isTrue("2".equals(api.get(key, TestBean.class).getId()), "提前重算结果未写入缓存");
+            try (RedisClient client = api.unwrap().getPool().getResource()) {
+                Assert.isTrue(client.ttl(key) > 590, "提前重算后过期时间未刷新");
+            }
+        } finally {
+            api.del(key);
+            api.destroy();
+        }
+        log.info("提前重算(XFetch)用例通过！");
+    }
+    
+    @Test
+    public void testCacheStats() throws Exception {
+        CacheStats stats = new CacheStats();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new CacheStatsMeterBinder(stats).bindTo(registry);
+        int threads = 4;
+        int perThread = 10000;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    stats.recordAccess("junitStats:k" + i, i % 4 == 0);
+                    stats.recordLatency(CacheStats.Operation.GET, "junitStats:k" + i, TimeUnit.MICROSECONDS.toNanos(80));
+                }
+            }));
+        }
+        for (CompletableFuture<Void> f : futures) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        CacheStats.NamespaceStats ns = stats.getNamespaces().stream()
+                .filter(s -> "junitStats:".equals(s.getName())).findFirst().orElse(null);
+        Assert.isTrue(ns != null && stats.getNamespaces().size() == 1, "统计区域划分错误");
+        Assert.isTrue(ns.getCalls() == threads * perThread, "并发统计读取次数丢失，calls=" + ns.getCalls());
+        Assert.isTrue(ns.getHits() == threads * perThread / 4, "并发统计命中次数丢失，hits=" + ns.getHits());
+        CacheStats.LatencyHistogram get = ns.latency(CacheStats.Operation.GET);
+        Assert.isTrue(get.getCount() == threads * perThread, "耗时统计次数丢失，count=" + get.getCount());
+        Assert.isTrue(get.percentileMicros(0.5) == 100 && get.percentileMicros(0.99) == 100, "耗时分位数计算错误");
+        Assert.isTrue(ns.latency(CacheStats.Operation.SET).percentileMicros(0.99) == 0, "无记录时分位数应为0");
+        
+        // micrometer指标按区域打标签
+        double hits = registry.get("redis.extend.cache.requests").tags("namespace", "junitStats", "result", "hit")
+                .functionCounter().count();
+        double misses = registry.get("redis.extend.cache.requests").tags("namespace", "junitStats", "result", "miss")
+                .functionCounter().count();
+        Assert.isTrue(hits == ns.getHits() && misses == ns.getMisses(), "命中指标与统计不一致");
+        double p99 = registry.get("redis.extend.cache.latency.percentile")
+                .tags("namespace", "junitStats", "operation", "get", "quantile", "0.99").gauge().value();
+        Assert.isTrue(Math.abs(p99 - 0.0001) < 1e-9, "耗时分位数指标错误，p99=" + p99);
+        
+        // 区域数超过上限后计入OTHER
+        for (int i = 0; i < CacheStats.MAX_NAMESPACES * 2; i++) {
+            stats.recordAccess("junitStats" + i + ":k", true);
+        }
+        Assert.isTrue(stats.getNamespaces().size() <= CacheStats.MAX_NAMESPACES, "区域数超过上限");
+        Assert.isTrue(stats.getNamespaces().stream().anyMatch(s -> CacheStats.OTHER.equals(s.getName())),
+            "超过上限的区域未计入" + CacheStats.OTHER);
+        log.info("缓存统计用例通过！");
+    }
+    
+    @Test
+    public void testAsyncApi() throws Exception {
+        if (!(redisApi.unwrap().getPool() instanceof JedisSingleClientPool)) {
+            return;
+        }
+        String host;
+        int port;
+        try (RedisClient client = redisApi.unwrap().getPool().getResource()) {
+            Jedis jedis = (Jedis) client.unwrap();
+            host = jedis.getClient().getHost();
+            port = jedis.getClient().getPort();
+        }
+        RedisConfig config = new RedisConfig();
+        config.getNearCache().setEnabled(true);
+        config.getNearCache().getNamespaces().put("junitAsync", null);
+        config.getHashBucket().setEnabled(true);
+        config.getHashBucket().setBuckets(16);
+        config.getHashBucket().getNamespaces().put("junitAsyncBk", null);
+        JedisSimpleApiImpl api = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        api.configure(config);
+        LettuceAsyncApiImpl asyncApi = new LettuceAsyncApiImpl(io.lettuce.core.RedisClient.create(
+            io.lettuce.core.RedisURI.create(host, port)), api);
+        String key = "junitAsync:k1";
+        String bucketKey = "junitAsyncBk:k1";
+        String hashKey = "junitAsync:h1";
+        try {
+            // 异步写入后同步api的近端缓存应失效
+            api.set(key, 60, "v1");
+            Assert.isTrue("v1".equals(api.get(key, String.class)), "同步读取结果不一致");
+            asyncApi.set(key, 60, "v2").get(3, TimeUnit.SECONDS);
+            Assert.isTrue("v2".equals(api.get(key, String.class)), "异步写入后近端缓存未失效");
+            asyncApi.del(key).get(3, TimeUnit.SECONDS);
+            Assert.isTrue(api.get(key, String.class) == null, "异步删除后近端缓存未失效");
+            
+            // 分桶存储的key异步读写与同步api一致
+            asyncApi.set(bucketKey, 60, 100).get(3, TimeUnit.SECONDS);
+            Assert.isTrue(api.get(bucketKey, Integer.class) == 100, "异步写入未按分桶存储");
+            Assert.isTrue(!redisApi.exists(bucketKey), "分桶存储不应写入独立key");
+            api.set(bucketKey, 60, 200);
+            Assert.isTrue(asyncApi.get(bucketKey, Integer.class).get(3, TimeUnit.SECONDS) == 200, "异步读取未读分桶存储");
+            Assert.isTrue(asyncApi.exists(bucketKey).get(3, TimeUnit.SECONDS), "异步exists未读分桶存储");
+            Assert.isTrue(asyncApi.del(bucketKey).get(3, TimeUnit.SECONDS) == 1, "异步删除分桶存储数量不一致");
+            Assert.isTrue(api.get(bucketKey, Integer.class) == null, "异步删除分桶存储后应读不到");
+            
+            // 带字段过期封装的hash字段异步读取与同步api一致
+            Map<String, String> fields = new HashMap<>();
+            fields.put("f_0", "short");
+            fields.put("f_null", null);
+            api.hBatchSet(hashKey, fields, 1);
+            Assert.isTrue("short".equals(asyncApi.hget(hashKey, "f_0").get(3, TimeUnit.SECONDS)), "异步hget未去掉字段过期封装");
+            Assert.isTrue(asyncApi.hget(hashKey, "f_null").get(3, TimeUnit.SECONDS) == null, "异步hget缓存的null应返回null");
+            Assert.isTrue("short".equals(asyncApi.hgetAll(hashKey, String.class).get(3, TimeUnit.SECONDS).get("f_0")),
+                "异步hgetAll未去掉字段过期封装");
+            TimeUnit.MILLISECONDS.sleep(1500);
+            Assert.isTrue(asyncApi.hget(hashKey, "f_0").get(3, TimeUnit.SECONDS) == null, "异步hget过期字段应视为不存在");
+            Assert.isTrue(!asyncApi.hgetAll(hashKey, String.class).get(3, TimeUnit.SECONDS).containsKey("f_0"),
+                "异步hgetAll过期字段应视为不存在");
+            Assert.isTrue(asyncApi.hBatchGet(hashKey, Arrays.asList("f_0", "f_null"), String.class).get(3, TimeUnit.SECONDS)
+                .isEmpty(), "异步hBatchGet过期字段应视为不存在");
+        } finally {
+            api.del(key, bucketKey, hashKey);
+            asyncApi.close();
+            api.destroy();
+        }
+        log.info("异步api用例通过！");
+    }
+    
+    @Test
+    public void testAutoPipelineClose() throws Exception {
+        String key = getCacheKeyPrefix() + ":autoPipeline:" + new Random().nextInt(Integer.MAX_VALUE);
+        redisApi.del(key);
+        AutoPipeliner pipeliner = new AutoPipeliner(redisApi.unwrap().getPool()::getResource, new AutoPipelineConfig());
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        pipeliner.execute(p -> p.incr(key));
+                    }
+                }));
+            }
+            // 调用方仍在提交时关闭，关闭前后提交的命令都应执行完成，不能有调用方一直等待
+            sleep(20);
+            pipeliner.close();
+            for (Future<?> f : futures) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+            Assert.isTrue(Long.valueOf(threads * perThread).equals(redisApi.get(key, Long.class)),
+                "自动pipeline关闭前后命令执行数不一致，value=" + redisApi.get(key));
+        } finally {
+            executor.shutdownNow();
+            redisApi.del(key);
+        }
+        log.info("自动pipeline并发关闭用例通过！");
+    }
+    
+    @Test
+    public void testBloomFilter() throws Exception {
+        String ns = "bloomtest" + new Random().nextInt(Integer.MAX_VALUE);
+        RedisConfig config = new RedisConfig();
+        BloomFilterConfig bloomConfig = config.getBloomFilter();
+        bloomConfig.setEnabled(true);
+        bloomConfig.setSyncSeconds(1);
+        bloomConfig.getNamespaces().put(ns, new BloomFilterConfig.NamespaceConfig());
+        // api1模拟写redis失败和统计写位图次数，api2模拟另一个进程
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger setBitsNum = new AtomicInteger();
+        JedisSimpleApiImpl api1 = new JedisSimpleApiImpl(redisApi.unwrap().getPool()) {
+            @Override
+            protected void setBits(Map<String, long[]> bits) {
+                setBitsNum.incrementAndGet();
+                if (failing.get()) {
+                    throw new IllegalStateException("mock setbit fail");
+                }
+                super.setBits(bits);
+            }
+        };
+        JedisSimpleApiImpl api2 = new JedisSimpleApiImpl(redisApi.unwrap().getPool());
+        api1.configure(config);
+        api2.configure(config);
+        try {
+            api1.bloomReady(ns);
+            api1.bloomAdd(ns + ":a", ns + ":b", ns + ":c");
+            Assert.isTrue(setBitsNum.get() == 1, "多个key应在一次写位图中提交，次数=" + setBitsNum.get());
+            Assert.isTrue(!api1.isDefinitelyAbsent(ns + ":a"), "写redis失败时本地应已记录key");
+            
+            // 恢复后由定时同步重发失败的位，api2同步到就绪后经redis确认key存在
+            failing.set(false);
+            sleep(2500);
+            Assert.isTrue(setBitsNum.get() >= 2, "写redis失败的位未重发");
+            for (String key : Arrays.asList(ns + ":a", ns + ":b", ns + ":c")) {
+                Assert.isTrue(!api2.isDefinitelyAbsent(key), "重发后其他进程仍判断key不存在：" + key);
+            }
+            
+            // 本地判断不存在时不访问redis，其他进程加入的key在一个同步间隔后可见
+            api1.bloomAdd(ns + ":d");
+            sleep(1500);
+            Assert.isTrue(!api2.isDefinitelyAbsent(ns + ":d"), "其他进程新加入的key同步后仍被判断为不存在");
+            Assert.isTrue(api2.isDefinitelyAbsent(ns + ":notExists"), "不存在的key应判断为不存在");
+            
+            // hBatchSet写入的字段同样记录，hComputeIfAbsent应读到缓存值而不是判断为不存在
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("f1", "v1");
+            api1.hBatchSet(ns + ":h", fields, 0);
+            String value = api1.hComputeIfAbsent(ns + ":h", "f1", new TypeReference<String>() {}, 60, f -> "loaded");
+            Assert.isTrue("v1".equals(value), "hBatchSet写入的字段被判断为不存在，结果=" + value);
+        } finally {
+            api1.del(ns + ":h");
+            api1.deleteByPattern(bloomConfig.getKeyPrefix() + ns + ":*");
+            api1.destroy();
+            api2.destroy();
+        }
+        log.info("布隆过滤器用例通过！");
+    }
+    
     @Test 
     public void testNullCache() {
         if (redisApi instanceof JedisSimpleApiImpl) {
@@ -4,10 +4,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -25,6 +28,8 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.Assert;
 
+import com.edhn.cache.redis.client.LuaScript;
+import com.edhn.cache.redis.serializer.VersionedValue;
 import com.edhn.cache.redis.service.impl.AbstractRedisSimpleApi;
 import com.edhn.cache.redis.test.SpringRedisCacheExtendApplicationTests;
 import com.edhn.cache.redis.test.cases.AbstractTestCase;
@@ -32,6 +37,11 @@ import com.edhn.cache.redis.test.model.TestBean;
 import com.edhn.cache.redis.test.service.TestService;
 
 import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 @Slf4j
 @RunWith(SpringRunner.class)
@@ -141,6 +151,109 @@ public class SpringRedisSimpleApiTest extends AbstractTestCase implements Initia
         log.info("批量读写用例通过！");
     }
 
+    @Test
+    public void testClientScanAndScript() {
+        String hashKey = getCacheKeyPrefix() + ":client_hscan";
+        String setKey = getCacheKeyPrefix() + ":client_sscan";
+        String zsetKey = getCacheKeyPrefix() + ":client_zscan";
+        String numKey = getCacheKeyPrefix() + ":client_eval";
+        LuaScript incrBy = LuaScript.register("junit.Spring:incrBy", "return redis.call('incrby', KEYS[1], ARGV[1])",
+            Long.class);
+        redisApi.unwrap().consumeInRedis(client -> {
+            client.del(hashKey, setKey, zsetKey, numKey);
+            for (int i = 0; i < 25; i++) {
+                client.hset(hashKey, "f_" + i, "v_" + i);
+                client.sadd(setKey, "m_" + i);
+                client.zadd(zsetKey, i, "m_" + i);
+            }
+            // 游标跨多次调用，每次不超过count个
+            ScanParams params = new ScanParams().count(10);
+            Map<String, String> fields = new HashMap<>();
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<Map.Entry<String, String>> page = client.hscan(hashKey, cursor, params);
+                Assert.isTrue(page.getResult().size() <= 10, "hscan每页数量超过count");
+                page.getResult().forEach(e -> fields.put(e.getKey(), e.getValue()));
+                cursor = page.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            Assert.isTrue(fields.size() == 25 && "v_7".equals(fields.get("f_7")), "hscan遍历hash失败");
+            
+            Set<String> members = new HashSet<>();
+            cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> page = client.sscan(setKey, cursor, params);
+                members.addAll(page.getResult());
+                cursor = page.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            Assert.isTrue(members.size() == 25, "sscan遍历set失败");
+            
+            Map<String, Double> scores = new HashMap<>();
+            cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<Tuple> page = client.zscan(zsetKey, cursor, params);
+                page.getResult().forEach(t -> scores.put(t.getElement(), t.getScore()));
+                cursor = page.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            Assert.isTrue(scores.size() == 25 && scores.get("m_3") == 3d, "zscan遍历zset失败");
+            
+            // 首次EVALSHA无脚本时改用EVAL，之后EVALSHA
+            client.del(numKey);
+            Assert.isTrue(Long.valueOf(2).equals(incrBy.execute(client, Arrays.asList(numKey), Arrays.asList("2"))), "eval执行失败");
+            Assert.isTrue(Long.valueOf(5).equals(client.evalsha(incrBy.getSha1(), Arrays.asList(numKey), Arrays.asList("3"))),
+                "evalsha执行失败");
+            client.del(hashKey, setKey, zsetKey, numKey);
+        });
+        log.info("spring连接scan和脚本用例通过！");
+    }
+    
+    @Test
+    public void testVersionedValue() {
+        String key = getCacheKeyPrefix() + ":versioned";
+        redisApi.del(key);
+        // set()写入的值经RedisTemplate的value序列化，按版本0读取
+        redisApi.set(key, 60, new TestBean("v0"));
+        VersionedValue<TestBean> initial = redisApi.getWithVersion(key, TestBean.class);
+        Assert.isTrue(initial.getVersion() == 0 && "v0".equals(initial.getValue().getId()), "读取set写入值的版本失败");
+        // 版本值按原始字符串保存，普通读取不能交给RedisTemplate的value序列化
+        Assert.isTrue(redisApi.compareAndSet(key, 0, new TestBean("v1"), 60) == 1, "compareAndSet失败");
+        Assert.isTrue("v1".equals(redisApi.get(key, TestBean.class).getId()), "普通读取版本值失败");
+        Assert.isTrue(redisApi.get(key) != null, "按字符串读取版本值失败");
+        VersionedValue<TestBean> updated = redisApi.getWithVersion(key, TestBean.class);
+        Assert.isTrue(updated.getVersion() == 1 && "v1".equals(updated.getValue().getId()), "读取版本值失败");
+        redisApi.del(key);
+        log.info("版本值读写用例通过！");
+    }
+    
+    @Test
+    public void testPipelineResponse() {
+        String key = getCacheKeyPrefix() + ":pipe_resp";
+        String hashKey = getCacheKeyPrefix() + ":pipe_resp_hash";
+        redisApi.del(key, hashKey);
+        Map<String, String> hash = new LinkedHashMap<>();
+        hash.put("f1", "v1");
+        hash.put("f2", "v2");
+        List<Response<?>> responses = redisApi.unwrap().doInPipeline(pipeline -> Arrays.asList(
+            pipeline.setex(key, 60, "a"),
+            pipeline.get(key),
+            pipeline.hset(hashKey, hash),
+            pipeline.hmget(hashKey, "f2", "f1", "f3"),
+            pipeline.expire(hashKey, 60),
+            pipeline.incr(key)));
+        Assert.isTrue("OK".equals(responses.get(0).get()), "pipeline set结果不正确");
+        Assert.isTrue("a".equals(responses.get(1).get()), "pipeline get结果不正确");
+        Assert.isTrue(Long.valueOf(2).equals(responses.get(2).get()), "pipeline hset结果不正确");
+        Assert.isTrue(Arrays.asList("v2", "v1", null).equals(responses.get(3).get()), "pipeline hmget结果不正确");
+        Assert.isTrue(Long.valueOf(1).equals(responses.get(4).get()), "pipeline expire结果不正确");
+        try {
+            responses.get(5).get();
+            Assert.isTrue(false, "非数字incr应抛出异常");
+        } catch (JedisDataException e) {
+            log.info("pipeline incr error: {}", e.getMessage());
+        }
+        redisApi.del(key, hashKey);
+        log.info("pipeline结果用例通过！");
+    }
+
     @Test
     public void testComputeIfAbsent() throws Exception {
         String key = getCacheKeyPrefix() + ":computeIfAbsent:" + new Random().nextInt(Integer.MAX_VALUE);